@@ -0,0 +1,141 @@
+package com.example.routingsim.bench;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.routingsim.model.Edge;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.Node;
+
+/**
+ * Topology edits: edge upserts and node removal.
+ * Every benchmark undoes its own change so the graph stays the same size
+ * for the whole run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MutationBenchmark {
+
+    // Number of pre-chosen node pairs / nodes cycled through
+    private static final int OPS = 256;
+
+    @Param({"GRID", "GEOMETRIC", "SCALE_FREE"})
+    public Topologies.Kind topology;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Graph graph;
+    private int next;
+
+    // Existing edges (for weight updates) and unlinked pairs (for insert + delete)
+    private String[] linkedFrom, linkedTo;
+    private String[] freeFrom, freeTo;
+    private Node[] freeFromNode, freeToNode;
+
+    // Nodes removed and restored by removeNode
+    private Node[] victims;
+
+    @Setup
+    public void setup() {
+        graph = Topologies.build(topology, size, 42);
+        List<Node> nodes = new ArrayList<>(graph.getNodes());
+        Random rnd = new Random(11);
+
+        linkedFrom = new String[OPS];
+        linkedTo = new String[OPS];
+        freeFrom = new String[OPS];
+        freeTo = new String[OPS];
+        freeFromNode = new Node[OPS];
+        freeToNode = new Node[OPS];
+        victims = new Node[OPS];
+
+        // Victims are distinct and never part of a free pair, so restoring a
+        // node never leaves a stale Node reference behind in these arrays
+        Set<Node> picked = new HashSet<>();
+        for (int i = 0; i < OPS; i++) {
+            Node v;
+            do {
+                v = nodes.get(rnd.nextInt(nodes.size()));
+            } while (!picked.add(v));
+            victims[i] = v;
+        }
+
+        for (int i = 0; i < OPS; i++) {
+            Node a;
+            do {
+                a = nodes.get(rnd.nextInt(nodes.size()));
+            } while (graph.getEdges(a).isEmpty());
+            Edge e = graph.getEdges(a).get(rnd.nextInt(graph.getEdges(a).size()));
+            linkedFrom[i] = a.getId();
+            linkedTo[i] = e.getTo().getId();
+
+            Node b, c;
+            do {
+                b = nodes.get(rnd.nextInt(nodes.size()));
+                c = nodes.get(rnd.nextInt(nodes.size()));
+            } while (b == c || picked.contains(b) || picked.contains(c) || linked(b, c));
+            freeFrom[i] = b.getId();
+            freeTo[i] = c.getId();
+            freeFromNode[i] = b;
+            freeToNode[i] = c;
+        }
+    }
+
+    private boolean linked(Node a, Node b) {
+        for (Edge e : graph.getEdges(a)) {
+            if (e.getTo() == b) return true;
+        }
+        return false;
+    }
+
+    private int advance() {
+        next = (next + 1) & (OPS - 1);
+        return next;
+    }
+
+    // addEdge on an existing link (the update-weight branch)
+    @Benchmark
+    public void addEdgeUpdate() {
+        int i = advance();
+        graph.addEdge(linkedFrom[i], linkedTo[i], 1.0 + (i & 7));
+    }
+
+    // addEdge of a new link followed by removeEdge of the same link
+    @Benchmark
+    public void addAndRemoveEdge() {
+        int i = advance();
+        graph.addEdge(freeFrom[i], freeTo[i], 1.0);
+        graph.removeEdge(freeFromNode[i], freeToNode[i]);
+    }
+
+    // removeNode followed by re-adding the node and its links
+    @Benchmark
+    public Node removeAndRestoreNode() {
+        int i = advance();
+        Node victim = victims[i];
+        List<Edge> edges = new ArrayList<>(graph.getEdges(victim));
+        graph.removeNode(victim);
+
+        Node restored = graph.addNode(victim.getId(), victim.getX(), victim.getY());
+        for (Edge e : edges) {
+            graph.addEdge(restored.getId(), e.getTo().getId(), e.getWeight());
+        }
+        victims[i] = restored;
+        return restored;
+    }
+}
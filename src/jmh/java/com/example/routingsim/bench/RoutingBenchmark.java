@@ -0,0 +1,123 @@
+package com.example.routingsim.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.routing.DijkstraEngine.HeapStrategy;
+import com.example.routingsim.routing.Metric;
+import com.example.routingsim.routing.SearchWorkspace;
+
+/**
+ * Point-to-point route queries on synthetic topologies.
+ * Throughput mode gives queries per microsecond, SampleTime mode gives the
+ * latency percentiles, and the gc profiler configured in build.gradle adds
+ * the allocation rate per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoutingBenchmark {
+
+    // Number of pre-generated (source, destination) pairs cycled through
+    private static final int QUERIES = 1024;
+
+    @Param({"GRID", "GEOMETRIC", "SCALE_FREE"})
+    public Topologies.Kind topology;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Graph graph;
+    private GraphSnapshot snapshot;
+    private CsrGraph csr;
+    private Node[] sources, destinations;
+    private int[] sourceIndex, destinationIndex;
+
+    /** Per-thread position in the query list. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int advance() {
+            next = (next + 1) & (QUERIES - 1);
+            return next;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        graph = Topologies.build(topology, size, 42);
+        snapshot = graph.snapshot();
+        csr = snapshot.csr();
+
+        List<Node> nodes = new ArrayList<>(graph.getNodes());
+        Random rnd = new Random(7);
+        sources = new Node[QUERIES];
+        destinations = new Node[QUERIES];
+        sourceIndex = new int[QUERIES];
+        destinationIndex = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            sources[i] = nodes.get(rnd.nextInt(nodes.size()));
+            destinations[i] = nodes.get(rnd.nextInt(nodes.size()));
+            sourceIndex[i] = snapshot.index().indexOf(sources[i]);
+            destinationIndex[i] = snapshot.index().indexOf(destinations[i]);
+        }
+    }
+
+    @Benchmark
+    public List<Node> shortestPath(Cursor c) {
+        int i = c.advance();
+        return graph.findShortestPath(sources[i], destinations[i]);
+    }
+
+    @Benchmark
+    public List<Node> weightedShortestPath(Cursor c) {
+        int i = c.advance();
+        return graph.findWeightedShortestPath(sources[i], destinations[i]);
+    }
+
+    @Benchmark
+    public boolean dijkstraIndexedHeap(Cursor c) {
+        int i = c.advance();
+        return SearchWorkspace.current().dijkstra(csr, sourceIndex[i], destinationIndex[i], HeapStrategy.INDEXED);
+    }
+
+    @Benchmark
+    public boolean dijkstraLazyHeap(Cursor c) {
+        int i = c.advance();
+        return SearchWorkspace.current().dijkstra(csr, sourceIndex[i], destinationIndex[i], HeapStrategy.LAZY);
+    }
+
+    @Benchmark
+    public boolean aStar(Cursor c) {
+        int i = c.advance();
+        return snapshot.route(SearchWorkspace.current(), sourceIndex[i], destinationIndex[i], Metric.ASTAR);
+    }
+
+    @Benchmark
+    public boolean bidirectionalDijkstra(Cursor c) {
+        int i = c.advance();
+        return snapshot.route(SearchWorkspace.current(), sourceIndex[i], destinationIndex[i], Metric.BIDIRECTIONAL_WEIGHT);
+    }
+
+    @Benchmark
+    public boolean bidirectionalBfs(Cursor c) {
+        int i = c.advance();
+        return snapshot.route(SearchWorkspace.current(), sourceIndex[i], destinationIndex[i], Metric.BIDIRECTIONAL_HOP);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.routingsim.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.sim.Simulator;
+
+/**
+ * AODV simulation of constant-bit-rate flows on a geometric topology,
+ * sequential (1 region) or partitioned across cores.
+ *
+ * The setup first runs the scenario sequentially and then several times
+ * with the benchmarked number of regions, and fails unless every
+ * partitioned run ends with exactly the same events and statistics: a
+ * partitioned run must only be faster, never different.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimulatorBenchmark {
+
+    // Flows, packets per flow and seconds between packets
+    private static final int FLOWS = 400;
+    private static final int PACKETS = 40;
+    private static final double INTERVAL = 0.05;
+
+    // Partitioned runs compared with the sequential one in the setup
+    private static final int CHECKS = 5;
+
+    @Param({"3000", "10000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int regions;
+
+    private Graph graph;
+    private int[] flowSource, flowDestination;
+    private Simulator sim;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = Topologies.build(Topologies.Kind.GEOMETRIC, size, 42);
+        Random rnd = new Random(13);
+        flowSource = new int[FLOWS];
+        flowDestination = new int[FLOWS];
+        for (int i = 0; i < FLOWS; i++) {
+            flowSource[i] = rnd.nextInt(size);
+            do {
+                flowDestination[i] = rnd.nextInt(size);
+            } while (flowDestination[i] == flowSource[i]);
+        }
+
+        String expected = outcome(1);
+        for (int i = 0; i < CHECKS; i++) {
+            String actual = outcome(regions);
+            if (!actual.equals(expected)) {
+                throw new IllegalStateException("Partitioned run differs from the sequential run:\n  sequential:  "
+                        + expected + "\n  " + regions + " regions: " + actual);
+            }
+        }
+    }
+
+    // Runs the whole scenario and returns its event count and statistics
+    private String outcome(int regions) {
+        try (Simulator s = simulator(regions)) {
+            long events = s.runAll();
+            return "events=" + events + " " + s.stats().summary();
+        }
+    }
+
+    private Simulator simulator(int regions) {
+        Simulator s = new Simulator(graph, 42, regions);
+        for (int i = 0; i < FLOWS; i++) {
+            s.addFlow(flowSource[i], flowDestination[i], i * 0.001, INTERVAL, PACKETS);
+        }
+        return s;
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        sim = simulator(regions);
+    }
+
+    @TearDown(Level.Invocation)
+    public void release() {
+        sim.close();
+    }
+
+    @Benchmark
+    public long runAll() {
+        return sim.runAll();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.routingsim.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.example.routingsim.model.Graph;
+
+/**
+ * Synthetic topologies used by the benchmarks.
+ * All generators are seeded so every run sees exactly the same graph.
+ */
+public final class Topologies {
+
+    /** The topology families the benchmarks are parameterized over. */
+    public enum Kind {
+        /** Square lattice, every node linked to its 4 neighbours. */
+        GRID,
+        /** Random geometric (unit-disk) graph, like an ad hoc radio network. */
+        GEOMETRIC,
+        /** Barabasi-Albert preferential attachment graph with hub nodes. */
+        SCALE_FREE
+    }
+
+    // Average degree targeted by the geometric generator
+    private static final double GEOMETRIC_DEGREE = 8.0;
+
+    // New links per node in the scale-free generator
+    private static final int SCALE_FREE_LINKS = 3;
+
+    private Topologies() {
+    }
+
+    // Returns the id used for node i
+    public static String id(int i) {
+        return "N" + i;
+    }
+
+    /**
+     * Builds a topology of roughly n nodes (grids are rounded to a square).
+     * Edge weights are random in [1, 10).
+     */
+    public static Graph build(Kind kind, int n, long seed) {
+        Random rnd = new Random(seed);
+        switch (kind) {
+            case GRID:      return grid(n, rnd);
+            case GEOMETRIC: return geometric(n, rnd);
+            default:        return scaleFree(n, rnd);
+        }
+    }
+
+    private static Graph grid(int n, Random rnd) {
+        int side = (int) Math.ceil(Math.sqrt(n));
+        Graph g = new Graph();
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                g.addNode(id(r * side + c), c * 10.0, r * 10.0);
+            }
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int i = r * side + c;
+                if (c + 1 < side) g.addEdge(id(i), id(i + 1), weight(rnd));
+                if (r + 1 < side) g.addEdge(id(i), id(i + side), weight(rnd));
+            }
+        }
+        return g;
+    }
+
+    private static Graph geometric(int n, Random rnd) {
+        // Unit square scaled so that the expected degree is GEOMETRIC_DEGREE
+        double side = 1000.0;
+        double range = side * Math.sqrt(GEOMETRIC_DEGREE / (Math.PI * n));
+        double[] xs = new double[n], ys = new double[n];
+
+        Graph g = new Graph();
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            xs[i] = rnd.nextDouble() * side;
+            ys[i] = rnd.nextDouble() * side;
+            g.addNode(id(i), xs[i], ys[i]);
+            long key = cellKey((long) Math.floor(xs[i] / range), (long) Math.floor(ys[i] / range));
+            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        // Only the 3x3 block of cells around a node can hold nodes in range
+        for (int i = 0; i < n; i++) {
+            long cx = (long) Math.floor(xs[i] / range), cy = (long) Math.floor(ys[i] / range);
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    List<Integer> bucket = cells.get(cellKey(cx + dx, cy + dy));
+                    if (bucket == null) continue;
+                    for (int j : bucket) {
+                        if (j <= i) continue;
+                        double d = Math.hypot(xs[i] - xs[j], ys[i] - ys[j]);
+                        if (d <= range) g.addEdge(id(i), id(j), 1.0 + d);
+                    }
+                }
+            }
+        }
+        return g;
+    }
+
+    private static long cellKey(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xffffffffL);
+    }
+
+    private static Graph scaleFree(int n, Random rnd) {
+        Graph g = new Graph();
+        // Every edge endpoint is recorded once, so sampling from this list is
+        // sampling proportional to degree
+        int[] endpoints = new int[2 * SCALE_FREE_LINKS * n];
+        int size = 0;
+
+        int seedNodes = SCALE_FREE_LINKS + 1;
+        for (int i = 0; i < Math.min(seedNodes, n); i++) {
+            g.addNode(id(i), rnd.nextDouble() * 1000, rnd.nextDouble() * 1000);
+            for (int j = 0; j < i; j++) {
+                g.addEdge(id(i), id(j), weight(rnd));
+                endpoints[size++] = i;
+                endpoints[size++] = j;
+            }
+        }
+        for (int i = seedNodes; i < n; i++) {
+            g.addNode(id(i), rnd.nextDouble() * 1000, rnd.nextDouble() * 1000);
+            for (int k = 0; k < SCALE_FREE_LINKS; k++) {
+                int j = endpoints[rnd.nextInt(size)];
+                if (j == i) continue; // no self-loops
+                g.addEdge(id(i), id(j), weight(rnd));
+                endpoints[size++] = i;
+                endpoints[size++] = j;
+            }
+        }
+        return g;
+    }
+
+    private static double weight(Random rnd) {
+        return 1.0 + rnd.nextInt(9) + rnd.nextDouble();
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.routingsim;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.example.routingsim.io.TopologyFiles;
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.routing.BatchRoutingEngine;
+import com.example.routingsim.routing.ContractionHierarchy;
+import com.example.routingsim.routing.DistanceMatrix;
+import com.example.routingsim.routing.DistanceTables;
+import com.example.routingsim.routing.Metric;
+import com.example.routingsim.trace.ScenarioRecorder;
+import com.example.routingsim.trace.ScenarioReplayer;
+import com.example.routingsim.trace.TraceReplayer;
+
+/**
+ * Headless entry point: routes a file of queries against a topology file
+ * without starting JavaFX.
+ *
+ * Usage: BatchMain [--threads N] &lt;topology-file&gt; &lt;query-file&gt; [output-file]
+ * Results go to stdout when no output file is given; a summary is printed
+ * to stderr at the end. With --threads the queries are solved in chunks on
+ * N worker threads instead of one at a time.
+ *
+ * The topology format follows the file extension (see {@link TopologyFiles}),
+ * so a binary .topo file is loaded straight into the routing snapshot.
+ * BatchMain --convert &lt;input&gt; &lt;output&gt; converts between the formats.
+ *
+ * BatchMain --replay &lt;topology-file|-&gt; &lt;trace-file&gt; [output-file] replays a
+ * trace of topology changes and route queries (see {@link TraceReplayer}),
+ * starting from the topology or, with "-", from an empty graph.
+ *
+ * BatchMain --all-pairs &lt;topology-file&gt; &lt;metric&gt; &lt;output&gt; [float|short[:step]]
+ * writes the all-pairs distance table (see {@link DistanceTables}) to a
+ * memory-mapped {@link DistanceMatrix} file.
+ *
+ * BatchMain --build-hierarchy &lt;topology-file&gt; &lt;index-file&gt; preprocesses a
+ * topology into a {@link ContractionHierarchy} index, to be loaded with
+ * {@link ContractionHierarchy#read} at startup.
+ *
+ * BatchMain --replay-scenario [--route-cache N] &lt;journal&gt; [output-file]
+ * re-executes a session journal written by {@link ScenarioRecorder} (the
+ * app records one with -Droutingsim.scenarioFile=&lt;file&gt;) with
+ * {@link ScenarioReplayer}, writes the routes that differ from the
+ * recorded ones and prints the throughput and latency comparison. It
+ * exits with status 1 if a route's cost differs, for regression runs.
+ *
+ * A leading --metrics &lt;file&gt; works with every mode: it turns on
+ * {@link Metrics} and writes a snapshot of them to the file every five
+ * seconds and once more at the end.
+ */
+public class BatchMain {
+
+    public static void main(String[] args) throws Exception {
+        int status;
+        // Optional leading "--metrics FILE"
+        if (args.length >= 2 && args[0].equals("--metrics")) {
+            Metrics.setEnabled(true);
+            AutoCloseable export = Metrics.exportEvery(Path.of(args[1]), 5000);
+            try {
+                status = run(Arrays.copyOfRange(args, 2, args.length));
+            } finally {
+                export.close(); // writes the last snapshot, also for failed runs
+            }
+        } else {
+            status = run(args);
+        }
+        if (status != 0) System.exit(status);
+    }
+
+    // Runs one mode and returns the process exit status
+    private static int run(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("--convert")) {
+            convert(Path.of(args[1]), Path.of(args[2]));
+            return 0;
+        }
+        if ((args.length == 3 || args.length == 4) && args[0].equals("--replay")) {
+            replay(args[1], Path.of(args[2]), args.length == 4 ? Path.of(args[3]) : null);
+            return 0;
+        }
+        if ((args.length == 4 || args.length == 5) && args[0].equals("--all-pairs")) {
+            allPairs(Path.of(args[1]), Metric.parse(args[2]), Path.of(args[3]), args.length == 5 ? args[4] : "float");
+            return 0;
+        }
+        if (args.length == 3 && args[0].equals("--build-hierarchy")) {
+            buildHierarchy(Path.of(args[1]), Path.of(args[2]));
+            return 0;
+        }
+        if (args.length >= 2 && args[0].equals("--replay-scenario")) {
+            int cache = 0, i = 1;
+            if (args.length >= 4 && args[1].equals("--route-cache")) {
+                cache = Integer.parseInt(args[2]);
+                i = 3;
+            }
+            if (args.length - i == 1 || args.length - i == 2) {
+                return replayScenario(Path.of(args[i]), args.length - i == 2 ? Path.of(args[i + 1]) : null, cache) ? 0 : 1;
+            }
+        }
+
+        // Optional leading "--threads N"
+        int threads = 0;
+        if (args.length >= 2 && args[0].equals("--threads")) {
+            threads = Integer.parseInt(args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        if (args.length < 2) {
+            System.err.println("usage: BatchMain [--metrics FILE] [--threads N] <topology-file> <query-file> [output-file]");
+            System.err.println("       BatchMain --convert <input-topology> <output-topology>");
+            System.err.println("       BatchMain --replay <topology-file|-> <trace-file> [output-file]");
+            System.err.println("       BatchMain --all-pairs <topology-file> <metric> <output> [float|short[:step]]");
+            System.err.println("       BatchMain --build-hierarchy <topology-file> <index-file>");
+            System.err.println("       BatchMain --replay-scenario [--route-cache N] <journal> [output-file]");
+            return 2;
+        }
+
+        // Load the topology once as a snapshot
+        long start = System.nanoTime();
+        GraphSnapshot snapshot = TopologyFiles.load(Path.of(args[0]));
+        BatchRoutingEngine engine = new BatchRoutingEngine(snapshot);
+        System.err.printf("loaded %d nodes in %d ms%n",
+                snapshot.csr().nodeCount(), (System.nanoTime() - start) / 1_000_000);
+
+        // Stream the queries through the engine
+        try (BufferedReader in = Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8);
+             Writer out = args.length > 2
+                     ? Files.newBufferedWriter(Path.of(args[2]), StandardCharsets.UTF_8)
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            if (threads > 0) engine.runParallel(in, out, threads);
+            else engine.run(in, out);
+        }
+        System.err.println(engine.summary());
+        return 0;
+    }
+
+    // Reads a topology in one format and writes it in another
+    private static void convert(Path input, Path output) throws IOException {
+        long start = System.nanoTime();
+        GraphSnapshot snapshot = TopologyFiles.load(input);
+        long loaded = System.nanoTime();
+        TopologyFiles.save(snapshot, output);
+        System.err.printf("converted %d nodes, %d arcs: read %d ms, write %d ms%n",
+                snapshot.csr().nodeCount(), snapshot.csr().arcCount(),
+                (loaded - start) / 1_000_000, (System.nanoTime() - loaded) / 1_000_000);
+    }
+
+    // Replays a topology change trace, starting from a topology file or ("-") an empty graph
+    private static void replay(String topology, Path trace, Path output) throws IOException {
+        Graph graph = topology.equals("-") ? new Graph() : TopologyFiles.loadGraph(Path.of(topology));
+        TraceReplayer replayer = new TraceReplayer(graph, 1 << 16);
+        try (BufferedReader in = new BufferedReader(Files.newBufferedReader(trace, StandardCharsets.UTF_8), 1 << 16);
+             Writer out = output != null
+                     ? Files.newBufferedWriter(output, StandardCharsets.UTF_8)
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            replayer.run(in, out);
+        }
+        System.err.println(replayer.summary());
+    }
+
+    // Replays a scenario journal on an empty graph; returns false if some route's cost differs from the recording
+    private static boolean replayScenario(Path journal, Path output, int routeCache) throws IOException {
+        ScenarioReplayer replayer = new ScenarioReplayer(new Graph());
+        replayer.setRouteCache(routeCache);
+        try (InputStream in = Files.newInputStream(journal);
+             Writer out = output != null
+                     ? Files.newBufferedWriter(output, StandardCharsets.UTF_8)
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            replayer.run(in, out);
+        }
+        System.err.println(replayer.summary());
+        System.err.print(replayer.latencyReport());
+        return replayer.getDifferent() == 0;
+    }
+
+    // Computes the all-pairs distance table of a topology into a mapped file
+    private static void allPairs(Path topology, Metric metric, Path output, String format) throws IOException {
+        String[] f = format.split(":");
+        DistanceMatrix.Encoding encoding = DistanceMatrix.Encoding.valueOf(f[0].toUpperCase());
+        double step = f.length > 1 ? Double.parseDouble(f[1]) : 1;
+
+        GraphSnapshot snapshot = TopologyFiles.load(topology);
+        long start = System.nanoTime();
+        try (DistanceTables tables = new DistanceTables(snapshot, Runtime.getRuntime().availableProcessors());
+             DistanceMatrix m = tables.allPairs(metric, DistanceTables.Strategy.AUTO, encoding, step, output)) {
+            long computed = System.nanoTime();
+            m.force();
+            long unreachable = 0;
+            double diameter = 0;
+            for (int r = 0; r < m.rows(); r++) {
+                for (int c = 0; c < m.cols(); c++) {
+                    double d = m.get(r, c);
+                    if (d == Double.POSITIVE_INFINITY) unreachable++;
+                    else diameter = Math.max(diameter, d);
+                }
+            }
+            System.err.printf("all-pairs %d x %d (%s, %d MB): compute %d ms, write %d ms; unreachable %d, diameter %s, saturated %d%n",
+                    m.rows(), m.cols(), encoding.name().toLowerCase(), m.byteSize() >> 20,
+                    (computed - start) / 1_000_000, (System.nanoTime() - computed) / 1_000_000,
+                    unreachable, diameter, m.saturated());
+        }
+    }
+
+    // Builds the contraction hierarchy of a topology and writes it to an index file
+    private static void buildHierarchy(Path topology, Path output) throws IOException {
+        GraphSnapshot snapshot = TopologyFiles.load(topology);
+        long start = System.nanoTime();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(snapshot);
+        long built = System.nanoTime();
+        hierarchy.write(output);
+        System.err.printf("hierarchy of %d nodes: %d arcs for %d links, build %d ms, write %d ms%n",
+                hierarchy.vertexCount(), hierarchy.arcCount(), snapshot.csr().arcCount() / 2,
+                (built - start) / 1_000_000, (System.nanoTime() - built) / 1_000_000);
+    }
+}
@@ -5,11 +5,16 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import com.example.routingsim.controller.MainController;
+
 /**
  * Main entry point of the AODV Routing Simulator application.
  */
 public class MainApp extends Application {
 
+    // Controller of the loaded view, shut down when the application stops
+    private MainController controller;
+
     @Override
     public void start(Stage stage) throws Exception {
         // Load the UI layout from the MainView.fxml file
@@ -17,6 +22,7 @@ public class MainApp extends Application {
 
         // Create the main scene using the loaded layout
         Scene scene = new Scene(loader.load());
+        controller = loader.getController();
 
         // Set the window title
         stage.setTitle("AODV Routing Simulator");
@@ -26,6 +32,12 @@ public class MainApp extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        // Release the log writer and the route worker
+        if (controller != null) controller.shutdown();
+    }
+
     public static void main(String[] args) {
         // Launch the JavaFX application
         launch();
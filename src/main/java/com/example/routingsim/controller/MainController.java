@@ -1,49 +1,90 @@
 package com.example.routingsim.controller;
 
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.example.routingsim.io.TopologyFiles;
+import com.example.routingsim.log.LogPipeline;
+import com.example.routingsim.log.RollingLogFile;
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.Edge;
 import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphVersion;
 import com.example.routingsim.model.LogEntry;
 import com.example.routingsim.model.Node;
-
+import com.example.routingsim.routing.Metric;
+import com.example.routingsim.routing.RouteCache;
+import com.example.routingsim.sim.LinkTable;
+import com.example.routingsim.sim.Simulator;
+import com.example.routingsim.trace.ScenarioRecorder;
+import com.example.routingsim.view.CanvasRenderer;
+
+import javafx.animation.KeyFrame;
 import javafx.animation.PathTransition;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.TextInputDialog;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
 import javafx.scene.shape.Polyline;
+import javafx.stage.FileChooser;
 import javafx.util.Duration;
 
 public class MainController {
 
     // These are all UI elements referenced from the FXML layout
     @FXML private Pane graphPane;
-    @FXML private Button addNodeBtn, selectRouteBtn, runBtn, clearPathBtn, removeNodeBtn;
+    @FXML private Button addNodeBtn, selectRouteBtn, runBtn, clearPathBtn, removeNodeBtn, openBtn, saveBtn;
     @FXML private TableView<LogEntry> logTable;
     @FXML private TableColumn<LogEntry,String> timeCol, eventCol, detailCol;
-    @FXML private RadioButton hopRadio, weightRadio;
+    @FXML private RadioButton hopRadio, weightRadio, astarRadio, bidiHopRadio, bidiWeightRadio;
+    @FXML private CheckBox canvasToggle, metricsToggle;
+    @FXML private TextArea statsArea;
+
+    // Topologies with more nodes than this are opened in the canvas renderer
+    private static final int CANVAS_THRESHOLD = 2000;
 
     // The actual graph data structure handling the logic behind the UI
     private final Graph graph = new Graph();
+
+    // Route table in front of the searches; flushed automatically when the graph changes
+    private final RouteCache routeCache = new RouteCache(graph, 1024);
+
+    // Journal of the session's edits and route requests, or null when not recording
+    private ScenarioRecorder recorder;
+
+    // AODV discoveries run here on published versions, so the UI stays responsive on large topologies
+    private final ExecutorService routeWorker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "route-worker");
+        t.setDaemon(true);
+        return t;
+    });
+    private long routeRequests; // only the latest request's answer is shown
     private int nodeCounter = 0;
 
     // UI tracking maps for nodes and edges
@@ -51,6 +92,9 @@ public class MainController {
     private final Map<Set<Node>, Line>  edgeLineMap  = new HashMap<>();
     private final Map<Set<Node>, Label> edgeLabelMap = new HashMap<>();
 
+    // Canvas renderer replacing the shapes above while canvas mode is on, else null
+    private CanvasRenderer renderer;
+
     // These are for animating routes and simulating packet travel
     private final List<Line>   routeLines  = new ArrayList<>();
     private final List<Circle> packetIcons = new ArrayList<>();
@@ -67,6 +111,8 @@ public class MainController {
     // Setup method automatically called after FXML loads
     @FXML private void initialize() {
         setupTable(); // prepare log table
+        setupMetrics(); // and the stats panel below it
+        setupRecorder();
 
         // When user clicks "Add Node"
         addNodeBtn.setOnAction(e -> {
@@ -88,12 +134,20 @@ public class MainController {
             log("UI","Remove","Click a node to delete it");
         });
 
+        // "Open Topology" and "Save Topology" buttons
+        openBtn.setOnAction(e -> openTopology());
+        saveBtn.setOnAction(e -> saveTopology());
+
         // "Run" and "Clear Path" buttons
         runBtn.setOnAction(e -> rerunLastRoute());
         clearPathBtn.setOnAction(e -> clearRoute());
 
+        // Switch between one shape per element and the canvas renderer
+        canvasToggle.setOnAction(e -> setCanvasMode(canvasToggle.isSelected()));
+
         // Handle canvas clicks for adding or removing nodes
         graphPane.setOnMouseClicked(e -> {
+            if (renderer != null) { canvasClicked(e); return; }
             if (graphPane.getCursor() == javafx.scene.Cursor.CROSSHAIR &&
                 e.getButton() == MouseButton.PRIMARY &&
                 !routeMode && !removeMode) {
@@ -109,11 +163,30 @@ public class MainController {
         graphPane.setFocusTraversable(true); // Ensure key events are captured
     }
 
+    // Called by MainApp when the application stops, on the JavaFX thread
+    public void shutdown() {
+        routeWorker.shutdownNow();
+        if(metricsExport!=null){
+            try { metricsExport.close(); } // writes one last snapshot
+            catch(Exception ex){ log("Error","Metrics", "export failed: "+ex.getMessage()); }
+        }
+        closeRecorder();
+        try { logPipeline.close(); } catch(IOException ignored){ } // flushes the rolling log file
+    }
+
     // Create a new node visually and in the graph model
     private void createNode(double x, double y) {
         String id = "N" + (++nodeCounter);
         Node n = graph.addNode(id, x, y);
+        drawNode(n);
+        log("Graph","Add","Node "+id);
+    }
 
+    // Draw the circle and label of a node
+    private void drawNode(Node n) {
+        if (renderer != null) return; // the canvas follows the graph by itself
+        String id = n.getId();
+        double x = n.getX(), y = n.getY();
         Circle circle = new Circle(14, Color.web("#4fc3f7"));
         circle.setStroke(Color.WHITE);
         Label label = new Label(id);
@@ -126,7 +199,6 @@ public class MainController {
         wrapper.setOnMouseClicked(ev -> nodeClicked(ev.getButton(), n));
         nodeVisual.put(n, wrapper);
         graphPane.getChildren().add(wrapper);
-        log("Graph","Add","Node "+id);
     }
 
     private Node selectedNode = null;
@@ -134,6 +206,7 @@ public class MainController {
     // Handle what happens when a node is clicked
     private void nodeClicked(MouseButton btn, Node n) {
         selectedNode = n;
+        if (renderer != null) renderer.selectNode(n);
 
         if (removeMode) {
             deleteWholeNode(n);
@@ -157,6 +230,45 @@ public class MainController {
         }
     }
 
+    // Canvas mode: hit-test a click through the renderer instead of per-shape handlers
+    private void canvasClicked(MouseEvent e) {
+        if (!e.isStillSincePress()) return; // end of a pan
+        Node n = renderer.nodeAt(e.getX(), e.getY());
+        if (n != null) { nodeClicked(e.getButton(), n); return; }
+
+        if (graphPane.getCursor() == javafx.scene.Cursor.CROSSHAIR &&
+            e.getButton() == MouseButton.PRIMARY && !routeMode && !removeMode) {
+            createNode(renderer.toWorldX(e.getX()), renderer.toWorldY(e.getY()));
+            graphPane.setCursor(javafx.scene.Cursor.DEFAULT);
+            return;
+        }
+        Edge edge = renderer.edgeAt(e.getX(), e.getY());
+        if (edge != null && e.getButton() == MouseButton.PRIMARY) selectEdge(null, edge.getFrom(), edge.getTo());
+    }
+
+    // Turn the canvas renderer on or off, moving the drawing of the current topology over
+    private void setCanvasMode(boolean on) {
+        canvasToggle.setSelected(on);
+        if (on == (renderer != null)) return;
+        clearRoute();
+        if(renderer!=null) graphPane.getChildren().setAll(renderer.getCanvas());
+        else graphPane.getChildren().clear();
+        nodeVisual.clear(); edgeLineMap.clear(); edgeLabelMap.clear();
+        selectedEdge = null; edgeA = edgeB = null;
+        if (on) {
+            renderer = new CanvasRenderer(graph, graphPane);
+            renderer.fit();
+            log("UI","Canvas","On (scroll to zoom, drag to pan)");
+            return;
+        }
+        renderer.close();
+        renderer = null;
+        for (Node n : graph.getNodes()) drawNode(n);
+        for (Node n : graph.getNodes())
+            for (Edge e : graph.getEdges(n)) drawOrUpdateEdge(n, e.getTo(), e.getWeight());
+        log("UI","Canvas","Off");
+    }
+
     // Ask user for weight and then create the edge
     private void promptWeightAndCreateEdge(Node a, Node b) {
         TextInputDialog d = new TextInputDialog("1.0");
@@ -174,6 +286,7 @@ public class MainController {
 
     // Draw or update an edge line and label
     private void drawOrUpdateEdge(Node a, Node b, double w){
+        if(renderer!=null) return;
         Set<Node> key = Set.of(a,b);
         if(edgeLabelMap.containsKey(key)){
             edgeLabelMap.get(key).setText(String.valueOf(w));
@@ -193,15 +306,117 @@ public class MainController {
         edgeLabelMap.put(key, lbl);
     }
 
+    // File dialog for topology files, offering every supported format
+    private FileChooser topologyChooser(String title){
+        FileChooser fc = new FileChooser();
+        fc.setTitle(title);
+        fc.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Binary topology (*.topo)", "*.topo"),
+                new FileChooser.ExtensionFilter("Text topology (*.txt)", "*.txt"),
+                new FileChooser.ExtensionFilter("DIMACS graph (*.gr)", "*.gr"),
+                new FileChooser.ExtensionFilter("Edge list (*.edges)", "*.edges", "*.el"));
+        return fc;
+    }
+
+    // Save the current topology in the format of the chosen file extension
+    private void saveTopology(){
+        File file = topologyChooser("Save Topology").showSaveDialog(graphPane.getScene().getWindow());
+        if(file==null) return;
+        try {
+            TopologyFiles.save(graph.current().snapshot(), file.toPath());
+            log("Graph","Save", graph.getNodes().size()+" nodes to "+file.getName());
+        } catch(IOException ex){ log("Error","Save", ex.getMessage()); }
+    }
+
+    // Replace the current topology with one loaded from a file
+    private void openTopology(){
+        File file = topologyChooser("Open Topology").showOpenDialog(graphPane.getScene().getWindow());
+        if(file==null) return;
+        Graph loaded;
+        try {
+            loaded = TopologyFiles.loadGraph(file.toPath());
+        } catch(IOException ex){ log("Error","Open", ex.getMessage()); return; }
+
+        clearTopology();
+        if(loaded.getNodes().size() > CANVAS_THRESHOLD) setCanvasMode(true);
+        graph.beginBatch(); // background readers see the old topology or the whole new one
+        for(Node n : loaded.getNodes()){
+            drawNode(graph.addNode(n.getId(), n.getX(), n.getY()));
+            // Keep generated IDs ("N<k>") clear of the loaded ones
+            if(n.getId().matches("N\\d{1,9}")) nodeCounter = Math.max(nodeCounter, Integer.parseInt(n.getId().substring(1)));
+        }
+        for(Node n : loaded.getNodes()){
+            for(Edge e : loaded.getEdges(n)){
+                Node a = graph.getNode(n.getId()), b = graph.getNode(e.getTo().getId());
+                if(graph.getEdge(a,b)!=null) continue;
+                graph.addEdge(a.getId(), b.getId(), e.getWeight());
+                drawOrUpdateEdge(a,b,e.getWeight());
+            }
+        }
+        graph.endBatch();
+        if(renderer!=null) renderer.fit();
+        log("Graph","Open", graph.getNodes().size()+" nodes from "+file.getName());
+    }
+
+    // Remove every node, edge and route from the model and the canvas
+    private void clearTopology(){
+        clearRoute();
+        // The canvas stays: the renderer follows the graph and draws the next topology
+        if(renderer!=null) graphPane.getChildren().setAll(renderer.getCanvas());
+        else graphPane.getChildren().clear();
+        nodeVisual.clear(); edgeLineMap.clear(); edgeLabelMap.clear();
+        graph.beginBatch();
+        for(Node n : new ArrayList<>(graph.getNodes())) graph.removeNode(n);
+        graph.endBatch();
+        src = dst = lastSrc = lastDst = selectedNode = null;
+        selectedEdge = null; edgeA = edgeB = null; edgeCandidates.clear();
+        nodeCounter = 0;
+    }
+
     // Start AODV simulation based on selected metric
     private void simulateAODV(Node source, Node dest){
         clearRoute();
         log("Sim","Start","AODV "+source.getId()+"→"+dest.getId());
+        long request = ++routeRequests;
+
+        Metric metric = selectedMetric();
+        if(metric == Metric.HOP){ discoverInBackground(request, source, dest); return; }
 
-        boolean useWeight = weightRadio.isSelected();
-        List<Node> path = useWeight
-                ? graph.findWeightedShortestPath(source, dest)
-                : graph.findShortestPath(source, dest);
+        long start = System.nanoTime();
+        long hitsBefore = routeCache.getHits();
+        List<Node> path = routeCache.findPath(source, dest, metric);
+        if(recorder != null) recorder.routeSearched(source, dest, metric, path, System.nanoTime() - start);
+        log("Sim","Cache", (routeCache.getHits() > hitsBefore ? "hit " : "miss ") + routeCache.stats());
+        showPath(source, dest, path);
+    }
+
+    // Discover on the route worker against the topology published now; edits meanwhile make the result stale
+    private void discoverInBackground(long request, Node source, Node dest){
+        GraphVersion topology = graph.current();
+        long seed = recorder != null ? recorder.nextSeed() : 1;
+        long start = System.nanoTime();
+        routeWorker.execute(() -> {
+            List<Node> path = discoverAODV(topology, source, dest, seed);
+            long nanos = System.nanoTime() - start;
+            Platform.runLater(() -> {
+                if(request != routeRequests) return; // another route was asked for meanwhile
+                if(graph.getVersion() != topology.version()){
+                    lastSrc=source; lastDst=dest;
+                    log("Sim","Stale","Topology changed during the discovery, press Run to repeat it");
+                    return;
+                }
+                if(recorder != null) recorder.routeDiscovered(source, dest, seed, path, nanos);
+                showPath(source, dest, path);
+            });
+        });
+    }
+
+    // Show the route a request found, on the JavaFX thread
+    private void showPath(Node source, Node dest, List<Node> path){
+        if(recorder != null && recorder.getError() != null){
+            log("Error","Scenario", "recording stopped: " + recorder.getError().getMessage());
+            closeRecorder();
+        }
 
         if(path==null){ log("Sim","Fail","No path"); return; }
 
@@ -209,8 +424,39 @@ public class MainController {
         animateRoute(path);
     }
 
+    // Run a real AODV route discovery (RREQ flood, RREP back) in the event simulator and read the route it found; any thread
+    private List<Node> discoverAODV(GraphVersion topology, Node source, Node dest, long seed){
+        try(Simulator sim = new Simulator(topology, seed)){
+            LinkTable links = sim.links();
+            sim.sendData(source, dest, 0);
+            sim.runAll();
+            log("Sim","AODV", sim.stats().summary()+" events="+sim.eventCount());
+
+            int[] route = sim.route(links.indexOf(source), links.indexOf(dest));
+            if(route==null) return null;
+            List<Node> path = new ArrayList<>(route.length);
+            for(int i : route) path.add(links.nodeAt(i));
+            return path;
+        }
+    }
+
+    // Returns the metric of the selected radio button
+    private Metric selectedMetric(){
+        if(weightRadio.isSelected()) return Metric.WEIGHT;
+        if(astarRadio.isSelected()) return Metric.ASTAR;
+        if(bidiHopRadio.isSelected()) return Metric.BIDIRECTIONAL_HOP;
+        if(bidiWeightRadio.isSelected()) return Metric.BIDIRECTIONAL_WEIGHT;
+        return Metric.HOP;
+    }
+
     // Draw green animated route and red packet
     private void animateRoute(List<Node> path){
+        if(renderer!=null){
+            Node last = path.get(path.size()-1);
+            renderer.showRoute(path, (long) (1.2e9*path.size()), () -> log("Sim","Done","Reached "+last.getId()));
+            log("Sim","Path", String.join(" → ", path.stream().map(Node::getId).toList()));
+            return;
+        }
         for(int i=0;i<path.size()-1;i++){
             Node a=path.get(i), b=path.get(i+1);
             Line l=new Line(a.getX(),a.getY(),b.getX(),b.getY());
@@ -233,6 +479,7 @@ public class MainController {
 
     // Helpers to clear visuals
     private void clearRoute(){
+        if(renderer!=null) renderer.clearRoute();
         routeLines.forEach(graphPane.getChildren()::remove);
         packetIcons.forEach(graphPane.getChildren()::remove);
         routeLines.clear(); packetIcons.clear();
@@ -244,16 +491,19 @@ public class MainController {
 
     // Deletion logic
     private Line selectedEdge=null; private Node edgeA,edgeB;
-    private void selectEdge(Line l, Node a, Node b){ selectedEdge=l; edgeA=a; edgeB=b; }
+    private void selectEdge(Line l, Node a, Node b){
+        selectedEdge=l; edgeA=a; edgeB=b;
+        if(renderer!=null) renderer.selectEdge(a,b);
+    }
 
     private void deleteSelection(){
-        if(selectedEdge!=null){
+        if(edgeA!=null){
             Set<Node> key = Set.of(edgeA,edgeB);
-            graphPane.getChildren().removeAll(selectedEdge, edgeLabelMap.remove(key));
+            if(selectedEdge!=null) graphPane.getChildren().removeAll(selectedEdge, edgeLabelMap.remove(key));
             edgeLineMap.remove(key);
             graph.removeEdge(edgeA,edgeB);
             log("Graph","Del","Edge "+edgeA.getId()+"↔"+edgeB.getId());
-            selectedEdge=null; return;
+            selectedEdge=null; edgeA=edgeB=null; return;
         }
         if(selectedNode!=null) deleteWholeNode(selectedNode);
     }
@@ -269,18 +519,67 @@ public class MainController {
         selectedNode = null;
     }
 
-    // Log handling
+    // Stats panel: metrics are collected while the checkbox is on and shown once a second
+    private void setupMetrics(){
+        metricsToggle.setSelected(Metrics.enabled());
+        metricsToggle.setOnAction(e -> {
+            Metrics.setEnabled(metricsToggle.isSelected());
+            log("UI","Metrics", metricsToggle.isSelected() ? "On" : "Off");
+        });
+        Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+            if(Metrics.enabled()) statsArea.setText(Metrics.report());
+        }));
+        refresh.setCycleCount(Timeline.INDEFINITE);
+        refresh.play();
+
+        // -Droutingsim.metricsFile=<file> turns metrics on and writes them there every 5 seconds
+        String file = System.getProperty("routingsim.metricsFile");
+        if(file!=null){
+            Metrics.setEnabled(true);
+            metricsToggle.setSelected(true);
+            metricsExport = Metrics.exportEvery(Path.of(file), 5000, ex -> log("Error","Metrics", "export failed: "+ex.getMessage()));
+        }
+    }
+    private AutoCloseable metricsExport; // periodic export to -Droutingsim.metricsFile, or null
+
+    // -Droutingsim.scenarioFile=<file> records the session for BatchMain --replay-scenario (seed: -Droutingsim.scenarioSeed)
+    private void setupRecorder(){
+        String file = System.getProperty("routingsim.scenarioFile");
+        if(file==null) return;
+        long seed = Long.getLong("routingsim.scenarioSeed", System.nanoTime());
+        try {
+            recorder = new ScenarioRecorder(graph, Path.of(file), seed);
+            log("UI","Scenario", "recording to "+file+" (seed "+seed+")");
+        } catch(IOException ex){ log("Error","Scenario", ex.getMessage()); }
+    }
+
+    // Stops recording and detaches the recorder from the graph; on the JavaFX thread like its other calls
+    private void closeRecorder(){
+        if(recorder==null) return;
+        try { recorder.close(); } catch(IOException ignored){ } // already reported through getError()
+        recorder = null;
+    }
+
+    // Log handling: entries go through a buffered pipeline, published to the table once per frame
+    private static final int LOG_HISTORY = 5000;
     private final ObservableList<LogEntry> logs = FXCollections.observableArrayList();
+    private LogPipeline logPipeline;
     private void setupTable(){
-        timeCol.setCellValueFactory(d -> d.getValue().time);
-        eventCol.setCellValueFactory(d -> d.getValue().event);
-        detailCol.setCellValueFactory(d -> d.getValue().detail);
+        timeCol.setCellValueFactory(d -> d.getValue().timeProperty());
+        eventCol.setCellValueFactory(d -> d.getValue().eventProperty());
+        detailCol.setCellValueFactory(d -> d.getValue().detailProperty());
         logTable.setItems(logs);
+        logPipeline = new LogPipeline(logs, LOG_HISTORY, () -> logTable.scrollTo(logs.size()-1));
+
+        // -Droutingsim.logDir=<dir> also keeps the full log in rolling files there
+        String dir = System.getProperty("routingsim.logDir");
+        if(dir!=null){
+            try { logPipeline.spillTo(new RollingLogFile(Path.of(dir), "simulation", 16L << 20, 4)); }
+            catch(IOException ex){ log("Error","Log", ex.getMessage()); }
+        }
     }
     private void log(String event,String detail){ log("App",event,detail); }
     private void log(String who,String event,String detail){
-        logs.add(new LogEntry(LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")),
-                              who+":"+event, detail));
-        logTable.scrollTo(logs.size()-1);
+        logPipeline.log(who+":"+event, detail);
     }
 }
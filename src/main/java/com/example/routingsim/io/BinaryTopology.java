@@ -0,0 +1,215 @@
+package com.example.routingsim.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.model.NodeIndex;
+
+/**
+ * Compact binary topology format, laid out so that a file can be loaded by
+ * memory-mapping it and bulk-copying whole sections into the CSR arrays,
+ * with no per-line parsing at all.
+ *
+ * All numbers are little-endian. The 32-byte header
+ * <pre>
+ * int  magic     "RTPO"
+ * int  version   1
+ * int  nodes     n
+ * int  flags     0 (reserved)
+ * long arcs      m
+ * long idBytes   length of the UTF-8 ID blob
+ * </pre>
+ * is followed by these sections, each starting at a multiple of 8 bytes:
+ * <pre>
+ * int[n + 1]    CSR offsets
+ * int[m]        arc targets
+ * double[m]     arc weights
+ * double[n]     x coordinates
+ * double[n]     y coordinates
+ * int[n]        end of each node ID in the blob
+ * byte[idBytes] node IDs, UTF-8, concatenated
+ * </pre>
+ */
+public final class BinaryTopology {
+
+    // "RTPO" read as a little-endian int
+    private static final int MAGIC = 0x4F505452;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    // Size of the write buffer
+    private static final int CHUNK = 1 << 20;
+
+    private BinaryTopology() {
+    }
+
+    /**
+     * Writes a snapshot to a file, replacing it if it exists.
+     */
+    public static void write(GraphSnapshot snapshot, Path file) throws IOException {
+        CsrGraph csr = snapshot.csr();
+        NodeIndex index = snapshot.index();
+        int n = csr.nodeCount();
+        long m = csr.arcCount();
+
+        byte[][] ids = new byte[n][];
+        long idBytes = 0;
+        for (int v = 0; v < n; v++) {
+            ids[v] = index.nodeAt(v).getId().getBytes(StandardCharsets.UTF_8);
+            idBytes += ids[v].length;
+        }
+        if (idBytes > Integer.MAX_VALUE) throw new IOException("Node IDs exceed 2 GB");
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(m).putLong(idBytes);
+
+            for (int v = 0; v <= n; v++) {
+                room(ch, buf, 4);
+                buf.putInt(v < n ? csr.begin(v) : (int) m);
+            }
+            pad(ch, buf);
+            for (int a = 0; a < m; a++) {
+                room(ch, buf, 4);
+                buf.putInt(csr.target(a));
+            }
+            pad(ch, buf);
+            for (int a = 0; a < m; a++) {
+                room(ch, buf, 8);
+                buf.putDouble(csr.weight(a));
+            }
+            for (int v = 0; v < n; v++) {
+                room(ch, buf, 8);
+                buf.putDouble(snapshot.x(v));
+            }
+            for (int v = 0; v < n; v++) {
+                room(ch, buf, 8);
+                buf.putDouble(snapshot.y(v));
+            }
+            int end = 0;
+            for (int v = 0; v < n; v++) {
+                room(ch, buf, 4);
+                end += ids[v].length;
+                buf.putInt(end);
+            }
+            pad(ch, buf);
+            for (int v = 0; v < n; v++) {
+                byte[] id = ids[v];
+                for (int i = 0; i < id.length; ) {
+                    room(ch, buf, 1);
+                    int len = Math.min(buf.remaining(), id.length - i);
+                    buf.put(id, i, len);
+                    i += len;
+                }
+            }
+            flush(ch, buf);
+        }
+    }
+
+    /**
+     * Opens a file written by {@link #write} as a snapshot. Every section is
+     * mapped and copied into its array in one bulk operation; only the node
+     * IDs are decoded one by one.
+     * @throws IOException on read errors or if the file is not a valid topology file
+     */
+    public static GraphSnapshot read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES) throw new IOException(file + ": not a binary topology file");
+            ByteBuffer header = map(ch, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) throw new IOException(file + ": not a binary topology file");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException(file + ": unsupported version " + version);
+            int n = header.getInt();
+            header.getInt(); // flags
+            long m = header.getLong();
+            long idBytes = header.getLong();
+            if (n < 0 || m < 0 || m > Integer.MAX_VALUE || idBytes < 0 || idBytes > Integer.MAX_VALUE) {
+                throw new IOException(file + ": corrupt header");
+            }
+
+            long offsetsAt = HEADER_BYTES;
+            long targetsAt = align(offsetsAt + 4L * (n + 1));
+            long weightsAt = align(targetsAt + 4L * m);
+            long xsAt = weightsAt + 8L * m;
+            long ysAt = xsAt + 8L * n;
+            long idEndsAt = ysAt + 8L * n;
+            long idsAt = align(idEndsAt + 4L * n);
+            if (size < idsAt + idBytes) throw new IOException(file + ": truncated");
+
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[(int) m];
+            double[] weights = new double[(int) m];
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            int[] idEnds = new int[n];
+            byte[] idBlob = new byte[(int) idBytes];
+            map(ch, offsetsAt, 4L * (n + 1)).asIntBuffer().get(offsets);
+            map(ch, targetsAt, 4L * m).asIntBuffer().get(targets);
+            map(ch, weightsAt, 8L * m).asDoubleBuffer().get(weights);
+            map(ch, xsAt, 8L * n).asDoubleBuffer().get(xs);
+            map(ch, ysAt, 8L * n).asDoubleBuffer().get(ys);
+            map(ch, idEndsAt, 4L * n).asIntBuffer().get(idEnds);
+            map(ch, idsAt, idBytes).get(idBlob);
+
+            // Cheap structural checks, so a damaged file fails here and not in a search
+            if (offsets[0] != 0 || offsets[n] != m) throw new IOException(file + ": corrupt offsets");
+            for (int v = 0; v < n; v++) {
+                if (offsets[v] > offsets[v + 1]) throw new IOException(file + ": corrupt offsets");
+            }
+            for (int t : targets) {
+                if (t < 0 || t >= n) throw new IOException(file + ": arc target out of range");
+            }
+
+            Node[] nodes = new Node[n];
+            int start = 0;
+            for (int v = 0; v < n; v++) {
+                int end = idEnds[v];
+                if (end < start || end > idBytes) throw new IOException(file + ": corrupt node IDs");
+                nodes[v] = new Node(new String(idBlob, start, end - start, StandardCharsets.UTF_8), xs[v], ys[v]);
+                start = end;
+            }
+            return new GraphSnapshot(CsrGraph.of(offsets, targets, weights), new NodeIndex(nodes), xs, ys);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel ch, long at, long length) throws IOException {
+        MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, at, length);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        return b;
+    }
+
+    private static long align(long pos) {
+        return (pos + 7) & ~7L;
+    }
+
+    // Makes room for bytes more bytes, writing out the buffer if needed
+    private static void room(FileChannel ch, ByteBuffer buf, int bytes) throws IOException {
+        if (buf.remaining() < bytes) flush(ch, buf);
+    }
+
+    // Pads with zeros up to the next multiple of 8 bytes in the file
+    private static void pad(FileChannel ch, ByteBuffer buf) throws IOException {
+        long pos = ch.position() + buf.position();
+        for (long p = pos; p < align(pos); p++) {
+            room(ch, buf, 1);
+            buf.put((byte) 0);
+        }
+    }
+
+    private static void flush(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.routingsim.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+
+/**
+ * The shortest-path formats of the 9th DIMACS implementation challenge,
+ * used by most road-network data sets and routing tools. A graph file
+ * (.gr) holds directed arcs between nodes numbered 1..n:
+ * <pre>
+ * c comment
+ * p sp &lt;n&gt; &lt;m&gt;
+ * a &lt;from&gt; &lt;to&gt; &lt;weight&gt;
+ * </pre>
+ * and an optional coordinate file (.co) their positions:
+ * <pre>
+ * p aux sp co &lt;n&gt;
+ * v &lt;id&gt; &lt;x&gt; &lt;y&gt;
+ * </pre>
+ * Arcs are kept directed, so a file read and written again is unchanged.
+ * Imported nodes get the IDs "1" .. "n"; on export nodes are numbered by
+ * their snapshot index instead of their IDs. DIMACS weights are integers;
+ * fractional weights are written as they are, which most readers accept.
+ */
+public final class DimacsFormat {
+
+    private DimacsFormat() {
+    }
+
+    /**
+     * Reads a graph file and, if coordinates is not null, a coordinate file.
+     * @throws IOException on read errors or malformed lines (with line number)
+     */
+    public static GraphSnapshot read(BufferedReader graph, BufferedReader coordinates) throws IOException {
+        SnapshotBuilder b = new SnapshotBuilder();
+        String[] tok = new String[5];
+        String line;
+        int lineNo = 0;
+        int n = -1;
+        while ((line = graph.readLine()) != null) {
+            lineNo++;
+            int count = Tokens.split(line, tok);
+            if (count == 0 || tok[0].equals("c")) continue;
+            try {
+                if (tok[0].equals("p") && count == 4 && n < 0) {
+                    n = Integer.parseInt(tok[2]);
+                    for (int v = 1; v <= n; v++) b.add(Integer.toString(v), 0, 0);
+                } else if (tok[0].equals("a") && count == 4 && n >= 0) {
+                    int u = Integer.parseInt(tok[1]) - 1, v = Integer.parseInt(tok[2]) - 1;
+                    if (u < 0 || u >= n || v < 0 || v >= n) {
+                        throw new IOException("line " + lineNo + ": node out of range");
+                    }
+                    b.arc(u, v, Double.parseDouble(tok[3]));
+                } else {
+                    throw new IOException("line " + lineNo + ": expected 'p sp n m' followed by 'a from to weight'");
+                }
+            } catch (NumberFormatException ex) {
+                throw new IOException("line " + lineNo + ": bad number", ex);
+            }
+        }
+        if (n < 0) throw new IOException("missing problem line 'p sp n m'");
+
+        lineNo = 0;
+        while (coordinates != null && (line = coordinates.readLine()) != null) {
+            lineNo++;
+            int count = Tokens.split(line, tok);
+            if (count == 0 || tok[0].equals("c") || tok[0].equals("p")) continue;
+            try {
+                if (!tok[0].equals("v") || count != 4) throw new IOException("coordinates line " + lineNo + ": expected 'v id x y'");
+                int v = Integer.parseInt(tok[1]) - 1;
+                if (v < 0 || v >= n) throw new IOException("coordinates line " + lineNo + ": node out of range");
+                b.position(v, Double.parseDouble(tok[2]), Double.parseDouble(tok[3]));
+            } catch (NumberFormatException ex) {
+                throw new IOException("coordinates line " + lineNo + ": bad number", ex);
+            }
+        }
+        return b.build();
+    }
+
+    // Writes the arcs of a snapshot as a DIMACS graph file
+    public static void writeGraph(GraphSnapshot snapshot, Writer out) throws IOException {
+        CsrGraph csr = snapshot.csr();
+        out.append("c written by routingsim\n");
+        out.append("p sp ").append(Integer.toString(csr.nodeCount())).append(' ')
+           .append(Integer.toString(csr.arcCount())).append('\n');
+        StringBuilder line = new StringBuilder(48);
+        for (int u = 0; u < csr.nodeCount(); u++) {
+            for (int a = csr.begin(u); a < csr.end(u); a++) {
+                line.setLength(0);
+                line.append("a ").append(u + 1).append(' ').append(csr.target(a) + 1).append(' ');
+                appendNumber(line, csr.weight(a));
+                out.append(line.append('\n'));
+            }
+        }
+    }
+
+    // Writes the node positions of a snapshot as a DIMACS coordinate file
+    public static void writeCoordinates(GraphSnapshot snapshot, Writer out) throws IOException {
+        int n = snapshot.csr().nodeCount();
+        out.append("p aux sp co ").append(Integer.toString(n)).append('\n');
+        StringBuilder line = new StringBuilder(48);
+        for (int v = 0; v < n; v++) {
+            line.setLength(0);
+            line.append("v ").append(v + 1).append(' ');
+            appendNumber(line, snapshot.x(v));
+            line.append(' ');
+            appendNumber(line, snapshot.y(v));
+            out.append(line.append('\n'));
+        }
+    }
+
+    // Integral values without a fraction, as DIMACS tools expect
+    private static void appendNumber(StringBuilder sb, double d) {
+        if (d == Math.rint(d) && Math.abs(d) < 1e15) sb.append((long) d);
+        else sb.append(d);
+    }
+}
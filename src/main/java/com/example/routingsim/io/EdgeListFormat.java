@@ -0,0 +1,83 @@
+package com.example.routingsim.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.NodeIndex;
+
+/**
+ * Plain edge list, the lowest common denominator of graph tools:
+ * <pre>
+ * # comment (also %)
+ * &lt;fromId&gt; &lt;toId&gt; [weight]
+ * </pre>
+ * Every line is an undirected edge; the weight defaults to 1. Nodes are
+ * created in order of first appearance and have no coordinates (0, 0).
+ * Both directions are streamed line by line without building a
+ * {@link com.example.routingsim.model.Graph}.
+ */
+public final class EdgeListFormat {
+
+    private EdgeListFormat() {
+    }
+
+    /**
+     * Reads an edge list into a snapshot.
+     * @throws IOException on read errors or malformed lines (with line number)
+     */
+    public static GraphSnapshot read(BufferedReader in) throws IOException {
+        SnapshotBuilder b = new SnapshotBuilder();
+        String[] tok = new String[3];
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            int count = Tokens.split(line, tok);
+            if (count == 0 || tok[0].startsWith("#") || tok[0].startsWith("%")) continue;
+            if (count < 2 || count > 3) throw new IOException("line " + lineNo + ": expected 'from to [weight]'");
+            double w;
+            try {
+                w = count == 3 ? Double.parseDouble(tok[2]) : 1;
+            } catch (NumberFormatException ex) {
+                throw new IOException("line " + lineNo + ": bad number", ex);
+            }
+            int u = b.node(tok[0]), v = b.node(tok[1]);
+            b.arc(u, v, w);
+            if (u != v) b.arc(v, u, w);
+        }
+        return b.build();
+    }
+
+    /**
+     * Writes a snapshot as an edge list. An edge whose two directions are
+     * both present is written once; a one-way arc is written on its own.
+     */
+    public static void write(GraphSnapshot snapshot, Writer out) throws IOException {
+        CsrGraph csr = snapshot.csr();
+        NodeIndex index = snapshot.index();
+        StringBuilder line = new StringBuilder(64);
+        for (int u = 0; u < csr.nodeCount(); u++) {
+            for (int a = csr.begin(u); a < csr.end(u); a++) {
+                int v = csr.target(a);
+                // The lower index writes a two-way edge; a one-way arc is written by its source
+                if (v < u && hasArc(csr, v, u)) continue;
+                line.setLength(0);
+                line.append(index.nodeAt(u).getId()).append(' ')
+                    .append(index.nodeAt(v).getId()).append(' ')
+                    .append(csr.weight(a)).append('\n');
+                out.append(line);
+            }
+        }
+    }
+
+    // Returns true if the arc u -> v exists
+    static boolean hasArc(CsrGraph csr, int u, int v) {
+        for (int a = csr.begin(u); a < csr.end(u); a++) {
+            if (csr.target(a) == v) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.routingsim.io;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.model.NodeIndex;
+
+/**
+ * Collects nodes and arcs in growable primitive arrays while a file is
+ * streamed, then turns them into a {@link GraphSnapshot} in one pass.
+ * Importers use it instead of {@link com.example.routingsim.model.Graph}
+ * so that large files never create per-edge objects.
+ */
+final class SnapshotBuilder {
+
+    // Node IDs, positions and the ID lookup
+    private String[] ids = new String[1024];
+    private double[] xs = new double[1024], ys = new double[1024];
+    private final Map<String, Integer> byId = new HashMap<>();
+    private int nodeCount;
+
+    // Arc list
+    private int[] from = new int[4096], to = new int[4096];
+    private double[] weight = new double[4096];
+    private int arcCount;
+
+    // Returns the number of nodes added so far
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    // Returns the number of arcs added so far
+    int arcCount() {
+        return arcCount;
+    }
+
+    // Returns the index of a node ID, adding the node at (0, 0) if it is new
+    int node(String id) {
+        Integer i = byId.get(id);
+        return i != null ? i : add(id, 0, 0);
+    }
+
+    // Adds a node; the ID must be new
+    int add(String id, double x, double y) {
+        if (nodeCount == ids.length) {
+            ids = Arrays.copyOf(ids, nodeCount << 1);
+            xs = Arrays.copyOf(xs, nodeCount << 1);
+            ys = Arrays.copyOf(ys, nodeCount << 1);
+        }
+        ids[nodeCount] = id;
+        xs[nodeCount] = x;
+        ys[nodeCount] = y;
+        byId.put(id, nodeCount);
+        return nodeCount++;
+    }
+
+    // Moves a node
+    void position(int v, double x, double y) {
+        xs[v] = x;
+        ys[v] = y;
+    }
+
+    // Adds a directed arc
+    void arc(int u, int v, double w) {
+        if (arcCount == from.length) {
+            from = Arrays.copyOf(from, arcCount << 1);
+            to = Arrays.copyOf(to, arcCount << 1);
+            weight = Arrays.copyOf(weight, arcCount << 1);
+        }
+        from[arcCount] = u;
+        to[arcCount] = v;
+        weight[arcCount] = w;
+        arcCount++;
+    }
+
+    GraphSnapshot build() {
+        Node[] nodes = new Node[nodeCount];
+        for (int v = 0; v < nodeCount; v++) nodes[v] = new Node(ids[v], xs[v], ys[v]);
+        CsrGraph csr = CsrGraph.fromArcs(nodeCount, from, to, weight, arcCount);
+        return new GraphSnapshot(csr, new NodeIndex(nodes),
+                Arrays.copyOf(xs, nodeCount), Arrays.copyOf(ys, nodeCount));
+    }
+}
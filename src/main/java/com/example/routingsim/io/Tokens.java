@@ -0,0 +1,35 @@
+package com.example.routingsim.io;
+
+/**
+ * Whitespace tokenizer for the line-based file formats.
+ * Avoids the regex machinery of String.split, which matters when a file
+ * has millions of lines.
+ */
+public final class Tokens {
+
+    private Tokens() {
+    }
+
+    /**
+     * Splits a line on spaces and tabs into the given array.
+     * @return Number of tokens found; tokens beyond the array length are
+     *         counted but not stored
+     */
+    public static int split(String line, String[] out) {
+        int count = 0;
+        int i = 0, n = line.length();
+        while (i < n) {
+            while (i < n && isSpace(line.charAt(i))) i++;
+            if (i == n) break;
+            int start = i;
+            while (i < n && !isSpace(line.charAt(i))) i++;
+            if (count < out.length) out[count] = line.substring(start, i);
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+}
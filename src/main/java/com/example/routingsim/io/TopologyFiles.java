@@ -0,0 +1,141 @@
+package com.example.routingsim.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.model.NodeIndex;
+
+/**
+ * Loads and saves topologies in the format given by the file extension:
+ * <ul>
+ * <li>.topo: {@link BinaryTopology}, memory-mapped</li>
+ * <li>.gr: {@link DimacsFormat}, with node positions in a .co file of the same name if there is one</li>
+ * <li>.edges, .el: {@link EdgeListFormat}</li>
+ * <li>anything else: the node/edge text format of {@link TopologyReader}</li>
+ * </ul>
+ */
+public final class TopologyFiles {
+
+    private TopologyFiles() {
+    }
+
+    // Returns true if a file name has the binary topology extension
+    public static boolean isBinary(Path file) {
+        return extension(file).equals("topo");
+    }
+
+    // Reads a topology file as a snapshot, the fastest form for headless routing
+    public static GraphSnapshot load(Path file) throws IOException {
+        switch (extension(file)) {
+            case "topo":
+                return BinaryTopology.read(file);
+            case "gr": {
+                Path co = sibling(file, "co");
+                try (BufferedReader gr = reader(file);
+                     BufferedReader coordinates = Files.exists(co) ? reader(co) : null) {
+                    return DimacsFormat.read(gr, coordinates);
+                }
+            }
+            case "edges":
+            case "el":
+                try (BufferedReader in = reader(file)) {
+                    return EdgeListFormat.read(in);
+                }
+            default:
+                return TopologyReader.read(file).snapshot();
+        }
+    }
+
+    // Reads a topology file into an editable graph
+    public static Graph loadGraph(Path file) throws IOException {
+        switch (extension(file)) {
+            case "topo":
+            case "gr":
+            case "edges":
+            case "el":
+                return toGraph(load(file));
+            default:
+                return TopologyReader.read(file);
+        }
+    }
+
+    // Writes a snapshot in the format of the file extension, replacing the file
+    public static void save(GraphSnapshot snapshot, Path file) throws IOException {
+        switch (extension(file)) {
+            case "topo":
+                BinaryTopology.write(snapshot, file);
+                return;
+            case "gr":
+                try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    DimacsFormat.writeGraph(snapshot, out);
+                }
+                try (Writer out = Files.newBufferedWriter(sibling(file, "co"), StandardCharsets.UTF_8)) {
+                    DimacsFormat.writeCoordinates(snapshot, out);
+                }
+                return;
+            case "edges":
+            case "el":
+                try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    EdgeListFormat.write(snapshot, out);
+                }
+                return;
+            default:
+                try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    TopologyWriter.write(snapshot, out);
+                }
+        }
+    }
+
+    /**
+     * Builds an editable graph from a snapshot. The graph is undirected, so
+     * an arc and its reverse become one edge (with the weight of the arc
+     * from the lower index), and a one-way arc becomes a two-way edge.
+     * Self-loops are dropped.
+     */
+    public static Graph toGraph(GraphSnapshot snapshot) {
+        CsrGraph csr = snapshot.csr();
+        NodeIndex index = snapshot.index();
+        Graph graph = new Graph();
+        graph.beginBatch();
+        for (int v = 0; v < csr.nodeCount(); v++) {
+            graph.addNode(index.nodeAt(v).getId(), snapshot.x(v), snapshot.y(v));
+        }
+        for (int u = 0; u < csr.nodeCount(); u++) {
+            Node a = graph.getNode(index.nodeAt(u).getId());
+            for (int e = csr.begin(u); e < csr.end(u); e++) {
+                int v = csr.target(e);
+                if (v == u || (v < u && EdgeListFormat.hasArc(csr, v, u))) continue;
+                graph.addEdge(a.getId(), index.nodeAt(v).getId(), csr.weight(e));
+            }
+        }
+        graph.endBatch();
+        return graph;
+    }
+
+    private static BufferedReader reader(Path file) throws IOException {
+        return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    // Lower-case extension without the dot, or "" if there is none
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    // Same file name with another extension
+    private static Path sibling(Path file, String ext) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return file.resolveSibling((dot < 0 ? name : name.substring(0, dot)) + "." + ext);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.routingsim.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.example.routingsim.model.Graph;
+
+/**
+ * Reads a topology from a simple line-based text file:
+ * <pre>
+ * # comment
+ * node &lt;id&gt; &lt;x&gt; &lt;y&gt;
+ * edge &lt;fromId&gt; &lt;toId&gt; &lt;weight&gt;
+ * </pre>
+ * Edges are undirected, exactly like {@link Graph#addEdge}.
+ */
+public final class TopologyReader {
+
+    private TopologyReader() {
+    }
+
+    // Reads a topology file into a new graph
+    public static Graph read(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a topology from a reader into a new graph.
+     * @throws IOException on read errors or malformed lines (with line number)
+     */
+    public static Graph read(BufferedReader in) throws IOException {
+        Graph graph = new Graph();
+        // Nobody else sees the graph yet, so publish it once at the end
+        graph.beginBatch();
+        String[] tok = new String[4];
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            int count = Tokens.split(line, tok);
+            if (count == 0 || tok[0].startsWith("#")) continue;
+            try {
+                if (tok[0].equals("node") && count == 4) {
+                    graph.addNode(tok[1], Double.parseDouble(tok[2]), Double.parseDouble(tok[3]));
+                } else if (tok[0].equals("edge") && count == 4) {
+                    if (graph.getNode(tok[1]) == null || graph.getNode(tok[2]) == null) {
+                        throw new IOException("line " + lineNo + ": edge references unknown node");
+                    }
+                    graph.addEdge(tok[1], tok[2], Double.parseDouble(tok[3]));
+                } else {
+                    throw new IOException("line " + lineNo + ": expected 'node id x y' or 'edge a b w'");
+                }
+            } catch (NumberFormatException ex) {
+                throw new IOException("line " + lineNo + ": bad number", ex);
+            }
+        }
+        graph.endBatch();
+        return graph;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.routingsim.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.NodeIndex;
+
+/**
+ * Writes the line-based text format read by {@link TopologyReader}: one
+ * "node id x y" line per node followed by one "edge a b w" line per
+ * undirected edge.
+ */
+public final class TopologyWriter {
+
+    private TopologyWriter() {
+    }
+
+    // Writes a snapshot; an edge whose two directions are both present is written once
+    public static void write(GraphSnapshot snapshot, Writer out) throws IOException {
+        CsrGraph csr = snapshot.csr();
+        NodeIndex index = snapshot.index();
+        StringBuilder line = new StringBuilder(64);
+        for (int v = 0; v < csr.nodeCount(); v++) {
+            line.setLength(0);
+            line.append("node ").append(index.nodeAt(v).getId()).append(' ')
+                .append(snapshot.x(v)).append(' ').append(snapshot.y(v)).append('\n');
+            out.append(line);
+        }
+        for (int u = 0; u < csr.nodeCount(); u++) {
+            for (int a = csr.begin(u); a < csr.end(u); a++) {
+                int v = csr.target(a);
+                if (v < u && EdgeListFormat.hasArc(csr, v, u)) continue;
+                line.setLength(0);
+                line.append("edge ").append(index.nodeAt(u).getId()).append(' ')
+                    .append(index.nodeAt(v).getId()).append(' ').append(csr.weight(a)).append('\n');
+                out.append(line);
+            }
+        }
+    }
+}
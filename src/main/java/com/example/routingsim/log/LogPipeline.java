@@ -0,0 +1,160 @@
+package com.example.routingsim.log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.routingsim.model.LogEntry;
+
+import javafx.animation.AnimationTimer;
+import javafx.collections.ObservableList;
+
+/**
+ * Carries log entries from any thread to the log table without flooding
+ * the JavaFX thread.
+ *
+ * Producers only append to a lock-free ring buffer ({@link #log} never
+ * blocks or touches the UI). Once per animation frame the JavaFX thread
+ * drains the ring and publishes everything in one list change, trims the
+ * table to a fixed history and calls the publish callback once (e.g. to
+ * scroll to the end). If the producers outrun the frames and fill the
+ * ring, new entries are dropped and counted, and the count shows up as an
+ * entry of its own. Optionally every entry is also written to a rolling
+ * file on a background thread, where the history cap does not apply.
+ */
+public final class LogPipeline implements AutoCloseable {
+
+    // Entries buffered between two frames before producers start dropping
+    private static final int RING_CAPACITY = 1 << 16;
+
+    private final LogRing<LogEntry> ring = new LogRing<>(RING_CAPACITY);
+    private final ObservableList<LogEntry> rows;
+    private final int history;
+    private final Runnable onPublished;
+    private final AnimationTimer timer;
+
+    // Entries lost to a full ring, and how many of them were already reported
+    private final AtomicLong dropped = new AtomicLong();
+    private long reported;
+
+    // Reused between frames
+    private final List<LogEntry> batch = new ArrayList<>();
+    private final List<LogEntry> trimmed = new ArrayList<>();
+
+    // Rolling file and the thread writing it, or null
+    private RollingLogFile file;
+    private ExecutorService writer;
+
+    /**
+     * Creates a pipeline publishing into rows and starts it.
+     * @param rows        List shown in the table; only changed on the JavaFX thread
+     * @param history     Maximum number of rows kept, oldest removed first
+     * @param onPublished Runs on the JavaFX thread after each published batch, or null
+     */
+    public LogPipeline(ObservableList<LogEntry> rows, int history, Runnable onPublished) {
+        if (history <= 0) throw new IllegalArgumentException("history must be > 0");
+        this.rows = rows;
+        this.history = history;
+        this.onPublished = onPublished;
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                publish();
+            }
+        };
+        timer.start();
+    }
+
+    // Queues an entry stamped with the current time; safe from any thread
+    public void log(String event, String detail) {
+        log(new LogEntry(event, detail));
+    }
+
+    // Queues an entry; safe from any thread
+    public void log(LogEntry entry) {
+        if (!ring.offer(entry)) dropped.incrementAndGet();
+    }
+
+    // Returns the number of entries dropped because the buffer was full
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Also writes every entry from now on to a rolling file, on a
+     * background thread. Call on the JavaFX thread.
+     */
+    public void spillTo(RollingLogFile file) {
+        if (this.file != null) throw new IllegalStateException("already writing to " + this.file.getFile());
+        this.file = file;
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "log-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Moves everything buffered into the table (and the file); runs on
+     * every frame, and may also be called directly on the JavaFX thread.
+     */
+    public void publish() {
+        ring.drain(batch, Integer.MAX_VALUE);
+        long lost = dropped.get();
+        if (lost > reported) {
+            batch.add(new LogEntry("Log:Dropped", (lost - reported) + " entries (buffer full)"));
+            reported = lost;
+        }
+        if (batch.isEmpty()) return;
+
+        if (file != null) {
+            List<LogEntry> copy = new ArrayList<>(batch);
+            RollingLogFile target = file;
+            writer.execute(() -> {
+                try {
+                    target.write(copy);
+                } catch (IOException ex) {
+                    log("Log:Error", ex.getMessage());
+                }
+            });
+        }
+
+        // One change event per frame, and never more rows than the history holds
+        int excess = rows.size() + batch.size() - history;
+        if (excess <= 0) {
+            rows.addAll(batch);
+        } else {
+            // Build the trimmed table first: remove + addAll would be two events
+            trimmed.clear();
+            if (excess < rows.size()) trimmed.addAll(rows.subList(excess, rows.size()));
+            trimmed.addAll(batch.subList(Math.max(0, batch.size() - history), batch.size()));
+            rows.setAll(trimmed);
+            trimmed.clear();
+        }
+        batch.clear();
+        if (onPublished != null) onPublished.run();
+    }
+
+    /**
+     * Stops publishing after one last batch and closes the file once
+     * everything queued for it is written.
+     */
+    @Override
+    public void close() throws IOException {
+        timer.stop();
+        publish();
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.routingsim.log;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ *
+ * Every slot carries a sequence number telling whose turn it is: a
+ * producer claims the slot at the tail with one compare-and-set, stores
+ * its item and then advances the slot's sequence, which publishes the item
+ * to the consumer. The consumer frees a slot by moving its sequence one lap
+ * ahead. Producers never wait; when the ring is full, offer fails and the
+ * caller decides what to do with the item.
+ */
+final class LogRing<T> {
+
+    private final Object[] items;
+    private final AtomicLongArray sequence;
+    private final int mask;
+
+    // Next position to claim, shared by the producers
+    private final AtomicLong tail = new AtomicLong();
+
+    // Next position to take; only touched by the consumer
+    private long head;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     */
+    LogRing(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) throw new IllegalArgumentException("capacity out of range: " + capacity);
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        items = new Object[size];
+        sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequence.set(i, i);
+        mask = size - 1;
+    }
+
+    // Returns the number of slots
+    int capacity() {
+        return items.length;
+    }
+
+    /**
+     * Appends an item; safe from any thread.
+     * @return false if the ring is full
+     */
+    boolean offer(T item) {
+        long pos = tail.get();
+        while (true) {
+            int slot = (int) pos & mask;
+            long diff = sequence.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items[slot] = item;
+                    sequence.set(slot, pos + 1); // publishes the item
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // the consumer has not freed this slot yet
+            } else {
+                pos = tail.get(); // another producer got here first
+            }
+        }
+    }
+
+    /**
+     * Moves up to max items, oldest first, into a list. Only one thread may
+     * drain a ring. Stops early at a slot that is claimed but not yet
+     * published, which keeps the output in order.
+     * @return Number of items moved
+     */
+    @SuppressWarnings("unchecked")
+    int drain(List<? super T> to, int max) {
+        int n = 0;
+        while (n < max) {
+            int slot = (int) head & mask;
+            if (sequence.get(slot) != head + 1) break;
+            to.add((T) items[slot]);
+            items[slot] = null;
+            sequence.set(slot, head + mask + 1); // frees the slot for the next lap
+            head++;
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.routingsim.log;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.example.routingsim.model.LogEntry;
+
+/**
+ * Log file that rolls over by size: when name.log would exceed the size
+ * limit it becomes name.log.1, the previous name.log.1 becomes name.log.2
+ * and so on, and the oldest beyond the kept count is deleted. Not thread
+ * safe; {@link LogPipeline} writes to it from a single thread.
+ */
+public final class RollingLogFile implements Closeable {
+
+    private final Path file;
+    private final long maxBytes;
+    private final int keep;
+    private BufferedWriter out;
+    private long size;
+
+    /**
+     * Opens (appending to) dir/name.log, creating the directory if needed.
+     * @param maxBytes Size at which the file is rolled over
+     * @param keep     Number of rolled-over files kept besides the current one
+     */
+    public RollingLogFile(Path dir, String name, long maxBytes, int keep) throws IOException {
+        if (maxBytes <= 0 || keep < 0) throw new IllegalArgumentException("maxBytes must be > 0 and keep >= 0");
+        Files.createDirectories(dir);
+        this.file = dir.resolve(name + ".log");
+        this.maxBytes = maxBytes;
+        this.keep = keep;
+        open();
+    }
+
+    // Returns the path of the current file
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Appends entries, one line each, and flushes them to the file.
+     */
+    public void write(List<LogEntry> entries) throws IOException {
+        for (LogEntry e : entries) {
+            String line = e.toString();
+            // Close enough for the limit: one byte per char plus the newline
+            if (size > 0 && size + line.length() + 1 > maxBytes) roll();
+            out.write(line);
+            out.newLine();
+            size += line.length() + 1;
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void open() throws IOException {
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        size = Files.size(file);
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        Files.deleteIfExists(rolled(keep));
+        for (int i = keep - 1; i >= 1; i--) {
+            if (Files.exists(rolled(i))) Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (keep > 0) Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        else Files.delete(file);
+        open();
+    }
+
+    private Path rolled(int i) {
+        return file.resolveSibling(file.getFileName() + "." + i);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.routingsim.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic event counter, safe and contention-free from any number of
+ * threads. Obtain instances from {@link Metrics#counter}.
+ */
+public final class Counter {
+
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    // Returns the registered name
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long n) {
+        value.add(n);
+    }
+
+    // Returns the current total
+    public long sum() {
+        return value.sum();
+    }
+
+    void reset() {
+        value.reset();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.routingsim.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative long values (latencies in nanoseconds, node
+ * counts, ...) with bounded relative error, in the style of HdrHistogram.
+ *
+ * Values below 128 get a bucket each. Above that, every power-of-two range
+ * [2^k, 2^(k+1)) is split into 64 equal buckets, so a bucket is never
+ * wider than 1/64 (about 1.6%) of the values in it. The whole long range
+ * takes 3776 fixed buckets; recording is one array index computation and
+ * an atomic increment, with no allocation and no locks.
+ *
+ * Obtain instances from {@link Metrics#histogram} or {@link Metrics#latency}.
+ */
+public final class Histogram {
+
+    // Buckets per power of two, as a power of two itself (64 = 2^6)
+    private static final int SUB_BITS = 7;
+    private static final int HALF = 1 << (SUB_BITS - 1);
+    private static final int BUCKETS = (64 - SUB_BITS + 2) * HALF;
+
+    private final String name;
+    private final boolean nanos;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(String name, boolean nanos) {
+        this.name = name;
+        this.nanos = nanos;
+    }
+
+    // Returns the registered name
+    public String getName() {
+        return name;
+    }
+
+    // Returns true if the values are durations in nanoseconds
+    public boolean isLatency() {
+        return nanos;
+    }
+
+    // Records one value; negative values count as 0
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) m = max.get();
+    }
+
+    // Records the time elapsed since a System.nanoTime() reading
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    // Returns the number of recorded values
+    public long count() {
+        return count.sum();
+    }
+
+    // Returns the mean of the recorded values, or 0 if there are none
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    // Returns the largest recorded value
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the
+     * recorded values lie, as the upper end of its bucket (never above the
+     * maximum). Concurrent recording may make it slightly stale.
+     */
+    public long percentile(double percent) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upper(i), max.get());
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    // Bucket of a value: the value itself below 2 * HALF, else its top SUB_BITS bits and their shift
+    static int index(long value) {
+        if (value < 2 * HALF) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    // Largest value that falls into a bucket
+    static long upper(int index) {
+        if (index < 2 * HALF) return index;
+        int shift = index / HALF - 1;
+        long top = index - (long) shift * HALF;
+        long upper = ((top + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper; // the topmost bucket overflows
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.routingsim.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide registry of named {@link Counter}s and {@link Histogram}s,
+ * and the switch that turns recording on and off.
+ *
+ * Instrumented code looks its metrics up once, into static fields, and
+ * guards every recording with {@link #enabled()} or {@link #start()}:
+ * <pre>
+ * long start = Metrics.start();
+ * ... work ...
+ * if (start != Metrics.OFF) LATENCY.recordSince(start);
+ * </pre>
+ * With metrics off (the default) that costs one volatile read and a
+ * branch; no clock is read and nothing is written.
+ *
+ * Names are dotted, e.g. "search.dijkstra.latency". Histograms created
+ * by {@link #latency} hold nanoseconds and are reported in microseconds.
+ */
+public final class Metrics {
+
+    // Returned by start() while metrics are off
+    public static final long OFF = Long.MIN_VALUE;
+
+    private static volatile boolean enabled;
+
+    // Sorted by name, which is also the report order
+    private static final Map<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    // Returns true while metrics are being recorded
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    // Turns recording on or off; recorded values are kept either way
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Returns System.nanoTime() while metrics are on, else OFF
+    public static long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    // Returns the counter registered under a name, creating it on first use
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    // Returns the value histogram registered under a name, creating it on first use
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram(n, false));
+    }
+
+    // Returns the nanosecond latency histogram registered under a name, creating it on first use
+    public static Histogram latency(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram(n, true));
+    }
+
+    // Clears all recorded values; the metrics stay registered
+    public static void reset() {
+        COUNTERS.values().forEach(Counter::reset);
+        HISTOGRAMS.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * Returns all metrics that have recorded something, one per line:
+     * counters as "name value", histograms as "name count mean p50 p90 p99
+     * p99.9 max" (latencies in microseconds).
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Counter c : COUNTERS.values()) {
+            long v = c.sum();
+            if (v != 0) sb.append(c.getName()).append(' ').append(v).append('\n');
+        }
+        for (Histogram h : HISTOGRAMS.values()) {
+            long n = h.count();
+            if (n == 0) continue;
+            sb.append(h.getName()).append(h.isLatency() ? " [us]" : "").append(" n=").append(n)
+              .append(" mean=").append(format(h, h.mean()))
+              .append(" p50=").append(format(h, h.percentile(50)))
+              .append(" p90=").append(format(h, h.percentile(90)))
+              .append(" p99=").append(format(h, h.percentile(99)))
+              .append(" p99.9=").append(format(h, h.percentile(99.9)))
+              .append(" max=").append(format(h, h.max())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the current {@link #report()} to a file, via a temporary file
+     * and a rename so readers never see a partial snapshot.
+     */
+    public static void writeSnapshot(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            out.write("# metrics " + Instant.now() + (enabled ? "" : " (disabled)") + "\n");
+            out.write(report());
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes a snapshot to a file every period on a background thread until
+     * the returned handle is closed, which writes one last snapshot.
+     * Failed writes are reported on standard error.
+     */
+    public static AutoCloseable exportEvery(Path file, long periodMillis) {
+        return exportEvery(file, periodMillis, ex -> System.err.println("metrics export failed: " + ex.getMessage()));
+    }
+
+    /**
+     * Like {@link #exportEvery(Path, long)}, handing every failed periodic
+     * write to onError on the export thread.
+     */
+    public static AutoCloseable exportEvery(Path file, long periodMillis, Consumer<? super IOException> onError) {
+        ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-export");
+            t.setDaemon(true);
+            return t;
+        });
+        exec.scheduleAtFixedRate(() -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException ex) {
+                onError.accept(ex);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return () -> {
+            exec.shutdownNow();
+            writeSnapshot(file);
+        };
+    }
+
+    private static String format(Histogram h, double value) {
+        return h.isLatency() ? String.format("%.1f", value / 1000) : String.format("%.0f", value);
+    }
+}
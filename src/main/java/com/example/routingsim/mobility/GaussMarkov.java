@@ -0,0 +1,104 @@
+package com.example.routingsim.mobility;
+
+import java.util.Random;
+
+import com.example.routingsim.model.Node;
+
+/**
+ * Gauss-Markov mobility: speed and direction of every node follow a
+ * first-order autoregressive process, so movement is smooth and has
+ * memory instead of the sharp turns of random waypoint.
+ *
+ * Per step of length dt, with a = alpha^dt,
+ * <pre>
+ * s' = a s + (1 - a) meanSpeed     + sqrt(1 - a^2) speedSigma     N(0, 1)
+ * d' = a d + (1 - a) meanDirection + sqrt(1 - a^2) directionSigma N(0, 1)
+ * </pre>
+ * alpha is the memory per second: 0 gives independent random moves, 1
+ * straight lines at constant speed. A node near the border of the area
+ * gets a mean direction pointing back inside, and a node that still
+ * crosses the border is reflected.
+ */
+public final class GaussMarkov implements MobilityModel {
+
+    private final double width, height;
+    private final double meanSpeed, alpha, speedSigma, directionSigma;
+    private final Random random;
+
+    // Distance from the border within which nodes are steered back inside
+    private final double margin;
+
+    // Per node: current speed and direction (radians)
+    private double[] speed, direction;
+
+    /**
+     * @param width          Width of the area [0, width]
+     * @param height         Height of the area [0, height]
+     * @param meanSpeed      Long-run average speed, in units per second
+     * @param alpha          Memory per second, in [0, 1]
+     * @param speedSigma     Standard deviation of the speed
+     * @param directionSigma Standard deviation of the direction, in radians
+     * @param seed           Seed of the random choices
+     */
+    public GaussMarkov(double width, double height, double meanSpeed, double alpha,
+                       double speedSigma, double directionSigma, long seed) {
+        if (alpha < 0 || alpha > 1) throw new IllegalArgumentException("alpha must be in [0, 1]");
+        this.width = width;
+        this.height = height;
+        this.meanSpeed = meanSpeed;
+        this.alpha = alpha;
+        this.speedSigma = speedSigma;
+        this.directionSigma = directionSigma;
+        this.random = new Random(seed);
+        this.margin = 0.1 * Math.min(width, height);
+    }
+
+    @Override
+    public void init(Node[] nodes, double[] x, double[] y) {
+        int n = nodes.length;
+        speed = new double[n];
+        direction = new double[n];
+        for (int i = 0; i < n; i++) {
+            speed[i] = meanSpeed;
+            direction[i] = random.nextDouble() * 2 * Math.PI;
+        }
+    }
+
+    @Override
+    public void advance(double time, double dt, double[] x, double[] y) {
+        double a = Math.pow(alpha, dt);
+        double b = 1 - a;
+        double c = Math.sqrt(1 - a * a);
+        for (int i = 0; i < x.length; i++) {
+            double d = direction[i];
+            double meanDirection = meanDirection(x[i], y[i], d);
+            // Move the mean to the branch closest to d so the blend does not spin the wrong way
+            meanDirection = d + Math.IEEEremainder(meanDirection - d, 2 * Math.PI);
+            speed[i] = Math.max(0, a * speed[i] + b * meanSpeed + c * speedSigma * random.nextGaussian());
+            direction[i] = a * d + b * meanDirection + c * directionSigma * random.nextGaussian();
+
+            double nx = x[i] + speed[i] * Math.cos(direction[i]) * dt;
+            double ny = y[i] + speed[i] * Math.sin(direction[i]) * dt;
+            if (nx < 0 || nx > width) {
+                nx = nx < 0 ? -nx : 2 * width - nx;
+                direction[i] = Math.PI - direction[i];
+            }
+            if (ny < 0 || ny > height) {
+                ny = ny < 0 ? -ny : 2 * height - ny;
+                direction[i] = -direction[i];
+            }
+            x[i] = Math.min(width, Math.max(0, nx));
+            y[i] = Math.min(height, Math.max(0, ny));
+        }
+    }
+
+    // Current direction, or one pointing away from the borders the node is close to
+    private double meanDirection(double x, double y, double d) {
+        double vx = 0, vy = 0;
+        if (x < margin) vx = 1;
+        else if (x > width - margin) vx = -1;
+        if (y < margin) vy = 1;
+        else if (y > height - margin) vy = -1;
+        return vx == 0 && vy == 0 ? d : Math.atan2(vy, vx);
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.routingsim.mobility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphListener;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.model.SpatialGrid;
+
+/**
+ * Moves a set of graph nodes with a {@link MobilityModel} in fixed time
+ * steps and keeps the radio links between them current: two moving nodes
+ * are connected exactly while they are at most range apart.
+ *
+ * Links are not rebuilt every step. The engine keeps a list of candidate
+ * pairs, all pairs within range + skin, built with the graph's
+ * {@link SpatialGrid}. As long as no node has moved more than skin / 2
+ * since the list was built, no pair outside the list can have come into
+ * range, so a step only checks the listed pairs against the range and adds
+ * or removes the edges of those that crossed it. Once the displacement
+ * bound is used up the list is rebuilt (after the listed pairs have been
+ * checked, so broken links are dropped first); with a skin of a quarter of
+ * the range that happens every few dozen steps at typical speeds.
+ *
+ * New links get the distance at the time they form as weight. Only links
+ * among the moving nodes are managed; edges to other nodes are left alone.
+ * Editing links among moving nodes by hand while the engine runs is not
+ * supported, as the engine would not notice until the next list rebuild.
+ */
+public final class MobilityEngine implements GraphListener, AutoCloseable {
+
+    private final Graph graph;
+    private final MobilityModel model;
+    private final double range;
+    private double skin;
+
+    // Moving nodes and their positions, in engine order
+    private final Node[] nodes;
+    private final double[] x, y;
+    // Engine index by graph handle (-1 = not moving); checked against nodes since graphs reuse handles
+    private final int[] index;
+    private final boolean[] removed;
+
+    // Positions when the candidate list was last built
+    private final double[] anchorX, anchorY;
+
+    // Candidate pairs (a < b) and whether each is currently linked
+    private int[] pairA = new int[64], pairB = new int[64];
+    private boolean[] linked = new boolean[64];
+    private int pairCount;
+    private boolean rebuildNeeded = true;
+
+    private double time;
+    private long steps, rebuilds, linksAdded, linksDropped;
+
+    // Creates an engine that moves every node of the graph
+    public MobilityEngine(Graph graph, MobilityModel model, double range) {
+        this(graph, sortedById(graph.getNodes()), model, range);
+    }
+
+    /**
+     * Creates an engine for some nodes of a graph. Links among them are
+     * brought in line with the range right away.
+     * @param range Radio range: nodes at most this far apart are linked
+     */
+    public MobilityEngine(Graph graph, Collection<Node> moving, MobilityModel model, double range) {
+        if (!(range > 0)) throw new IllegalArgumentException("range must be positive");
+        this.graph = graph;
+        this.model = model;
+        this.range = range;
+        this.skin = 0.25 * range;
+        this.nodes = moving.toArray(new Node[0]);
+        int n = nodes.length;
+        this.x = new double[n];
+        this.y = new double[n];
+        this.anchorX = new double[n];
+        this.anchorY = new double[n];
+        this.removed = new boolean[n];
+        this.index = new int[graph.handleLimit()];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < n; i++) {
+            if (graph.node(nodes[i].getHandle()) != nodes[i]) throw new IllegalArgumentException("Node is not part of the graph: " + nodes[i].getId());
+            index[nodes[i].getHandle()] = i;
+            x[i] = nodes[i].getX();
+            y[i] = nodes[i].getY();
+        }
+        model.init(nodes, x, y);
+        graph.addGraphListener(this);
+
+        // Readers of the graph see the start positions only with their links
+        graph.beginBatch();
+        try {
+            for (int i = 0; i < n; i++) nodes[i].setPos(x[i], y[i]);
+            dropLinksOutOfRange();
+            rebuild();
+            updateLinks();
+        } finally {
+            graph.endBatch();
+        }
+    }
+
+    private static List<Node> sortedById(Collection<Node> nodes) {
+        List<Node> list = new ArrayList<>(nodes);
+        // A fixed order makes seeded runs reproducible
+        list.sort(Comparator.comparing(Node::getId));
+        return list;
+    }
+
+    /**
+     * Sets the extra distance covered by the candidate list. A larger skin
+     * means fewer rebuilds but more pairs to check per step.
+     */
+    public void setSkin(double skin) {
+        if (!(skin > 0)) throw new IllegalArgumentException("skin must be positive");
+        this.skin = skin;
+        rebuildNeeded = true;
+    }
+
+    /**
+     * Advances all nodes by dt seconds and adds or removes the links of
+     * the pairs that crossed the range. The whole step is published as one
+     * graph version, so readers never see new positions with old links.
+     */
+    public void step(double dt) {
+        model.advance(time, dt, x, y);
+        time += dt;
+        steps++;
+
+        graph.beginBatch();
+        try {
+            double maxShift = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                if (removed[i]) continue;
+                nodes[i].setPos(x[i], y[i]);
+                double dx = x[i] - anchorX[i], dy = y[i] - anchorY[i];
+                maxShift = Math.max(maxShift, dx * dx + dy * dy);
+            }
+            // Drops links that broke; every linked pair is on the list
+            updateLinks();
+            // Two nodes approaching each other by skin / 2 each close the whole skin
+            if (rebuildNeeded || 4 * maxShift > skin * skin) {
+                rebuild();
+                updateLinks();
+            }
+        } finally {
+            graph.endBatch();
+        }
+    }
+
+    // Runs steps of length dt until the given time is reached
+    public void runUntil(double until, double dt) {
+        while (time + dt <= until + 1e-12) step(dt);
+    }
+
+    // Returns the simulation time
+    public double getTime() {
+        return time;
+    }
+
+    // Returns the number of moving nodes
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    // Returns the number of steps taken
+    public long getSteps() {
+        return steps;
+    }
+
+    // Returns how often the candidate list was rebuilt
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    // Returns the number of links formed since the engine was created
+    public long getLinksAdded() {
+        return linksAdded;
+    }
+
+    // Returns the number of links broken since the engine was created
+    public long getLinksDropped() {
+        return linksDropped;
+    }
+
+    // Returns the number of candidate pairs currently checked per step
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    // Checks every candidate pair against the range and fixes its link
+    private void updateLinks() {
+        double r2 = range * range;
+        for (int p = 0; p < pairCount; p++) {
+            int a = pairA[p], b = pairB[p];
+            if (removed[a] || removed[b]) continue;
+            double dx = x[a] - x[b], dy = y[a] - y[b];
+            double d2 = dx * dx + dy * dy;
+            boolean inRange = d2 <= r2;
+            if (inRange == linked[p]) continue;
+            linked[p] = inRange;
+            if (inRange) {
+                graph.addEdge(nodes[a], nodes[b], Math.sqrt(d2));
+                linksAdded++;
+            } else {
+                graph.removeEdge(nodes[a], nodes[b]);
+                linksDropped++;
+            }
+        }
+    }
+
+    // Collects all pairs within range + skin with the spatial index
+    private void rebuild() {
+        SpatialGrid grid = graph.spatialIndex();
+        double reach = range + skin;
+        double cell = grid.getCellSize();
+        if (cell < reach / 2 || cell > reach * 2) grid.setCellSize(reach);
+
+        pairCount = 0;
+        List<Node> near = new ArrayList<>();
+        for (int a = 0; a < nodes.length; a++) {
+            anchorX[a] = x[a];
+            anchorY[a] = y[a];
+            if (removed[a]) continue;
+            near.clear();
+            grid.forEachWithinRange(x[a], y[a], reach, near::add);
+            for (Node other : near) {
+                int b = indexOf(other);
+                if (b <= a || removed[b]) continue;
+                addPair(a, b, graph.getEdge(nodes[a], other) != null);
+            }
+        }
+        rebuildNeeded = false;
+        rebuilds++;
+    }
+
+    private void addPair(int a, int b, boolean isLinked) {
+        if (pairCount == pairA.length) {
+            pairA = Arrays.copyOf(pairA, pairCount << 1);
+            pairB = Arrays.copyOf(pairB, pairCount << 1);
+            linked = Arrays.copyOf(linked, pairCount << 1);
+        }
+        pairA[pairCount] = a;
+        pairB[pairCount] = b;
+        linked[pairCount] = isLinked;
+        pairCount++;
+    }
+
+    // Removes the existing links among moving nodes that are longer than the range
+    private void dropLinksOutOfRange() {
+        double r2 = range * range;
+        List<Node> far = new ArrayList<>();
+        for (int a = 0; a < nodes.length; a++) {
+            far.clear();
+            for (int i = 0, h = nodes[a].getHandle(), d = graph.degree(h); i < d; i++) {
+                int b = index[graph.neighbor(h, i)];
+                if (b <= a) continue;
+                double dx = x[a] - x[b], dy = y[a] - y[b];
+                if (dx * dx + dy * dy > r2) far.add(nodes[b]);
+            }
+            for (Node other : far) {
+                graph.removeEdge(nodes[a], other);
+                linksDropped++;
+            }
+        }
+    }
+
+    // ----- GraphListener -----
+
+    @Override
+    public void nodeRemoved(Node n) {
+        int i = indexOf(n);
+        if (i < 0) return;
+        removed[i] = true;
+        rebuildNeeded = true;
+    }
+
+    // Engine index of a node, or -1 if it is not one of the moving nodes
+    private int indexOf(Node n) {
+        int h = n.getHandle();
+        int i = h >= 0 && h < index.length ? index[h] : -1;
+        return i >= 0 && nodes[i] == n ? i : -1;
+    }
+
+    // Detaches from the graph
+    @Override
+    public void close() {
+        graph.removeGraphListener(this);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.routingsim.mobility;
+
+import com.example.routingsim.model.Node;
+
+/**
+ * Movement pattern driven by a {@link MobilityEngine}. The engine owns the
+ * positions in two primitive arrays and hands them to the model once per
+ * time step; the model keeps whatever per-node state it needs in arrays
+ * indexed the same way.
+ */
+public interface MobilityModel {
+
+    /**
+     * Prepares the model for a set of nodes.
+     * @param nodes The moving nodes, in engine order
+     * @param x     Their start x-coordinates (may be changed, e.g. to place nodes)
+     * @param y     Their start y-coordinates
+     */
+    void init(Node[] nodes, double[] x, double[] y);
+
+    /**
+     * Moves every node from time to time + dt by updating x and y in place.
+     * @param time Simulation time at the start of the step, in seconds
+     * @param dt   Length of the step, in seconds
+     */
+    void advance(double time, double dt, double[] x, double[] y);
+}
@@ -0,0 +1,91 @@
+package com.example.routingsim.mobility;
+
+import java.util.Random;
+
+import com.example.routingsim.model.Node;
+
+/**
+ * Random waypoint mobility: every node picks a uniformly random target in
+ * a rectangular area and a uniformly random speed, moves there in a
+ * straight line, pauses for a random time and then repeats.
+ *
+ * Speeds are drawn from [minSpeed, maxSpeed] with minSpeed greater than
+ * zero, which avoids the well-known slow decay of the average speed of
+ * this model when speeds close to zero are allowed.
+ */
+public final class RandomWaypoint implements MobilityModel {
+
+    private final double width, height;
+    private final double minSpeed, maxSpeed, maxPause;
+    private final Random random;
+
+    // Per node: current target, speed and remaining pause time
+    private double[] targetX, targetY, speed, pause;
+
+    /**
+     * @param width    Width of the area [0, width]
+     * @param height   Height of the area [0, height]
+     * @param minSpeed Lowest speed, in units per second (must be positive)
+     * @param maxSpeed Highest speed
+     * @param maxPause Longest pause at a waypoint, in seconds
+     * @param seed     Seed of the random choices
+     */
+    public RandomWaypoint(double width, double height, double minSpeed, double maxSpeed,
+                          double maxPause, long seed) {
+        if (!(minSpeed > 0) || maxSpeed < minSpeed) {
+            throw new IllegalArgumentException("Speeds must satisfy 0 < minSpeed <= maxSpeed");
+        }
+        this.width = width;
+        this.height = height;
+        this.minSpeed = minSpeed;
+        this.maxSpeed = maxSpeed;
+        this.maxPause = maxPause;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void init(Node[] nodes, double[] x, double[] y) {
+        int n = nodes.length;
+        targetX = new double[n];
+        targetY = new double[n];
+        speed = new double[n];
+        pause = new double[n];
+        for (int i = 0; i < n; i++) pickWaypoint(i);
+    }
+
+    @Override
+    public void advance(double time, double dt, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) {
+            double left = dt;
+            // A fast node may reach its waypoint, pause and leave again within one step
+            while (left > 0) {
+                if (pause[i] > 0) {
+                    double p = Math.min(pause[i], left);
+                    pause[i] -= p;
+                    left -= p;
+                    continue;
+                }
+                double dx = targetX[i] - x[i], dy = targetY[i] - y[i];
+                double dist = Math.sqrt(dx * dx + dy * dy);
+                double reach = speed[i] * left;
+                if (reach < dist) {
+                    double f = reach / dist;
+                    x[i] += dx * f;
+                    y[i] += dy * f;
+                    break;
+                }
+                x[i] = targetX[i];
+                y[i] = targetY[i];
+                left -= dist / speed[i];
+                pickWaypoint(i);
+                pause[i] = random.nextDouble() * maxPause;
+            }
+        }
+    }
+
+    private void pickWaypoint(int i) {
+        targetX[i] = random.nextDouble() * width;
+        targetY[i] = random.nextDouble() * height;
+        speed[i] = minSpeed + random.nextDouble() * (maxSpeed - minSpeed);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.routingsim.mobility;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.routingsim.io.Tokens;
+import com.example.routingsim.model.Node;
+
+/**
+ * Trace-driven mobility: every node follows recorded waypoints, with
+ * straight-line interpolation between them. Before its first waypoint a
+ * node stays at that waypoint, after the last one it stays at the last;
+ * nodes without a trace do not move.
+ *
+ * Traces are read from a line-based text file:
+ * <pre>
+ * # comment
+ * &lt;time&gt; &lt;nodeId&gt; &lt;x&gt; &lt;y&gt;
+ * </pre>
+ * Lines may come in any order.
+ */
+public final class TraceMobility implements MobilityModel {
+
+    // Waypoints of one node, sorted by time before use
+    private static final class Track {
+        double[] time = new double[8], x = new double[8], y = new double[8];
+        int size;
+        // Index of the waypoint at or before the last queried time
+        int cursor;
+
+        void add(double t, double px, double py) {
+            if (size == time.length) {
+                time = Arrays.copyOf(time, size << 1);
+                x = Arrays.copyOf(x, size << 1);
+                y = Arrays.copyOf(y, size << 1);
+            }
+            time[size] = t;
+            x[size] = px;
+            y[size] = py;
+            size++;
+        }
+
+        void sort() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            // Stable, so waypoints at equal times keep their file order
+            Arrays.sort(order, (a, b) -> Double.compare(time[a], time[b]));
+            double[] t2 = new double[size], x2 = new double[size], y2 = new double[size];
+            for (int i = 0; i < size; i++) {
+                t2[i] = time[order[i]];
+                x2[i] = x[order[i]];
+                y2[i] = y[order[i]];
+            }
+            time = t2;
+            x = x2;
+            y = y2;
+            cursor = 0;
+        }
+    }
+
+    private final Map<String, Track> tracks = new HashMap<>();
+
+    // Track per engine node (null = no trace)
+    private Track[] byNode;
+
+    // Adds a waypoint: the node with the given ID is at (x, y) at time t
+    public void add(String nodeId, double t, double x, double y) {
+        tracks.computeIfAbsent(nodeId, k -> new Track()).add(t, x, y);
+    }
+
+    // Returns the number of nodes with a trace
+    public int trackCount() {
+        return tracks.size();
+    }
+
+    // Reads a trace file
+    public static TraceMobility read(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a trace from a reader.
+     * @throws IOException on read errors or malformed lines (with line number)
+     */
+    public static TraceMobility read(BufferedReader in) throws IOException {
+        TraceMobility trace = new TraceMobility();
+        String[] tok = new String[4];
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            int count = Tokens.split(line, tok);
+            if (count == 0 || tok[0].startsWith("#")) continue;
+            if (count != 4) throw new IOException("line " + lineNo + ": expected 'time nodeId x y'");
+            try {
+                trace.add(tok[1], Double.parseDouble(tok[0]), Double.parseDouble(tok[2]), Double.parseDouble(tok[3]));
+            } catch (NumberFormatException ex) {
+                throw new IOException("line " + lineNo + ": bad number", ex);
+            }
+        }
+        return trace;
+    }
+
+    @Override
+    public void init(Node[] nodes, double[] x, double[] y) {
+        byNode = new Track[nodes.length];
+        for (Track t : tracks.values()) t.sort();
+        for (int i = 0; i < nodes.length; i++) byNode[i] = tracks.get(nodes[i].getId());
+    }
+
+    @Override
+    public void advance(double time, double dt, double[] x, double[] y) {
+        double t = time + dt;
+        for (int i = 0; i < x.length; i++) {
+            Track tr = byNode[i];
+            if (tr == null || tr.size == 0) continue;
+
+            // Steps usually move forward a little, so walk the cursor instead of searching
+            int c = tr.cursor;
+            if (tr.time[c] > t) c = 0;
+            while (c + 1 < tr.size && tr.time[c + 1] <= t) c++;
+            tr.cursor = c;
+
+            if (t <= tr.time[c] || c + 1 == tr.size) {
+                x[i] = tr.x[c];
+                y[i] = tr.y[c];
+            } else {
+                double f = (t - tr.time[c]) / (tr.time[c + 1] - tr.time[c]);
+                x[i] = tr.x[c] + (tr.x[c + 1] - tr.x[c]) * f;
+                y[i] = tr.y[c] + (tr.y[c + 1] - tr.y[c]) * f;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.routingsim.model;
+
+import java.util.Arrays;
+
+import com.example.routingsim.routing.DijkstraEngine;
+import com.example.routingsim.routing.SearchWorkspace;
+
+/**
+ * Immutable compressed sparse row (CSR) view of a graph's topology.
+ * Nodes are dense int indices 0..n-1. The arcs leaving node u are stored in
+ * the range [offsets[u], offsets[u + 1]) of the targets and weights arrays,
+ * so a traversal only walks primitive arrays instead of Node/Edge objects.
+ *
+ * The mapping between indices and Node objects lives in {@link NodeIndex};
+ * this class knows nothing about ids or positions.
+ */
+public final class CsrGraph {
+
+    // offsets[u] .. offsets[u + 1] is the arc range of node u (length n + 1)
+    private final int[] offsets;
+
+    // Target node index of every arc
+    private final int[] targets;
+
+    // Weight of every arc, parallel to targets
+    private final double[] weights;
+
+    private CsrGraph(int[] offsets, int[] targets, double[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Wraps already built CSR arrays. The arrays are taken over as-is and must
+     * not be modified by the caller afterwards.
+     * @param offsets Arc offsets, length n + 1, non-decreasing, offsets[0] == 0
+     * @param targets Target index of every arc
+     * @param weights Weight of every arc
+     */
+    public static CsrGraph of(int[] offsets, int[] targets, double[] weights) {
+        if (offsets.length == 0 || offsets[0] != 0) {
+            throw new IllegalArgumentException("offsets must start with 0");
+        }
+        int arcs = offsets[offsets.length - 1];
+        if (targets.length != arcs || weights.length != arcs) {
+            throw new IllegalArgumentException("targets/weights length must equal offsets[n]");
+        }
+        return new CsrGraph(offsets, targets, weights);
+    }
+
+    /**
+     * Builds the CSR form of an arc list by counting sort. Arcs of the same
+     * node keep their order in the list.
+     * @param n     Number of nodes
+     * @param from  Source index of every arc
+     * @param to    Target index of every arc
+     * @param w     Weight of every arc
+     * @param count Number of arcs used from the arrays
+     */
+    public static CsrGraph fromArcs(int n, int[] from, int[] to, double[] w, int count) {
+        int[] offsets = new int[n + 1];
+        for (int a = 0; a < count; a++) offsets[from[a] + 1]++;
+        for (int u = 0; u < n; u++) offsets[u + 1] += offsets[u];
+
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] targets = new int[count];
+        double[] weights = new double[count];
+        for (int a = 0; a < count; a++) {
+            int slot = fill[from[a]]++;
+            targets[slot] = to[a];
+            weights[slot] = w[a];
+        }
+        return new CsrGraph(offsets, targets, weights);
+    }
+
+    // Returns the number of nodes
+    public int nodeCount() {
+        return offsets.length - 1;
+    }
+
+    // Returns the number of directed arcs (an undirected edge counts twice)
+    public int arcCount() {
+        return targets.length;
+    }
+
+    // Returns the first arc of node u
+    public int begin(int u) {
+        return offsets[u];
+    }
+
+    // Returns one past the last arc of node u
+    public int end(int u) {
+        return offsets[u + 1];
+    }
+
+    // Returns the number of arcs leaving node u
+    public int degree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    // Returns the target node of an arc
+    public int target(int arc) {
+        return targets[arc];
+    }
+
+    // Returns the weight of an arc
+    public double weight(int arc) {
+        return weights[arc];
+    }
+
+    /**
+     * Builds the transposed graph, in which every arc u -> v becomes v -> u
+     * with the same weight. Backward searches run on it, so they stay
+     * correct when an edge's two directions carry different weights.
+     */
+    public CsrGraph transpose() {
+        int n = nodeCount();
+        int[] revOffsets = new int[n + 1];
+        for (int a = 0; a < targets.length; a++) revOffsets[targets[a] + 1]++;
+        for (int v = 0; v < n; v++) revOffsets[v + 1] += revOffsets[v];
+
+        int[] fill = Arrays.copyOf(revOffsets, n);
+        int[] revTargets = new int[targets.length];
+        double[] revWeights = new double[targets.length];
+        for (int u = 0; u < n; u++) {
+            for (int a = offsets[u]; a < offsets[u + 1]; a++) {
+                int slot = fill[targets[a]]++;
+                revTargets[slot] = u;
+                revWeights[slot] = weights[a];
+            }
+        }
+        return new CsrGraph(revOffsets, revTargets, revWeights);
+    }
+
+    /**
+     * Finds the shortest path by hop count using BFS.
+     * Runs in the calling thread's {@link SearchWorkspace}.
+     * @return Node indices from source to destination, or null if unreachable
+     */
+    public int[] bfsPath(int source, int destination) {
+        SearchWorkspace ws = SearchWorkspace.current();
+        return ws.bfs(this, source, destination) ? ws.path(destination) : null;
+    }
+
+    /**
+     * Finds the lowest-weight path using Dijkstra's algorithm with an indexed heap.
+     * Runs in the calling thread's {@link SearchWorkspace}.
+     * @return Node indices from source to destination, or null if unreachable
+     */
+    public int[] dijkstraPath(int source, int destination) {
+        SearchWorkspace ws = SearchWorkspace.current();
+        return ws.dijkstra(this, source, destination, DijkstraEngine.HeapStrategy.INDEXED)
+                ? ws.path(destination) : null;
+    }
+}
@@ -4,6 +4,11 @@ package com.example.routingsim.model;
  * Represents an edge (or connection) between two nodes in the graph.
  * Each edge can have a weight, which may represent distance, cost, or time.
  * This class helps simulate weighted or unweighted network connections.
+ *
+ * A graph stores its edges as primitive arrays and hands out Edge objects
+ * as views of them: the weight of such an edge is read from and written to
+ * the graph for as long as its two nodes are linked, and two views of the
+ * same edge are equal.
  */
 public class Edge {
     // The node where this edge starts
@@ -12,9 +17,12 @@ public class Edge {
     // The node where this edge ends
     private final Node to;
 
-    // The weight of the edge (used in pathfinding algorithms)
+    // The weight of the edge (used in pathfinding algorithms); for graph edges the last one seen
     private double weight;
 
+    // Graph this edge belongs to, holding its current weight (null for standalone edges)
+    private final Graph owner;
+
     /**
      * Constructor to create an edge between two nodes with a specific weight.
      * @param from    Starting node of the edge
@@ -22,9 +30,15 @@ public class Edge {
      * @param weight  Cost or distance between the two nodes
      */
     public Edge(Node from, Node to, double weight) {
+        this(from, to, weight, null);
+    }
+
+    // Creates a view of an edge of a graph, whose version is bumped on weight changes
+    Edge(Node from, Node to, double weight, Graph owner) {
         this.from = from;
         this.to = to;
         this.weight = weight;
+        this.owner = owner;
     }
 
     // Returns the starting node of the edge
@@ -39,11 +53,28 @@ public class Edge {
 
     // Returns the weight assigned to this edge
     public double getWeight() {
+        if (owner != null) weight = owner.weight(from, to, weight);
         return weight;
     }
 
     // Updates the weight of this edge (e.g., if cost or distance changes)
     public void setWeight(double w) {
+        double old = getWeight();
         this.weight = w;
+        if (owner != null) owner.edgeWeightChanged(this, old, w);
+    }
+
+    // Graph edges are equal if they connect the same nodes of the same graph; standalone ones only to themselves
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (owner == null || !(o instanceof Edge)) return false;
+        Edge e = (Edge) o;
+        return owner == e.owner && from == e.from && to == e.to;
+    }
+
+    @Override
+    public int hashCode() {
+        return owner == null ? System.identityHashCode(this) : 31 * System.identityHashCode(from) + System.identityHashCode(to);
     }
 }
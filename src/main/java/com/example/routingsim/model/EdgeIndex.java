@@ -0,0 +1,137 @@
+package com.example.routingsim.model;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from a directed (from, to) node pair to the edge's slot in the
+ * from-node's adjacency arrays, used by {@link Graph} for constant-time
+ * edge lookups instead of adjacency scans.
+ *
+ * Keys are the two node handles packed into one long and values plain
+ * ints, both in primitive arrays with open addressing and linear probing,
+ * so a lookup neither boxes nor follows chains. Deletion shifts later entries of the probe run back
+ * instead of leaving tombstones, so the table never degrades under churn.
+ */
+final class EdgeIndex {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Slot keys and values; values[i] == EMPTY marks an empty slot
+    private static final int EMPTY = -1;
+    private long[] keys;
+    private int[] values;
+
+    // capacity - 1, capacity is a power of two
+    private int mask;
+    private int size;
+
+    EdgeIndex() {
+        keys = new long[MIN_CAPACITY];
+        values = newValues(MIN_CAPACITY);
+        mask = MIN_CAPACITY - 1;
+    }
+
+    // Packs a directed node handle pair into one map key
+    static long pack(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    // Returns the number of edges in the index
+    int size() {
+        return size;
+    }
+
+    // Returns the slot stored under a key, or -1
+    int get(long key) {
+        for (int i = slot(key); values[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a slot (&gt;= 0) under a key, replacing any previous one.
+     * @return The replaced slot, or -1
+     */
+    int put(long key, int value) {
+        int i = slot(key);
+        for (; values[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int old = values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        // Keep the load factor at or below 3/4 so probe runs stay short
+        if (++size > (mask + 1) - ((mask + 1) >> 2)) resize((mask + 1) << 1);
+        return -1;
+    }
+
+    /**
+     * Removes the entry of a key.
+     * @return The removed slot, or -1 if there was none
+     */
+    int remove(long key) {
+        int i = slot(key);
+        for (; values[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) break;
+        }
+        int removed = values[i];
+        if (removed == EMPTY) return -1;
+
+        // Backward-shift deletion: move up every later entry of the run whose home slot allows it
+        int gap = i;
+        for (int j = (gap + 1) & mask; values[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            // Entry j may fill the gap unless its home lies cyclically in (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    // Removes all entries
+    void clear() {
+        Arrays.fill(values, EMPTY);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        // 64-bit finalizer of MurmurHash3, so both node keys affect the low bits
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = newValues(capacity);
+        mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == EMPTY) continue;
+            int j = slot(oldKeys[i]);
+            while (values[j] != EMPTY) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    private static int[] newValues(int capacity) {
+        int[] v = new int[capacity];
+        Arrays.fill(v, EMPTY);
+        return v;
+    }
+}
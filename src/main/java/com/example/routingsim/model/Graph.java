@@ -1,30 +1,105 @@
 package com.example.routingsim.model;
 
+import java.util.AbstractCollection;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import com.example.routingsim.metrics.Counter;
+import com.example.routingsim.metrics.Histogram;
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.routing.Metric;
 
 /**
  * This class represents the core graph structure used in the routing simulator.
  * It supports creating and managing nodes and edges, as well as running
  * pathfinding algorithms like BFS (for shortest hop path) and Dijkstra (for weighted path).
+ *
+ * A graph has a single writer: all edits, and the mutable views returned by
+ * getNodes and getEdges, belong to one thread (the JavaFX thread in the app).
+ * Other threads read the graph through {@link #current()}, an immutable
+ * {@link GraphVersion} that every edit, or every batch of edits between
+ * {@link #beginBatch()} and {@link #endBatch()}, replaces atomically.
+ *
+ * Every node gets a dense int handle ({@link Node#getHandle()}); handles of
+ * removed nodes are handed out again, so they stay below about the largest
+ * node count the graph ever had. All node and edge data is stored by
+ * handle, as struct-of-arrays: the vertex store keeps, for each block of
+ * 32 handles, the Node objects, the x and y coordinates, the degrees and
+ * each node's target handles and weights in plain arrays, shared between
+ * the working copy and the published versions. The string IDs are UTF-8
+ * bytes in a label table, and the spatial grid holds only its cell lists
+ * and reads positions from the vertex store. A graph Node is a small key
+ * that keeps its handle and label entry, but no ID or position while it
+ * is in the graph, and the Edge objects returned by getEdge and getEdges
+ * are views created on demand. On a 1M-node grid a node takes about a
+ * third of the memory it took with String-keyed maps of Node and Edge
+ * objects. Code that walks large graphs can skip both Node and Edge
+ * objects with the handle-based {@link #x(int)}, {@link #y(int)},
+ * {@link #degree(int)}, {@link #neighbor(int, int)} and
+ * {@link #weight(int, int)}.
  */
 public class Graph {
 
-    // Stores all the nodes using their ID as the key
-    private final Map<String, Node> nodes = new HashMap<>();
+    // Initial cell size of the spatial index, about the node spacing on the canvas
+    private static final double DEFAULT_CELL_SIZE = 64;
+
+    // Per-operation metrics, recorded only while Metrics is enabled
+    private static final Counter ADD_NODE = Metrics.counter("graph.addNode");
+    private static final Counter ADD_EDGE = Metrics.counter("graph.addEdge");
+    private static final Counter WEIGHT_CHANGE = Metrics.counter("graph.weightChange");
+    private static final Counter REMOVE_NODE = Metrics.counter("graph.removeNode");
+    private static final Counter REMOVE_EDGE = Metrics.counter("graph.removeEdge");
+    private static final Counter MOVE_NODE = Metrics.counter("graph.moveNode");
+    private static final Histogram SHORTEST_PATH = Metrics.latency("graph.findShortestPath.latency");
+    private static final Histogram WEIGHTED_PATH = Metrics.latency("graph.findWeightedShortestPath.latency");
+
+    // Node ID -> handle and back
+    private final LabelTable labels = new LabelTable();
+
+    // Free handles below handleLimit, reused last-freed first
+    private int[] free = new int[8];
+    private int freeCount;
+
+    // Every handle ever handed out is below it
+    private int handleLimit;
+    private int nodeCount;
+
+    // (from, to) -> slot of the edge in the from-node's vertex, for constant-time lookups
+    private final EdgeIndex edgeIndex = new EdgeIndex();
+
+    // Cells of the node positions for range, nearest-neighbour and hit-test queries
+    private final SpatialGrid spatialIndex = new SpatialGrid(this, DEFAULT_CELL_SIZE);
+
+    // Incremented by every edit (nodes, edges and edge weights)
+    private long version;
+
+    // Components notified of every edit
+    private final List<GraphListener> listeners = new ArrayList<>();
+
+    // Working copy of the next version and the graph's only node and adjacency storage: vertices by handle
+    private VertexStore vertices = VertexStore.empty();
 
-    // Stores the adjacency list for each node (each node maps to a list of its connected edges)
-    private final Map<Node, List<Edge>> adj = new HashMap<>();
+    // The leaves of vertices by leaf index, so that reads and repeated edits of the working copy skip the trie
+    private VertexStore.Leaf[] leaves = new VertexStore.Leaf[4];
+    private int arcCount;
+
+    // Owns the leaves and trie blocks changed since the last freeze, which may be updated in place
+    private Object editToken = new Object();
+
+    // Version of the working copy as of the last freeze, null once it was edited again
+    private GraphVersion frozen;
+
+    // Number of open batches; versions are only published when it is 0
+    private int batchDepth;
+
+    // Latest published version, read by any thread
+    private volatile GraphVersion published = freeze();
 
     /**
      * Adds a new node to the graph with a unique ID and a position (x, y).
@@ -34,162 +109,518 @@ public class Graph {
      * @return The created node
      */
     public Node addNode(String id, double x, double y) {
-        Node n = new Node(id, x, y);
-        nodes.put(id, n);
-        adj.put(n, new ArrayList<>());
+        int h = freeCount > 0 ? free[--freeCount] : handleLimit++;
+        Node n = new Node(labels, labels.put(h, id), h, this);
+        edit(h).set(VertexStore.slot(h), n, x, y);
+        nodeCount++;
+        spatialIndex.insert(h);
+        version++;
+        changed();
+        if (Metrics.enabled()) ADD_NODE.increment();
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).nodeAdded(n);
         return n;
     }
 
     /**
      * Adds an undirected edge between two nodes with a given weight.
      * If the edge already exists, its weight is simply updated.
+     * @throws IllegalArgumentException If either ID names no node of this graph
      */
     public void addEdge(String fromId, String toId, double w) {
-        Node f = nodes.get(fromId);
-        Node t = nodes.get(toId);
+        addEdge(getNode(fromId), getNode(toId), w);
+    }
 
-        // Check if edge already exists in both directions (since undirected)
-        Edge existingFT = findEdge(f, t);
-        Edge existingTF = findEdge(t, f);
+    /**
+     * Adds an undirected edge between two nodes of this graph, or updates
+     * its weight if it already exists.
+     * @throws IllegalArgumentException If either node is not part of this graph
+     */
+    public void addEdge(Node f, Node t, double w) {
+        require(f);
+        require(t);
 
-        if (existingFT != null && existingTF != null) {
+        // Check if edge already exists in both directions (since undirected)
+        if (arcSlot(f, t) >= 0 && arcSlot(t, f) >= 0) {
             // If yes, just update the weights in both directions
-            existingFT.setWeight(w);
-            existingTF.setWeight(w);
+            getEdge(f, t).setWeight(w);
+            getEdge(t, f).setWeight(w);
             return;
         }
 
         // Otherwise, create new edges in both directions
-        adj.get(f).add(new Edge(f, t, w));
-        adj.get(t).add(new Edge(t, f, w));
+        link(f, t, w);
+        link(t, f, w);
+        version++;
+        changed();
+        if (Metrics.enabled()) ADD_EDGE.increment();
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).edgeAdded(f, t, w);
+    }
+
+    // Returns the edge from node a to node b, or null if they are not connected
+    public Edge getEdge(Node a, Node b) {
+        int slot = arcSlot(a, b);
+        return slot < 0 ? null : new Edge(a, b, arcWeight(a.key, slot), this);
+    }
+
+    /**
+     * Helper method to find the slot of the edge from node a to node b in
+     * a's vertex, or -1 if there is none. A single probe of the edge index,
+     * independent of the node degrees.
+     */
+    private int arcSlot(Node a, Node b) {
+        // Guards against removed nodes and nodes of another graph, whose handles may be in use here
+        if (a == null || b == null || a.owner != this || b.owner != this) return -1;
+        return edgeIndex.get(EdgeIndex.pack(a.key, b.key));
+    }
+
+    // Called by edges of this graph: the current weight of the edge from a to b, or fallback if there is none
+    double weight(Node a, Node b, double fallback) {
+        int slot = arcSlot(a, b);
+        return slot < 0 ? fallback : arcWeight(a.key, slot);
+    }
+
+    // Weight of the edge at a slot of a node's edges
+    private double arcWeight(int handle, int slot) {
+        return leafOf(handle).weights[VertexStore.slot(handle)][slot];
+    }
+
+    // Appends an edge to its from-node's vertex and indexes it, or sets its weight if it exists
+    private void link(Node f, Node t, double w) {
+        VertexStore.Leaf v = edit(f.key);
+        int i = VertexStore.slot(f.key);
+        long key = EdgeIndex.pack(f.key, t.key);
+        int slot = edgeIndex.get(key);
+        if (slot >= 0) {
+            v.setWeight(i, slot, w);
+            return;
+        }
+        edgeIndex.put(key, v.degree[i]);
+        v.append(i, t.key, w);
+        arcCount++;
     }
 
     /**
-     * Helper method to find an existing edge from node a to node b.
+     * Removes the edge from f to t from the index and f's vertex in O(1):
+     * the last edge of the vertex takes over its slot.
+     * @return False if there was no such edge
      */
-    private Edge findEdge(Node a, Node b) {
-        return adj.getOrDefault(a, List.of()).stream()
-                .filter(edge -> edge.getTo().equals(b))
-                .findFirst()
-                .orElse(null);
+    private boolean unlink(Node f, Node t) {
+        int slot = edgeIndex.remove(EdgeIndex.pack(f.key, t.key));
+        if (slot < 0) return false;
+        VertexStore.Leaf v = edit(f.key);
+        int i = VertexStore.slot(f.key);
+        int last = v.degree[i] - 1;
+        if (slot != last) edgeIndex.put(EdgeIndex.pack(f.key, v.targets[i][last]), slot);
+        v.removeAt(i, slot);
+        arcCount--;
+        return true;
     }
 
-    // Returns all nodes in the graph
+    /**
+     * Returns all nodes in the graph, in handle order. The collection is a
+     * view: it reflects later edits and must not be iterated across them.
+     */
     public Collection<Node> getNodes() {
-        return nodes.values();
+        return new AbstractCollection<>() {
+            @Override
+            public int size() {
+                return nodeCount;
+            }
+
+            @Override
+            public Iterator<Node> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    private int advance(int h) {
+                        while (h < handleLimit && nodeAt(h) == null) h++;
+                        return h;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < handleLimit;
+                    }
+
+                    @Override
+                    public Node next() {
+                        if (next >= handleLimit) throw new NoSuchElementException();
+                        Node n = nodeAt(next);
+                        next = advance(next + 1);
+                        return n;
+                    }
+                };
+            }
+        };
+    }
+
+    // Returns the node with the given ID, or null if there is none
+    public Node getNode(String id) {
+        int h = labels.handleOf(id);
+        return h < 0 ? null : nodeAt(h);
     }
 
-    // Returns all edges connected to a specific node
+    /**
+     * Returns all edges leaving a specific node, or null if the node is not
+     * part of this graph. The list is a read-only view that reflects later
+     * edits; copy it before removing edges while iterating.
+     */
     public List<Edge> getEdges(Node n) {
-        return adj.get(n);
+        if (n == null || n.owner != this) return null;
+        return new AbstractList<>() {
+            @Override
+            public int size() {
+                return n.owner == Graph.this ? degree(n.key) : 0;
+            }
+
+            @Override
+            public Edge get(int e) {
+                Objects.checkIndex(e, size());
+                VertexStore.Leaf v = leafOf(n.key);
+                int i = VertexStore.slot(n.key);
+                return new Edge(n, nodeAt(v.targets[i][e]), v.weights[i][e], Graph.this);
+            }
+        };
+    }
+
+    // Returns the handle of the node with the given ID, or -1 if there is none
+    public int handleOf(String id) {
+        return labels.handleOf(id);
+    }
+
+    // Returns the node with a handle, or null if the handle is free
+    public Node node(int handle) {
+        return handle >= 0 && handle < handleLimit ? nodeAt(handle) : null;
+    }
+
+    // Returns an upper bound of all handles in use, for sizing arrays indexed by handle
+    public int handleLimit() {
+        return handleLimit;
+    }
+
+    // Returns the number of nodes
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    // Returns the x coordinate of the node with a handle
+    public double x(int handle) {
+        return leaf(handle).x[VertexStore.slot(handle)];
+    }
+
+    // Returns the y coordinate of the node with a handle
+    public double y(int handle) {
+        return leaf(handle).y[VertexStore.slot(handle)];
+    }
+
+    // Returns the number of edges leaving the node with a handle
+    public int degree(int handle) {
+        return leaf(handle).degree[VertexStore.slot(handle)];
+    }
+
+    // Returns the handle of the target of the i-th edge leaving the node with a handle
+    public int neighbor(int handle, int i) {
+        VertexStore.Leaf v = leaf(handle);
+        int s = VertexStore.slot(handle);
+        Objects.checkIndex(i, v.degree[s]);
+        return v.targets[s][i];
+    }
+
+    // Returns the weight of the i-th edge leaving the node with a handle
+    public double weight(int handle, int i) {
+        VertexStore.Leaf v = leaf(handle);
+        int s = VertexStore.slot(handle);
+        Objects.checkIndex(i, v.degree[s]);
+        return v.weights[s][i];
+    }
+
+    // Returns the position of the edge between two handles among the from-node's edges, or -1 if there is none
+    public int indexOfEdge(int from, int to) {
+        return node(from) == null || node(to) == null ? -1 : edgeIndex.get(EdgeIndex.pack(from, to));
+    }
+
+    // Working leaf of a handle below handleLimit, read by the spatial index
+    VertexStore.Leaf leafOf(int handle) {
+        return leaves[VertexStore.leafIndex(handle)];
+    }
+
+    // Working leaf of a handle in use, for reading
+    VertexStore.Leaf leaf(int handle) {
+        if (node(handle) == null) throw new IllegalArgumentException("No node with handle " + handle);
+        return leafOf(handle);
+    }
+
+    // Node with a handle below handleLimit, or null if the handle is free
+    private Node nodeAt(int handle) {
+        return leafOf(handle).nodes[VertexStore.slot(handle)];
+    }
+
+    private void require(Node n) {
+        if (n == null || n.owner != this) {
+            throw new IllegalArgumentException("Node is not part of this graph: " + (n == null ? null : n.getId()));
+        }
     }
 
     /**
-     * Finds the shortest path (by number of hops) from source to destination
-     * using Breadth-First Search (BFS).
+     * Returns the topology version. It changes whenever a node or edge is
+     * added or removed or an edge weight is set, so anything derived from
+     * the graph (snapshots, cached routes) is current exactly as long as
+     * the version it was computed at is still returned here.
      */
-    public List<Node> findShortestPath(Node source, Node destination) {
-        Map<Node, Node> parent = new HashMap<>();
-        Set<Node> visited = new HashSet<>();
-        Queue<Node> queue = new LinkedList<>();
+    public long getVersion() {
+        return version;
+    }
 
-        queue.add(source);
-        visited.add(source);
+    // Called by edges of this graph when their weight changes
+    void edgeWeightChanged(Edge e, double oldWeight, double weight) {
+        // Edges that were removed keep their owner but are no longer part of the graph:
+        // their weight is their own, and nothing derived from the graph changes
+        int slot = arcSlot(e.getFrom(), e.getTo());
+        if (slot < 0) return;
+        int h = e.getFrom().key;
+        edit(h).setWeight(VertexStore.slot(h), slot, weight);
+        version++;
+        changed();
+        if (Metrics.enabled()) WEIGHT_CHANGE.increment();
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).edgeWeightChanged(e, oldWeight);
+    }
 
-        while (!queue.isEmpty()) {
-            Node current = queue.poll();
+    // Called by nodes of this graph to change their position
+    void moveNode(Node n, double x, double y) {
+        int h = n.key, s = VertexStore.slot(h);
+        VertexStore.Leaf v = leafOf(h);
+        double oldX = v.x[s], oldY = v.y[s];
+        if (x == oldX && y == oldY) return;
+        v = edit(h);
+        v.x[s] = x;
+        v.y[s] = y;
+        spatialIndex.move(h, oldX, oldY);
+        // Positions feed the A* heuristic of snapshots, so a move is an edit like any other
+        version++;
+        changed();
+        if (Metrics.enabled()) MOVE_NODE.increment();
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).nodeMoved(n, oldX, oldY);
+    }
 
-            if (current.equals(destination)) {
-                // Reconstruct path once destination is found
-                List<Node> path = new ArrayList<>();
-                for (Node step = destination; step != null; step = parent.get(step)) {
-                    path.add(step);
-                }
-                Collections.reverse(path);
-                return path;
-            }
+    // Returns the spatial index over the node positions, kept current by every edit
+    public SpatialGrid spatialIndex() {
+        return spatialIndex;
+    }
+
+    // Returns the node closest to (x, y) within maxDistance, or null (e.g. for click hit-tests)
+    public Node nodeAt(double x, double y, double maxDistance) {
+        return spatialIndex.nearest(x, y, maxDistance);
+    }
+
+    // Returns all nodes within distance r of (x, y)
+    public List<Node> nodesWithin(double x, double y, double r) {
+        return spatialIndex.withinRange(x, y, r);
+    }
+
+    /**
+     * Builds a unit-disk topology: connects every pair of nodes at most
+     * range apart that is not connected yet, with the distance as weight.
+     * Existing edges are kept. The spatial index is re-bucketed to cells of
+     * the range first if its cell size is far off, so each node only
+     * examines its own and the adjacent cells.
+     * @return The number of edges added
+     */
+    public int connectWithinRange(double range) {
+        double cell = spatialIndex.getCellSize();
+        if (range > 0 && (cell < range / 2 || cell > range * 2)) spatialIndex.setCellSize(range);
 
-            for (Edge edge : adj.getOrDefault(current, new ArrayList<>())) {
-                Node neighbor = edge.getTo();
-                if (!visited.contains(neighbor)) {
-                    visited.add(neighbor);
-                    parent.put(neighbor, current);
-                    queue.add(neighbor);
+        List<Node> all = new ArrayList<>(getNodes());
+        List<Node> near = new ArrayList<>();
+        int added = 0;
+        beginBatch();
+        try {
+            for (Node a : all) {
+                near.clear();
+                double ax = x(a.key), ay = y(a.key);
+                spatialIndex.forEachWithinRange(ax, ay, range, near::add);
+                for (Node b : near) {
+                    // Each pair once, from its lower-keyed end
+                    if (b.key <= a.key || arcSlot(a, b) >= 0) continue;
+                    addEdge(a, b, Math.hypot(ax - x(b.key), ay - y(b.key)));
+                    added++;
                 }
             }
+        } finally {
+            endBatch();
         }
+        return added;
+    }
+
+    // Registers a listener that is told about every edit from now on
+    public void addGraphListener(GraphListener l) {
+        listeners.add(l);
+    }
+
+    // Unregisters a listener
+    public void removeGraphListener(GraphListener l) {
+        listeners.remove(l);
+    }
+
+    /**
+     * Returns an immutable CSR snapshot of the current topology that the
+     * primitive BFS/Dijkstra implementations can query. The snapshot is built
+     * once and reused until the graph version changes; later edits are not
+     * reflected in a snapshot that was already handed out. Unlike
+     * {@link #current()} it includes the edits of an open batch, so it is
+     * for the writing thread only.
+     */
+    public GraphSnapshot snapshot() {
+        return freeze().snapshot();
+    }
 
-        return null; // No path found
+    /**
+     * Returns the latest published version of the topology. Safe to call
+     * from any thread; the version stays consistent however the graph is
+     * edited afterwards. Edits of an open batch are not visible until the
+     * batch ends.
+     */
+    public GraphVersion current() {
+        return published;
+    }
+
+    /**
+     * Starts a batch: the edits up to the matching {@link #endBatch()} are
+     * published as one version, and vertices touched several times are
+     * copied only once. Batches nest.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    // Ends a batch and, when it is the outermost one, publishes its edits
+    public void endBatch() {
+        if (batchDepth == 0) throw new IllegalStateException("no batch is open");
+        if (--batchDepth == 0) published = freeze();
+    }
+
+    // Returns the version of the working copy, starting a new edit token so it is never changed again
+    private GraphVersion freeze() {
+        if (frozen == null) {
+            frozen = new GraphVersion(vertices, nodeCount, arcCount, handleLimit, version);
+            editToken = new Object();
+        }
+        return frozen;
+    }
+
+    // Called after every edit of the working copy; publishes it unless a batch is open
+    private void changed() {
+        frozen = null;
+        if (batchDepth == 0) published = freeze();
+    }
+
+    // Returns the working leaf of a handle, copying it first if an earlier version holds it
+    private VertexStore.Leaf edit(int handle) {
+        int i = VertexStore.leafIndex(handle);
+        if (i < leaves.length && leaves[i] != null && leaves[i].owner == editToken) return leaves[i];
+        vertices = vertices.edit(handle, editToken);
+        if (i >= leaves.length) leaves = Arrays.copyOf(leaves, Math.max(i + 1, leaves.length << 1));
+        return leaves[i] = vertices.leaf(handle);
+    }
+
+    /**
+     * Finds the shortest path (by number of hops) from source to destination
+     * using Breadth-First Search (BFS).
+     * Runs on the cached CSR snapshot in the calling thread's reusable
+     * search workspace, so repeated queries allocate only the result path.
+     */
+    public List<Node> findShortestPath(Node source, Node destination) {
+        long start = Metrics.start();
+        List<Node> path = snapshot().findShortestPath(source, destination);
+        if (start != Metrics.OFF) SHORTEST_PATH.recordSince(start);
+        return path;
+    }
+
+    /**
+     * Finds up to k alternative loopless routes by a metric, shortest first,
+     * for multipath routing. Empty if there is no path.
+     */
+    public List<List<Node>> findKShortestPaths(Node source, Node destination, int k, Metric metric) {
+        return snapshot().findKShortestPaths(source, destination, k, metric);
+    }
+
+    /**
+     * Finds a primary route and a link- or node-disjoint backup with the
+     * least total cost; only one route if no disjoint pair exists.
+     */
+    public List<List<Node>> findDisjointPaths(Node source, Node destination, boolean nodeDisjoint, Metric metric) {
+        return snapshot().findDisjointPaths(source, destination, nodeDisjoint, metric);
     }
 
     /**
      * Removes a node from the graph and also removes any edges connected to it.
+     * Its handle is freed and given to a later added node; the removed Node
+     * keeps it, so versions published before the removal still find it.
      */
     public void removeNode(Node n) {
-        // Remove all edges that point to this node
-        List<Edge> incident = new ArrayList<>(adj.getOrDefault(n, List.of()));
-        for (Edge e : incident) {
-            Node neighbor = e.getTo();
-            adj.get(neighbor).removeIf(edge -> edge.getTo().equals(n));
+        if (n == null || n.owner != this) return;
+
+        // The node's own edges, reported to the listeners once it is gone
+        int h = n.key, s = VertexStore.slot(h);
+        VertexStore.Leaf v = leafOf(h);
+        int degree = v.degree[s];
+        int[] handles = Arrays.copyOf(v.targets[s], degree);
+        double[] weights = Arrays.copyOf(v.weights[s], degree);
+        double x = v.x[s], y = v.y[s];
+        Node[] targets = new Node[degree];
+
+        // Remove all edges that point to this node, and this node's own edges from the index
+        for (int i = 0; i < degree; i++) {
+            targets[i] = nodeAt(handles[i]);
+            if (targets[i] != n) unlink(targets[i], n);
+            edgeIndex.remove(EdgeIndex.pack(h, handles[i]));
         }
 
-        // Remove the node itself
-        adj.remove(n);
-        nodes.remove(n.getId());
+        // Remove the node itself and free its handle
+        labels.remove(h);
+        spatialIndex.remove(h);
+        edit(h).clear(s);
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount << 1);
+        free[freeCount++] = h;
+        nodeCount--;
+        arcCount -= degree;
+        n.detach(x, y);
+        version++;
+        changed();
+        if (Metrics.enabled()) REMOVE_NODE.increment();
+
+        for (int i = 0; i < listeners.size(); i++) {
+            GraphListener l = listeners.get(i);
+            for (int e = 0; e < degree; e++) l.edgeRemoved(n, targets[e], weights[e]);
+            l.nodeRemoved(n);
+        }
     }
 
     /**
      * Removes the edge between two nodes (in both directions, since undirected).
      */
     public void removeEdge(Node a, Node b) {
-        adj.get(a).removeIf(e -> e.getTo().equals(b));
-        adj.get(b).removeIf(e -> e.getTo().equals(a));
+        double weight = weight(a, b, Double.NaN);
+        boolean removed = arcSlot(a, b) >= 0 && unlink(a, b);
+        if (arcSlot(b, a) >= 0) unlink(b, a);
+        version++;
+        changed();
+        if (removed && Metrics.enabled()) REMOVE_EDGE.increment();
+        if (removed) {
+            for (int i = 0; i < listeners.size(); i++) listeners.get(i).edgeRemoved(a, b, weight);
+        }
     }
 
     /**
-     * Uses algorithm to find the lowest-weight path
+     * Uses Dijkstra's algorithm to find the lowest-weight path
      * from the source node to the destination node.
+     * Runs on the cached CSR snapshot with an indexed heap (O(log n)
+     * decrease-key) in the calling thread's reusable search workspace.
      * Returns null if no path exists.
      */
     public List<Node> findWeightedShortestPath(Node source, Node destination) {
-        Map<Node, Double> dist = new HashMap<>();
-        Map<Node, Node> parent = new HashMap<>();
-        PriorityQueue<Node> pq = new PriorityQueue<>(Comparator.comparingDouble(dist::get));
-
-        // Initialize distances
-        for (Node n : nodes.values()) {
-            dist.put(n, Double.POSITIVE_INFINITY);
-        }
-        dist.put(source, 0.0);
-        pq.add(source);
-
-        while (!pq.isEmpty()) {
-            Node u = pq.poll();
-            if (u.equals(destination)) break; // Reached the goal
-
-            for (Edge e : adj.getOrDefault(u, List.of())) {
-                Node v = e.getTo();
-                double alt = dist.get(u) + e.getWeight();
-                if (alt < dist.get(v)) {
-                    dist.put(v, alt);
-                    parent.put(v, u);
-                    pq.remove(v); // Refresh the node in the priority queue
-                    pq.add(v);
-                }
-            }
-        }
-
-        // No path found
-        if (!parent.containsKey(destination) && !source.equals(destination)) {
-            return null;
-        }
-
-        // Reconstruct the shortest path
-        List<Node> path = new ArrayList<>();
-        for (Node step = destination; step != null; step = parent.get(step)) {
-            path.add(step);
-        }
-        Collections.reverse(path);
+        long start = Metrics.start();
+        List<Node> path = snapshot().findWeightedShortestPath(source, destination);
+        if (start != Metrics.OFF) WEIGHTED_PATH.recordSince(start);
         return path;
     }
 }
@@ -0,0 +1,40 @@
+package com.example.routingsim.model;
+
+/**
+ * Callback interface for components that track changes to a {@link Graph}.
+ * Every callback runs after the graph has been updated, on the thread that
+ * made the edit. All methods have empty defaults so a listener only
+ * overrides what it cares about.
+ */
+public interface GraphListener {
+
+    // A node was added (it has no edges yet)
+    default void nodeAdded(Node n) {
+    }
+
+    /**
+     * A node was removed. Its incident edges have already been reported
+     * through {@link #edgeRemoved} one by one.
+     */
+    default void nodeRemoved(Node n) {
+    }
+
+    // A node moved from (oldX, oldY) to its current position
+    default void nodeMoved(Node n, double oldX, double oldY) {
+    }
+
+    // An undirected edge a <-> b was created with the given weight
+    default void edgeAdded(Node a, Node b, double weight) {
+    }
+
+    // The undirected edge a <-> b, which had the given weight, was removed
+    default void edgeRemoved(Node a, Node b, double weight) {
+    }
+
+    /**
+     * The weight of the directed edge e changed. Updating an undirected
+     * edge through {@link Graph#addEdge} reports both directions, one call each.
+     */
+    default void edgeWeightChanged(Edge e, double oldWeight) {
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.routingsim.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.routingsim.routing.AStarSearch;
+import com.example.routingsim.routing.BidirectionalSearch;
+import com.example.routingsim.routing.DijkstraEngine;
+import com.example.routingsim.routing.DisjointPaths;
+import com.example.routingsim.routing.KShortestPaths;
+import com.example.routingsim.routing.Metric;
+import com.example.routingsim.routing.Route;
+import com.example.routingsim.routing.SearchWorkspace;
+
+/**
+ * An immutable, query-only copy of a {@link Graph} at one point in time.
+ * It pairs the primitive CSR topology with the index that maps it back to
+ * Node objects, plus the node coordinates used by goal-directed search.
+ * Later edits to the Graph, including moved nodes, do not affect an
+ * existing snapshot.
+ */
+public final class GraphSnapshot {
+
+    private final CsrGraph csr;
+    private final NodeIndex index;
+
+    // Node positions at snapshot time, by index
+    private final double[] xs;
+    private final double[] ys;
+
+    // Derived lazily on first use; racing threads compute the same value
+    private volatile CsrGraph reverse;
+    private volatile double admissibleScale = Double.NaN;
+
+    public GraphSnapshot(CsrGraph csr, NodeIndex index) {
+        this(csr, index, new double[index.size()], new double[index.size()]);
+        for (int i = 0; i < index.size(); i++) {
+            xs[i] = index.nodeAt(i).getX();
+            ys[i] = index.nodeAt(i).getY();
+        }
+    }
+
+    /**
+     * Creates a snapshot from coordinate arrays that are already at hand,
+     * e.g. read from a file. The arrays are taken over, not copied.
+     */
+    public GraphSnapshot(CsrGraph csr, NodeIndex index, double[] xs, double[] ys) {
+        if (csr.nodeCount() != index.size() || xs.length != index.size() || ys.length != index.size()) {
+            throw new IllegalArgumentException("CSR, node index and coordinate sizes differ");
+        }
+        this.csr = csr;
+        this.index = index;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    /**
+     * Builds a snapshot from the current state of a graph.
+     * Node indices follow the iteration order of {@link Graph#getNodes()}.
+     */
+    public static GraphSnapshot of(Graph graph) {
+        Node[] nodes = graph.getNodes().toArray(new Node[0]);
+        NodeIndex index = new NodeIndex(nodes);
+
+        int[] offsets = new int[nodes.length + 1];
+        for (int i = 0; i < nodes.length; i++) {
+            offsets[i + 1] = offsets[i] + graph.getEdges(nodes[i]).size();
+        }
+
+        int[] targets = new int[offsets[nodes.length]];
+        double[] weights = new double[targets.length];
+        for (int i = 0; i < nodes.length; i++) {
+            int a = offsets[i];
+            for (Edge e : graph.getEdges(nodes[i])) {
+                targets[a] = index.indexOf(e.getTo());
+                weights[a] = e.getWeight();
+                a++;
+            }
+        }
+        return new GraphSnapshot(CsrGraph.of(offsets, targets, weights), index);
+    }
+
+    // Returns the primitive topology
+    public CsrGraph csr() {
+        return csr;
+    }
+
+    // Returns the node <-> index mapping
+    public NodeIndex index() {
+        return index;
+    }
+
+    // Returns the x coordinate of a node index
+    public double x(int v) {
+        return xs[v];
+    }
+
+    // Returns the y coordinate of a node index
+    public double y(int v) {
+        return ys[v];
+    }
+
+    // Returns the transposed topology used by backward searches
+    public CsrGraph reverse() {
+        CsrGraph r = reverse;
+        if (r == null) {
+            r = csr.transpose();
+            reverse = r;
+        }
+        return r;
+    }
+
+    /**
+     * Returns the largest factor k for which k times the straight-line
+     * distance never exceeds an edge's weight, i.e. the minimum of
+     * weight / length over all arcs. Scaling the Euclidean heuristic by this
+     * value keeps A* admissible (and consistent) whatever units the weights
+     * use. Arcs between coinciding nodes impose no bound; a graph without
+     * any bound gets 0, which makes A* behave like Dijkstra.
+     */
+    public double admissibleScale() {
+        double k = admissibleScale;
+        if (Double.isNaN(k)) {
+            k = Double.POSITIVE_INFINITY;
+            for (int u = 0; u < csr.nodeCount(); u++) {
+                for (int a = csr.begin(u), end = csr.end(u); a < end; a++) {
+                    int v = csr.target(a);
+                    double length = Math.hypot(xs[u] - xs[v], ys[u] - ys[v]);
+                    if (length > 0) k = Math.min(k, csr.weight(a) / length);
+                }
+            }
+            if (k == Double.POSITIVE_INFINITY || k < 0) k = 0;
+            admissibleScale = k;
+        }
+        return k;
+    }
+
+    /**
+     * Runs a point-to-point search for the given metric in a workspace.
+     * Whatever the algorithm, the route afterwards reads the same way:
+     * {@link SearchWorkspace#distance(int)} and {@link SearchWorkspace#path(int)}
+     * of the destination. A* uses {@link #admissibleScale()}.
+     * @return True if the destination is reachable
+     */
+    public boolean route(SearchWorkspace ws, int source, int destination, Metric metric) {
+        switch (metric) {
+            case HOP:
+                return ws.bfs(csr, source, destination);
+            case ASTAR:
+                return AStarSearch.run(ws, this, source, destination, admissibleScale());
+            case BIDIRECTIONAL_HOP:
+                return BidirectionalSearch.bfs(ws, csr, reverse(), source, destination);
+            case BIDIRECTIONAL_WEIGHT:
+                return BidirectionalSearch.dijkstra(ws, csr, reverse(), source, destination);
+            default:
+                return ws.dijkstra(csr, source, destination, DijkstraEngine.HeapStrategy.INDEXED);
+        }
+    }
+
+    /**
+     * Shortest path by hop count (BFS). Returns null if no path exists or
+     * either node is not part of this snapshot.
+     */
+    public List<Node> findShortestPath(Node source, Node destination) {
+        int s = index.indexOf(source), t = index.indexOf(destination);
+        if (s < 0 || t < 0) return null;
+        SearchWorkspace ws = SearchWorkspace.current();
+        return ws.bfs(csr, s, t) ? treePath(ws, t) : null;
+    }
+
+    /**
+     * Lowest-weight path (Dijkstra). Returns null if no path exists or
+     * either node is not part of this snapshot.
+     */
+    public List<Node> findWeightedShortestPath(Node source, Node destination) {
+        int s = index.indexOf(source), t = index.indexOf(destination);
+        if (s < 0 || t < 0) return null;
+        SearchWorkspace ws = SearchWorkspace.current();
+        return ws.dijkstra(csr, s, t, DijkstraEngine.HeapStrategy.INDEXED) ? treePath(ws, t) : null;
+    }
+
+    /**
+     * Finds a route by the given metric. Returns null if no path exists or
+     * either node is not part of this snapshot.
+     */
+    public List<Node> findPath(Node source, Node destination, Metric metric) {
+        int s = index.indexOf(source), t = index.indexOf(destination);
+        if (s < 0 || t < 0) return null;
+        SearchWorkspace ws = SearchWorkspace.current();
+        return route(ws, s, t, metric) ? treePath(ws, t) : null;
+    }
+
+    /**
+     * Lowest-weight path by A* with the Euclidean heuristic multiplied by
+     * scale. A scale up to {@link #admissibleScale()} still finds optimal
+     * routes; larger values settle fewer nodes but may return longer ones.
+     * Returns null if no path exists or either node is not part of this snapshot.
+     */
+    public List<Node> findAStarPath(Node source, Node destination, double scale) {
+        int s = index.indexOf(source), t = index.indexOf(destination);
+        if (s < 0 || t < 0) return null;
+        SearchWorkspace ws = SearchWorkspace.current();
+        return AStarSearch.run(ws, this, s, t, scale) ? treePath(ws, t) : null;
+    }
+
+    /**
+     * Up to k loopless routes by the given metric, shortest first (see
+     * {@link KShortestPaths}). Returns an empty list if no path exists or
+     * either node is not part of this snapshot.
+     */
+    public List<List<Node>> findKShortestPaths(Node source, Node destination, int k, Metric metric) {
+        int s = index.indexOf(source), t = index.indexOf(destination);
+        if (s < 0 || t < 0) return new ArrayList<>();
+        return toNodeLists(KShortestPaths.find(this, s, t, k, metric));
+    }
+
+    /**
+     * Two link- or node-disjoint routes with the least total cost, cheaper
+     * first (see {@link DisjointPaths}). Returns one route if no disjoint
+     * pair exists, and an empty list if no path exists or either node is
+     * not part of this snapshot.
+     */
+    public List<List<Node>> findDisjointPaths(Node source, Node destination, boolean nodeDisjoint, Metric metric) {
+        int s = index.indexOf(source), t = index.indexOf(destination);
+        if (s < 0 || t < 0) return new ArrayList<>();
+        return toNodeLists(DisjointPaths.find(this, s, t, nodeDisjoint, metric));
+    }
+
+    private List<List<Node>> toNodeLists(List<Route> routes) {
+        List<List<Node>> paths = new ArrayList<>(routes.size());
+        for (Route r : routes) paths.add(toNodes(r.nodes()));
+        return paths;
+    }
+
+    /**
+     * Reads the path to a node straight out of the workspace's parent links.
+     * The returned list is the only allocation of a query.
+     */
+    public List<Node> treePath(SearchWorkspace ws, int destination) {
+        int length = ws.pathLength(destination);
+        if (length == 0) return null;
+
+        Node[] path = new Node[length];
+        for (int step = destination, i = length - 1; step >= 0; step = ws.parent(step)) {
+            path[i--] = index.nodeAt(step);
+        }
+        return Arrays.asList(path);
+    }
+
+    // Converts a path of indices back into nodes
+    public List<Node> toNodes(int[] path) {
+        if (path == null) return null;
+        List<Node> nodes = new ArrayList<>(path.length);
+        for (int i : path) nodes.add(index.nodeAt(i));
+        return nodes;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.routingsim.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.routingsim.metrics.Histogram;
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.routing.Metric;
+
+/**
+ * An immutable version of a {@link Graph}'s topology: its nodes with their
+ * positions, and every node's outgoing edges with their weights, as they
+ * were when the version was published. Obtained from {@link Graph#current()}.
+ *
+ * A version never changes, so any number of threads may read it without
+ * locks while the graph goes on being edited; route queries, simulations
+ * and renderers each see one consistent topology for as long as they hold
+ * on to it. Consecutive versions share all vertex leaves an edit did not
+ * touch (see {@link VertexStore}), so publishing one copies only the few
+ * leaves and trie blocks the edits since the last one changed.
+ *
+ * Nodes are looked up by the handle their graph gave them (which may
+ * belong to another node in later versions); the Node objects serve as
+ * keys only, and their current positions may differ from the ones
+ * recorded here.
+ */
+public final class GraphVersion {
+
+    private static final Histogram SNAPSHOT = Metrics.latency("graph.snapshot.latency");
+
+    private final VertexStore vertices;
+    private final int nodeCount;
+    private final int arcCount;
+    private final int keyLimit;
+    private final long version;
+
+    // Built on first use; racing threads build equal snapshots
+    private volatile GraphSnapshot snapshot;
+
+    // keyLimit: every node handle is below it
+    GraphVersion(VertexStore vertices, int nodeCount, int arcCount, int keyLimit, long version) {
+        this.vertices = vertices;
+        this.nodeCount = nodeCount;
+        this.arcCount = arcCount;
+        this.keyLimit = keyLimit;
+        this.version = version;
+    }
+
+    // Returns the graph version number this topology was published at (see Graph.getVersion)
+    public long version() {
+        return version;
+    }
+
+    // Returns the number of nodes
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    // Returns the number of directed edges (two per undirected edge)
+    public int arcCount() {
+        return arcCount;
+    }
+
+    // Returns true if the node is part of this version
+    public boolean contains(Node n) {
+        return leaf(n) != null;
+    }
+
+    // Returns the nodes in handle order
+    public List<Node> nodes() {
+        List<Node> list = new ArrayList<>(nodeCount);
+        vertices.forEachLeaf((l, base) -> {
+            for (Node n : l.nodes) {
+                if (n != null) list.add(n);
+            }
+        });
+        return list;
+    }
+
+    // Returns the x coordinate of a node in this version
+    public double x(Node n) {
+        return require(n).x[VertexStore.slot(n.key)];
+    }
+
+    // Returns the y coordinate of a node in this version
+    public double y(Node n) {
+        return require(n).y[VertexStore.slot(n.key)];
+    }
+
+    // Returns the number of edges leaving a node
+    public int degree(Node n) {
+        return require(n).degree[VertexStore.slot(n.key)];
+    }
+
+    // Returns the target of the i-th edge leaving a node
+    public Node neighbor(Node n, int i) {
+        VertexStore.Leaf l = require(n);
+        int s = VertexStore.slot(n.key);
+        if (i < 0 || i >= l.degree[s]) throw new IndexOutOfBoundsException(i);
+        return vertices.node(l.targets[s][i]);
+    }
+
+    // Returns the weight of the i-th edge leaving a node
+    public double weight(Node n, int i) {
+        VertexStore.Leaf l = require(n);
+        int s = VertexStore.slot(n.key);
+        if (i < 0 || i >= l.degree[s]) throw new IndexOutOfBoundsException(i);
+        return l.weights[s][i];
+    }
+
+    // Returns the weight of the edge from a to b, or NaN if there is none
+    public double weight(Node a, Node b) {
+        VertexStore.Leaf l = leaf(a);
+        if (l == null || leaf(b) == null) return Double.NaN;
+        int s = VertexStore.slot(a.key);
+        for (int i = 0; i < l.degree[s]; i++) {
+            if (l.targets[s][i] == b.key) return l.weights[s][i];
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the CSR snapshot of this version for the primitive searches,
+     * built on first use. Node indices follow the order of {@link #nodes()}
+     * and edges keep their order per node.
+     */
+    public GraphSnapshot snapshot() {
+        GraphSnapshot s = snapshot;
+        if (s == null) {
+            long start = Metrics.start();
+            s = buildSnapshot();
+            snapshot = s;
+            if (start != Metrics.OFF) SNAPSHOT.recordSince(start);
+        }
+        return s;
+    }
+
+    /**
+     * Finds a route by the given metric on this version. Returns null if no
+     * path exists or either node is not part of it.
+     */
+    public List<Node> findPath(Node source, Node destination, Metric metric) {
+        return snapshot().findPath(source, destination, metric);
+    }
+
+    private GraphSnapshot buildSnapshot() {
+        Node[] nodes = new Node[nodeCount];
+        double[] xs = new double[nodeCount], ys = new double[nodeCount];
+        int[] offsets = new int[nodeCount + 1];
+        // Dense index of every handle; free handles leave gaps
+        int[] dense = new int[keyLimit];
+        int[] next = {0};
+        vertices.forEachLeaf((l, base) -> {
+            for (int s = 0; s < l.nodes.length; s++) {
+                if (l.nodes[s] == null) continue;
+                int u = next[0]++;
+                dense[base + s] = u;
+                nodes[u] = l.nodes[s];
+                xs[u] = l.x[s];
+                ys[u] = l.y[s];
+                offsets[u + 1] = offsets[u] + l.degree[s];
+            }
+        });
+
+        int[] targets = new int[offsets[nodeCount]];
+        double[] weights = new double[targets.length];
+        vertices.forEachLeaf((l, base) -> {
+            for (int s = 0; s < l.nodes.length; s++) {
+                if (l.nodes[s] == null) continue;
+                int a = offsets[dense[base + s]];
+                for (int e = 0; e < l.degree[s]; e++, a++) {
+                    targets[a] = dense[l.targets[s][e]];
+                    weights[a] = l.weights[s][e];
+                }
+            }
+        });
+        return new GraphSnapshot(CsrGraph.of(offsets, targets, weights), new NodeIndex(nodes), xs, ys);
+    }
+
+    // Leaf holding a node's vertex, or null if the node is not part of this version
+    private VertexStore.Leaf leaf(Node n) {
+        if (n == null || n.key < 0) return null;
+        VertexStore.Leaf l = vertices.leaf(n.key);
+        return l != null && l.nodes[VertexStore.slot(n.key)] == n ? l : null;
+    }
+
+    private VertexStore.Leaf require(Node n) {
+        VertexStore.Leaf l = leaf(n);
+        if (l == null) throw new IllegalArgumentException("node not in this version: " + (n == null ? null : n.getId()));
+        return l;
+    }
+}
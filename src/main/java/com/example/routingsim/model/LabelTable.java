@@ -0,0 +1,199 @@
+package com.example.routingsim.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The string IDs of a {@link Graph}'s nodes, kept apart from the nodes'
+ * int handles and without a String per node: the IDs' UTF-8 bytes in an
+ * append-only pool, the pool entry of every handle's ID, and a hash table
+ * from ID to handle.
+ *
+ * An entry is written once and never moved or reused, so a node keeps its
+ * entry after it is removed and any thread that sees the entry reads the
+ * same ID; re-adding an ID appends it again. The hash table stores only
+ * the handles, with open addressing and linear probing, and compares a
+ * probed slot's ID in the pool without decoding it. Deletion shifts later
+ * entries of the probe run back, as in {@link EdgeIndex}.
+ */
+final class LabelTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Pool chunk size; an entry never straddles two chunks
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+
+    // Pool: every ID ever added, as its length in 7-bit groups followed by its bytes
+    private byte[][] chunks = new byte[4][];
+    private int chunkCount;
+    private int used = CHUNK; // bytes used in the last chunk; full until the first one exists
+
+    // Pool entry (chunk << CHUNK_BITS | offset) of every handle's ID, -1 for free handles
+    private int[] entries = newEntries(MIN_CAPACITY);
+
+    // Slot -> handle + 1; 0 marks an empty slot
+    private int[] slots = new int[MIN_CAPACITY];
+    private int mask = MIN_CAPACITY - 1;
+    private int size;
+
+    // Returns the ID stored at a pool entry
+    String label(int entry) {
+        byte[] c = chunks[entry >>> CHUNK_BITS];
+        int at = entry & (CHUNK - 1);
+        int length = length(c, at);
+        at = skipLength(c, at);
+        return new String(c, at, length, StandardCharsets.UTF_8);
+    }
+
+    // Returns the handle of an ID, or -1 if no node has it
+    int handleOf(String label) {
+        for (int i = slot(label.hashCode()); slots[i] != 0; i = (i + 1) & mask) {
+            if (matches(entries[slots[i] - 1], label)) return slots[i] - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Gives a handle its ID and returns the ID's new pool entry. If another
+     * handle has the same ID, the ID now finds the new handle; the old one
+     * keeps its ID but can no longer be found by it.
+     */
+    int put(int handle, String label) {
+        if (handle >= entries.length) {
+            int old = entries.length;
+            entries = Arrays.copyOf(entries, Math.max(handle + 1, old << 1));
+            Arrays.fill(entries, old, entries.length, -1);
+        }
+        int entry = append(label.getBytes(StandardCharsets.UTF_8));
+        entries[handle] = entry;
+        int i = slot(label.hashCode());
+        for (; slots[i] != 0; i = (i + 1) & mask) {
+            if (matches(entries[slots[i] - 1], label)) {
+                slots[i] = handle + 1;
+                return entry;
+            }
+        }
+        slots[i] = handle + 1;
+        // Keep the load factor at or below 3/4 so probe runs stay short
+        if (++size > (mask + 1) - ((mask + 1) >> 2)) resize((mask + 1) << 1);
+        return entry;
+    }
+
+    // Frees a handle's ID; the ID is unmapped only if it still finds this handle
+    void remove(int handle) {
+        int entry = handle < entries.length ? entries[handle] : -1;
+        if (entry < 0) return;
+        int i = slot(hash(entry));
+        for (; slots[i] != 0; i = (i + 1) & mask) {
+            if (slots[i] == handle + 1) break;
+        }
+        if (slots[i] != 0) {
+            // Backward-shift deletion, see EdgeIndex.remove
+            int gap = i;
+            for (int j = (gap + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int home = slot(hash(entries[slots[j] - 1]));
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    slots[gap] = slots[j];
+                    gap = j;
+                }
+            }
+            slots[gap] = 0;
+            size--;
+        }
+        entries[handle] = -1;
+    }
+
+    // Appends an ID's bytes to the pool and returns their entry
+    private int append(byte[] bytes) {
+        int need = bytes.length + 5;
+        if (used + need > CHUNK) {
+            if (chunkCount == 1 << (31 - CHUNK_BITS)) throw new IllegalStateException("label pool is full");
+            if (chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, chunkCount << 1);
+            // An ID longer than a chunk gets a chunk of its own
+            chunks[chunkCount++] = new byte[Math.max(CHUNK, need)];
+            used = 0;
+        }
+        byte[] c = chunks[chunkCount - 1];
+        int entry = (chunkCount - 1) << CHUNK_BITS | used;
+        int length = bytes.length;
+        while (length > 0x7F) {
+            c[used++] = (byte) (length | 0x80);
+            length >>>= 7;
+        }
+        c[used++] = (byte) length;
+        System.arraycopy(bytes, 0, c, used, bytes.length);
+        used += bytes.length;
+        return entry;
+    }
+
+    // Reads the length written before an ID's bytes
+    private static int length(byte[] c, int at) {
+        int length = 0;
+        for (int s = 0; ; s += 7) {
+            byte b = c[at++];
+            length |= (b & 0x7F) << s;
+            if (b >= 0) return length;
+        }
+    }
+
+    // Returns where an ID's bytes start
+    private static int skipLength(byte[] c, int at) {
+        while (c[at++] < 0) { }
+        return at;
+    }
+
+    // True if the entry holds the label; ASCII is compared in place, anything else decoded
+    private boolean matches(int entry, String label) {
+        byte[] c = chunks[entry >>> CHUNK_BITS];
+        int at = entry & (CHUNK - 1);
+        int length = length(c, at);
+        at = skipLength(c, at);
+        if (length < label.length()) return false;
+        for (int k = 0; k < length; k++) {
+            byte b = c[at + k];
+            if (b < 0) return label(entry).equals(label);
+            if (k == label.length() || label.charAt(k) != b) return false;
+        }
+        return length == label.length();
+    }
+
+    // String.hashCode of the ID at an entry
+    private int hash(int entry) {
+        byte[] c = chunks[entry >>> CHUNK_BITS];
+        int at = entry & (CHUNK - 1);
+        int length = length(c, at);
+        at = skipLength(c, at);
+        int h = 0;
+        for (int k = 0; k < length; k++) {
+            byte b = c[at + k];
+            if (b < 0) return label(entry).hashCode();
+            h = 31 * h + b;
+        }
+        return h;
+    }
+
+    private int slot(int hash) {
+        // Spread the high bits down, as HashMap does
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void resize(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        for (int s : old) {
+            if (s == 0) continue;
+            int j = slot(hash(entries[s - 1]));
+            while (slots[j] != 0) j = (j + 1) & mask;
+            slots[j] = s;
+        }
+    }
+
+    private static int[] newEntries(int capacity) {
+        int[] e = new int[capacity];
+        Arrays.fill(e, -1);
+        return e;
+    }
+}
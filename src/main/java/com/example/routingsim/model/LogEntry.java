@@ -1,22 +1,77 @@
 package com.example.routingsim.model;
 
-import javafx.beans.property.SimpleStringProperty;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
 
 /**
  * Represents a single log entry in the simulation log table.
  * Each entry contains the time, type of event, and a brief detail.
+ *
+ * Entries are plain immutable values, cheap to create on any thread. The
+ * time is only formatted, and the JavaFX properties for the table columns
+ * only created, when a row is actually shown or written out.
  */
 public class LogEntry {
 
-    // Observable string properties for each column in the table
-    public final SimpleStringProperty time   = new SimpleStringProperty(); // When the event happened
-    public final SimpleStringProperty event  = new SimpleStringProperty(); // Type or source of the event
-    public final SimpleStringProperty detail = new SimpleStringProperty(); // Description of what happened
+    // Shared formatters; DateTimeFormatter is immutable and thread-safe
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final long timestamp; // When the event happened (epoch milliseconds)
+    private final String event;   // Type or source of the event (e.g., "Sim:Start")
+    private final String detail;  // Description of what happened (e.g., "Route initiated from N1")
+
+    // Creates an entry stamped with the current time
+    public LogEntry(String e, String d) {
+        this(System.currentTimeMillis(), e, d);
+    }
+
+    public LogEntry(long timestamp, String e, String d) {
+        this.timestamp = timestamp;
+        this.event = e;
+        this.detail = d;
+    }
+
+    // Returns the time of the event in epoch milliseconds
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Returns the time of the event as shown in the table (e.g., "12:45:30")
+    public String getTime() {
+        return TIME.format(Instant.ofEpochMilli(timestamp));
+    }
+
+    // Returns the event source/type
+    public String getEvent() {
+        return event;
+    }
+
+    // Returns the description
+    public String getDetail() {
+        return detail;
+    }
+
+    // Column values for the table, created on demand for visible rows
+    public ObservableValue<String> timeProperty() {
+        return new ReadOnlyStringWrapper(getTime());
+    }
+
+    public ObservableValue<String> eventProperty() {
+        return new ReadOnlyStringWrapper(event);
+    }
+
+    public ObservableValue<String> detailProperty() {
+        return new ReadOnlyStringWrapper(detail);
+    }
 
-    // Constructor that fills the log entry with provided data
-    public LogEntry(String t, String e, String d) {
-        time.set(t);         // Set the time (e.g., "12:45:30")
-        event.set(e);        // Set the event source/type (e.g., "Sim:Start")
-        detail.set(d);       // Set the description (e.g., "Route initiated from N1")
+    // Returns the entry as one line of a log file, with millisecond time
+    @Override
+    public String toString() {
+        return STAMP.format(Instant.ofEpochMilli(timestamp)) + '\t' + event + '\t' + detail;
     }
 }
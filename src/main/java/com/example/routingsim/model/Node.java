@@ -4,14 +4,27 @@ package com.example.routingsim.model;
  * Represents a single node (or vertex) in the graph.
  * Each node has a unique ID and a position (x, y) on the screen,
  * which helps in visualizing it on the JavaFX canvas.
+ *
+ * A node that belongs to a {@link Graph} keeps neither: its ID is in the
+ * graph's label table and its position in the graph's vertex arrays, and
+ * the node only knows where to find them. It gets a copy of its position
+ * when it is removed.
  */
 public class Node {
-    // Unique identifier for this node, like "N1", "N2", etc.
+    // ID of a node made outside a graph; null for nodes made by a graph, which read theirs from labels
     private final String id;
+    private final LabelTable labels;
+    private final int label;
 
-    // The x and y coordinates for positioning the node on the canvas
+    // The x and y coordinates of a node outside a graph, or where it was when it was removed
     private double x, y;
 
+    // Dense handle assigned by the owning Graph, kept after removal (-1 = never in a graph)
+    final int key;
+
+    // Graph this node belongs to and stores its position (null when not in a graph)
+    volatile Graph owner;
+
     /**
      * Constructor to create a node with its ID and position.
      * @param id A unique name for the node (e.g., "N1").
@@ -20,32 +33,70 @@ public class Node {
      */
     public Node(String id, double x, double y) {
         this.id = id;
+        this.labels = null;
+        this.label = -1;
+        this.key = -1;
         this.x = x;
         this.y = y;
     }
 
+    // Creates a node of a graph, whose ID is at a label table entry
+    Node(LabelTable labels, int label, int key, Graph owner) {
+        this.id = null;
+        this.labels = labels;
+        this.label = label;
+        this.key = key;
+        this.owner = owner;
+    }
+
     // Returns the ID of the node
     public String getId() {
-        return id;
+        return labels == null ? id : labels.label(label);
     }
 
     // Returns the X coordinate
     public double getX() {
-        return x;
+        Graph g = owner;
+        return g != null ? g.x(key) : x;
     }
 
     // Returns the Y coordinate
     public double getY() {
-        return y;
+        Graph g = owner;
+        return g != null ? g.y(key) : y;
+    }
+
+    /**
+     * Returns the dense int handle the graph gave this node, or -1 if it was
+     * never added to one. Handles index the graph's primitive storage (see
+     * {@link Graph#node(int)}). A removed node keeps its handle, so graph
+     * listeners can still look it up, but the graph hands it to the next
+     * node it adds.
+     */
+    public int getHandle() {
+        return key;
     }
 
     /**
-     * Updates the node's position on the canvas.
+     * Updates the node's position on the canvas. The owning graph moves the
+     * node in its spatial index and notifies its listeners.
      * @param x New x-coordinate
      * @param y New y-coordinate
      */
     public void setPos(double x, double y) {
+        Graph g = owner;
+        if (g != null) {
+            g.moveNode(this, x, y);
+        } else {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    // Called by the graph when it removes the node: keeps the position the graph stored
+    void detach(double x, double y) {
         this.x = x;
         this.y = y;
+        owner = null;
     }
 }
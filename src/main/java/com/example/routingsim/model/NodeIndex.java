@@ -0,0 +1,83 @@
+package com.example.routingsim.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps Node objects to the dense int indices used by {@link CsrGraph} and back.
+ * Kept separate from the CSR arrays so the topology stays purely primitive.
+ */
+public final class NodeIndex {
+
+    // Node stored at each index
+    private final Node[] nodes;
+
+    /*
+     * Reverse lookup from node to its index, built on first use; racing
+     * threads build equal tables. Indexed by node handle when the nodes
+     * have distinct ones (all nodes of one graph version), otherwise a map.
+     */
+    private volatile int[] byHandle;
+    private volatile Map<Node, Integer> positions;
+
+    /**
+     * Creates an index over the given nodes; the array position becomes the index.
+     * @param nodes Nodes in index order (taken over, not copied)
+     */
+    public NodeIndex(Node[] nodes) {
+        this.nodes = nodes;
+    }
+
+    // Returns the number of indexed nodes
+    public int size() {
+        return nodes.length;
+    }
+
+    // Returns the node stored at an index
+    public Node nodeAt(int index) {
+        return nodes[index];
+    }
+
+    // Returns the index of a node, or -1 if it is not part of this index
+    public int indexOf(Node n) {
+        int[] table = byHandle;
+        Map<Node, Integer> map = positions;
+        if (table == null && map == null) {
+            table = byHandle();
+            if (table != null) byHandle = table;
+            else positions = map = byNode();
+        }
+        if (table != null) {
+            // Handles are kept by removed nodes and reused, so the slot is only a candidate
+            int k = n == null ? -1 : n.key;
+            int i = k >= 0 && k < table.length ? table[k] : -1;
+            return i >= 0 && nodes[i] == n ? i : -1;
+        }
+        Integer i = map.get(n);
+        return i == null ? -1 : i;
+    }
+
+    // Index by node handle, or null if some nodes have none or share one, or the handles are sparse
+    private int[] byHandle() {
+        int limit = 0;
+        for (Node n : nodes) {
+            if (n.key < 0) return null;
+            limit = Math.max(limit, n.key + 1);
+        }
+        if (limit > 4 * nodes.length + 64) return null;
+        int[] table = new int[limit];
+        Arrays.fill(table, -1);
+        for (int i = 0; i < nodes.length; i++) {
+            if (table[nodes[i].key] >= 0) return null;
+            table[nodes[i].key] = i;
+        }
+        return table;
+    }
+
+    private Map<Node, Integer> byNode() {
+        Map<Node, Integer> map = new HashMap<>(nodes.length * 2);
+        for (int i = 0; i < nodes.length; i++) map.put(nodes[i], i);
+        return map;
+    }
+}
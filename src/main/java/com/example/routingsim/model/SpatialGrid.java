@@ -0,0 +1,440 @@
+package com.example.routingsim.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Uniform grid over node positions, maintained by its {@link Graph} as nodes
+ * are added, moved ({@link Node#setPos}) and removed.
+ *
+ * The plane is cut into square cells of a fixed size, and every node is
+ * kept in a doubly linked list of the cell containing it, so an insert,
+ * move or removal is O(1). Only occupied cells are stored, in a primitive
+ * hash map from the packed cell coordinates to the head of the cell's
+ * list, so the grid needs no bounds and sparse layouts cost nothing. The
+ * grid keeps just the two list links per node handle; nodes and positions
+ * are read from the graph's vertex arrays.
+ *
+ * A range query visits the cells overlapping the query square and a
+ * nearest-neighbour query walks rings of cells outward from the query
+ * point, so both touch only nodes close to the query. Queries are fastest
+ * when the cell size is about the typical query radius (e.g. the radio
+ * range of a unit-disk network); {@link #setCellSize} re-buckets all nodes.
+ */
+public final class SpatialGrid {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Cell edge length and its reciprocal
+    private double cellSize;
+    private double inverse;
+
+    // Graph whose nodes are indexed
+    private final Graph graph;
+
+    // Per node handle: its neighbours in its cell's list
+    private int[] next = new int[MIN_CAPACITY], prev = new int[MIN_CAPACITY];
+    private int size;
+
+    // Occupied cells: packed cell coordinates -> first node key; heads[i] == -1 marks an empty slot
+    private long[] cellKeys = new long[MIN_CAPACITY];
+    private int[] heads = newHeads(MIN_CAPACITY);
+    private int mask = MIN_CAPACITY - 1;
+    private int cellCount;
+
+    // Bounding box (in cells) of every cell that was ever occupied
+    private int minCx = Integer.MAX_VALUE, maxCx = Integer.MIN_VALUE;
+    private int minCy = Integer.MAX_VALUE, maxCy = Integer.MIN_VALUE;
+
+    /**
+     * Creates an empty grid for a graph's nodes.
+     * @param cellSize Edge length of a cell, in the units of the node coordinates
+     */
+    SpatialGrid(Graph graph, double cellSize) {
+        checkCellSize(cellSize);
+        this.graph = graph;
+        this.cellSize = cellSize;
+        this.inverse = 1 / cellSize;
+    }
+
+    // Returns the number of indexed nodes
+    public int size() {
+        return size;
+    }
+
+    // Returns the edge length of a cell
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Changes the cell size and re-buckets all nodes, in O(n).
+     * @param cellSize New edge length of a cell
+     */
+    public void setCellSize(double cellSize) {
+        checkCellSize(cellSize);
+        if (cellSize == this.cellSize) return;
+        this.cellSize = cellSize;
+        this.inverse = 1 / cellSize;
+
+        heads = newHeads(heads.length);
+        cellCount = 0;
+        minCx = minCy = Integer.MAX_VALUE;
+        maxCx = maxCy = Integer.MIN_VALUE;
+        for (int k = 0; k < next.length; k++) {
+            VertexStore.Leaf l = graph.leafOf(k);
+            int s = VertexStore.slot(k);
+            if (l != null && l.nodes[s] != null) link(k, cell(l.x[s], l.y[s]));
+        }
+    }
+
+    // ----- Maintenance, called by the Graph with its vertex arrays already changed -----
+
+    // Indexes the node with a handle at its position
+    void insert(int k) {
+        if (k >= next.length) grow(k + 1);
+        link(k, cellOf(k));
+        size++;
+    }
+
+    // Moves the node with a handle from an old position to its current one; O(1), and cheaper still within the same cell
+    void move(int k, double oldX, double oldY) {
+        long from = cell(oldX, oldY), to = cellOf(k);
+        if (from == to) return;
+        unlink(k, from);
+        link(k, to);
+    }
+
+    // Removes the node with a handle from the index, while the graph still has its position
+    void remove(int k) {
+        unlink(k, cellOf(k));
+        size--;
+    }
+
+    // ----- Queries -----
+
+    /**
+     * Returns all nodes within distance r of (x, y), boundary included, in
+     * no particular order.
+     */
+    public List<Node> withinRange(double x, double y, double r) {
+        List<Node> out = new ArrayList<>();
+        forEachWithinRange(x, y, r, out::add);
+        return out;
+    }
+
+    /**
+     * Calls an action for every node within distance r of (x, y), boundary
+     * included. The grid must not be changed by the action.
+     */
+    public void forEachWithinRange(double x, double y, double r, Consumer<? super Node> action) {
+        if (size == 0 || !(r >= 0)) return;
+        double r2 = r * r;
+        long cx0 = Math.max(minCx, coordinate(x - r)), cx1 = Math.min(maxCx, coordinate(x + r));
+        long cy0 = Math.max(minCy, coordinate(y - r)), cy1 = Math.min(maxCy, coordinate(y + r));
+        if (cx0 > cx1 || cy0 > cy1) return;
+
+        if ((cx1 - cx0 + 1) * (cy1 - cy0 + 1) > cellCount) {
+            // The query covers more cells than are occupied: scan the occupied ones instead
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] >= 0) visitCell(heads[i], x, y, r2, action);
+            }
+            return;
+        }
+        for (long cx = cx0; cx <= cx1; cx++) {
+            for (long cy = cy0; cy <= cy1; cy++) {
+                int head = head(pack((int) cx, (int) cy));
+                if (head >= 0) visitCell(head, x, y, r2, action);
+            }
+        }
+    }
+
+    /**
+     * Returns the node closest to (x, y) that is at most maxDistance away,
+     * e.g. the node under the mouse pointer, or null if there is none.
+     */
+    public Node nearest(double x, double y, double maxDistance) {
+        List<Node> best = nearest(x, y, 1, maxDistance);
+        return best.isEmpty() ? null : best.get(0);
+    }
+
+    // Returns the k nodes closest to (x, y), nearest first
+    public List<Node> nearest(double x, double y, int k) {
+        return nearest(x, y, k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Returns up to k nodes closest to (x, y) that are at most maxDistance
+     * away, nearest first; ties are broken by node handle (handles of
+     * removed nodes are reused, so this is not insertion order).
+     *
+     * Rings of cells are searched outward from the cell of the query point
+     * until the k-th best distance found is below the distance to the next
+     * ring, so only the neighbourhood of the result is scanned.
+     */
+    public List<Node> nearest(double x, double y, int k, double maxDistance) {
+        if (k <= 0 || size == 0 || !(maxDistance >= 0)) return new ArrayList<>();
+        Candidates best = new Candidates(Math.min(k, size), maxDistance);
+
+        int qx = coordinate(x), qy = coordinate(y);
+        // Ring d holds the cells at Chebyshev distance d from the query cell
+        for (long d = 0; ; d++) {
+            long x0 = qx - d, x1 = qx + d, y0 = qy - d, y1 = qy + d;
+            if (x0 <= minCx && x1 >= maxCx && y0 <= minCy && y1 >= maxCy) {
+                // This ring covers everything that is left
+                if (d > 0) scanRing(x0, x1, y0, y1, x, y, best);
+                else visitCandidates(head(pack(qx, qy)), x, y, best);
+                break;
+            }
+            if (8 * d > cellCount) {
+                // Rings have become larger than the occupied area: scan every cell once and stop
+                best.clear();
+                for (int i = 0; i < heads.length; i++) {
+                    if (heads[i] >= 0) visitCandidates(heads[i], x, y, best);
+                }
+                break;
+            }
+            if (d == 0) visitCandidates(head(pack(qx, qy)), x, y, best);
+            else scanRing(x0, x1, y0, y1, x, y, best);
+
+            // Anything in ring d + 1 is at least d full cells away
+            double reach = d * cellSize;
+            if (best.bound() < reach * reach) break;
+        }
+        return best.sorted();
+    }
+
+    // Visits the cells on the border of [x0, x1] x [y0, y1]
+    private void scanRing(long x0, long x1, long y0, long y1, double x, double y, Candidates best) {
+        for (long cx = Math.max(x0, minCx); cx <= Math.min(x1, maxCx); cx++) {
+            if (y0 >= minCy) visitCandidates(head(pack((int) cx, (int) y0)), x, y, best);
+            if (y1 <= maxCy) visitCandidates(head(pack((int) cx, (int) y1)), x, y, best);
+        }
+        for (long cy = Math.max(y0 + 1, minCy); cy <= Math.min(y1 - 1, maxCy); cy++) {
+            if (x0 >= minCx) visitCandidates(head(pack((int) x0, (int) cy)), x, y, best);
+            if (x1 <= maxCx) visitCandidates(head(pack((int) x1, (int) cy)), x, y, best);
+        }
+    }
+
+    private void visitCell(int k, double x, double y, double r2, Consumer<? super Node> action) {
+        for (; k >= 0; k = next[k]) {
+            VertexStore.Leaf l = graph.leafOf(k);
+            int s = VertexStore.slot(k);
+            double dx = l.x[s] - x, dy = l.y[s] - y;
+            if (dx * dx + dy * dy <= r2) action.accept(l.nodes[s]);
+        }
+    }
+
+    private void visitCandidates(int k, double x, double y, Candidates best) {
+        for (; k >= 0; k = next[k]) {
+            VertexStore.Leaf l = graph.leafOf(k);
+            int s = VertexStore.slot(k);
+            double dx = l.x[s] - x, dy = l.y[s] - y;
+            best.offer(l.nodes[s], dx * dx + dy * dy);
+        }
+    }
+
+    /**
+     * Bounded max-heap of the best candidates of a k-nearest query, keyed by
+     * squared distance and then node handle so results do not depend on the
+     * order in which cells are visited.
+     */
+    private static final class Candidates {
+        private final Node[] nodes;
+        private final double[] dist;
+        private final double limit;
+        private int size;
+
+        Candidates(int k, double maxDistance) {
+            nodes = new Node[k];
+            dist = new double[k];
+            limit = maxDistance * maxDistance;
+        }
+
+        void clear() {
+            Arrays.fill(nodes, 0, size, null);
+            size = 0;
+        }
+
+        // Squared distance a candidate must beat to be kept
+        double bound() {
+            return size < nodes.length ? limit : dist[0];
+        }
+
+        void offer(Node n, double d2) {
+            if (d2 > limit) return;
+            if (size < nodes.length) {
+                int i = size++;
+                // Sift up
+                while (i > 0) {
+                    int p = (i - 1) >>> 1;
+                    if (!worse(d2, n, dist[p], nodes[p])) break;
+                    nodes[i] = nodes[p];
+                    dist[i] = dist[p];
+                    i = p;
+                }
+                nodes[i] = n;
+                dist[i] = d2;
+            } else if (worse(dist[0], nodes[0], d2, n)) {
+                // Replace the worst and sift down
+                int i = 0, half = size >>> 1;
+                while (i < half) {
+                    int c = 2 * i + 1;
+                    if (c + 1 < size && worse(dist[c + 1], nodes[c + 1], dist[c], nodes[c])) c++;
+                    if (!worse(dist[c], nodes[c], d2, n)) break;
+                    nodes[i] = nodes[c];
+                    dist[i] = dist[c];
+                    i = c;
+                }
+                nodes[i] = n;
+                dist[i] = d2;
+            }
+        }
+
+        private static boolean worse(double da, Node a, double db, Node b) {
+            return da > db || (da == db && a.key > b.key);
+        }
+
+        List<Node> sorted() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> dist[a] != dist[b]
+                    ? Double.compare(dist[a], dist[b]) : Integer.compare(nodes[a].key, nodes[b].key));
+            List<Node> out = new ArrayList<>(size);
+            for (Integer i : order) out.add(nodes[i]);
+            return out;
+        }
+    }
+
+    // ----- Cell lists -----
+
+    private int coordinate(double v) {
+        // The cast saturates, so far-away coordinates land in the outermost cells
+        return (int) Math.floor(v * inverse);
+    }
+
+    private long cell(double x, double y) {
+        return pack(coordinate(x), coordinate(y));
+    }
+
+    // Cell of the current position of the node with a handle
+    private long cellOf(int k) {
+        VertexStore.Leaf l = graph.leafOf(k);
+        int s = VertexStore.slot(k);
+        return cell(l.x[s], l.y[s]);
+    }
+
+    private static long pack(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    // Pushes node k onto the list of cell c
+    private void link(int k, long c) {
+        prev[k] = -1;
+        int i = find(c);
+        if (heads[i] < 0) {
+            cellKeys[i] = c;
+            next[k] = -1;
+            heads[i] = k;
+            int cx = (int) (c >> 32), cy = (int) c;
+            minCx = Math.min(minCx, cx);
+            maxCx = Math.max(maxCx, cx);
+            minCy = Math.min(minCy, cy);
+            maxCy = Math.max(maxCy, cy);
+            // Keep the load factor at or below 1/2 so probe runs stay short
+            if (++cellCount > (mask + 1) >> 1) resizeCells((mask + 1) << 1);
+        } else {
+            next[k] = heads[i];
+            prev[heads[i]] = k;
+            heads[i] = k;
+        }
+    }
+
+    // Takes node k off the list of its cell c, dropping the cell when it becomes empty
+    private void unlink(int k, long c) {
+        int p = prev[k], n = next[k];
+        if (n >= 0) prev[n] = p;
+        if (p >= 0) {
+            next[p] = n;
+            return;
+        }
+        int i = find(c);
+        if (n >= 0) {
+            heads[i] = n;
+        } else {
+            removeCell(i);
+        }
+    }
+
+    // Returns the first node key of a cell, or -1 if the cell is empty
+    private int head(long c) {
+        return heads[find(c)];
+    }
+
+    // Returns the slot of a cell, or the empty slot where it would go
+    private int find(long c) {
+        int i = slot(c);
+        while (heads[i] >= 0 && cellKeys[i] != c) i = (i + 1) & mask;
+        return i;
+    }
+
+    // Backward-shift deletion of slot i (same scheme as EdgeIndex)
+    private void removeCell(int i) {
+        int gap = i;
+        for (int j = (gap + 1) & mask; heads[j] >= 0; j = (j + 1) & mask) {
+            int home = slot(cellKeys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                cellKeys[gap] = cellKeys[j];
+                heads[gap] = heads[j];
+                gap = j;
+            }
+        }
+        heads[gap] = -1;
+        cellCount--;
+    }
+
+    private int slot(long c) {
+        long h = c;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void resizeCells(int capacity) {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = heads;
+        cellKeys = new long[capacity];
+        heads = newHeads(capacity);
+        mask = capacity - 1;
+        for (int i = 0; i < oldHeads.length; i++) {
+            if (oldHeads[i] < 0) continue;
+            int j = slot(oldKeys[i]);
+            while (heads[j] >= 0) j = (j + 1) & mask;
+            cellKeys[j] = oldKeys[i];
+            heads[j] = oldHeads[i];
+        }
+    }
+
+    private static int[] newHeads(int capacity) {
+        int[] h = new int[capacity];
+        Arrays.fill(h, -1);
+        return h;
+    }
+
+    private void grow(int minLength) {
+        int cap = Math.max(minLength, next.length << 1);
+        next = Arrays.copyOf(next, cap);
+        prev = Arrays.copyOf(prev, cap);
+    }
+
+    private static void checkCellSize(double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException("Cell size must be positive and finite: " + cellSize);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.routingsim.model;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The vertices of a {@link Graph} by node handle, stored as struct-of-arrays
+ * in a persistent trie: a leaf holds the Node objects, the positions, the
+ * degrees and the edge arrays (target handles and weights) of 32
+ * consecutive handles in one plain array per field, and 32-way blocks above
+ * the leaves index them. Editing a handle copies its leaf and the blocks on
+ * the path to it and shares everything else with the previous store, so
+ * old stores stay intact and graph versions can keep them.
+ *
+ * Copies are made per writer token, as in a transient collection: a leaf
+ * or block created under the token passed to {@link #edit} is changed in
+ * place by later edits with the same token, and a vertex's edge arrays are
+ * copied only the first time a leaf owned by the token changes them. A
+ * writer therefore uses one token while it batches edits and switches to a
+ * new one before the store is shared; from then on the shared store is
+ * never written again. Free handles read as a null node with no edges.
+ */
+final class VertexStore {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final int[] NO_TARGETS = new int[0];
+    private static final double[] NO_WEIGHTS = new double[0];
+
+    /**
+     * The vertices of WIDTH consecutive handles; a vertex is found at
+     * {@link #slot(int)} of its handle in every array.
+     */
+    static final class Leaf {
+        final Object owner;
+        final Node[] nodes;
+        final double[] x, y;
+        final int[] degree;
+        final int[][] targets;
+        final double[][] weights;
+
+        // Bit i: the edge arrays of slot i were made under owner and may be changed in place
+        private int owned;
+
+        private Leaf(Object owner) {
+            this.owner = owner;
+            this.nodes = new Node[WIDTH];
+            this.x = new double[WIDTH];
+            this.y = new double[WIDTH];
+            this.degree = new int[WIDTH];
+            this.targets = new int[WIDTH][];
+            this.weights = new double[WIDTH][];
+            Arrays.fill(targets, NO_TARGETS);
+            Arrays.fill(weights, NO_WEIGHTS);
+        }
+
+        private Leaf(Leaf l, Object owner) {
+            this.owner = owner;
+            this.nodes = l.nodes.clone();
+            this.x = l.x.clone();
+            this.y = l.y.clone();
+            this.degree = l.degree.clone();
+            this.targets = l.targets.clone();
+            this.weights = l.weights.clone();
+        }
+
+        // Returns this leaf if the token owns it, else a copy owned by the token
+        private Leaf editable(Object token) {
+            return owner == token ? this : new Leaf(this, token);
+        }
+
+        // Puts a node without edges into a slot
+        void set(int i, Node n, double x, double y) {
+            nodes[i] = n;
+            this.x[i] = x;
+            this.y[i] = y;
+            clearEdges(i);
+        }
+
+        // Frees a slot
+        void clear(int i) {
+            nodes[i] = null;
+            clearEdges(i);
+        }
+
+        // Appends an edge to target handle to
+        void append(int i, int to, double weight) {
+            int d = degree[i];
+            unshare(i, d + 1);
+            targets[i][d] = to;
+            weights[i][d] = weight;
+            degree[i] = d + 1;
+        }
+
+        // Removes the edge at a position; the last edge moves into it
+        void removeAt(int i, int e) {
+            unshare(i, degree[i]);
+            int d = --degree[i];
+            targets[i][e] = targets[i][d];
+            weights[i][e] = weights[i][d];
+        }
+
+        void setWeight(int i, int e, double weight) {
+            unshare(i, degree[i]);
+            weights[i][e] = weight;
+        }
+
+        private void clearEdges(int i) {
+            degree[i] = 0;
+            targets[i] = NO_TARGETS;
+            weights[i] = NO_WEIGHTS;
+            owned &= ~(1 << i);
+        }
+
+        // Makes the edge arrays of a slot private to this leaf with room for at least capacity edges
+        private void unshare(int i, int capacity) {
+            int length = targets[i].length;
+            boolean mine = (owned & (1 << i)) != 0;
+            if (mine && capacity <= length) return;
+            int cap = Math.max(capacity, mine ? length + (length >> 1) + 1 : Math.max(degree[i], 2));
+            targets[i] = Arrays.copyOf(targets[i], cap);
+            weights[i] = Arrays.copyOf(weights[i], cap);
+            owned |= 1 << i;
+        }
+    }
+
+    // Trie node above the leaves
+    private static final class Block {
+        final Object owner;
+        final Object[] slots;
+
+        Block(Object owner, Object[] slots) {
+            this.owner = owner;
+            this.slots = slots;
+        }
+
+        Block(Object owner) {
+            this(owner, new Object[WIDTH]);
+        }
+
+        // Returns this block if the token owns it, else an owned copy
+        Block editable(Object token) {
+            return owner == token ? this : new Block(token, slots.clone());
+        }
+    }
+
+    private static final VertexStore EMPTY = new VertexStore(null, 0);
+
+    // A Leaf if shift is 0, else a Block; null while empty
+    private final Object root;
+
+    // Handle bits below the root's level
+    private final int shift;
+
+    private VertexStore(Object root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    // Returns the store with every handle free
+    static VertexStore empty() {
+        return EMPTY;
+    }
+
+    // Returns the position of a handle's vertex within its leaf
+    static int slot(int handle) {
+        return handle & MASK;
+    }
+
+    // Returns which leaf holds a handle, counting leaves in handle order
+    static int leafIndex(int handle) {
+        return handle >>> BITS;
+    }
+
+    // Returns the leaf of a handle, or null if no handle of it was ever used
+    Leaf leaf(int handle) {
+        if (handle < 0 || (handle >>> shift) >= WIDTH) return null;
+        Object o = root;
+        for (int s = shift; s > 0 && o != null; s -= BITS) o = ((Block) o).slots[(handle >>> s) & MASK];
+        return (Leaf) o;
+    }
+
+    // Returns the node with a handle, or null if the handle is free
+    Node node(int handle) {
+        Leaf l = leaf(handle);
+        return l == null ? null : l.nodes[handle & MASK];
+    }
+
+    /**
+     * Returns a store in which the leaf of a handle is owned by token, so
+     * it may be changed in place (see {@link #leaf}). Leaves and blocks
+     * owned by token are reused, even if this store shares them; all
+     * others on the path are copied.
+     * @param token Writer token, never null
+     */
+    VertexStore edit(int handle, Object token) {
+        if (handle < 0) throw new IndexOutOfBoundsException(handle);
+        Object r = root;
+        int s = shift;
+        // Add levels on top until the handle fits
+        while ((handle >>> s) >= WIDTH) {
+            if (r != null) {
+                Block up = new Block(token);
+                up.slots[0] = r;
+                r = up;
+            }
+            s += BITS;
+        }
+        Object updated = edit(r, s, handle, token);
+        return updated == root && s == shift ? this : new VertexStore(updated, s);
+    }
+
+    private static Object edit(Object o, int shift, int handle, Object token) {
+        if (shift == 0) return o == null ? new Leaf(token) : ((Leaf) o).editable(token);
+        Block c = o == null ? new Block(token) : ((Block) o).editable(token);
+        int slot = (handle >>> shift) & MASK;
+        c.slots[slot] = edit(c.slots[slot], shift - BITS, handle, token);
+        return c;
+    }
+
+    // Calls action with every leaf and the handle of its first slot, in handle order
+    void forEachLeaf(ObjIntConsumer<Leaf> action) {
+        if (root != null) forEachLeaf(root, shift, 0, action);
+    }
+
+    private static void forEachLeaf(Object o, int shift, int base, ObjIntConsumer<Leaf> action) {
+        if (shift == 0) {
+            action.accept((Leaf) o, base);
+            return;
+        }
+        Object[] slots = ((Block) o).slots;
+        for (int i = 0; i < WIDTH; i++) {
+            if (slots[i] != null) forEachLeaf(slots[i], shift - BITS, base + (i << shift), action);
+        }
+    }
+}
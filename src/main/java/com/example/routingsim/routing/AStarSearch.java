@@ -0,0 +1,77 @@
+package com.example.routingsim.routing;
+
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+
+/**
+ * A* search by edge weight, guided by the straight-line distance between
+ * node coordinates. The heuristic of a node v is
+ * <pre>
+ * h(v) = scale * |pos(v) - pos(destination)|
+ * </pre>
+ * With scale at most {@link GraphSnapshot#admissibleScale()} it never
+ * overestimates, so routes are exactly as short as Dijkstra's, while the
+ * search expands mostly towards the destination instead of in a circle
+ * around the source.
+ *
+ * Runs in a {@link SearchWorkspace}; afterwards the route is read with
+ * {@link SearchWorkspace#distance(int)} and {@link SearchWorkspace#path(int)}
+ * as for any other search.
+ */
+public final class AStarSearch {
+
+    private AStarSearch() {
+    }
+
+    /**
+     * Finds the lowest-weight route from source to destination.
+     * @param scale Heuristic factor; 0 gives plain Dijkstra
+     * @return True if the destination was reached
+     */
+    public static boolean run(SearchWorkspace ws, GraphSnapshot snapshot,
+                              int source, int destination, double scale) {
+        long start = Metrics.start();
+        boolean found = search(ws, snapshot, source, destination, scale);
+        SearchMetrics.ASTAR.record(start, ws, found);
+        return found;
+    }
+
+    private static boolean search(SearchWorkspace ws, GraphSnapshot snapshot,
+                                  int source, int destination, double scale) {
+        CsrGraph graph = snapshot.csr();
+        ws.begin(graph.nodeCount());
+        double tx = snapshot.x(destination), ty = snapshot.y(destination);
+
+        // The heap is keyed by g + h; the workspace distances hold g
+        IndexedDaryHeap heap = ws.indexed;
+        heap.clear();
+        ws.reach(source, 0.0, -1);
+        heap.insertOrDecrease(source, scale * Math.hypot(snapshot.x(source) - tx, snapshot.y(source) - ty));
+
+        int[] stamp = ws.stamp;
+        double[] dist = ws.dist;
+        int generation = ws.generation;
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            ws.settled++;
+            if (u == destination) {
+                heap.clear();
+                return true;
+            }
+
+            double du = dist[u];
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                double alt = du + graph.weight(a);
+                if (stamp[v] != generation || alt < dist[v]) {
+                    ws.reach(v, alt, u);
+                    // A node may be queued again if a scale above the admissible one made it settle too early
+                    heap.insertOrDecrease(v, alt + scale * Math.hypot(snapshot.x(v) - tx, snapshot.y(v) - ty));
+                    ws.relaxed++;
+                }
+            }
+        }
+        return false;
+    }
+}
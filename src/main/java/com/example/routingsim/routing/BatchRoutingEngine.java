@@ -0,0 +1,226 @@
+package com.example.routingsim.routing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.routingsim.io.Tokens;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.NodeIndex;
+
+/**
+ * Headless route computation over a fixed topology, with no JavaFX involved.
+ * Queries are streamed line by line, so a query file of any size runs in
+ * constant memory. Each input line is
+ * <pre>
+ * &lt;sourceId&gt; &lt;destinationId&gt; [hop|weight|astar|bidirectional_hop|bidirectional_weight]
+ * </pre>
+ * and produces one tab-separated output line
+ * <pre>
+ * source  destination  metric  status  cost  hops  micros  path
+ * </pre>
+ * where status is "ok", "none" (unreachable) or "error" (unknown node or
+ * metric) and path lists the node IDs joined by '&gt;'.
+ */
+public final class BatchRoutingEngine {
+
+    // Column header written before the results
+    private static final String HEADER = "# source\tdestination\tmetric\tstatus\tcost\thops\tmicros\tpath\n";
+
+    // Queries read and solved at once in parallel mode
+    private static final int CHUNK = 1 << 16;
+
+    private final GraphSnapshot snapshot;
+
+    // Node ID -> snapshot index, built once
+    private final Map<String, Integer> ids;
+
+    // Running totals
+    private long queries, routed, unreachable, errors;
+    private long totalNanos, maxNanos;
+
+    public BatchRoutingEngine(GraphSnapshot snapshot) {
+        this.snapshot = snapshot;
+        NodeIndex index = snapshot.index();
+        this.ids = new HashMap<>(index.size() * 2);
+        for (int i = 0; i < index.size(); i++) {
+            ids.put(index.nodeAt(i).getId(), i);
+        }
+    }
+
+    // Returns the snapshot index of a node ID, or -1 if unknown
+    public int indexOf(String id) {
+        Integer i = ids.get(id);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Computes one route in the calling thread's workspace. The result
+     * (distance, parents) stays in {@link SearchWorkspace#current()} until
+     * the next query on this thread.
+     * @return True if the destination is reachable
+     */
+    public boolean route(int source, int destination, Metric metric) {
+        return snapshot.route(SearchWorkspace.current(), source, destination, metric);
+    }
+
+    /**
+     * Streams queries from a reader, writing one result line per query.
+     * Blank lines and lines starting with '#' are skipped.
+     */
+    public void run(BufferedReader queriesIn, Writer out) throws IOException {
+        String[] tok = new String[3];
+        StringBuilder line = new StringBuilder(256);
+        out.write(HEADER);
+
+        String text;
+        while ((text = queriesIn.readLine()) != null) {
+            int count = Tokens.split(text, tok);
+            if (count == 0 || tok[0].startsWith("#")) continue;
+            line.setLength(0);
+
+            Metric metric = parseMetric(tok, count);
+            int s = count >= 2 ? indexOf(tok[0]) : -1;
+            int t = count >= 2 ? indexOf(tok[1]) : -1;
+            appendQuery(line, tok[0], count >= 2 ? tok[1] : "-", metric);
+            if (metric == null || s < 0 || t < 0) {
+                errors++;
+                line.append("error\t-\t-\t-\t-\n");
+                out.write(line.toString());
+                continue;
+            }
+
+            long start = System.nanoTime();
+            boolean found = route(s, t, metric);
+            long nanos = System.nanoTime() - start;
+            record(nanos, found);
+
+            if (found) {
+                SearchWorkspace ws = SearchWorkspace.current();
+                appendResult(line, ws.distance(t), ws.path(t), nanos);
+            } else {
+                line.append("none\t-\t-\t").append(nanos / 1000).append("\t-\n");
+            }
+            out.write(line.toString());
+        }
+        out.flush();
+    }
+
+    /**
+     * Like {@link #run(BufferedReader, Writer)}, but reads the queries in
+     * chunks and solves each chunk on all cores with a
+     * {@link ParallelRouteSolver}. Output order matches input order; the
+     * micros column is the time of the search that answered the query,
+     * which may be shared by several queries with the same source.
+     */
+    public void runParallel(BufferedReader queriesIn, Writer out, int threads) throws IOException {
+        String[] tok = new String[3];
+        StringBuilder line = new StringBuilder(256);
+        out.write(HEADER);
+
+        String[] srcIds = new String[CHUNK], dstIds = new String[CHUNK];
+        Metric[] metrics = new Metric[CHUNK];
+
+        // Only valid queries are handed to the solver; slot[q] is their position there (-1 = error)
+        int[] slot = new int[CHUNK];
+        int[] sources = new int[CHUNK], destinations = new int[CHUNK];
+        Metric[] solveMetrics = new Metric[CHUNK];
+
+        try (ParallelRouteSolver solver = new ParallelRouteSolver(snapshot, threads, true)) {
+            boolean more = true;
+            while (more) {
+                int size = 0, valid = 0;
+                String text = null;
+                while (size < CHUNK && (text = queriesIn.readLine()) != null) {
+                    int count = Tokens.split(text, tok);
+                    if (count == 0 || tok[0].startsWith("#")) continue;
+                    Metric metric = parseMetric(tok, count);
+                    int s = count >= 2 ? indexOf(tok[0]) : -1;
+                    int t = count >= 2 ? indexOf(tok[1]) : -1;
+                    srcIds[size] = tok[0];
+                    dstIds[size] = count >= 2 ? tok[1] : "-";
+                    metrics[size] = metric;
+                    if (metric != null && s >= 0 && t >= 0) {
+                        sources[valid] = s;
+                        destinations[valid] = t;
+                        solveMetrics[valid] = metric;
+                        slot[size] = valid++;
+                    } else {
+                        slot[size] = -1;
+                    }
+                    size++;
+                }
+                more = text != null;
+                if (size == 0) break;
+
+                ParallelRouteSolver.Results results = solver.solve(sources, destinations, solveMetrics, valid);
+                for (int q = 0; q < size; q++) {
+                    line.setLength(0);
+                    appendQuery(line, srcIds[q], dstIds[q], metrics[q]);
+                    int r = slot[q];
+                    if (r < 0) {
+                        errors++;
+                        line.append("error\t-\t-\t-\t-\n");
+                    } else if (results.cost[r] != Double.POSITIVE_INFINITY) {
+                        record(results.nanos[r], true);
+                        appendResult(line, results.cost[r], results.path[r], results.nanos[r]);
+                    } else {
+                        record(results.nanos[r], false);
+                        line.append("none\t-\t-\t").append(results.nanos[r] / 1000).append("\t-\n");
+                    }
+                    out.write(line.toString());
+                }
+            }
+        }
+        out.flush();
+    }
+
+    // Metric from the optional third column; null if it is not a known metric
+    private static Metric parseMetric(String[] tok, int count) {
+        if (count == 2) return Metric.HOP;
+        if (count != 3) return null;
+        try {
+            return Metric.parse(tok[2]);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static void appendQuery(StringBuilder line, String source, String destination, Metric metric) {
+        line.append(source).append('\t').append(destination).append('\t')
+            .append(metric == null ? "-" : metric.name().toLowerCase()).append('\t');
+    }
+
+    private void record(long nanos, boolean found) {
+        queries++;
+        if (found) routed++; else unreachable++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) maxNanos = nanos;
+    }
+
+    // Appends "ok cost hops micros path" for a reached destination
+    private void appendResult(StringBuilder line, double cost, int[] path, long nanos) {
+        line.append("ok\t").append(cost).append('\t')
+            .append(path.length - 1).append('\t').append(nanos / 1000).append('\t');
+        NodeIndex index = snapshot.index();
+        for (int i = 0; i < path.length; i++) {
+            if (i > 0) line.append('>');
+            line.append(index.nodeAt(path[i]).getId());
+        }
+        line.append('\n');
+    }
+
+    // Returns a one-line summary of everything routed so far
+    public String summary() {
+        double avgMicros = queries == 0 ? 0 : totalNanos / 1000.0 / queries;
+        return String.format("queries=%d routed=%d unreachable=%d errors=%d avg=%.1fus max=%dus total=%dms",
+                queries, routed, unreachable, errors, avgMicros, maxNanos / 1000, totalNanos / 1_000_000);
+    }
+
+    // Returns the number of successfully parsed queries
+    public long queryCount() {
+        return queries;
+    }
+}
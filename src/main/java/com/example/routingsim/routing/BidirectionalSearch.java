@@ -0,0 +1,204 @@
+package com.example.routingsim.routing;
+
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.CsrGraph;
+
+/**
+ * Point-to-point searches that grow one tree from the source and one from
+ * the destination until they meet. Two balls of radius d/2 cover far fewer
+ * nodes than one of radius d, which pays off on large meshes.
+ *
+ * The forward search uses the workspace's primary arrays, the backward
+ * search (on the transposed graph) its second set. When they are done the
+ * backward half of the route is spliced into the forward parent links, so
+ * {@link SearchWorkspace#distance(int)} and {@link SearchWorkspace#path(int)}
+ * of the destination work exactly as after a one-sided search. Other nodes'
+ * distances are only upper bounds, not a shortest-path tree.
+ */
+public final class BidirectionalSearch {
+
+    private BidirectionalSearch() {
+    }
+
+    /**
+     * Bidirectional Dijkstra by edge weight. Each round advances the side
+     * whose queue minimum is smaller; the search stops once the two minima
+     * add up to at least the best route seen, which is then optimal.
+     * @param reverse Transposed graph of forward, see {@link CsrGraph#transpose()}
+     * @return True if the destination was reached
+     */
+    public static boolean dijkstra(SearchWorkspace ws, CsrGraph forward, CsrGraph reverse,
+                                   int source, int destination) {
+        long start = Metrics.start();
+        boolean found = runDijkstra(ws, forward, reverse, source, destination);
+        SearchMetrics.BIDIRECTIONAL_DIJKSTRA.record(start, ws, found);
+        return found;
+    }
+
+    private static boolean runDijkstra(SearchWorkspace ws, CsrGraph forward, CsrGraph reverse,
+                                       int source, int destination) {
+        ws.begin(forward.nodeCount());
+        ws.reach(source, 0.0, -1);
+        reachBackward(ws, destination, 0.0, -1);
+        if (source == destination) return true;
+
+        IndexedDaryHeap fq = ws.indexed, bq = ws.indexed2;
+        fq.clear();
+        bq.clear();
+        fq.insertOrDecrease(source, 0.0);
+        bq.insertOrDecrease(destination, 0.0);
+
+        int[] stamp = ws.stamp, stamp2 = ws.stamp2;
+        double[] dist = ws.dist, dist2 = ws.dist2;
+        int generation = ws.generation;
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+
+        while (!fq.isEmpty() && !bq.isEmpty()) {
+            if (fq.peekPriority() + bq.peekPriority() >= best) break;
+            ws.settled++;
+
+            if (fq.peekPriority() <= bq.peekPriority()) {
+                int u = fq.poll();
+                double du = dist[u];
+                for (int a = forward.begin(u), end = forward.end(u); a < end; a++) {
+                    int v = forward.target(a);
+                    double alt = du + forward.weight(a);
+                    if (stamp[v] != generation || alt < dist[v]) {
+                        ws.reach(v, alt, u);
+                        fq.insertOrDecrease(v, alt);
+                        ws.relaxed++;
+                        if (stamp2[v] == generation && alt + dist2[v] < best) {
+                            best = alt + dist2[v];
+                            meet = v;
+                        }
+                    }
+                }
+            } else {
+                int u = bq.poll();
+                double du = dist2[u];
+                for (int a = reverse.begin(u), end = reverse.end(u); a < end; a++) {
+                    int v = reverse.target(a);
+                    double alt = du + reverse.weight(a);
+                    if (stamp2[v] != generation || alt < dist2[v]) {
+                        reachBackward(ws, v, alt, u);
+                        bq.insertOrDecrease(v, alt);
+                        ws.relaxed++;
+                        if (stamp[v] == generation && alt + dist[v] < best) {
+                            best = alt + dist[v];
+                            meet = v;
+                        }
+                    }
+                }
+            }
+        }
+        fq.clear();
+        bq.clear();
+        if (meet < 0) return false;
+        splice(ws, meet);
+        return true;
+    }
+
+    /**
+     * Bidirectional BFS by hop count. Each round expands one complete level
+     * of the side with the smaller frontier; the first level on which the
+     * searches touch yields the shortest route.
+     * @param reverse Transposed graph of forward, see {@link CsrGraph#transpose()}
+     * @return True if the destination was reached
+     */
+    public static boolean bfs(SearchWorkspace ws, CsrGraph forward, CsrGraph reverse,
+                              int source, int destination) {
+        long start = Metrics.start();
+        boolean found = runBfs(ws, forward, reverse, source, destination);
+        SearchMetrics.BIDIRECTIONAL_BFS.record(start, ws, found);
+        return found;
+    }
+
+    private static boolean runBfs(SearchWorkspace ws, CsrGraph forward, CsrGraph reverse,
+                                  int source, int destination) {
+        ws.begin(forward.nodeCount());
+        ws.reach(source, 0, -1);
+        reachBackward(ws, destination, 0, -1);
+        if (source == destination) return true;
+
+        int[] fq = ws.queue, bq = ws.queue2;
+        int fHead = 0, fTail = 0, bHead = 0, bTail = 0;
+        fq[fTail++] = source;
+        bq[bTail++] = destination;
+
+        int[] stamp = ws.stamp, stamp2 = ws.stamp2;
+        double[] dist = ws.dist, dist2 = ws.dist2;
+        int generation = ws.generation;
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+
+        while (meet < 0 && fHead < fTail && bHead < bTail) {
+            if (fTail - fHead <= bTail - bHead) {
+                for (int levelEnd = fTail; fHead < levelEnd; ) {
+                    int u = fq[fHead++];
+                    ws.settled++;
+                    double next = dist[u] + 1;
+                    for (int a = forward.begin(u), end = forward.end(u); a < end; a++) {
+                        int v = forward.target(a);
+                        if (stamp[v] == generation) continue;
+                        ws.reach(v, next, u);
+                        fq[fTail++] = v;
+                        ws.relaxed++;
+                        if (stamp2[v] == generation && next + dist2[v] < best) {
+                            best = next + dist2[v];
+                            meet = v;
+                        }
+                    }
+                }
+            } else {
+                for (int levelEnd = bTail; bHead < levelEnd; ) {
+                    int u = bq[bHead++];
+                    ws.settled++;
+                    double next = dist2[u] + 1;
+                    for (int a = reverse.begin(u), end = reverse.end(u); a < end; a++) {
+                        int v = reverse.target(a);
+                        if (stamp2[v] == generation) continue;
+                        reachBackward(ws, v, next, u);
+                        bq[bTail++] = v;
+                        ws.relaxed++;
+                        if (stamp[v] == generation && next + dist[v] < best) {
+                            best = next + dist[v];
+                            meet = v;
+                        }
+                    }
+                }
+            }
+        }
+        if (meet < 0) return false;
+        splice(ws, meet);
+        return true;
+    }
+
+    // Marks v as reached by the backward search; parent is the next node towards the destination
+    private static void reachBackward(SearchWorkspace ws, int v, double d, int next) {
+        ws.stamp2[v] = ws.generation;
+        ws.dist2[v] = d;
+        ws.parent2[v] = next;
+    }
+
+    /**
+     * Re-links the backward route meet -> destination into the forward
+     * parent array. With zero-weight edges the two halves may share nodes
+     * (a zero-cost loop through meet); starting from the optimal meeting
+     * point closest to the destination avoids that, since any shared node
+     * further along would itself be such a point.
+     */
+    private static void splice(SearchWorkspace ws, int meet) {
+        int generation = ws.generation;
+        double best = ws.dist[meet] + ws.dist2[meet];
+        for (int x = ws.parent2[meet]; x >= 0; x = ws.parent2[x]) {
+            if (ws.stamp[x] == generation && ws.dist[x] + ws.dist2[x] <= best) meet = x;
+        }
+        best = ws.dist[meet] + ws.dist2[meet];
+        for (int x = meet; ws.parent2[x] >= 0; ) {
+            int y = ws.parent2[x];
+            ws.reach(y, best - ws.dist2[y], x);
+            x = y;
+        }
+    }
+}
@@ -0,0 +1,834 @@
+package com.example.routingsim.routing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.NodeIndex;
+
+/**
+ * Contraction hierarchy for weighted shortest-path queries on topologies
+ * whose links rarely change, in the customizable form where the expensive
+ * part does not depend on the edge weights:
+ * <ol>
+ * <li>Preprocessing orders the nodes by nested dissection (BFS level
+ *     separators, ranked above both halves, recursively) and adds the
+ *     shortcuts that contracting them in that order needs. Vertex v of the
+ *     hierarchy is the node of rank v.</li>
+ * <li>Customization computes the weight of every arc in both directions
+ *     from the edge weights, going up the ranks: arc u - w is improved by
+ *     every lower triangle u - x - w. It touches no topology, so weight
+ *     changes only need a new customization pass, not a new hierarchy.
+ *     After a few changes the pass is partial: it recomputes the changed
+ *     arcs and, as far as their weights actually change, the arcs of the
+ *     triangles above them.</li>
+ * <li>A query walks from both ends up the elimination tree (the lowest
+ *     upward neighbour of each vertex), which holds every vertex reachable
+ *     upwards, relaxing upward arcs only; the cheapest vertex reached from
+ *     both ends joins the route. No priority queue is involved, and
+ *     vertices already farther than the best route so far relax nothing.</li>
+ * </ol>
+ * Removed edges can be given an infinite weight; an edge between vertices
+ * without an arc, or a new node, needs a new hierarchy.
+ *
+ * Queries run in the calling thread's {@link SearchWorkspace} and may run
+ * on any number of threads, as long as no weights change meanwhile.
+ */
+public final class ContractionHierarchy {
+
+    // "RCCH" read as a little-endian int
+    private static final int MAGIC = 0x48434352;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    // Size of the write buffer
+    private static final int CHUNK = 1 << 20;
+
+    // Cells of at most this many nodes are ranked without dissecting them further
+    private static final int LEAF = 8;
+
+    // Customization is partial while at most one in this many arcs changed
+    private static final int PARTIAL = 32;
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    private final int n;
+
+    // Upward arcs of vertex v: head[first[v]] .. head[first[v + 1] - 1], ascending
+    private final int[] first;
+    private final int[] head;
+
+    // Edge weights of the arcs upwards (lower -> higher vertex) and downwards; infinity if none
+    private final double[] inUp, inDown;
+
+    // Customized weights, and the middle vertex of the triangle that gave them (-1 for edges)
+    private final double[] up, down;
+    private final int[] upMid, downMid;
+
+    // Node ID of every vertex
+    private final String[] ids;
+
+    // Node ID -> vertex, built on first use
+    private volatile Map<String, Integer> byId;
+
+    // False while weights changed since the last customization
+    private volatile boolean customized;
+
+    // Arcs whose edge weights changed since then, unless too many did (changedAll)
+    private int[] changed = new int[16];
+    private int changedCount;
+    private boolean changedAll = true;
+
+    // Lower neighbours of every vertex, ascending, with the arc up from each; built on first partial pass
+    private int[] downFirst, downTail, downArc;
+    private IndexedDaryHeap pending;
+
+    private ContractionHierarchy(int[] first, int[] head, String[] ids) {
+        this.n = ids.length;
+        this.first = first;
+        this.head = head;
+        this.ids = ids;
+        int m = head.length;
+        this.inUp = new double[m];
+        this.inDown = new double[m];
+        this.up = new double[m];
+        this.down = new double[m];
+        this.upMid = new int[m];
+        this.downMid = new int[m];
+        Arrays.fill(inUp, INF);
+        Arrays.fill(inDown, INF);
+    }
+
+    /**
+     * Builds and customizes the hierarchy of a snapshot's topology with its
+     * current edge weights. Parallel arcs count with their lowest weight.
+     */
+    public static ContractionHierarchy build(GraphSnapshot snapshot) {
+        CsrGraph graph = snapshot.csr();
+        NodeIndex index = snapshot.index();
+        int n = graph.nodeCount();
+        int[] rank = order(graph);
+
+        // Upward neighbours in rank space, completed so that the upward
+        // neighbours of every vertex form a clique: contracting v joins its
+        // upward neighbours, which it passes on to the lowest of them
+        int[][] lists = new int[n][];
+        int[] sizes = new int[n];
+        for (int u = 0; u < n; u++) {
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int ru = rank[u], rv = rank[graph.target(a)];
+                if (ru != rv) add(lists, sizes, Math.min(ru, rv), Math.max(ru, rv));
+            }
+        }
+        int[] first = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int k = sizes[v] == 0 ? 0 : unique(lists[v], sizes[v]);
+            sizes[v] = k;
+            for (int i = 1; i < k; i++) add(lists, sizes, lists[v][0], lists[v][i]);
+            first[v + 1] = first[v] + k;
+        }
+        int[] head = new int[first[n]];
+        for (int v = 0; v < n; v++) {
+            if (sizes[v] > 0) System.arraycopy(lists[v], 0, head, first[v], sizes[v]);
+            lists[v] = null;
+        }
+
+        String[] ids = new String[n];
+        for (int i = 0; i < n; i++) ids[rank[i]] = index.nodeAt(i).getId();
+        ContractionHierarchy ch = new ContractionHierarchy(first, head, ids);
+        for (int u = 0; u < n; u++) {
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int ru = rank[u], rv = rank[graph.target(a)];
+                if (ru == rv) continue;
+                int arc = ch.arc(Math.min(ru, rv), Math.max(ru, rv));
+                double[] in = ru < rv ? ch.inUp : ch.inDown;
+                in[arc] = Math.min(in[arc], graph.weight(a));
+            }
+        }
+        ch.customize();
+        return ch;
+    }
+
+    // Returns the number of vertices (nodes)
+    public int vertexCount() {
+        return n;
+    }
+
+    // Returns the number of arcs, edges and shortcuts, each counted once for both directions
+    public int arcCount() {
+        return head.length;
+    }
+
+    // Returns the vertex of a node ID, or -1 if the hierarchy has no such node
+    public int vertex(String id) {
+        Map<String, Integer> map = byId;
+        if (map == null) {
+            map = new HashMap<>(n * 2);
+            for (int v = 0; v < n; v++) map.put(ids[v], v);
+            byId = map;
+        }
+        Integer v = map.get(id);
+        return v == null ? -1 : v;
+    }
+
+    // Returns the node ID of a vertex
+    public String id(int vertex) {
+        return ids[vertex];
+    }
+
+    /**
+     * Sets the weight of the edge from one vertex to another; takes effect
+     * with the next customization, which the next query runs if needed.
+     * @param weight New weight, or infinity to remove the edge
+     * @return False if the hierarchy has no arc between the two vertices
+     *         (the topology changed and needs a new hierarchy)
+     */
+    public boolean setWeight(int from, int to, double weight) {
+        if (from == to) return false;
+        int arc = arc(Math.min(from, to), Math.max(from, to));
+        if (arc < 0) return false;
+        double[] in = from < to ? inUp : inDown;
+        if (in[arc] == weight) return true;
+        in[arc] = weight;
+        if (!changedAll) {
+            if (changedCount == changed.length) changed = Arrays.copyOf(changed, changedCount * 2);
+            changed[changedCount++] = arc;
+            if (changedCount > head.length / PARTIAL) changedAll = true;
+        }
+        customized = false;
+        return true;
+    }
+
+    // Removes every edge weight, e.g. before setting them all anew
+    public void clearWeights() {
+        Arrays.fill(inUp, INF);
+        Arrays.fill(inDown, INF);
+        changedAll = true;
+        customized = false;
+    }
+
+    // Returns true if no weight changed since the last customization
+    public boolean isCustomized() {
+        return customized;
+    }
+
+    /**
+     * Brings the arc weights up to date with the edge weights: partially
+     * if only a few of them changed since the last customization, else
+     * with a full pass.
+     */
+    public synchronized void customize() {
+        if (changedAll) customizeAll();
+        else customizeChanged();
+        changedCount = 0;
+        changedAll = false;
+        customized = true;
+    }
+
+    /**
+     * Recomputes the weights of all arcs from the edge weights, one pass
+     * over the lower triangles of every vertex in rank order. Arcs leaving
+     * a vertex are final once all lower vertices have been processed.
+     */
+    private void customizeAll() {
+        System.arraycopy(inUp, 0, up, 0, up.length);
+        System.arraycopy(inDown, 0, down, 0, down.length);
+        Arrays.fill(upMid, -1);
+        Arrays.fill(downMid, -1);
+        for (int x = 0; x < n; x++) {
+            int end = first[x + 1];
+            for (int i = first[x]; i < end; i++) {
+                // u -> x -> w and w -> x -> u for every higher w, if u and x are connected at all
+                if (up[i] == INF && down[i] == INF) continue;
+                int u = head[i];
+                int k = first[u];
+                for (int j = i + 1; j < end; j++) {
+                    int w = head[j];
+                    while (head[k] < w) k++; // the arc u - w exists, both being upward neighbours of x
+                    double c = down[i] + up[j];
+                    if (c < up[k]) {
+                        up[k] = c;
+                        upMid[k] = x;
+                    }
+                    c = down[j] + up[i];
+                    if (c < down[k]) {
+                        down[k] = c;
+                        downMid[k] = x;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes the changed arcs from their edge weights and lower
+     * triangles, lowest arc first; an arc whose weight changes puts the
+     * arcs it is a lower side of in the queue. Arc ids grow with the lower
+     * vertex, so every arc is recomputed after all arcs it depends on.
+     */
+    private void customizeChanged() {
+        if (pending == null) {
+            buildDown();
+            pending = new IndexedDaryHeap(head.length, DijkstraEngine.DEFAULT_ARITY);
+        }
+        for (int i = 0; i < changedCount; i++) pending.insertOrDecrease(changed[i], changed[i]);
+        while (!pending.isEmpty()) {
+            int a = pending.poll();
+            int u = tail(a), w = head[a];
+            double bestUp = inUp[a], bestDown = inDown[a];
+            int midUp = -1, midDown = -1;
+            // Common lower neighbours x of u and w: u -> x -> w and w -> x -> u
+            int i = downFirst[u], iEnd = downFirst[u + 1];
+            int j = downFirst[w], jEnd = downFirst[w + 1];
+            while (i < iEnd && j < jEnd) {
+                int xu = downTail[i], xw = downTail[j];
+                if (xu < xw) {
+                    i++;
+                } else if (xw < xu) {
+                    j++;
+                } else {
+                    int toU = downArc[i], toW = downArc[j];
+                    double c = down[toU] + up[toW];
+                    if (c < bestUp) {
+                        bestUp = c;
+                        midUp = xu;
+                    }
+                    c = down[toW] + up[toU];
+                    if (c < bestDown) {
+                        bestDown = c;
+                        midDown = xu;
+                    }
+                    i++;
+                    j++;
+                }
+            }
+            boolean moved = bestUp != up[a] || bestDown != down[a];
+            up[a] = bestUp;
+            down[a] = bestDown;
+            upMid[a] = midUp;
+            downMid[a] = midDown;
+            if (!moved) continue;
+            // u - w is a lower side of the triangles u - w - z above u; their
+            // third arc changes if the route through u now beats it, or was
+            // its best and got dearer
+            for (int k = first[u], end = first[u + 1]; k < end; k++) {
+                int z = head[k];
+                if (z == w) continue;
+                int lo = w < z ? a : k, hi = w < z ? k : a;
+                int b = arc(Math.min(w, z), Math.max(w, z));
+                double viaUp = down[lo] + up[hi], viaDown = down[hi] + up[lo];
+                if (viaUp < up[b] || viaDown < down[b]
+                        || (upMid[b] == u && viaUp > up[b]) || (downMid[b] == u && viaDown > down[b])) {
+                    pending.insertOrDecrease(b, b);
+                }
+            }
+        }
+    }
+
+    // Builds the lists of lower neighbours, each with the arc from it
+    private void buildDown() {
+        int m = head.length;
+        int[] counts = new int[n + 1];
+        for (int a = 0; a < m; a++) counts[head[a] + 1]++;
+        for (int v = 0; v < n; v++) counts[v + 1] += counts[v];
+        int[] tails = new int[m], arcs = new int[m];
+        int[] fill = Arrays.copyOf(counts, n);
+        for (int x = 0; x < n; x++) {
+            for (int a = first[x]; a < first[x + 1]; a++) {
+                int k = fill[head[a]]++;
+                tails[k] = x;
+                arcs[k] = a;
+            }
+        }
+        downFirst = counts;
+        downTail = tails;
+        downArc = arcs;
+    }
+
+    // Lower vertex of an arc
+    private int tail(int arc) {
+        int lo = 0, hi = n - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (first[mid] <= arc) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    // Returns the shortest distance between two vertices, or infinity if unreachable
+    public double distance(int source, int destination) {
+        SearchWorkspace ws = SearchWorkspace.current();
+        int meet = query(ws, source, destination);
+        return meet < 0 ? INF : ws.dist[meet] + ws.dist2[meet];
+    }
+
+    /**
+     * Returns the vertices of a shortest route between two vertices, from
+     * source to destination with the shortcuts unpacked, or null if the
+     * destination is unreachable.
+     */
+    public int[] path(int source, int destination) {
+        SearchWorkspace ws = SearchWorkspace.current();
+        int meet = query(ws, source, destination);
+        if (meet < 0) return null;
+
+        // Forward tree from the source up to the meeting vertex, then down to the destination
+        Ints chain = new Ints();
+        for (int v = meet; v >= 0; v = ws.parent[v]) chain.add(v);
+        Ints route = new Ints();
+        route.add(source);
+        Ints stack = new Ints();
+        for (int i = chain.size - 1; i > 0; i--) unpack(chain.a[i], chain.a[i - 1], route, stack);
+        for (int v = meet; ws.parent2[v] >= 0; v = ws.parent2[v]) unpack(v, ws.parent2[v], route, stack);
+        return Arrays.copyOf(route.a, route.size);
+    }
+
+    /**
+     * Walks up from both ends and returns the vertex where the shortest
+     * route turns downwards, or -1 if the destination is unreachable. The
+     * source's walk fills dist and parent, the destination's dist2 and
+     * parent2. The walks advance in rank order, lower vertex first, so the
+     * common part of their paths is checked for meeting points on the way.
+     */
+    private int query(SearchWorkspace ws, int source, int destination) {
+        if (!customized) customize();
+        long start = Metrics.start();
+        ws.begin(n);
+        int generation = ws.generation;
+        ws.reach(source, 0.0, -1);
+        ws.stamp2[destination] = generation;
+        ws.dist2[destination] = 0;
+        ws.parent2[destination] = -1;
+
+        int meet = -1;
+        double best = INF;
+        int f = source, b = destination;
+        while (f >= 0 || b >= 0) {
+            if (f == b) {
+                if (ws.stamp[f] == generation && ws.stamp2[f] == generation) {
+                    double d = ws.dist[f] + ws.dist2[f];
+                    if (d < best) {
+                        best = d;
+                        meet = f;
+                    }
+                }
+                relax(ws, ws.stamp, ws.dist, ws.parent, up, f, best);
+                relax(ws, ws.stamp2, ws.dist2, ws.parent2, down, f, best);
+                f = b = parentOf(f);
+            } else if (b < 0 || (f >= 0 && f < b)) {
+                relax(ws, ws.stamp, ws.dist, ws.parent, up, f, best);
+                f = parentOf(f);
+            } else {
+                relax(ws, ws.stamp2, ws.dist2, ws.parent2, down, b, best);
+                b = parentOf(b);
+            }
+        }
+        SearchMetrics.HIERARCHY.record(start, ws, meet >= 0);
+        return meet;
+    }
+
+    // Relaxes the upward arcs of v if one walk reached it closer than the best route so far
+    private void relax(SearchWorkspace ws, int[] stamp, double[] dist, int[] parent, double[] weight,
+                       int v, double best) {
+        int generation = ws.generation;
+        if (stamp[v] != generation || dist[v] >= best) return;
+        ws.settled++;
+        double dv = dist[v];
+        for (int a = first[v], end = first[v + 1]; a < end; a++) {
+            double c = dv + weight[a];
+            if (c >= best) continue;
+            int w = head[a];
+            if (stamp[w] != generation || c < dist[w]) {
+                stamp[w] = generation;
+                dist[w] = c;
+                parent[w] = v;
+                ws.relaxed++;
+            }
+        }
+    }
+
+    // Elimination tree parent: the lowest upward neighbour, or -1 for a root
+    private int parentOf(int v) {
+        return first[v] < first[v + 1] ? head[first[v]] : -1;
+    }
+
+    /**
+     * Appends the vertices after from on the route along the arc from -> to
+     * to the route, replacing each shortcut by its two halves.
+     */
+    private void unpack(int from, int to, Ints route, Ints stack) {
+        stack.size = 0;
+        stack.add(from);
+        stack.add(to);
+        while (stack.size > 0) {
+            int b = stack.a[--stack.size], a = stack.a[--stack.size];
+            int arc = arc(Math.min(a, b), Math.max(a, b));
+            int mid = a < b ? upMid[arc] : downMid[arc];
+            if (mid < 0) {
+                route.add(b);
+                continue;
+            }
+            // Second half below the first, so the first comes off the stack next
+            stack.add(mid);
+            stack.add(b);
+            stack.add(a);
+            stack.add(mid);
+        }
+    }
+
+    // Arc from lo up to hi, or -1 if there is none
+    private int arc(int lo, int hi) {
+        int i = Arrays.binarySearch(head, first[lo], first[lo + 1], hi);
+        return i < 0 ? -1 : i;
+    }
+
+    // Growable int list for routes and the unpacking stack
+    private static final class Ints {
+        int[] a = new int[16];
+        int size;
+
+        void add(int v) {
+            if (size == a.length) a = Arrays.copyOf(a, size * 2);
+            a[size++] = v;
+        }
+    }
+
+    // Adds hi to the list of lo
+    private static void add(int[][] lists, int[] sizes, int lo, int hi) {
+        int[] list = lists[lo];
+        if (list == null) list = lists[lo] = new int[4];
+        else if (sizes[lo] == list.length) list = lists[lo] = Arrays.copyOf(list, list.length * 2);
+        list[sizes[lo]++] = hi;
+    }
+
+    // Sorts the first size entries and drops duplicates; returns the new size
+    private static int unique(int[] a, int size) {
+        Arrays.sort(a, 0, size);
+        int k = 1;
+        for (int i = 1; i < size; i++) {
+            if (a[i] != a[k - 1]) a[k++] = a[i];
+        }
+        return k;
+    }
+
+    /**
+     * Nested dissection order of a graph's nodes, ignoring edge directions
+     * and weights; returns the rank of every node. A cell is split at the
+     * BFS level around its median node, seen from a far node: the nodes of
+     * that level with neighbours on the next one separate the levels
+     * before from those after, and take the highest ranks left.
+     * Disconnected parts of a cell are split off without a separator.
+     */
+    private static int[] order(CsrGraph graph) {
+        int n = graph.nodeCount();
+        // Undirected adjacency
+        int[] adjFirst = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                if (u == v) continue;
+                adjFirst[u + 1]++;
+                adjFirst[v + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) adjFirst[v + 1] += adjFirst[v];
+        int[] adj = new int[adjFirst[n]];
+        int[] fill = Arrays.copyOf(adjFirst, n);
+        for (int u = 0; u < n; u++) {
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                if (u == v) continue;
+                adj[fill[u]++] = v;
+                adj[fill[v]++] = u;
+            }
+        }
+
+        int[] rank = new int[n];
+        int[] cell = new int[n];
+        int[] level = new int[n];
+        int[] queue = new int[n];
+        int next = n - 1;
+        int cells = 0;
+        int[] all = new int[n];
+        for (int v = 0; v < n; v++) all[v] = v;
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        if (n > 0) stack.push(all);
+
+        while (!stack.isEmpty()) {
+            int[] c = stack.pop();
+            if (c.length <= LEAF) {
+                for (int v : c) rank[v] = next--;
+                continue;
+            }
+            int id = ++cells;
+            for (int v : c) cell[v] = id;
+
+            int count = bfs(adjFirst, adj, cell, id, c[0], level, queue);
+            if (count < c.length) {
+                // Split off the component of c[0]
+                int[] part = Arrays.copyOf(queue, count);
+                for (int v : part) cell[v] = 0;
+                int[] rest = new int[c.length - count];
+                int k = 0;
+                for (int v : c) {
+                    if (cell[v] == id) rest[k++] = v;
+                }
+                stack.push(rest);
+                stack.push(part);
+                continue;
+            }
+            bfs(adjFirst, adj, cell, id, queue[count - 1], level, queue);
+            int last = level[queue[count - 1]];
+            int cut = Math.max(1, Math.min(level[queue[count / 2]], last - 1));
+
+            int[] lower = new int[count], upper = new int[count];
+            int lowers = 0, uppers = 0;
+            if (last <= 1) {
+                // Everything next to the root: the root alone separates nothing, but ranking it top shrinks the cell
+                rank[queue[0]] = next--;
+                for (int i = 1; i < count; i++) lower[lowers++] = queue[i];
+            } else {
+                for (int i = 0; i < count; i++) {
+                    int v = queue[i];
+                    if (level[v] > cut) {
+                        upper[uppers++] = v;
+                    } else if (level[v] < cut || !touches(adjFirst, adj, cell, id, level, v, cut + 1)) {
+                        lower[lowers++] = v;
+                    } else {
+                        rank[v] = next--;
+                    }
+                }
+            }
+            if (uppers > 0) stack.push(Arrays.copyOf(upper, uppers));
+            if (lowers > 0) stack.push(Arrays.copyOf(lower, lowers));
+            for (int v : c) cell[v] = 0;
+        }
+        return rank;
+    }
+
+    // BFS within a cell; fills queue in visiting order and level per node, returns the count
+    private static int bfs(int[] adjFirst, int[] adj, int[] cell, int id, int root, int[] level, int[] queue) {
+        // The cell id is negated on visited nodes and restored at the end
+        int head = 0, tail = 0;
+        queue[tail++] = root;
+        cell[root] = -id;
+        level[root] = 0;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int a = adjFirst[u], end = adjFirst[u + 1]; a < end; a++) {
+                int v = adj[a];
+                if (cell[v] != id) continue;
+                cell[v] = -id;
+                level[v] = level[u] + 1;
+                queue[tail++] = v;
+            }
+        }
+        for (int i = 0; i < tail; i++) cell[queue[i]] = id;
+        return tail;
+    }
+
+    // Returns true if v has a neighbour in the cell at the given BFS level
+    private static boolean touches(int[] adjFirst, int[] adj, int[] cell, int id, int[] level, int v, int lvl) {
+        for (int a = adjFirst[v], end = adjFirst[v + 1]; a < end; a++) {
+            int w = adj[a];
+            if (cell[w] == id && level[w] == lvl) return true;
+        }
+        return false;
+    }
+
+    // ----- Index file -----
+
+    /**
+     * Writes the hierarchy to a file, replacing it if it exists. All
+     * numbers are little-endian; the 32-byte header
+     * <pre>
+     * int  magic     "RCCH"
+     * int  version   1
+     * int  vertices  n
+     * int  flags     0 (reserved)
+     * long arcs      m
+     * long idBytes   length of the UTF-8 ID blob
+     * </pre>
+     * is followed by these sections, each starting at a multiple of 8 bytes:
+     * <pre>
+     * int[n + 1]    first upward arc of every vertex
+     * int[m]        arc heads
+     * double[m]     upward edge weights (infinity: no edge)
+     * double[m]     downward edge weights
+     * int[n]        end of each node ID in the blob
+     * byte[idBytes] node IDs by vertex, UTF-8, concatenated
+     * </pre>
+     * Customized weights are not stored; loading runs one customization.
+     */
+    public void write(Path file) throws IOException {
+        int m = head.length;
+        byte[][] idBytes = new byte[n][];
+        long blob = 0;
+        for (int v = 0; v < n; v++) {
+            idBytes[v] = ids[v].getBytes(StandardCharsets.UTF_8);
+            blob += idBytes[v].length;
+        }
+        if (blob > Integer.MAX_VALUE) throw new IOException("Node IDs exceed 2 GB");
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(m).putLong(blob);
+            for (int v = 0; v <= n; v++) {
+                room(ch, buf, 4);
+                buf.putInt(first[v]);
+            }
+            pad(ch, buf);
+            for (int a = 0; a < m; a++) {
+                room(ch, buf, 4);
+                buf.putInt(head[a]);
+            }
+            pad(ch, buf);
+            for (double[] in : new double[][] {inUp, inDown}) {
+                for (int a = 0; a < m; a++) {
+                    room(ch, buf, 8);
+                    buf.putDouble(in[a]);
+                }
+            }
+            int end = 0;
+            for (int v = 0; v < n; v++) {
+                room(ch, buf, 4);
+                end += idBytes[v].length;
+                buf.putInt(end);
+            }
+            pad(ch, buf);
+            for (byte[] id : idBytes) {
+                for (int i = 0; i < id.length; ) {
+                    room(ch, buf, 1);
+                    int len = Math.min(buf.remaining(), id.length - i);
+                    buf.put(id, i, len);
+                    i += len;
+                }
+            }
+            flush(ch, buf);
+        }
+    }
+
+    /**
+     * Loads a hierarchy written by {@link #write} and customizes it with
+     * the stored weights.
+     * @throws IOException on read errors or if the file is not a valid hierarchy
+     */
+    public static ContractionHierarchy read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES) throw new IOException(file + ": not a hierarchy file");
+            ByteBuffer header = map(ch, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) throw new IOException(file + ": not a hierarchy file");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException(file + ": unsupported version " + version);
+            int n = header.getInt();
+            header.getInt(); // flags
+            long m = header.getLong();
+            long blob = header.getLong();
+            if (n < 0 || m < 0 || m > Integer.MAX_VALUE || blob < 0 || blob > Integer.MAX_VALUE) {
+                throw new IOException(file + ": corrupt header");
+            }
+
+            long firstAt = HEADER_BYTES;
+            long headAt = align(firstAt + 4L * (n + 1));
+            long upAt = align(headAt + 4L * m);
+            long downAt = upAt + 8L * m;
+            long idEndsAt = downAt + 8L * m;
+            long idsAt = align(idEndsAt + 4L * n);
+            if (size < idsAt + blob) throw new IOException(file + ": truncated");
+
+            int[] first = new int[n + 1];
+            int[] head = new int[(int) m];
+            int[] idEnds = new int[n];
+            byte[] idBlob = new byte[(int) blob];
+            map(ch, firstAt, 4L * (n + 1)).asIntBuffer().get(first);
+            map(ch, headAt, 4L * m).asIntBuffer().get(head);
+            map(ch, idEndsAt, 4L * n).asIntBuffer().get(idEnds);
+            map(ch, idsAt, blob).get(idBlob);
+
+            if (first[0] != 0 || first[n] != m) throw new IOException(file + ": corrupt arcs");
+            for (int v = 0; v < n; v++) {
+                if (first[v] > first[v + 1]) throw new IOException(file + ": corrupt arcs");
+                for (int a = first[v]; a < first[v + 1]; a++) {
+                    int lo = a == first[v] ? v : head[a - 1];
+                    if (head[a] <= lo || head[a] >= n) throw new IOException(file + ": corrupt arcs");
+                }
+            }
+            String[] ids = new String[n];
+            int start = 0;
+            for (int v = 0; v < n; v++) {
+                int end = idEnds[v];
+                if (end < start || end > blob) throw new IOException(file + ": corrupt node IDs");
+                ids[v] = new String(idBlob, start, end - start, StandardCharsets.UTF_8);
+                start = end;
+            }
+            // Customization walks the triangles blindly, so check that they are all there
+            if (!chordal(first, head)) throw new IOException(file + ": arcs are not a hierarchy");
+
+            ContractionHierarchy h = new ContractionHierarchy(first, head, ids);
+            map(ch, upAt, 8L * m).asDoubleBuffer().get(h.inUp);
+            map(ch, downAt, 8L * m).asDoubleBuffer().get(h.inDown);
+            h.customize();
+            return h;
+        }
+    }
+
+    // True if the upward neighbours of every vertex are upward neighbours of the lowest one
+    private static boolean chordal(int[] first, int[] head) {
+        for (int x = 0; x + 1 < first.length; x++) {
+            int end = first[x + 1];
+            if (first[x] == end) continue;
+            int u = head[first[x]];
+            int k = first[u], ke = first[u + 1];
+            for (int j = first[x] + 1; j < end; j++) {
+                while (k < ke && head[k] < head[j]) k++;
+                if (k == ke || head[k] != head[j]) return false;
+            }
+        }
+        return true;
+    }
+
+    private static MappedByteBuffer map(FileChannel ch, long at, long length) throws IOException {
+        MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, at, length);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        return b;
+    }
+
+    private static long align(long pos) {
+        return (pos + 7) & ~7L;
+    }
+
+    // Makes room for bytes more bytes, writing out the buffer if needed
+    private static void room(FileChannel ch, ByteBuffer buf, int bytes) throws IOException {
+        if (buf.remaining() < bytes) flush(ch, buf);
+    }
+
+    // Pads with zeros up to the next multiple of 8 bytes in the file
+    private static void pad(FileChannel ch, ByteBuffer buf) throws IOException {
+        long pos = ch.position() + buf.position();
+        for (long p = pos; p < align(pos); p++) {
+            room(ch, buf, 1);
+            buf.put((byte) 0);
+        }
+    }
+
+    private static void flush(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+    }
+}
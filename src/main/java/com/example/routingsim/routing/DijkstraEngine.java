@@ -0,0 +1,102 @@
+package com.example.routingsim.routing;
+
+import com.example.routingsim.model.CsrGraph;
+
+/**
+ * Weighted shortest-path engine over a {@link CsrGraph}.
+ * Distances and parents are primitive arrays indexed by node, so no boxing
+ * or hashing happens inside the search loop. The priority queue is either
+ * an indexed d-ary heap with real decrease-key, or a lazy heap that pushes
+ * duplicates and skips stale entries; both give identical distances and
+ * exist side by side so they can be benchmarked against each other.
+ *
+ * An engine is bound to one graph and keeps its per-node state in a
+ * {@link SearchWorkspace}; like the workspace it is not thread-safe.
+ */
+public final class DijkstraEngine {
+
+    /** Which priority queue the engine uses. */
+    public enum HeapStrategy {
+        /** Indexed d-ary heap with O(log n) decrease-key. */
+        INDEXED,
+        /** Binary heap with duplicate entries and stale-entry skipping. */
+        LAZY
+    }
+
+    // Default arity of the indexed heap
+    public static final int DEFAULT_ARITY = 4;
+
+    private final CsrGraph graph;
+    private final HeapStrategy strategy;
+
+    // Holds distances, parents and heaps; owned by this engine unless passed in
+    private final SearchWorkspace workspace;
+
+    // Creates an engine using the indexed heap
+    public DijkstraEngine(CsrGraph graph) {
+        this(graph, HeapStrategy.INDEXED);
+    }
+
+    /**
+     * Creates an engine for a graph with its own workspace.
+     * @param graph    Topology to search
+     * @param strategy Priority queue implementation to use
+     */
+    public DijkstraEngine(CsrGraph graph, HeapStrategy strategy) {
+        this(graph, strategy, new SearchWorkspace());
+    }
+
+    /**
+     * Creates an engine that keeps its state in an existing workspace, for
+     * example {@link SearchWorkspace#current()}. Results are only valid until
+     * the next query that uses the same workspace.
+     */
+    public DijkstraEngine(CsrGraph graph, HeapStrategy strategy, SearchWorkspace workspace) {
+        this.graph = graph;
+        this.strategy = strategy;
+        this.workspace = workspace;
+    }
+
+    // Returns the heap strategy of this engine
+    public HeapStrategy strategy() {
+        return strategy;
+    }
+
+    /**
+     * Runs Dijkstra from a source node.
+     * @param source      Start node index
+     * @param destination Node index at which to stop early, or -1 to build the full tree
+     * @return True if the destination was reached (always true for a full run)
+     */
+    public boolean run(int source, int destination) {
+        return workspace.dijkstra(graph, source, destination, strategy);
+    }
+
+    // Returns the distance of a node from the last source (infinity if not reached)
+    public double distance(int v) {
+        return workspace.distance(v);
+    }
+
+    // Returns the tree parent of a node, or -1 for the source and unreached nodes
+    public int parent(int v) {
+        return workspace.parent(v);
+    }
+
+    /**
+     * Returns the path from the last source to a node, or null if the node
+     * was not reached by the last run.
+     */
+    public int[] path(int destination) {
+        return workspace.path(destination);
+    }
+
+    // Returns how many nodes the last run settled
+    public int settledCount() {
+        return workspace.settledCount();
+    }
+
+    // Returns how many successful edge relaxations the last run made
+    public int relaxedCount() {
+        return workspace.relaxedCount();
+    }
+}
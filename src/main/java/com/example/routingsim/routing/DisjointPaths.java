@@ -0,0 +1,210 @@
+package com.example.routingsim.routing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+
+/**
+ * Pairs of disjoint routes between two nodes with the least total cost, by
+ * Suurballe's algorithm, e.g. a working route and its failover:
+ * <ol>
+ * <li>A shortest-path search from the source gives the first route P1 and
+ *     node potentials pi(v) = min(dist(source, v), dist(source, destination)),
+ *     under which every reduced edge cost w(u, v) + pi(u) - pi(v) is
+ *     non-negative and P1's edges cost 0.</li>
+ * <li>A second Dijkstra runs on the reduced costs in the residual graph:
+ *     P1's edges may only be walked backwards, at cost 0, which undoes
+ *     them.</li>
+ * <li>P1 and the second route without the edges they share in opposite
+ *     directions make up the two disjoint routes.</li>
+ * </ol>
+ * Links count as undirected, so the routes never share a link in either
+ * direction. For node-disjoint routes every inner node of P1 is split into
+ * an entry and an exit side joined by P1's own (saturated) edge: the
+ * second route may reach it from elsewhere only to turn back along P1.
+ *
+ * The first search runs in the caller's {@link SearchWorkspace} and the
+ * second in a per-thread one of twice the size (for the split nodes).
+ */
+public final class DisjointPaths {
+
+    private DisjointPaths() {
+    }
+
+    /**
+     * Returns two disjoint routes from source to destination, cheapest
+     * first, with the least total cost; one route if no disjoint pair
+     * exists and none if the destination is unreachable.
+     * @param nodeDisjoint True to share no inner node, false to share no link
+     * @param metric       Hop metrics count hops, all others edge weights
+     */
+    public static List<Route> find(GraphSnapshot snapshot, int source, int destination,
+                                   boolean nodeDisjoint, Metric metric) {
+        List<Route> routes = new ArrayList<>(2);
+        if (source == destination) {
+            routes.add(new Route(new int[] {source}, 0, 0));
+            return routes;
+        }
+        CsrGraph graph = snapshot.csr();
+        int n = graph.nodeCount();
+        boolean weighted = metric.isWeighted();
+
+        SearchWorkspace first = SearchWorkspace.current();
+        boolean reachable = weighted
+                ? first.dijkstra(graph, source, destination, DijkstraEngine.HeapStrategy.INDEXED)
+                : first.bfs(graph, source, destination);
+        if (!reachable) return routes;
+        int[] p1 = first.path(destination);
+        double cap = first.distance(destination);
+
+        // Position of every node on P1
+        PathScratch scratch = PathScratch.current();
+        scratch.begin(n);
+        for (int i = 0; i < p1.length; i++) scratch.mark(p1[i], i);
+
+        long start = Metrics.start();
+        int[] states = residualSearch(graph, first, cap, scratch, p1, source, destination, nodeDisjoint, weighted);
+        SearchMetrics.DISJOINT_RESIDUAL.record(start, scratch.search, states != null);
+        if (states == null) {
+            routes.add(new Route(p1, PathScratch.pathCost(graph, p1, weighted), 0));
+            return routes;
+        }
+
+        // P1's links, minus those the second route walked backwards, plus the second route's
+        Set<Long> links = new HashSet<>();
+        for (int i = 0; i + 1 < p1.length; i++) links.add(pack(p1[i], p1[i + 1]));
+        List<Long> added = new ArrayList<>();
+        for (int i = 0; i + 1 < states.length; i++) {
+            int u = states[i] % n, v = states[i + 1] % n;
+            if (u == v) continue; // entry to exit side of a split node
+            if (!links.remove(pack(v, u))) added.add(pack(u, v));
+        }
+        links.addAll(added);
+
+        Map<Integer, ArrayDeque<Integer>> next = new HashMap<>();
+        for (long link : links) next.computeIfAbsent((int) (link >>> 32), k -> new ArrayDeque<>()).add((int) link);
+        for (int r = 0; r < 2; r++) {
+            int[] path = walk(next, source, destination);
+            if (path != null) routes.add(new Route(path, PathScratch.pathCost(graph, path, weighted), 0));
+        }
+        routes.sort((a, b) -> Double.compare(a.cost(), b.cost()));
+        return routes;
+    }
+
+    /**
+     * Dijkstra on reduced costs from source to destination in the residual
+     * graph of P1 and returns the states it passed through: node v is state
+     * v, the entry side of a split P1 node v is state n + v. Returns null if
+     * the destination cannot be reached.
+     */
+    private static int[] residualSearch(CsrGraph graph, SearchWorkspace first, double cap, PathScratch scratch,
+                                        int[] p1, int source, int destination,
+                                        boolean nodeDisjoint, boolean weighted) {
+        int n = graph.nodeCount();
+        SearchWorkspace ws = scratch.search;
+        ws.begin(nodeDisjoint ? 2 * n : n);
+        IndexedDaryHeap heap = ws.indexed;
+        heap.clear();
+        ws.reach(source, 0.0, -1);
+        heap.insertOrDecrease(source, 0.0);
+
+        int[] stamp = ws.stamp;
+        double[] dist = ws.dist;
+        int generation = ws.generation;
+        while (!heap.isEmpty()) {
+            int s = heap.poll();
+            ws.settled++;
+            if (s == destination) {
+                heap.clear();
+                return ws.path(destination);
+            }
+            double ds = dist[s];
+
+            if (s >= n) {
+                // Entry side of a split node: the only way on is back along P1
+                int x = s - n;
+                relax(ws, heap, s, p1[scratch.value[x] - 1], ds);
+                continue;
+            }
+
+            int x = s;
+            int at = scratch.marked(x) ? scratch.value[x] : -1;
+            int pred = at > 0 ? p1[at - 1] : -1;
+            int succ = at >= 0 && at + 1 < p1.length ? p1[at + 1] : -1;
+            if (pred >= 0) {
+                // Undo P1's edge into x, or (split) step over to x's entry side first
+                if (nodeDisjoint) relax(ws, heap, s, n + x, ds);
+                else relax(ws, heap, s, pred, ds);
+            }
+
+            double px = potential(first, cap, x);
+            for (int a = graph.begin(x), end = graph.end(x); a < end; a++) {
+                int y = graph.target(a);
+                // P1's links are used up in both directions; only the residual moves above remain
+                if (y == succ || y == pred) continue;
+                double reduced = Math.max(0, (weighted ? graph.weight(a) : 1) + px - potential(first, cap, y));
+                boolean split = nodeDisjoint && y != source && y != destination && scratch.marked(y);
+                int t = split ? n + y : y;
+                double alt = ds + reduced;
+                if (stamp[t] != generation || alt < dist[t]) {
+                    ws.reach(t, alt, s);
+                    heap.insertOrDecrease(t, alt);
+                    ws.relaxed++;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Zero-cost residual move from state s to state t
+    private static void relax(SearchWorkspace ws, IndexedDaryHeap heap, int s, int t, double ds) {
+        if (ws.stamp[t] != ws.generation || ds < ws.dist[t]) {
+            ws.reach(t, ds, s);
+            heap.insertOrDecrease(t, ds);
+            ws.relaxed++;
+        }
+    }
+
+    // pi(v): distance from the source, capped at the destination's
+    private static double potential(SearchWorkspace first, double cap, int v) {
+        return Math.min(first.distance(v), cap);
+    }
+
+    /**
+     * Follows and consumes links from source to destination; a node visited
+     * twice (possible only with zero-weight cycles) cuts the loop out.
+     */
+    private static int[] walk(Map<Integer, ArrayDeque<Integer>> next, int source, int destination) {
+        List<Integer> path = new ArrayList<>();
+        Map<Integer, Integer> position = new HashMap<>();
+        int v = source;
+        while (true) {
+            Integer seen = position.get(v);
+            if (seen != null) {
+                for (int i = path.size() - 1; i > seen; i--) position.remove(path.remove(i));
+            } else {
+                position.put(v, path.size());
+                path.add(v);
+            }
+            if (v == destination) break;
+            ArrayDeque<Integer> out = next.get(v);
+            if (out == null || out.isEmpty()) return null;
+            v = out.poll();
+        }
+        int[] nodes = new int[path.size()];
+        for (int i = 0; i < nodes.length; i++) nodes[i] = path.get(i);
+        return nodes;
+    }
+
+    private static long pack(int u, int v) {
+        return ((long) u << 32) | (v & 0xFFFFFFFFL);
+    }
+}
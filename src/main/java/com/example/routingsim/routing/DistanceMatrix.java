@@ -0,0 +1,283 @@
+package com.example.routingsim.routing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact rows x cols table of route distances between node indices of a
+ * snapshot, e.g. all pairs or sources x targets.
+ *
+ * Distances are stored quantized:
+ * <ul>
+ * <li>{@link Encoding#FLOAT}: 4 bytes, float precision, with infinity for
+ *     unreachable (NaN is stored as infinity too);</li>
+ * <li>{@link Encoding#SHORT}: 2 bytes, an unsigned multiple of step (1 for
+ *     hop counts), with 65535 for unreachable; larger distances saturate at
+ *     65534 * step and are counted in {@link #saturated()}.</li>
+ * </ul>
+ * The cells live in row-aligned buffers of up to 1 GB each, either on the
+ * heap or memory-mapped from a file, so a table may be far larger than the
+ * heap. A file holds a 48-byte little-endian header
+ * <pre>
+ * int    magic     "RDMX"
+ * int    version   1
+ * int    encoding  0 = float, 1 = short
+ * int    reserved
+ * int    rows, cols
+ * double step
+ * long   dataOffset
+ * long   reserved
+ * </pre>
+ * followed by the row and column node indices (int[rows], int[cols]) and,
+ * at dataOffset (a multiple of 64), the cells row by row.
+ *
+ * Cells of different rows may be written from different threads at the same
+ * time; anything else needs outside synchronization.
+ */
+public final class DistanceMatrix implements Closeable {
+
+    /** Storage format of a cell. */
+    public enum Encoding {
+        FLOAT(4), SHORT(2);
+
+        final int bytes;
+
+        Encoding(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    // "RDMX" read as a little-endian int
+    private static final int MAGIC = 0x584D4452;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 48;
+
+    // Largest buffer; rows never straddle two buffers
+    private static final long MAX_CHUNK = 1L << 30;
+
+    // SHORT code of an unreachable pair, and the largest finite code
+    private static final int UNREACHABLE = 0xFFFF;
+    private static final int MAX_CODE = 0xFFFE;
+
+    private final int rows, cols;
+    private final Encoding encoding;
+    private final double step;
+    private final int[] rowNodes, colNodes;
+    private final ByteBuffer[] chunks;
+    private final int rowsPerChunk;
+    private final FileChannel channel;
+    private volatile long saturated;
+
+    private DistanceMatrix(int[] rowNodes, int[] colNodes, Encoding encoding, double step,
+                           ByteBuffer[] chunks, int rowsPerChunk, FileChannel channel) {
+        this.rows = rowNodes.length;
+        this.cols = colNodes.length;
+        this.rowNodes = rowNodes;
+        this.colNodes = colNodes;
+        this.encoding = encoding;
+        this.step = step;
+        this.chunks = chunks;
+        this.rowsPerChunk = rowsPerChunk;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates an empty table (every cell unreachable) for the given row and
+     * column node indices.
+     * @param step Distance unit of {@link Encoding#SHORT}; ignored for FLOAT
+     * @param file File to map the table to, replacing it, or null to keep it on the heap
+     */
+    public static DistanceMatrix create(int[] rowNodes, int[] colNodes, Encoding encoding, double step,
+                                        Path file) throws IOException {
+        if (encoding == Encoding.SHORT && !(step > 0)) throw new IllegalArgumentException("step must be > 0");
+        long rowBytes = Math.max(1L, (long) colNodes.length * encoding.bytes);
+        if (rowBytes > MAX_CHUNK) throw new IllegalArgumentException("rows longer than 1 GB are not supported");
+        int rowsPerChunk = (int) Math.min(Math.max(rowNodes.length, 1), MAX_CHUNK / rowBytes);
+        int chunkCount = (rowNodes.length + rowsPerChunk - 1) / rowsPerChunk;
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+
+        FileChannel ch = null;
+        if (file == null) {
+            for (int c = 0; c < chunkCount; c++) {
+                int r = Math.min(rowsPerChunk, rowNodes.length - c * rowsPerChunk);
+                chunks[c] = ByteBuffer.allocate((int) (r * rowBytes)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } else {
+            ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            long dataOffset = align64(HEADER_BYTES + 4L * (rowNodes.length + colNodes.length));
+            ByteBuffer head = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+            head.putInt(MAGIC).putInt(VERSION).putInt(encoding.ordinal()).putInt(0)
+                .putInt(rowNodes.length).putInt(colNodes.length).putDouble(step)
+                .putLong(dataOffset).putLong(0);
+            for (int v : rowNodes) head.putInt(v);
+            for (int v : colNodes) head.putInt(v);
+            head.clear();
+            while (head.hasRemaining()) ch.write(head);
+            mapChunks(ch, chunks, rowsPerChunk, rowNodes.length, rowBytes, dataOffset, FileChannel.MapMode.READ_WRITE);
+        }
+        DistanceMatrix m = new DistanceMatrix(rowNodes.clone(), colNodes.clone(), encoding, step, chunks, rowsPerChunk, ch);
+        m.fillUnreachable();
+        return m;
+    }
+
+    /**
+     * Maps a table written by {@link #create} with a file, read-only.
+     * @throws IOException on read errors or if the file is not a distance table
+     */
+    public static DistanceMatrix open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (ch.size() < HEADER_BYTES) throw new IOException(file + ": not a distance table");
+            ByteBuffer head = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (head.getInt() != MAGIC) throw new IOException(file + ": not a distance table");
+            int version = head.getInt();
+            if (version != VERSION) throw new IOException(file + ": unsupported version " + version);
+            int enc = head.getInt();
+            head.getInt();
+            int rows = head.getInt(), cols = head.getInt();
+            double step = head.getDouble();
+            long dataOffset = head.getLong();
+            if (enc < 0 || enc >= Encoding.values().length || rows < 0 || cols < 0) {
+                throw new IOException(file + ": corrupt header");
+            }
+            Encoding encoding = Encoding.values()[enc];
+            long rowBytes = Math.max(1L, (long) cols * encoding.bytes);
+            if (dataOffset < HEADER_BYTES + 4L * (rows + cols) || ch.size() < dataOffset + rows * rowBytes) {
+                throw new IOException(file + ": truncated");
+            }
+
+            int[] rowNodes = new int[rows], colNodes = new int[cols];
+            ch.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 4L * (rows + cols))
+              .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(rowNodes).get(colNodes);
+
+            int rowsPerChunk = (int) Math.min(Math.max(rows, 1), MAX_CHUNK / rowBytes);
+            ByteBuffer[] chunks = new ByteBuffer[(rows + rowsPerChunk - 1) / rowsPerChunk];
+            mapChunks(ch, chunks, rowsPerChunk, rows, rowBytes, dataOffset, FileChannel.MapMode.READ_ONLY);
+            return new DistanceMatrix(rowNodes, colNodes, encoding, step, chunks, rowsPerChunk, ch);
+        } catch (IOException | RuntimeException ex) {
+            ch.close();
+            throw ex;
+        }
+    }
+
+    private static void mapChunks(FileChannel ch, ByteBuffer[] chunks, int rowsPerChunk, int rows,
+                                  long rowBytes, long dataOffset, FileChannel.MapMode mode) throws IOException {
+        for (int c = 0; c < chunks.length; c++) {
+            int r = Math.min(rowsPerChunk, rows - c * rowsPerChunk);
+            long at = dataOffset + (long) c * rowsPerChunk * rowBytes;
+            chunks[c] = ch.map(mode, at, r * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    // Sets every cell to unreachable with bulk copies of a pre-encoded block
+    private void fillUnreachable() {
+        byte[] block = new byte[1 << 16];
+        ByteBuffer cell = ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+        while (cell.hasRemaining()) {
+            if (encoding == Encoding.FLOAT) cell.putFloat(Float.POSITIVE_INFINITY);
+            else cell.putChar((char) UNREACHABLE);
+        }
+        for (ByteBuffer chunk : chunks) {
+            ByteBuffer b = chunk.duplicate();
+            b.clear();
+            while (b.hasRemaining()) b.put(block, 0, Math.min(block.length, b.remaining()));
+        }
+    }
+
+    // Returns the number of rows
+    public int rows() {
+        return rows;
+    }
+
+    // Returns the number of columns
+    public int cols() {
+        return cols;
+    }
+
+    // Returns the snapshot node index of a row
+    public int rowNode(int r) {
+        return rowNodes[r];
+    }
+
+    // Returns the snapshot node index of a column
+    public int colNode(int c) {
+        return colNodes[c];
+    }
+
+    // Returns the cell format
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    // Returns the distance unit of SHORT cells
+    public double step() {
+        return step;
+    }
+
+    // Returns how many finite distances were too large for SHORT and stored as the maximum
+    public long saturated() {
+        return saturated;
+    }
+
+    // Returns the size of the cells in bytes
+    public long byteSize() {
+        return (long) rows * cols * encoding.bytes;
+    }
+
+    // Returns the distance from row r to column c, infinity if unreachable
+    public double get(int r, int c) {
+        ByteBuffer b = chunks[r / rowsPerChunk];
+        int at = ((r % rowsPerChunk) * cols + c) * encoding.bytes;
+        if (encoding == Encoding.FLOAT) return b.getFloat(at);
+        int code = b.getChar(at);
+        return code == UNREACHABLE ? Double.POSITIVE_INFINITY : code * step;
+    }
+
+    // Stores a distance; infinity (or NaN) marks the pair unreachable
+    public void set(int r, int c, double d) {
+        ByteBuffer b = chunks[r / rowsPerChunk];
+        int at = ((r % rowsPerChunk) * cols + c) * encoding.bytes;
+        if (encoding == Encoding.FLOAT) {
+            b.putFloat(at, Double.isNaN(d) ? Float.POSITIVE_INFINITY : (float) d);
+            return;
+        }
+        int code;
+        if (!(d < Double.POSITIVE_INFINITY)) {
+            code = UNREACHABLE;
+        } else {
+            long q = Math.round(d / step);
+            if (q > MAX_CODE) {
+                synchronized (this) {
+                    saturated++;
+                }
+                q = MAX_CODE;
+            }
+            code = (int) Math.max(0, q);
+        }
+        b.putChar(at, (char) code);
+    }
+
+    // Writes a mapped table's changes to disk; no-op on the heap or when read-only
+    public void force() {
+        for (ByteBuffer chunk : chunks) {
+            if (chunk instanceof MappedByteBuffer mapped && !mapped.isReadOnly()) mapped.force();
+        }
+    }
+
+    // Releases the file; the mapping itself lives until the buffers are collected
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    private static long align64(long pos) {
+        return (pos + 63) & ~63L;
+    }
+}
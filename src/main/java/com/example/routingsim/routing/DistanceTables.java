@@ -0,0 +1,257 @@
+package com.example.routingsim.routing;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+
+/**
+ * Builds distance tables over a {@link GraphSnapshot}: all pairs, or a
+ * many-to-many S x T table for a subset of the nodes, by hop count or by
+ * weight (goal-directed metrics give the distances of the metric they
+ * optimize).
+ *
+ * Two strategies:
+ * <ul>
+ * <li>Repeated searches, one per source row, spread over a ForkJoinPool.
+ *     Each worker uses its own {@link SearchWorkspace}, and a search stops
+ *     as soon as it has settled every target, so small T stays cheap. This
+ *     suits sparse graphs: O(S (n + m) log n).</li>
+ * <li>Floyd-Warshall for all pairs of small dense graphs, O(n^3) on a
+ *     double matrix, in the blocked form: the matrix is split into B x B
+ *     tiles and each round of k-tiles updates the diagonal tile, then its
+ *     row and column tiles, then all others, in parallel. Every tile update
+ *     works on three tiles that fit in cache together.</li>
+ * </ul>
+ * {@link #allPairs} picks between them by size and density.
+ */
+public final class DistanceTables implements AutoCloseable {
+
+    /** How all-pairs tables are computed. */
+    public enum Strategy { AUTO, SEARCH, FLOYD_WARSHALL }
+
+    // Tile edge of the blocked Floyd-Warshall: three 64 x 64 double tiles take 96 KB
+    private static final int TILE = 64;
+
+    // AUTO uses Floyd-Warshall up to this many nodes, and only when arcs >= n^2 / DENSE_RATIO
+    private static final int FLOYD_MAX_NODES = 4096;
+    private static final int DENSE_RATIO = 16;
+
+    private final GraphSnapshot snapshot;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param snapshot    Topology to measure; never modified
+     * @param parallelism Number of worker threads
+     */
+    public DistanceTables(GraphSnapshot snapshot, int parallelism) {
+        this.snapshot = snapshot;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Computes the S x T table of distances from every source to every
+     * target (snapshot node indices; duplicates allowed).
+     * @param step Distance unit for {@link DistanceMatrix.Encoding#SHORT}
+     * @param file File to map the table to, or null for the heap
+     */
+    public DistanceMatrix manyToMany(int[] sources, int[] targets, Metric metric,
+                                     DistanceMatrix.Encoding encoding, double step, Path file) throws IOException {
+        CsrGraph csr = snapshot.csr();
+        int n = csr.nodeCount();
+        for (int v : sources) checkNode(v, n);
+        for (int v : targets) checkNode(v, n);
+
+        // Shared, read-only: which nodes are targets, and how many distinct ones there are
+        boolean[] isTarget = new boolean[n];
+        int distinct = 0;
+        for (int t : targets) {
+            if (!isTarget[t]) distinct++;
+            isTarget[t] = true;
+        }
+        int targetCount = distinct;
+        boolean weighted = metric.base() != Metric.HOP;
+
+        DistanceMatrix m = DistanceMatrix.create(sources, targets, encoding, step, file);
+        pool.submit(() -> IntStream.range(0, sources.length).parallel().forEach(r -> {
+            SearchWorkspace ws = SearchWorkspace.current();
+            if (weighted) dijkstraToTargets(ws, csr, sources[r], isTarget, targetCount);
+            else bfsToTargets(ws, csr, sources[r], isTarget, targetCount);
+            for (int c = 0; c < targets.length; c++) m.set(r, c, ws.distance(targets[c]));
+        })).join();
+        return m;
+    }
+
+    // Heap table of many-to-many float distances
+    public DistanceMatrix manyToMany(int[] sources, int[] targets, Metric metric) throws IOException {
+        return manyToMany(sources, targets, metric, DistanceMatrix.Encoding.FLOAT, 1, null);
+    }
+
+    /**
+     * Computes the distances between all pairs of nodes; row and column i
+     * are snapshot node index i.
+     */
+    public DistanceMatrix allPairs(Metric metric, Strategy strategy,
+                                   DistanceMatrix.Encoding encoding, double step, Path file) throws IOException {
+        int n = snapshot.csr().nodeCount();
+        if (strategy == Strategy.AUTO) {
+            boolean dense = snapshot.csr().arcCount() >= (long) n * n / DENSE_RATIO;
+            strategy = n <= FLOYD_MAX_NODES && dense ? Strategy.FLOYD_WARSHALL : Strategy.SEARCH;
+        }
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) all[i] = i;
+        if (strategy == Strategy.SEARCH) return manyToMany(all, all, metric, encoding, step, file);
+
+        double[] d = floydWarshall(metric.base() != Metric.HOP);
+        DistanceMatrix m = DistanceMatrix.create(all, all, encoding, step, file);
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(r -> {
+            for (int c = 0; c < n; c++) m.set(r, c, d[r * n + c]);
+        })).join();
+        return m;
+    }
+
+    // ----- Bounded searches -----
+
+    // Dijkstra from source until every target is settled (or nothing is left)
+    private static void dijkstraToTargets(SearchWorkspace ws, CsrGraph graph, int source,
+                                          boolean[] isTarget, int targets) {
+        ws.begin(graph.nodeCount());
+        IndexedDaryHeap heap = ws.indexed;
+        heap.clear();
+        ws.reach(source, 0.0, -1);
+        heap.insertOrDecrease(source, 0.0);
+
+        int[] stamp = ws.stamp;
+        double[] dist = ws.dist;
+        int generation = ws.generation;
+        int left = targets;
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            ws.settled++;
+            if (isTarget[u] && --left == 0) break;
+
+            double du = dist[u];
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                double alt = du + graph.weight(a);
+                if (stamp[v] != generation || alt < dist[v]) {
+                    ws.reach(v, alt, u);
+                    heap.insertOrDecrease(v, alt);
+                    ws.relaxed++;
+                }
+            }
+        }
+        heap.clear();
+    }
+
+    // BFS from source until every target is reached
+    private static void bfsToTargets(SearchWorkspace ws, CsrGraph graph, int source,
+                                     boolean[] isTarget, int targets) {
+        ws.begin(graph.nodeCount());
+        int[] queue = ws.queue, stamp = ws.stamp;
+        double[] dist = ws.dist;
+        int generation = ws.generation;
+        int head = 0, tail = 0;
+        ws.reach(source, 0, -1);
+        queue[tail++] = source;
+        int left = isTarget[source] ? targets - 1 : targets;
+
+        while (head < tail && left > 0) {
+            int u = queue[head++];
+            ws.settled++;
+            double next = dist[u] + 1;
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                if (stamp[v] != generation) {
+                    ws.reach(v, next, u);
+                    queue[tail++] = v;
+                    ws.relaxed++;
+                    if (isTarget[v]) left--;
+                }
+            }
+        }
+    }
+
+    // ----- Blocked Floyd-Warshall -----
+
+    /**
+     * Returns the n x n distance matrix, row-major, of the snapshot by
+     * weight or (weighted false) by hop count.
+     */
+    private double[] floydWarshall(boolean weighted) {
+        CsrGraph csr = snapshot.csr();
+        int n = csr.nodeCount();
+        if ((long) n * n > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("too many nodes for Floyd-Warshall: " + n);
+        double[] d = new double[n * n];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        for (int u = 0; u < n; u++) {
+            d[u * n + u] = 0;
+            for (int a = csr.begin(u), end = csr.end(u); a < end; a++) {
+                int v = csr.target(a);
+                double w = weighted ? csr.weight(a) : 1;
+                if (w < d[u * n + v]) d[u * n + v] = w;
+            }
+        }
+
+        int tiles = (n + TILE - 1) / TILE;
+        for (int k = 0; k < tiles; k++) {
+            int kk = k;
+            // Diagonal tile depends only on itself
+            relaxTile(d, n, k, k, k);
+            // Then the tiles in row k and column k, which depend on the diagonal one
+            pool.submit(() -> IntStream.range(0, tiles).parallel().forEach(t -> {
+                if (t == kk) return;
+                relaxTile(d, n, kk, t, kk);
+                relaxTile(d, n, t, kk, kk);
+            })).join();
+            // Then everything else, from its row-k and column-k tiles
+            pool.submit(() -> IntStream.range(0, tiles * tiles).parallel().forEach(ij -> {
+                int i = ij / tiles, j = ij % tiles;
+                if (i != kk && j != kk) relaxTile(d, n, i, j, kk);
+            })).join();
+        }
+        return d;
+    }
+
+    /**
+     * Relaxes tile (bi, bj) through the intermediate nodes of tile bk:
+     * d[i][j] = min(d[i][j], d[i][k] + d[k][j]), with k in the outer loop
+     * so the result is exact even when (bi, bj) is one of the source tiles.
+     */
+    private static void relaxTile(double[] d, int n, int bi, int bj, int bk) {
+        int i0 = bi * TILE, i1 = Math.min(n, i0 + TILE);
+        int j0 = bj * TILE, j1 = Math.min(n, j0 + TILE);
+        int k0 = bk * TILE, k1 = Math.min(n, k0 + TILE);
+        for (int k = k0; k < k1; k++) {
+            int kRow = k * n;
+            for (int i = i0; i < i1; i++) {
+                double dik = d[i * n + k];
+                if (dik == Double.POSITIVE_INFINITY) continue;
+                int iRow = i * n;
+                for (int j = j0; j < j1; j++) {
+                    double alt = dik + d[kRow + j];
+                    if (alt < d[iRow + j]) d[iRow + j] = alt;
+                }
+            }
+        }
+    }
+
+    private static void checkNode(int v, int n) {
+        if (v < 0 || v >= n) throw new IllegalArgumentException("node index out of range: " + v);
+    }
+
+    // Returns the snapshot this table builder measures
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // Stops the worker threads
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.routingsim.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.routingsim.model.Edge;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphListener;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.model.NodeIndex;
+
+/**
+ * Keeps shortest-path trees for a set of active sources up to date while
+ * the graph changes, instead of recomputing them from scratch.
+ *
+ * The repair follows the Ramalingam-Reps scheme for dynamic SSSP:
+ * <ul>
+ *   <li>When an edge gets cheaper or is added, only nodes whose distance
+ *       actually improves are touched, by a Dijkstra started at the edge's
+ *       far end.</li>
+ *   <li>When a tree edge gets more expensive or disappears, only the subtree
+ *       hanging below it is affected. Those nodes are detached, re-seeded
+ *       from their best neighbour outside the subtree, and settled by a
+ *       Dijkstra restricted to the subtree.</li>
+ * </ul>
+ * Changes to edges outside a tree cost O(1), so repair work is proportional
+ * to the part of the tree that changes, not to the size of the graph.
+ * Trees are arrays indexed by the nodes' graph handles and walk the graph
+ * through its handle-based accessors, so repairs never touch Node or Edge
+ * objects.
+ *
+ * The instance registers itself as a {@link GraphListener}; call
+ * {@link #close()} to detach it. Like the Graph it is not thread-safe.
+ */
+public final class DynamicShortestPaths implements GraphListener, AutoCloseable {
+
+    private final Graph graph;
+    private final Metric metric;
+
+    // One maintained tree per active source
+    private final Map<Node, Tree> trees = new HashMap<>();
+
+    // Total nodes re-labelled or re-settled by repairs, for measuring churn cost
+    private long repairWork;
+
+    // Queue of the repair searches, by handle; shared by all trees
+    private IndexedDaryHeap queue = new IndexedDaryHeap(0, DijkstraEngine.DEFAULT_ARITY);
+
+    // Subtree being repaired: its handles, and marks equal to mark for its members
+    private int[] affected = new int[16];
+    private int[] marks = new int[0];
+    private int mark;
+
+    /**
+     * Starts tracking a graph.
+     * @param graph  Graph to follow; this object registers itself as listener
+     * @param metric Hop metrics treat every edge as weight 1, weighted ones use edge weights
+     */
+    public DynamicShortestPaths(Graph graph, Metric metric) {
+        this.graph = graph;
+        this.metric = metric;
+        graph.addGraphListener(this);
+    }
+
+    /**
+     * Makes a node an active source, computing its tree once from scratch.
+     * Adding a source that is already active does nothing.
+     */
+    public void addSource(Node source) {
+        if (trees.containsKey(source)) return;
+        reserve();
+
+        GraphSnapshot snap = graph.snapshot();
+        NodeIndex index = snap.index();
+        SearchWorkspace ws = SearchWorkspace.current();
+        int s = index.indexOf(source);
+        if (!metric.isWeighted()) {
+            ws.bfs(snap.csr(), s, -1);
+        } else {
+            ws.dijkstra(snap.csr(), s, -1, DijkstraEngine.HeapStrategy.INDEXED);
+        }
+
+        Tree tree = new Tree(source.getHandle());
+        for (int v = 0; v < index.size(); v++) {
+            if (!ws.reached(v)) continue;
+            int n = index.nodeAt(v).getHandle();
+            tree.dist[n] = ws.distance(v);
+            int p = ws.parent(v);
+            if (p >= 0) tree.link(index.nodeAt(p).getHandle(), n);
+        }
+        trees.put(source, tree);
+    }
+
+    // Stops maintaining the tree of a source
+    public void removeSource(Node source) {
+        trees.remove(source);
+    }
+
+    // Returns the active sources
+    public Set<Node> sources() {
+        return Collections.unmodifiableSet(trees.keySet());
+    }
+
+    // Returns the current distance from an active source (infinity if unreachable)
+    public double distance(Node source, Node target) {
+        Tree tree = tree(source);
+        return graph.node(target.getHandle()) == target ? tree.distance(target.getHandle()) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the current shortest path from an active source to a node,
+     * or null if the node is unreachable.
+     */
+    public List<Node> path(Node source, Node target) {
+        Tree tree = tree(source);
+        int t = target.getHandle();
+        if (graph.node(t) != target || tree.distance(t) == Double.POSITIVE_INFINITY) return null;
+        List<Node> path = new ArrayList<>();
+        for (int step = t; step >= 0; step = tree.parent[step]) path.add(graph.node(step));
+        Collections.reverse(path);
+        return path;
+    }
+
+    // Returns the cumulative number of nodes touched by repairs
+    public long getRepairWork() {
+        return repairWork;
+    }
+
+    // Detaches from the graph; the trees keep their last state
+    @Override
+    public void close() {
+        graph.removeGraphListener(this);
+    }
+
+    private Tree tree(Node source) {
+        Tree tree = trees.get(source);
+        if (tree == null) throw new IllegalArgumentException(source.getId() + " is not an active source");
+        return tree;
+    }
+
+    // Cost of traversing the i-th edge of a handle under this metric
+    private double cost(int handle, int i) {
+        return metric.isWeighted() ? graph.weight(handle, i) : 1.0;
+    }
+
+    // Sizes the trees and work arrays for all handles of the graph
+    private void reserve() {
+        int limit = graph.handleLimit();
+        if (marks.length >= limit) return;
+        int cap = Math.max(limit, marks.length + (marks.length >> 1));
+        marks = Arrays.copyOf(marks, cap);
+        queue = new IndexedDaryHeap(cap, DijkstraEngine.DEFAULT_ARITY);
+        for (Tree tree : trees.values()) tree.grow(cap);
+    }
+
+    // ----- GraphListener -----
+
+    @Override
+    public void edgeAdded(Node a, Node b, double weight) {
+        reserve();
+        double w = metric.isWeighted() ? weight : 1.0;
+        for (Tree tree : trees.values()) {
+            tree.improve(a.getHandle(), b.getHandle(), w);
+            tree.improve(b.getHandle(), a.getHandle(), w);
+        }
+    }
+
+    @Override
+    public void edgeRemoved(Node a, Node b, double weight) {
+        reserve();
+        for (Tree tree : trees.values()) {
+            tree.worsen(a.getHandle(), b.getHandle());
+            tree.worsen(b.getHandle(), a.getHandle());
+        }
+    }
+
+    @Override
+    public void edgeWeightChanged(Edge e, double oldWeight) {
+        if (!metric.isWeighted() || e.getWeight() == oldWeight) return;
+        reserve();
+        int u = e.getFrom().getHandle(), v = e.getTo().getHandle();
+        for (Tree tree : trees.values()) {
+            if (e.getWeight() < oldWeight) tree.improve(u, v, e.getWeight());
+            else tree.worsen(u, v);
+        }
+    }
+
+    @Override
+    public void nodeRemoved(Node n) {
+        // Its edges were already reported, so n is a detached leaf in every tree
+        reserve();
+        trees.remove(n);
+        for (Tree tree : trees.values()) tree.forget(n.getHandle());
+    }
+
+    /**
+     * Shortest-path tree of one source, by handle. An unreachable node has
+     * infinite distance and no parent; the children of a node form a
+     * doubly linked list through the sibling arrays.
+     */
+    private final class Tree {
+        private final int source;
+        private double[] dist = new double[0];
+        private int[] parent = new int[0];
+        private int[] firstChild = new int[0], nextSibling = new int[0], prevSibling = new int[0];
+
+        Tree(int source) {
+            this.source = source;
+            grow(marks.length);
+            dist[source] = 0;
+        }
+
+        // Extends the arrays to capacity handles, all new ones unreachable
+        void grow(int capacity) {
+            int old = dist.length;
+            dist = Arrays.copyOf(dist, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            prevSibling = Arrays.copyOf(prevSibling, capacity);
+            Arrays.fill(dist, old, capacity, Double.POSITIVE_INFINITY);
+            Arrays.fill(parent, old, capacity, -1);
+            Arrays.fill(firstChild, old, capacity, -1);
+            Arrays.fill(nextSibling, old, capacity, -1);
+            Arrays.fill(prevSibling, old, capacity, -1);
+        }
+
+        double distance(int n) {
+            return n >= 0 && n < dist.length ? dist[n] : Double.POSITIVE_INFINITY;
+        }
+
+        void link(int p, int child) {
+            parent[child] = p;
+            prevSibling[child] = -1;
+            nextSibling[child] = firstChild[p];
+            if (firstChild[p] >= 0) prevSibling[firstChild[p]] = child;
+            firstChild[p] = child;
+        }
+
+        void unlink(int child) {
+            int p = parent[child];
+            if (p < 0) return;
+            int prev = prevSibling[child], next = nextSibling[child];
+            if (prev >= 0) nextSibling[prev] = next;
+            else firstChild[p] = next;
+            if (next >= 0) prevSibling[next] = prev;
+            parent[child] = prevSibling[child] = nextSibling[child] = -1;
+        }
+
+        // Clears a removed node's entry so its handle starts out unreachable when reused
+        void forget(int n) {
+            unlink(n);
+            dist[n] = Double.POSITIVE_INFINITY;
+            for (int c = firstChild[n]; c >= 0; c = nextSibling[c]) parent[c] = -1;
+            firstChild[n] = -1;
+        }
+
+        /**
+         * The edge u -> v now costs w (new or cheaper). If that gives v a
+         * shorter distance, propagate the improvement.
+         */
+        void improve(int u, int v, double w) {
+            double alt = distance(u) + w;
+            if (alt >= distance(v)) return;
+
+            relabel(v, u, alt);
+            queue.insertOrDecrease(v, alt);
+            settle(false);
+        }
+
+        /**
+         * The edge u -> v got more expensive or is gone. Only matters if it
+         * is the tree edge into v; then v's subtree is repaired.
+         */
+        void worsen(int u, int v) {
+            if (v < 0 || parent[v] != u || u < 0) return;
+
+            // Collect and detach the subtree below the broken edge, depth first
+            mark++;
+            int count = 0;
+            affected[count++] = v;
+            marks[v] = mark;
+            for (int i = 0; i < count; i++) {
+                int x = affected[i];
+                for (int c = firstChild[x]; c >= 0; c = nextSibling[c]) {
+                    if (count == affected.length) affected = Arrays.copyOf(affected, count << 1);
+                    affected[count++] = c;
+                    marks[c] = mark;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int x = affected[i];
+                unlink(x);
+                firstChild[x] = -1;
+                dist[x] = Double.POSITIVE_INFINITY;
+            }
+            repairWork += count;
+
+            // Re-seed every affected node from its best neighbour outside the subtree
+            for (int i = 0; i < count; i++) {
+                int x = affected[i];
+                if (graph.node(x) == null) continue; // node is being removed
+                int best = -1;
+                double bestDist = Double.POSITIVE_INFINITY;
+                for (int e = 0, d = graph.degree(x); e < d; e++) {
+                    int y = graph.neighbor(x, e);
+                    if (marks[y] == mark) continue;
+                    int in = graph.indexOfEdge(y, x);
+                    if (in < 0) continue;
+                    double alt = distance(y) + cost(y, in);
+                    if (alt < bestDist) { bestDist = alt; best = y; }
+                }
+                if (best >= 0) {
+                    relabel(x, best, bestDist);
+                    queue.insertOrDecrease(x, bestDist);
+                }
+            }
+            settle(true);
+        }
+
+        /**
+         * Dijkstra from the queued nodes. When restricted only the marked
+         * subtree can change (everything else is known to be optimal).
+         */
+        private void settle(boolean restricted) {
+            while (!queue.isEmpty()) {
+                int x = queue.poll();
+                repairWork++;
+
+                if (graph.node(x) == null) continue;
+                for (int e = 0, d = graph.degree(x); e < d; e++) {
+                    int z = graph.neighbor(x, e);
+                    if (restricted && marks[z] != mark) continue;
+                    double alt = dist[x] + cost(x, e);
+                    if (alt < dist[z]) {
+                        relabel(z, x, alt);
+                        queue.insertOrDecrease(z, alt);
+                    }
+                }
+            }
+        }
+
+        // Gives a node a new distance and tree parent
+        private void relabel(int n, int newParent, double d) {
+            if (n == source) return;
+            unlink(n);
+            dist[n] = d;
+            link(newParent, n);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.routingsim.routing;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.Edge;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphListener;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.model.NodeIndex;
+
+/**
+ * Answers {@link Graph#findWeightedShortestPath} queries from a
+ * {@link ContractionHierarchy} of the graph, kept in step with its edits:
+ * <ul>
+ *   <li>Weight changes ({@link Edge#setWeight}) and removed edges only
+ *       change edge weights in the hierarchy; the next query runs one
+ *       customization pass over them.</li>
+ *   <li>An edge the hierarchy has no arc for (new links, links to new
+ *       nodes) makes it stale: queries then fall back to the graph's own
+ *       search until {@link #rebuild()}.</li>
+ * </ul>
+ * A hierarchy saved earlier with {@link #save} or by BatchMain
+ * --build-hierarchy can be handed to the constructor instead of building
+ * one; it is matched to the graph by node ID and customized with the
+ * graph's current weights, or rebuilt if the topology no longer fits it.
+ * The app itself does not route through a hierarchy; this is for code
+ * that embeds the library and runs many weighted queries.
+ *
+ * The instance registers itself as a {@link GraphListener}; call
+ * {@link #close()} to detach it. Like the Graph it is not thread-safe.
+ */
+public final class HierarchyRouter implements GraphListener, AutoCloseable {
+
+    private final Graph graph;
+    private ContractionHierarchy hierarchy;
+
+    // Node of every vertex (null once removed), and the vertex of every node handle (-1 = none)
+    private Node[] nodes;
+    private int[] vertices;
+
+    // True once an edit no longer fits the hierarchy
+    private boolean stale;
+
+    // Builds a hierarchy of the graph's current topology
+    public HierarchyRouter(Graph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Starts from a loaded hierarchy, or builds one if it is null or does
+     * not fit the graph's topology.
+     */
+    public HierarchyRouter(Graph graph, ContractionHierarchy loaded) {
+        this.graph = graph;
+        if (loaded == null || !bind(loaded)) rebuild();
+        graph.addGraphListener(this);
+    }
+
+    // Builds a new hierarchy of the graph's current topology
+    public void rebuild() {
+        ContractionHierarchy built = ContractionHierarchy.build(graph.snapshot());
+        if (!bind(built)) throw new IllegalStateException("hierarchy does not fit the graph it was built from");
+    }
+
+    // Returns the hierarchy in use
+    public ContractionHierarchy hierarchy() {
+        return hierarchy;
+    }
+
+    // Returns true if the topology changed in a way that needs rebuild()
+    public boolean isStale() {
+        return stale;
+    }
+
+    // Writes the hierarchy with the current weights, to be loaded by ContractionHierarchy.read
+    public void save(Path file) throws IOException {
+        hierarchy.write(file);
+    }
+
+    /**
+     * Returns the lowest-weight path from source to destination, or null if
+     * there is none; same result as {@link Graph#findWeightedShortestPath}.
+     */
+    public List<Node> findPath(Node source, Node destination) {
+        int s = vertex(source), t = vertex(destination);
+        if (stale || s < 0 || t < 0) return graph.findWeightedShortestPath(source, destination);
+        int[] path = hierarchy.path(s, t);
+        if (path == null) return null;
+        List<Node> route = new ArrayList<>(path.length);
+        for (int v : path) route.add(nodes[v]);
+        return route;
+    }
+
+    // Returns the lowest total weight from source to destination, or infinity if unreachable
+    public double distance(Node source, Node destination) {
+        int s = vertex(source), t = vertex(destination);
+        if (stale || s < 0 || t < 0) {
+            List<Node> path = graph.findWeightedShortestPath(source, destination);
+            if (path == null) return Double.POSITIVE_INFINITY;
+            double cost = 0;
+            for (int i = 0; i + 1 < path.size(); i++) cost += graph.getEdge(path.get(i), path.get(i + 1)).getWeight();
+            return cost;
+        }
+        return hierarchy.distance(s, t);
+    }
+
+    // Detaches from the graph
+    @Override
+    public void close() {
+        graph.removeGraphListener(this);
+    }
+
+    /**
+     * Maps the graph's nodes to the hierarchy's vertices by ID and sets all
+     * its weights from the graph's edges. Returns false if an edge has no
+     * arc or a node with edges no vertex.
+     */
+    private boolean bind(ContractionHierarchy ch) {
+        GraphSnapshot snapshot = graph.snapshot();
+        CsrGraph csr = snapshot.csr();
+        NodeIndex index = snapshot.index();
+        int[] vertex = new int[csr.nodeCount()];
+        Node[] byVertex = new Node[ch.vertexCount()];
+        int[] byHandle = new int[graph.handleLimit()];
+        Arrays.fill(byHandle, -1);
+        for (int i = 0; i < vertex.length; i++) {
+            Node node = index.nodeAt(i);
+            int v = ch.vertex(node.getId());
+            if (v < 0 && csr.begin(i) < csr.end(i)) return false;
+            vertex[i] = v;
+            if (v < 0) continue;
+            byVertex[v] = node;
+            byHandle[node.getHandle()] = v;
+        }
+        ch.clearWeights();
+        for (int u = 0; u < vertex.length; u++) {
+            for (int a = csr.begin(u), end = csr.end(u); a < end; a++) {
+                if (!ch.setWeight(vertex[u], vertex[csr.target(a)], csr.weight(a))) return false;
+            }
+        }
+        ch.customize();
+        hierarchy = ch;
+        nodes = byVertex;
+        vertices = byHandle;
+        stale = false;
+        return true;
+    }
+
+    // Returns the hierarchy vertex of a node, or -1 if it has none
+    private int vertex(Node n) {
+        int h = n == null ? -1 : n.getHandle();
+        int v = h >= 0 && h < vertices.length ? vertices[h] : -1;
+        // Handles of removed nodes are reused by new ones
+        return v >= 0 && nodes[v] == n ? v : -1;
+    }
+
+    // Sets the weight of the edge a -> b in the hierarchy, or marks it stale if it has no arc for it
+    private void setWeight(Node a, Node b, double weight) {
+        if (stale) return;
+        int u = vertex(a), v = vertex(b);
+        if (u < 0 || v < 0 || !hierarchy.setWeight(u, v, weight)) stale = true;
+    }
+
+    // ----- GraphListener -----
+
+    @Override
+    public void nodeRemoved(Node n) {
+        // Its edges were reported removed already
+        int v = vertex(n);
+        if (v >= 0) nodes[v] = null;
+    }
+
+    @Override
+    public void edgeAdded(Node a, Node b, double weight) {
+        setWeight(a, b, weight);
+        setWeight(b, a, weight);
+    }
+
+    @Override
+    public void edgeRemoved(Node a, Node b, double weight) {
+        setWeight(a, b, Double.POSITIVE_INFINITY);
+        setWeight(b, a, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public void edgeWeightChanged(Edge e, double oldWeight) {
+        setWeight(e.getFrom(), e.getTo(), e.getWeight());
+    }
+}
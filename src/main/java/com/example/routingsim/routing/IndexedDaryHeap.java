@@ -0,0 +1,158 @@
+package com.example.routingsim.routing;
+
+import java.util.Arrays;
+
+/**
+ * Indexed d-ary min-heap over the int keys 0..capacity-1 with double priorities.
+ * Every key is in the heap at most once and its position is tracked, so
+ * decreaseKey is a true O(log n) sift-up instead of a remove + re-insert.
+ * A higher arity (4 by default) makes the tree shallower and sift-downs
+ * touch fewer cache lines, which pays off for decrease-key heavy workloads.
+ */
+public final class IndexedDaryHeap {
+
+    // Number of children per heap node
+    private final int arity;
+
+    // heap[i] = key stored at heap position i
+    private final int[] heap;
+
+    // pos[key] = heap position of key, or -1 if it is not in the heap
+    private final int[] pos;
+
+    // prio[key] = current priority of key (only meaningful while it is queued)
+    private final double[] prio;
+
+    private int size;
+
+    // Largest size since the last resetPeak()
+    private int peak;
+
+    /**
+     * Creates an empty heap.
+     * @param capacity Number of distinct keys (keys are 0..capacity-1)
+     * @param arity    Children per node, at least 2
+     */
+    public IndexedDaryHeap(int capacity, int arity) {
+        if (arity < 2) throw new IllegalArgumentException("arity must be >= 2");
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.pos = new int[capacity];
+        this.prio = new double[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    // Returns true if the heap holds no keys
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Returns the number of queued keys
+    public int size() {
+        return size;
+    }
+
+    // Returns true if the key is currently queued
+    public boolean contains(int key) {
+        return pos[key] >= 0;
+    }
+
+    // Returns the smallest priority in the heap (heap must not be empty)
+    public double peekPriority() {
+        return prio[heap[0]];
+    }
+
+    // Returns the priority of a queued key
+    public double priority(int key) {
+        return prio[key];
+    }
+
+    /**
+     * Inserts a key, or lowers its priority if it is already queued.
+     * A priority that is not lower than the current one is ignored.
+     */
+    public void insertOrDecrease(int key, double priority) {
+        int i = pos[key];
+        if (i < 0) {
+            i = size++;
+            heap[i] = key;
+            pos[key] = i;
+            if (size > peak) peak = size;
+        } else if (priority >= prio[key]) {
+            return;
+        }
+        prio[key] = priority;
+        siftUp(i);
+    }
+
+    /**
+     * Removes and returns the key with the smallest priority.
+     * The heap must not be empty.
+     */
+    public int poll() {
+        int top = heap[0];
+        pos[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            pos[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    // Returns the largest number of queued keys since the last resetPeak()
+    public int peak() {
+        return peak;
+    }
+
+    public void resetPeak() {
+        peak = size;
+    }
+
+    // Empties the heap; costs O(size), not O(capacity)
+    public void clear() {
+        for (int i = 0; i < size; i++) pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        int key = heap[i];
+        double p = prio[key];
+        while (i > 0) {
+            int parent = (i - 1) / arity;
+            int pk = heap[parent];
+            if (prio[pk] <= p) break;
+            heap[i] = pk;
+            pos[pk] = i;
+            i = parent;
+        }
+        heap[i] = key;
+        pos[key] = i;
+    }
+
+    private void siftDown(int i) {
+        int key = heap[i];
+        double p = prio[key];
+        while (true) {
+            int first = i * arity + 1;
+            if (first >= size) break;
+
+            // Find the smallest child
+            int best = first;
+            double bestP = prio[heap[first]];
+            for (int c = first + 1, end = Math.min(first + arity, size); c < end; c++) {
+                double cp = prio[heap[c]];
+                if (cp < bestP) { best = c; bestP = cp; }
+            }
+            if (bestP >= p) break;
+
+            int bk = heap[best];
+            heap[i] = bk;
+            pos[bk] = i;
+            i = best;
+        }
+        heap[i] = key;
+        pos[key] = i;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.routingsim.routing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+
+/**
+ * The k shortest loopless routes between two nodes, by Yen's algorithm:
+ * every further route leaves one of the routes found so far at some spur
+ * node, after which it may not reuse the nodes before the spur nor the
+ * next hops already taken from there by routes with the same prefix.
+ *
+ * Two things keep the spur searches cheap:
+ * <ul>
+ * <li>One reverse search from the destination, stopped once the source is
+ *     settled at distance R, gives every node v the lower bound
+ *     min(dist(v, destination), R) on its remaining cost. Removing nodes
+ *     and edges only makes routes longer, so it stays a consistent A*
+ *     heuristic for all spur searches, which then head straight for the
+ *     destination.</li>
+ * <li>If the tree path of that reverse search from the spur node avoids
+ *     all removed nodes and next hops, it is the spur route and no search
+ *     runs at all.</li>
+ * </ul>
+ * Spurs are only taken from the point where a route deviated from its
+ * parent onwards (Lawler), since the earlier ones were explored with the
+ * parent already.
+ *
+ * Searches run in the caller's {@link SearchWorkspace} and a second
+ * per-thread workspace, so repeated queries allocate only the routes.
+ */
+public final class KShortestPaths {
+
+    private static final Comparator<Route> BY_COST =
+            Comparator.comparingDouble(Route::cost).thenComparingInt(Route::length);
+
+    private KShortestPaths() {
+    }
+
+    /**
+     * Returns up to k loopless routes from source to destination in order of
+     * increasing cost (ties by hop count); fewer if there are no more, none
+     * if the destination is unreachable.
+     * @param metric Hop metrics count hops, all others edge weights
+     */
+    public static List<Route> find(GraphSnapshot snapshot, int source, int destination, int k, Metric metric) {
+        List<Route> found = new ArrayList<>();
+        if (k <= 0) return found;
+        if (source == destination) {
+            found.add(new Route(new int[] {source}, 0, 0));
+            return found;
+        }
+        CsrGraph graph = snapshot.csr();
+        boolean weighted = metric.isWeighted();
+
+        // Reverse tree towards the destination; tree.parent(v) is v's next hop
+        SearchWorkspace tree = SearchWorkspace.current();
+        boolean reachable = weighted
+                ? tree.dijkstra(snapshot.reverse(), destination, source, DijkstraEngine.HeapStrategy.INDEXED)
+                : tree.bfs(snapshot.reverse(), destination, source);
+        if (!reachable) return found;
+        double radius = tree.distance(source);
+
+        PathScratch scratch = PathScratch.current();
+        scratch.begin(graph.nodeCount());
+        int[] first = treePath(tree, source, destination, scratch, -1, radius);
+        found.add(new Route(first, PathScratch.pathCost(graph, first, weighted), 0));
+
+        PriorityQueue<Route> candidates = new PriorityQueue<>(BY_COST);
+        Set<Route> seen = new HashSet<>(found);
+        while (found.size() < k) {
+            Route last = found.get(found.size() - 1);
+            int[] p = last.array();
+            double rootCost = 0;
+            for (int j = 0; j < p.length - 1; j++) {
+                if (j > 0) rootCost += PathScratch.arcCost(graph, p[j - 1], p[j], weighted);
+                if (j < last.deviation) continue;
+
+                // Remove the root's nodes and the next hops of routes sharing the root
+                scratch.clearMarks();
+                for (int i = 0; i < j; i++) scratch.mark(p[i], 0);
+                for (Route r : found) {
+                    if (r.sharesPrefix(last, j + 1) && r.length() > j + 1) scratch.mark2(r.node(j + 1));
+                }
+
+                int[] spur = treePath(tree, p[j], destination, scratch, p[j], radius);
+                if (spur == null) {
+                    long start = Metrics.start();
+                    spur = spurSearch(graph, tree, radius, scratch, p[j], destination, weighted);
+                    SearchMetrics.KSP_SPUR.record(start, scratch.search, spur != null);
+                }
+                if (spur == null) continue;
+
+                int[] nodes = new int[j + spur.length];
+                System.arraycopy(p, 0, nodes, 0, j);
+                System.arraycopy(spur, 0, nodes, j, spur.length);
+                Route candidate = new Route(nodes, rootCost + PathScratch.pathCost(graph, spur, weighted), j);
+                if (seen.add(candidate)) candidates.add(candidate);
+            }
+            Route next = candidates.poll();
+            if (next == null) break;
+            found.add(next);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the reverse tree's path from v to the destination if it is a
+     * shortest one (v's distance is at most the radius) and avoids the
+     * marked nodes and, leaving spur, the mark2 next hops; else null.
+     */
+    private static int[] treePath(SearchWorkspace tree, int v, int destination,
+                                  PathScratch scratch, int spur, double radius) {
+        if (!(tree.distance(v) <= radius)) return null;
+        int length = 0;
+        for (int step = v; step >= 0; step = tree.parent(step)) {
+            if (scratch.marked(step)) return null;
+            length++;
+        }
+        if (spur >= 0 && length > 1 && scratch.marked2(tree.parent(spur))) return null;
+
+        int[] path = new int[length];
+        int i = 0;
+        for (int step = v; step >= 0; step = tree.parent(step)) path[i++] = step;
+        return path[length - 1] == destination ? path : null;
+    }
+
+    /**
+     * A* from spur to destination around the marked nodes and next hops,
+     * guided by the reverse tree distances; returns the route or null.
+     */
+    private static int[] spurSearch(CsrGraph graph, SearchWorkspace tree, double radius, PathScratch scratch,
+                                    int spur, int destination, boolean weighted) {
+        SearchWorkspace ws = scratch.search;
+        ws.begin(graph.nodeCount());
+        IndexedDaryHeap heap = ws.indexed;
+        heap.clear();
+        ws.reach(spur, 0.0, -1);
+        heap.insertOrDecrease(spur, bound(tree, radius, spur));
+
+        int[] stamp = ws.stamp;
+        double[] dist = ws.dist;
+        int generation = ws.generation;
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            ws.settled++;
+            if (u == destination) {
+                heap.clear();
+                return ws.path(destination);
+            }
+
+            double du = dist[u];
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                if (scratch.marked(v) || (u == spur && scratch.marked2(v))) continue;
+                double alt = du + (weighted ? graph.weight(a) : 1);
+                if (stamp[v] != generation || alt < dist[v]) {
+                    ws.reach(v, alt, u);
+                    heap.insertOrDecrease(v, alt + bound(tree, radius, v));
+                    ws.relaxed++;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Lower bound on the remaining cost from v: its tree distance, capped at the radius
+    private static double bound(SearchWorkspace tree, double radius, int v) {
+        return Math.min(tree.distance(v), radius);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.routingsim.routing;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (priority, value) pairs stored in primitive arrays.
+ * It has no decrease-key: callers push a fresh entry whenever a priority
+ * improves and skip the outdated ("stale") entries when they are polled.
+ * Used as the lazy-deletion alternative to {@link IndexedDaryHeap}.
+ */
+public final class LazyMinHeap {
+
+    private double[] prio;
+    private int[] value;
+    private int size;
+
+    // Largest size since the last resetPeak()
+    private int peak;
+
+    // Creates an empty heap with room for the given number of entries
+    public LazyMinHeap(int initialCapacity) {
+        int cap = Math.max(initialCapacity, 16);
+        prio = new double[cap];
+        value = new int[cap];
+    }
+
+    // Returns true if the heap holds no entries
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Returns the number of entries, stale ones included
+    public int size() {
+        return size;
+    }
+
+    // Returns the smallest priority (heap must not be empty)
+    public double topPriority() {
+        return prio[0];
+    }
+
+    // Returns the value paired with the smallest priority (heap must not be empty)
+    public int topValue() {
+        return value[0];
+    }
+
+    // Adds an entry, growing the arrays when needed
+    public void push(double p, int v) {
+        if (size == prio.length) {
+            prio = Arrays.copyOf(prio, size * 2);
+            value = Arrays.copyOf(value, size * 2);
+        }
+        int i = size++;
+        if (size > peak) peak = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (prio[parent] <= p) break;
+            prio[i] = prio[parent];
+            value[i] = value[parent];
+            i = parent;
+        }
+        prio[i] = p;
+        value[i] = v;
+    }
+
+    // Removes the smallest entry (heap must not be empty)
+    public void pop() {
+        int n = --size;
+        if (n == 0) return;
+        double p = prio[n];
+        int v = value[n];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= n) break;
+            if (c + 1 < n && prio[c + 1] < prio[c]) c++;
+            if (prio[c] >= p) break;
+            prio[i] = prio[c];
+            value[i] = value[c];
+            i = c;
+        }
+        prio[i] = p;
+        value[i] = v;
+    }
+
+    // Returns the largest number of entries since the last resetPeak()
+    public int peak() {
+        return peak;
+    }
+
+    public void resetPeak() {
+        peak = size;
+    }
+
+    // Removes all entries but keeps the allocated arrays
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.routingsim.routing;
+
+/**
+ * The routing metrics a route query can ask for.
+ */
+public enum Metric {
+    /** Fewest hops (BFS), the classic AODV metric. */
+    HOP,
+    /** Lowest total edge weight (Dijkstra). */
+    WEIGHT,
+    /** Lowest total edge weight, A* guided by straight-line distance to the target. */
+    ASTAR,
+    /** Fewest hops, BFS from both ends until the frontiers meet. */
+    BIDIRECTIONAL_HOP,
+    /** Lowest total edge weight, Dijkstra from both ends until the searches meet. */
+    BIDIRECTIONAL_WEIGHT;
+
+    /**
+     * Returns the plain metric this one optimizes (HOP or WEIGHT).
+     * Goal-directed variants find routes of the same cost as their base
+     * metric; they only settle fewer nodes doing so.
+     */
+    public Metric base() {
+        switch (this) {
+            case HOP:
+            case BIDIRECTIONAL_HOP:
+                return HOP;
+            default:
+                return WEIGHT;
+        }
+    }
+
+    // Returns true if routes are measured in edge weight rather than hops
+    public boolean isWeighted() {
+        return base() == WEIGHT;
+    }
+
+    /**
+     * Parses a metric name as written in query files ("hop", "weight",
+     * "astar", "bidirectional_hop", ...), ignoring case.
+     * @throws IllegalArgumentException for unknown names
+     */
+    public static Metric parse(String name) {
+        for (Metric m : values()) {
+            if (m.name().equalsIgnoreCase(name)) return m;
+        }
+        throw new IllegalArgumentException("Unknown metric: " + name);
+    }
+}
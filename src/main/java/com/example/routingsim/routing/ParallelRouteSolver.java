@@ -0,0 +1,153 @@
+package com.example.routingsim.routing;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.example.routingsim.model.CsrGraph;
+import com.example.routingsim.model.GraphSnapshot;
+import com.example.routingsim.model.GraphVersion;
+
+/**
+ * Answers many independent route queries against one immutable
+ * {@link GraphSnapshot} using all cores.
+ *
+ * Queries are bucketed by source (a counting sort, no boxing). Each bucket
+ * is one unit of work on a ForkJoinPool: when several queries share a
+ * source and metric, a single full shortest-path tree answers all of them
+ * (goal-directed metrics fall back to the tree of the metric they optimize);
+ * a lone query runs a point-to-point search that stops at its destination.
+ * Every worker thread searches in its own {@link SearchWorkspace} and writes
+ * only to its own result slots, so workers never contend with each other.
+ */
+public final class ParallelRouteSolver implements AutoCloseable {
+
+    private final GraphSnapshot snapshot;
+    private final ForkJoinPool pool;
+
+    // Whether result paths are materialized (costs and timings always are)
+    private final boolean keepPaths;
+
+    /**
+     * Creates a solver.
+     * @param snapshot    Topology to route on; never modified
+     * @param parallelism Number of worker threads
+     * @param keepPaths   Whether to store the node index path of every query
+     */
+    public ParallelRouteSolver(GraphSnapshot snapshot, int parallelism, boolean keepPaths) {
+        this.snapshot = snapshot;
+        this.pool = new ForkJoinPool(parallelism);
+        this.keepPaths = keepPaths;
+    }
+
+    /**
+     * Creates a solver on a published version of a graph, which may go on
+     * being edited while the solver runs. Node indices are those of
+     * {@link GraphVersion#snapshot()}.
+     * @param parallelism Number of worker threads
+     * @param keepPaths   Whether to store the node index path of every query
+     */
+    public ParallelRouteSolver(GraphVersion topology, int parallelism, boolean keepPaths) {
+        this(topology.snapshot(), parallelism, keepPaths);
+    }
+
+    /** Results of one {@link #solve} call, aligned with the query arrays. */
+    public static final class Results {
+        /** Route cost (hops or weight), infinity if unreachable. */
+        public final double[] cost;
+        /** Node index path per query, null if unreachable or paths are not kept. */
+        public final int[][] path;
+        /** Time of the search that answered each query, in nanoseconds. */
+        public final long[] nanos;
+
+        Results(int count, boolean keepPaths) {
+            cost = new double[count];
+            path = keepPaths ? new int[count][] : null;
+            nanos = new long[count];
+        }
+    }
+
+    /**
+     * Solves the first count queries in parallel.
+     * @param sources      Source node index per query
+     * @param destinations Destination node index per query
+     * @param metrics      Metric per query
+     * @param count        Number of queries to solve
+     */
+    public Results solve(int[] sources, int[] destinations, Metric[] metrics, int count) {
+        int n = snapshot.csr().nodeCount();
+
+        // Counting sort of query indices by source node
+        int[] start = new int[n + 1];
+        for (int q = 0; q < count; q++) start[sources[q] + 1]++;
+        for (int i = 0; i < n; i++) start[i + 1] += start[i];
+        int[] order = new int[count];
+        int[] fill = start.clone();
+        for (int q = 0; q < count; q++) order[fill[sources[q]]++] = q;
+
+        // Sources that actually have queries become the units of work
+        int groups = 0;
+        int[] groupSource = new int[Math.min(n, count)];
+        for (int s = 0; s < n; s++) {
+            if (start[s + 1] > start[s]) groupSource[groups++] = s;
+        }
+
+        Results results = new Results(count, keepPaths);
+        int groupCount = groups;
+        pool.submit(() -> IntStream.range(0, groupCount).parallel().forEach(g -> {
+            int s = groupSource[g];
+            solveGroup(s, order, start[s], start[s + 1], destinations, metrics, results);
+        })).join();
+        return results;
+    }
+
+    // Solves all queries of one source, one search per metric where possible
+    private void solveGroup(int source, int[] order, int from, int to,
+                            int[] destinations, Metric[] metrics, Results results) {
+        SearchWorkspace ws = SearchWorkspace.current();
+        for (Metric metric : Metric.values()) {
+            int matching = 0, single = -1;
+            for (int i = from; i < to; i++) {
+                if (metrics[order[i]] == metric) { matching++; single = order[i]; }
+            }
+            if (matching == 0) continue;
+
+            // One query: point-to-point search. Several: build the whole tree of the base metric once.
+            long t0 = System.nanoTime();
+            if (matching == 1) {
+                snapshot.route(ws, source, destinations[single], metric);
+            } else {
+                fullTree(ws, metric.base(), source);
+            }
+            long nanos = System.nanoTime() - t0;
+
+            for (int i = from; i < to; i++) {
+                int q = order[i];
+                if (metrics[q] != metric) continue;
+                int t = destinations[q];
+                results.cost[q] = ws.distance(t);
+                results.nanos[q] = nanos;
+                if (keepPaths) results.path[q] = ws.path(t);
+            }
+        }
+    }
+
+    private void fullTree(SearchWorkspace ws, Metric base, int source) {
+        CsrGraph csr = snapshot.csr();
+        if (base == Metric.HOP) {
+            ws.bfs(csr, source, -1);
+        } else {
+            ws.dijkstra(csr, source, -1, DijkstraEngine.HeapStrategy.INDEXED);
+        }
+    }
+
+    // Returns the snapshot this solver routes on
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // Stops the worker threads
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
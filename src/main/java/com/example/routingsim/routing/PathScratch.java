@@ -0,0 +1,89 @@
+package com.example.routingsim.routing;
+
+import java.util.Arrays;
+
+import com.example.routingsim.model.CsrGraph;
+
+/**
+ * Per-thread scratch state of the multipath searches: a second
+ * {@link SearchWorkspace} for searches that run while the first one still
+ * holds a shortest-path tree, and two sets of node marks with an int value
+ * each, cleared in O(1) by the same generation stamping.
+ */
+final class PathScratch {
+
+    private static final ThreadLocal<PathScratch> PER_THREAD =
+            ThreadLocal.withInitial(PathScratch::new);
+
+    // Workspace of the searches that run next to SearchWorkspace.current()
+    final SearchWorkspace search = new SearchWorkspace();
+
+    // mark[v] == generation marks v, with value[v]; mark2 is a second, independent set
+    int[] mark = new int[0];
+    int[] value = new int[0];
+    int[] mark2 = new int[0];
+    int generation;
+
+    // Returns the scratch state owned by the calling thread
+    static PathScratch current() {
+        return PER_THREAD.get();
+    }
+
+    // Grows the marks for n nodes and clears them
+    void begin(int n) {
+        if (mark.length < n) {
+            int cap = Math.max(n, mark.length + (mark.length >> 1));
+            mark = new int[cap];
+            value = new int[cap];
+            mark2 = new int[cap];
+            generation = 0;
+        }
+        clearMarks();
+    }
+
+    // Unmarks every node
+    void clearMarks() {
+        if (++generation == 0) {
+            Arrays.fill(mark, 0);
+            Arrays.fill(mark2, 0);
+            generation = 1;
+        }
+    }
+
+    boolean marked(int v) {
+        return mark[v] == generation;
+    }
+
+    boolean marked2(int v) {
+        return mark2[v] == generation;
+    }
+
+    void mark(int v, int val) {
+        mark[v] = generation;
+        value[v] = val;
+    }
+
+    void mark2(int v) {
+        mark2[v] = generation;
+    }
+
+    /**
+     * Returns the cost of the cheapest arc from u to v, 1 for hop metrics,
+     * or infinity if there is none. Routes are priced arc by arc with it,
+     * so parallel arcs count with their lowest weight as in the searches.
+     */
+    static double arcCost(CsrGraph graph, int u, int v, boolean weighted) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+            if (graph.target(a) == v) best = Math.min(best, weighted ? graph.weight(a) : 1);
+        }
+        return best;
+    }
+
+    // Returns the cost of a node path priced by arcCost
+    static double pathCost(CsrGraph graph, int[] path, boolean weighted) {
+        double cost = 0;
+        for (int i = 0; i + 1 < path.length; i++) cost += arcCost(graph, path[i], path[i + 1], weighted);
+        return cost;
+    }
+}
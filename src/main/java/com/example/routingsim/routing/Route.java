@@ -0,0 +1,75 @@
+package com.example.routingsim.routing;
+
+import java.util.Arrays;
+
+/**
+ * A loopless route between two node indices of a snapshot with its cost,
+ * as returned by {@link KShortestPaths} and {@link DisjointPaths}. The
+ * cost is the sum of the edge weights, or the hop count for hop metrics.
+ * Two routes are equal if they visit the same nodes in the same order.
+ */
+public final class Route {
+
+    private final int[] nodes;
+    private final double cost;
+
+    // Position at which the route leaves the route it was derived from (Yen's spur node)
+    final int deviation;
+
+    Route(int[] nodes, double cost, int deviation) {
+        this.nodes = nodes;
+        this.cost = cost;
+        this.deviation = deviation;
+    }
+
+    // Returns a copy of the node indices from source to destination
+    public int[] nodes() {
+        return nodes.clone();
+    }
+
+    // Returns the i-th node index of the route
+    public int node(int i) {
+        return nodes[i];
+    }
+
+    // Returns the number of nodes, source and destination included
+    public int length() {
+        return nodes.length;
+    }
+
+    // Returns the number of edges
+    public int hops() {
+        return nodes.length - 1;
+    }
+
+    // Returns the total weight (or hop count) of the route
+    public double cost() {
+        return cost;
+    }
+
+    // Returns true if the first count nodes of both routes are equal
+    boolean sharesPrefix(Route other, int count) {
+        return nodes.length >= count && other.nodes.length >= count
+            && Arrays.equals(nodes, 0, count, other.nodes, 0, count);
+    }
+
+    // Node array without copying, for the path algorithms
+    int[] array() {
+        return nodes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Route && Arrays.equals(nodes, ((Route) o).nodes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(nodes);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(nodes) + " cost " + cost;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.routingsim.routing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.example.routingsim.metrics.Counter;
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphVersion;
+import com.example.routingsim.model.Node;
+
+/**
+ * Bounded route table in front of the graph's path searches, similar in
+ * spirit to an AODV route table. Entries are keyed by (source, destination,
+ * metric) and evicted least-recently-used once the capacity is reached.
+ *
+ * Instead of per-route sequence numbers, the whole table is stamped with
+ * the version of the topology it was filled from. Routes are searched on
+ * the graph's latest published {@link GraphVersion} ({@link Graph#current()}),
+ * and a lookup that sees a newer version drops every entry first, so a
+ * cached route is never older than the topology it is read with.
+ *
+ * Thread-safe: any thread may look up routes while the graph is being
+ * edited. Only the table itself is locked; searches run outside the lock
+ * on the immutable version.
+ */
+public final class RouteCache {
+
+    // Marker stored for pairs with no route, so misses are cached too
+    private static final List<Node> NO_ROUTE = List.of();
+
+    // Totals over all caches, recorded only while Metrics is enabled
+    private static final Counter HITS = Metrics.counter("routeCache.hit");
+    private static final Counter MISSES = Metrics.counter("routeCache.miss");
+    private static final Counter INVALIDATIONS = Metrics.counter("routeCache.invalidation");
+
+    private final Graph graph;
+    private final int capacity;
+    private final Map<Key, List<Node>> entries;
+
+    // Topology version the current entries were computed at; guarded by entries, like everything below
+    private long version;
+
+    // Statistics
+    private long hits, misses, evictions, invalidations;
+
+    /**
+     * Creates a cache for a graph.
+     * @param graph    Graph whose routes are cached
+     * @param capacity Maximum number of cached routes
+     */
+    public RouteCache(Graph graph, int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        this.graph = graph;
+        this.capacity = capacity;
+        this.version = graph.current().version();
+        // Access-ordered, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<Node>> eldest) {
+                if (size() > RouteCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the route for a query, from the cache when the graph has not
+     * changed since it was computed, otherwise by searching the graph.
+     * @return Unmodifiable path from source to destination, or null if unreachable
+     */
+    public List<Node> findPath(Node source, Node destination, Metric metric) {
+        GraphVersion topology = graph.current();
+        Key key = new Key(source, destination, metric);
+        synchronized (entries) {
+            if (topology.version() > version) {
+                if (!entries.isEmpty()) {
+                    invalidations++;
+                    if (Metrics.enabled()) INVALIDATIONS.increment();
+                }
+                entries.clear();
+                version = topology.version();
+            }
+            List<Node> path = topology.version() == version ? entries.get(key) : null;
+            if (path != null) {
+                hits++;
+                if (Metrics.enabled()) HITS.increment();
+                return path == NO_ROUTE ? null : path;
+            }
+            misses++;
+            if (Metrics.enabled()) MISSES.increment();
+        }
+
+        List<Node> path = topology.findPath(source, destination, metric);
+        path = path == null ? NO_ROUTE : Collections.unmodifiableList(path);
+        synchronized (entries) {
+            // A route of a version another thread has already moved past is not kept
+            if (topology.version() == version) entries.put(key, path);
+        }
+        return path == NO_ROUTE ? null : path;
+    }
+
+    // Drops all cached routes
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    // Returns the number of cached routes
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Returns the number of lookups answered from the cache
+    public long getHits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    // Returns the number of lookups that had to search the graph
+    public long getMisses() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    // Returns the number of routes dropped because the cache was full
+    public long getEvictions() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    // Returns how many times the cache was flushed because the graph changed
+    public long getInvalidations() {
+        synchronized (entries) {
+            return invalidations;
+        }
+    }
+
+    // Returns a short statistics line for logs
+    public String stats() {
+        synchronized (entries) {
+            return "hits=" + hits + " misses=" + misses + " evictions=" + evictions
+                    + " invalidations=" + invalidations + " size=" + entries.size();
+        }
+    }
+
+    /** (source, destination, metric) lookup key. */
+    private static final class Key {
+        private final Node source, destination;
+        private final Metric metric;
+
+        Key(Node source, Node destination, Metric metric) {
+            this.source = source;
+            this.destination = destination;
+            this.metric = metric;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return source == k.source && destination == k.destination && metric == k.metric;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, destination, metric);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.routingsim.routing;
+
+import com.example.routingsim.metrics.Counter;
+import com.example.routingsim.metrics.Histogram;
+import com.example.routingsim.metrics.Metrics;
+
+/**
+ * Metrics of one search algorithm, registered as "search.&lt;algorithm&gt;.*":
+ * calls, unreachable results, latency, nodes settled, edges relaxed and
+ * the peak priority queue size (heap searches only). The searches read
+ * their work counters from the {@link SearchWorkspace} after the fact, so
+ * the inner loops are not touched.
+ */
+final class SearchMetrics {
+
+    static final SearchMetrics BFS = new SearchMetrics("bfs");
+    static final SearchMetrics DIJKSTRA = new SearchMetrics("dijkstra");
+    static final SearchMetrics DIJKSTRA_LAZY = new SearchMetrics("dijkstra_lazy");
+    static final SearchMetrics ASTAR = new SearchMetrics("astar");
+    static final SearchMetrics BIDIRECTIONAL_BFS = new SearchMetrics("bidirectional_bfs");
+    static final SearchMetrics BIDIRECTIONAL_DIJKSTRA = new SearchMetrics("bidirectional_dijkstra");
+    static final SearchMetrics KSP_SPUR = new SearchMetrics("ksp_spur");
+    static final SearchMetrics DISJOINT_RESIDUAL = new SearchMetrics("disjoint_residual");
+    static final SearchMetrics HIERARCHY = new SearchMetrics("hierarchy");
+
+    private final Counter calls, unreachable, relaxed;
+    private final Histogram latency, settled, queue;
+
+    private SearchMetrics(String algorithm) {
+        String prefix = "search." + algorithm + ".";
+        calls = Metrics.counter(prefix + "calls");
+        unreachable = Metrics.counter(prefix + "unreachable");
+        relaxed = Metrics.counter(prefix + "relaxed");
+        latency = Metrics.latency(prefix + "latency");
+        settled = Metrics.histogram(prefix + "settled");
+        queue = Metrics.histogram(prefix + "queuePeak");
+    }
+
+    /**
+     * Records a finished search that started at a {@link Metrics#start()}
+     * reading; does nothing if metrics were off at the start.
+     */
+    void record(long start, SearchWorkspace ws, boolean found) {
+        if (start == Metrics.OFF) return;
+        latency.recordSince(start);
+        calls.increment();
+        if (!found) unreachable.increment();
+        settled.record(ws.settled);
+        relaxed.add(ws.relaxed);
+        int peak = ws.queuePeak();
+        if (peak > 0) queue.record(peak);
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.routingsim.routing;
+
+import java.util.Arrays;
+
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.CsrGraph;
+
+/**
+ * Reusable scratch state for BFS and Dijkstra over a {@link CsrGraph}.
+ * All per-node state lives in primitive arrays that are allocated once and
+ * only grown when a larger graph comes along. Instead of clearing them
+ * before each query, every node carries a generation stamp: a node whose
+ * stamp differs from the current generation counts as unvisited with an
+ * infinite distance, so starting a new query is a single increment.
+ *
+ * A workspace is not thread-safe. {@link #current()} hands out one instance
+ * per thread, which is what the query methods in the model use.
+ */
+public final class SearchWorkspace {
+
+    private static final ThreadLocal<SearchWorkspace> PER_THREAD =
+            ThreadLocal.withInitial(SearchWorkspace::new);
+
+    // stamp[v] == generation marks v as reached in the current query
+    int[] stamp = new int[0];
+    int generation;
+
+    // Distance and tree parent, valid only for stamped nodes
+    double[] dist = new double[0];
+    int[] parent = new int[0];
+
+    // FIFO queue for BFS (every node is enqueued at most once)
+    int[] queue = new int[0];
+
+    // Priority queues for Dijkstra, recreated only when the capacity grows
+    IndexedDaryHeap indexed = new IndexedDaryHeap(0, DijkstraEngine.DEFAULT_ARITY);
+    private final LazyMinHeap lazy = new LazyMinHeap(16);
+
+    // Second (backward) search state for the bidirectional searches, same stamping scheme
+    int[] stamp2 = new int[0];
+    double[] dist2 = new double[0];
+    int[] parent2 = new int[0];
+    int[] queue2 = new int[0];
+    IndexedDaryHeap indexed2 = new IndexedDaryHeap(0, DijkstraEngine.DEFAULT_ARITY);
+
+    // Work counters of the last query
+    int settled;
+    int relaxed;
+
+    // Returns the workspace owned by the calling thread
+    public static SearchWorkspace current() {
+        return PER_THREAD.get();
+    }
+
+    /**
+     * Starts a new query on a graph with n nodes: grows the arrays if needed
+     * and invalidates all previous marks by bumping the generation.
+     */
+    public void begin(int n) {
+        if (stamp.length < n) {
+            int cap = Math.max(n, stamp.length + (stamp.length >> 1));
+            stamp = Arrays.copyOf(stamp, cap);
+            dist = new double[cap];
+            parent = new int[cap];
+            queue = new int[cap];
+            indexed = new IndexedDaryHeap(cap, DijkstraEngine.DEFAULT_ARITY);
+            stamp2 = Arrays.copyOf(stamp2, cap);
+            dist2 = new double[cap];
+            parent2 = new int[cap];
+            queue2 = new int[cap];
+            indexed2 = new IndexedDaryHeap(cap, DijkstraEngine.DEFAULT_ARITY);
+        }
+        if (++generation == 0) {
+            // Wrapped around after 2^32 queries: clear the stamps once
+            Arrays.fill(stamp, 0);
+            Arrays.fill(stamp2, 0);
+            generation = 1;
+        }
+        settled = 0;
+        relaxed = 0;
+        // Searches that stopped early leave entries behind; they must not count towards this query's peak
+        indexed.clear();
+        indexed2.clear();
+        lazy.clear();
+        indexed.resetPeak();
+        indexed2.resetPeak();
+        lazy.resetPeak();
+    }
+
+    // Returns true if v was reached by the current query
+    public boolean reached(int v) {
+        return stamp[v] == generation;
+    }
+
+    // Returns the distance of v, or infinity if it was not reached
+    public double distance(int v) {
+        return stamp[v] == generation ? dist[v] : Double.POSITIVE_INFINITY;
+    }
+
+    // Returns the tree parent of v, or -1 for the source and unreached nodes
+    public int parent(int v) {
+        return stamp[v] == generation ? parent[v] : -1;
+    }
+
+    // Marks v as reached with a distance and parent
+    void reach(int v, double d, int p) {
+        stamp[v] = generation;
+        dist[v] = d;
+        parent[v] = p;
+    }
+
+    /**
+     * Breadth-first search by hop count; distances are hop counts.
+     * @param destination Node at which to stop early, or -1 to reach everything
+     * @return True if the destination was reached (always true for a full run)
+     */
+    public boolean bfs(CsrGraph graph, int source, int destination) {
+        long start = Metrics.start();
+        boolean found = runBfs(graph, source, destination);
+        SearchMetrics.BFS.record(start, this, found);
+        return found;
+    }
+
+    private boolean runBfs(CsrGraph graph, int source, int destination) {
+        begin(graph.nodeCount());
+        int head = 0, tail = 0;
+        reach(source, 0, -1);
+        queue[tail++] = source;
+
+        while (head < tail) {
+            int u = queue[head++];
+            settled++;
+            if (u == destination) return true;
+
+            double next = dist[u] + 1;
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                if (stamp[v] != generation) {
+                    reach(v, next, u);
+                    queue[tail++] = v;
+                    relaxed++;
+                }
+            }
+        }
+        return destination < 0;
+    }
+
+    /**
+     * Dijkstra's algorithm by edge weight.
+     * @param destination Node at which to stop early, or -1 to build the full tree
+     * @param strategy    Priority queue implementation to use
+     * @return True if the destination was reached (always true for a full run)
+     */
+    public boolean dijkstra(CsrGraph graph, int source, int destination,
+                            DijkstraEngine.HeapStrategy strategy) {
+        long start = Metrics.start();
+        begin(graph.nodeCount());
+        reach(source, 0.0, -1);
+        boolean indexedHeap = strategy == DijkstraEngine.HeapStrategy.INDEXED;
+        boolean reached = indexedHeap
+                ? dijkstraIndexed(graph, source, destination)
+                : dijkstraLazy(graph, source, destination);
+        boolean found = destination < 0 || reached;
+        (indexedHeap ? SearchMetrics.DIJKSTRA : SearchMetrics.DIJKSTRA_LAZY).record(start, this, found);
+        return found;
+    }
+
+    private boolean dijkstraIndexed(CsrGraph graph, int source, int destination) {
+        IndexedDaryHeap heap = indexed;
+        heap.clear();
+        heap.insertOrDecrease(source, 0.0);
+
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled++;
+            if (u == destination) {
+                heap.clear();
+                return true;
+            }
+
+            double du = dist[u];
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                double alt = du + graph.weight(a);
+                if (stamp[v] != generation || alt < dist[v]) {
+                    reach(v, alt, u);
+                    heap.insertOrDecrease(v, alt);
+                    relaxed++;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean dijkstraLazy(CsrGraph graph, int source, int destination) {
+        LazyMinHeap heap = lazy;
+        heap.clear();
+        heap.push(0.0, source);
+
+        while (!heap.isEmpty()) {
+            double du = heap.topPriority();
+            int u = heap.topValue();
+            heap.pop();
+            if (du > dist[u]) continue; // stale entry, node already settled cheaper
+            settled++;
+            if (u == destination) return true;
+
+            for (int a = graph.begin(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                double alt = du + graph.weight(a);
+                if (stamp[v] != generation || alt < dist[v]) {
+                    reach(v, alt, u);
+                    heap.push(alt, v);
+                    relaxed++;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Returns the number of nodes on the tree path to v (0 if v was not reached)
+    public int pathLength(int v) {
+        if (stamp[v] != generation) return 0;
+        int length = 0;
+        for (int step = v; step >= 0; step = parent[step]) length++;
+        return length;
+    }
+
+    /**
+     * Returns the tree path from the last source to a node, or null if the
+     * node was not reached by the last query.
+     */
+    public int[] path(int destination) {
+        int length = pathLength(destination);
+        if (length == 0) return null;
+
+        int[] path = new int[length];
+        for (int step = destination, i = length - 1; step >= 0; step = parent[step]) {
+            path[i--] = step;
+        }
+        return path;
+    }
+
+    // Returns the largest priority queue size of the last query (0 for BFS)
+    public int queuePeak() {
+        return indexed.peak() + indexed2.peak() + lazy.peak();
+    }
+
+    // Returns how many nodes the last query settled (dequeued)
+    public int settledCount() {
+        return settled;
+    }
+
+    // Returns how many nodes the last query reached or improved
+    public int relaxedCount() {
+        return relaxed;
+    }
+}
@@ -0,0 +1,412 @@
+package com.example.routingsim.sim;
+
+import java.util.Arrays;
+
+/**
+ * Ad hoc On-Demand Distance Vector routing (RFC 3561), reduced to the
+ * parts that shape routing behaviour:
+ * <ul>
+ *   <li>Route discovery: an origin without a route buffers its data and
+ *       floods a RREQ. Every node drops RREQs it has already seen (by
+ *       origin and RREQ id) and learns a reverse route to the origin.</li>
+ *   <li>The destination, or an intermediate node with a fresh enough
+ *       route, unicasts a RREP back along the reverse route; nodes on the
+ *       way learn the forward route.</li>
+ *   <li>Destination sequence numbers decide which route is fresher; among
+ *       equally fresh routes the one with fewer hops wins.</li>
+ *   <li>A node that loses a link invalidates the routes through it and
+ *       broadcasts a RERR; neighbours routing through that node do the
+ *       same, so the error spreads exactly as far as the broken routes.</li>
+ *   <li>Unanswered discoveries are retried with exponential backoff and
+ *       give up after {@link #setRreqRetries(int) a few retries}.</li>
+ * </ul>
+ * Omitted: hello messages (link breaks are reported by the driver), the
+ * expanding ring search, precursor lists (RERRs are broadcast) and local
+ * repair.
+ *
+ * The protocol holds per-node state only and reacts to packets and timers
+ * handed in by a driver through {@link Network}; it never looks at the
+ * clock or the event queue directly.
+ */
+public final class AodvProtocol {
+
+    /** Timer kind: an unanswered route discovery. arg = destination, arg2 = attempt. */
+    public static final int TIMER_DISCOVERY = 1;
+
+    private final Network net;
+
+    // Per-node state
+    private RouteTable[] tables = new RouteTable[0];
+    private int[] ownSeq = new int[0];
+    private int[] rreqId = new int[0];
+
+    // Data packets waiting for a route
+    private final PacketBuffer buffer = new PacketBuffer();
+    private int nextPacketId;
+
+    // Protocol parameters, in seconds of simulation time
+    private double activeRouteTimeout = 3.0;
+    private double netTraversalTime = 2.8;
+    private int rreqRetries = 2;
+
+    // Statistics of the nodes this instance runs
+    private final AodvStats stats = new AodvStats();
+
+    // Scratch packet for outgoing messages
+    private final Packet out = new Packet();
+
+    public AodvProtocol(Network net) {
+        this.net = net;
+        ensureNodes(net.nodeCount());
+    }
+
+    /**
+     * Makes room for per-node state of n nodes. Route tables are created
+     * lazily, so an instance that only runs some of the nodes (one region of
+     * a partitioned simulation) only pays for those.
+     */
+    public void ensureNodes(int n) {
+        int old = tables.length;
+        if (n <= old) return;
+        tables = Arrays.copyOf(tables, Math.max(n, old + (old >> 1)));
+        ownSeq = Arrays.copyOf(ownSeq, tables.length);
+        rreqId = Arrays.copyOf(rreqId, tables.length);
+    }
+
+    // Returns the route table of a node, created on first use
+    private RouteTable table(int v) {
+        RouteTable t = tables[v];
+        if (t == null) {
+            t = new RouteTable();
+            tables[v] = t;
+        }
+        return t;
+    }
+
+    // Sets how long an unused route stays valid
+    public void setActiveRouteTimeout(double seconds) {
+        this.activeRouteTimeout = seconds;
+    }
+
+    // Sets how long an origin waits for a RREP before retrying (doubled per retry)
+    public void setNetTraversalTime(double seconds) {
+        this.netTraversalTime = seconds;
+    }
+
+    // Sets how often an unanswered discovery is repeated before the data is dropped
+    public void setRreqRetries(int retries) {
+        this.rreqRetries = retries;
+    }
+
+    // ----- Driver entry points -----
+
+    /** The application at origin sends one data packet to destination now. */
+    public void send(int origin, int destination) {
+        stats.dataSent++;
+        int packetId = nextPacketId++;
+        if (origin == destination) {
+            stats.dataDelivered++;
+            return;
+        }
+        double now = net.now();
+        out.kind = Packet.DATA;
+        out.origin = origin;
+        out.destination = destination;
+        out.id = packetId;
+        out.hops = 0;
+        out.created = now;
+        if (!forwardData(origin, out)) hold(origin, destination, packetId, now);
+    }
+
+    /** Handles a packet delivered to p.receiver by p.sender. */
+    public void receive(Packet p) {
+        int v = p.receiver;
+        learnNeighbor(v, p.sender);
+        switch (p.kind) {
+            case Packet.RREQ: onRouteRequest(v, p); break;
+            case Packet.RREP: onRouteReply(v, p); break;
+            case Packet.RERR: onRouteError(v, p); break;
+            case Packet.DATA: onData(v, p); break;
+            default: throw new IllegalArgumentException("Unknown packet kind " + p.kind);
+        }
+    }
+
+    /** Handles a timer set through {@link Network#timer}. */
+    public void timer(int node, int kind, int arg, int arg2) {
+        if (kind != TIMER_DISCOVERY) throw new IllegalArgumentException("Unknown timer " + kind);
+        RouteTable t = table(node);
+        int e = t.find(arg);
+        if (e < 0 || t.discovery[e] != arg2) return; // answered or superseded
+
+        if (t.active(arg, net.now()) >= 0) {
+            t.discovery[e] = 0;
+        } else if (arg2 <= rreqRetries) {
+            discover(node, arg, arg2);
+        } else {
+            // Give up: drop everything that was waiting for this destination
+            t.discovery[e] = 0;
+            stats.discoveryFailures++;
+            while (buffer.head(t, e) >= 0) {
+                buffer.pop(t, e);
+                stats.dataDropped++;
+            }
+        }
+    }
+
+    /**
+     * Node u noticed that its link to v is gone. Routes through v become
+     * invalid and a RERR is broadcast for each of them.
+     */
+    public void linkBroken(int u, int v) {
+        RouteTable t = table(u);
+        for (int e = 0; e < t.size; e++) {
+            if (t.valid[e] && t.nextHop[e] == v) {
+                invalidate(u, t, e);
+            }
+        }
+    }
+
+    // ----- Message handlers -----
+
+    private void onRouteRequest(int v, Packet p) {
+        if (p.origin == v) return;
+        RouteTable t = table(v);
+        int eo = t.entry(p.origin);
+        if (t.lastRreqId[eo] >= p.id) return; // duplicate (or stale) flood copy
+        t.lastRreqId[eo] = p.id;
+
+        int hops = p.hops + 1;
+        updateRoute(v, p.origin, p.sender, hops, p.originSeq, netTraversalTime * 2);
+
+        if (p.destination == v) {
+            if (p.destinationSeq > ownSeq[v]) ownSeq[v] = p.destinationSeq;
+            reply(v, p, v, ownSeq[v], 0);
+            return;
+        }
+        int ed = t.active(p.destination, net.now());
+        if (ed >= 0 && t.seq[ed] >= 0 && t.seq[ed] >= p.destinationSeq) {
+            // Intermediate node with a route at least as fresh as requested
+            reply(v, p, p.destination, t.seq[ed], t.hops[ed]);
+            return;
+        }
+
+        out.set(p);
+        out.hops = hops;
+        int known = t.find(p.destination);
+        if (known >= 0 && t.seq[known] > out.destinationSeq) out.destinationSeq = t.seq[known];
+        transmit(out, v, -1);
+    }
+
+    private void reply(int v, Packet request, int destination, int destinationSeq, int hops) {
+        out.kind = Packet.RREP;
+        out.origin = request.origin;
+        out.originSeq = request.originSeq;
+        out.destination = destination;
+        out.destinationSeq = destinationSeq;
+        out.hops = hops;
+        out.id = request.id;
+        out.created = net.now();
+        transmit(out, v, request.sender);
+    }
+
+    private void onRouteReply(int v, Packet p) {
+        int hops = p.hops + 1;
+        boolean updated = updateRoute(v, p.destination, p.sender, hops, p.destinationSeq, activeRouteTimeout);
+        RouteTable t = table(v);
+
+        if (p.origin == v || !updated) return;
+
+        int eo = t.active(p.origin, net.now());
+        if (eo < 0) return;
+        t.expires[eo] = Math.max(t.expires[eo], net.now() + activeRouteTimeout);
+        out.set(p);
+        out.hops = hops;
+        transmit(out, v, t.nextHop[eo]);
+    }
+
+    private void onRouteError(int v, Packet p) {
+        RouteTable t = table(v);
+        int e = t.find(p.destination);
+        if (e < 0 || !t.valid[e] || t.nextHop[e] != p.sender) return;
+        if (p.destinationSeq > t.seq[e]) t.seq[e] = p.destinationSeq - 1;
+        invalidate(v, t, e);
+    }
+
+    private void onData(int v, Packet p) {
+        if (p.destination == v) {
+            stats.dataDelivered++;
+            stats.latencyNanos += Math.round((net.now() - p.created) * 1e9);
+            stats.hopSum += p.hops + 1;
+            return;
+        }
+        out.set(p);
+        out.hops = p.hops + 1;
+        if (forwardData(v, out)) return;
+
+        // No route at an intermediate node: drop and tell the neighbours
+        stats.dataDropped++;
+        RouteTable t = table(v);
+        int e = t.entry(p.destination);
+        out.kind = Packet.RERR;
+        out.destination = p.destination;
+        out.destinationSeq = t.seq[e] >= 0 ? t.seq[e] + 1 : -1;
+        out.created = net.now();
+        transmit(out, v, -1);
+    }
+
+    // ----- Helpers -----
+
+    /**
+     * Sends a data packet (already in out) one hop along the route table.
+     * @return False if node v has no usable route
+     */
+    private boolean forwardData(int v, Packet data) {
+        RouteTable t = table(v);
+        int e = t.active(data.destination, net.now());
+        if (e < 0) return false;
+
+        int next = t.nextHop[e];
+        if (!transmit(data, v, next)) {
+            linkBroken(v, next);
+            return false;
+        }
+        double until = net.now() + activeRouteTimeout;
+        if (t.expires[e] < until) t.expires[e] = until;
+        return true;
+    }
+
+    // Buffers a packet at its origin and starts a discovery unless one is running
+    private void hold(int origin, int destination, int packetId, double created) {
+        RouteTable t = table(origin);
+        int e = t.entry(destination);
+        buffer.add(t, e, packetId, created);
+        if (t.discovery[e] == 0) discover(origin, destination, 0);
+    }
+
+    // Floods a RREQ for a destination; attempt counts earlier unanswered ones
+    private void discover(int origin, int destination, int attempt) {
+        RouteTable t = table(origin);
+        int e = t.entry(destination);
+        t.discovery[e] = attempt + 1;
+
+        out.kind = Packet.RREQ;
+        out.origin = origin;
+        out.originSeq = ++ownSeq[origin];
+        out.id = ++rreqId[origin];
+        out.destination = destination;
+        out.destinationSeq = t.seq[e];
+        out.hops = 0;
+        out.created = net.now();
+        transmit(out, origin, -1);
+        net.timer(origin, netTraversalTime * (1 << attempt), TIMER_DISCOVERY, destination, attempt + 1);
+    }
+
+    // Sends everything buffered at v for a destination that now has a route
+    private void flush(int v, int destination) {
+        RouteTable t = table(v);
+        int e = t.find(destination);
+        while (buffer.head(t, e) >= 0) {
+            int c = buffer.head(t, e);
+            out.kind = Packet.DATA;
+            out.origin = v;
+            out.destination = destination;
+            out.id = buffer.id(c);
+            out.hops = 0;
+            out.created = buffer.created(c);
+            if (!forwardData(v, out)) {
+                // Route broke again right away: keep the rest waiting for a new discovery
+                if (t.discovery[e] == 0) discover(v, destination, 0);
+                return;
+            }
+            buffer.pop(t, e);
+        }
+    }
+
+    /**
+     * Offers a route to a destination via next hop. It replaces the current
+     * one if that is invalid or the offer is fresher (higher sequence
+     * number) or equally fresh but shorter.
+     * @return True if the route table entry was created or changed
+     */
+    private boolean updateRoute(int v, int destination, int next, int hops, int seq, double lifetime) {
+        RouteTable t = table(v);
+        int e = t.entry(destination);
+        double now = net.now();
+        boolean better = !t.valid[e] || t.expires[e] < now
+                || seq > t.seq[e]
+                || (seq == t.seq[e] && hops < t.hops[e]);
+        if (!better) {
+            if (t.nextHop[e] == next && t.expires[e] < now + lifetime) t.expires[e] = now + lifetime;
+            return false;
+        }
+        t.nextHop[e] = next;
+        t.hops[e] = hops;
+        if (seq > t.seq[e]) t.seq[e] = seq;
+        t.valid[e] = true;
+        t.expires[e] = Math.max(t.expires[e], now + lifetime);
+
+        // A pending discovery is answered by any route, whether from a RREP or a passing RREQ
+        if (t.discovery[e] != 0) {
+            t.discovery[e] = 0;
+            stats.discoveries++;
+        }
+        if (buffer.head(t, e) >= 0) flush(v, destination);
+        return true;
+    }
+
+    // A message from a neighbour proves a one-hop route to it
+    private void learnNeighbor(int v, int neighbor) {
+        RouteTable t = table(v);
+        int e = t.entry(neighbor);
+        if (!t.valid[e] || t.hops[e] != 1 || t.nextHop[e] != neighbor) {
+            t.nextHop[e] = neighbor;
+            t.hops[e] = 1;
+            t.valid[e] = true;
+        }
+        double until = net.now() + activeRouteTimeout;
+        if (t.expires[e] < until) t.expires[e] = until;
+    }
+
+    // Invalidates a route, bumps its sequence number and broadcasts a RERR
+    private void invalidate(int v, RouteTable t, int e) {
+        t.valid[e] = false;
+        if (t.seq[e] >= 0) t.seq[e]++;
+        stats.routeBreaks++;
+        out.kind = Packet.RERR;
+        out.destination = t.destination[e];
+        out.destinationSeq = t.seq[e];
+        out.created = net.now();
+        transmit(out, v, -1);
+    }
+
+    // Sends p from node v to a neighbour, or to all neighbours if to < 0
+    private boolean transmit(Packet p, int v, int to) {
+        if (to < 0) {
+            net.broadcast(p, v);
+        } else if (!net.unicast(p, v, to)) {
+            return false;
+        }
+        stats.transmissions[p.kind]++;
+        return true;
+    }
+
+    // ----- Results -----
+
+    // Returns the next hop of node v towards a destination, or -1 if v has no usable route
+    public int nextHop(int v, int destination) {
+        if (tables[v] == null) return -1;
+        int e = tables[v].active(destination, net.now());
+        return e < 0 ? -1 : tables[v].nextHop[e];
+    }
+
+    // Returns the statistics of this instance's nodes
+    public AodvStats stats() {
+        stats.dataBuffered = buffer.size();
+        return stats;
+    }
+
+    // Returns a one-line summary of the protocol statistics
+    public String summary() {
+        return stats().summary();
+    }
+}
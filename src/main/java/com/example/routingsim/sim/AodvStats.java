@@ -0,0 +1,94 @@
+package com.example.routingsim.sim;
+
+/**
+ * Counters of an {@link AodvProtocol} run. A partitioned simulation keeps
+ * one instance per region and sums them with {@link #add(AodvStats)}.
+ * Latency is accumulated in whole nanoseconds so that the sum does not
+ * depend on the order in which regions are added.
+ */
+public final class AodvStats {
+
+    final long[] transmissions = new long[Packet.DATA + 1];
+    long dataSent, dataDelivered, dataDropped, dataBuffered;
+    long discoveries, discoveryFailures, routeBreaks;
+    long latencyNanos, hopSum;
+
+    // Adds the counters of another instance to this one
+    public AodvStats add(AodvStats o) {
+        for (int k = 0; k < transmissions.length; k++) transmissions[k] += o.transmissions[k];
+        dataSent += o.dataSent;
+        dataDelivered += o.dataDelivered;
+        dataDropped += o.dataDropped;
+        dataBuffered += o.dataBuffered;
+        discoveries += o.discoveries;
+        discoveryFailures += o.discoveryFailures;
+        routeBreaks += o.routeBreaks;
+        latencyNanos += o.latencyNanos;
+        hopSum += o.hopSum;
+        return this;
+    }
+
+    // Returns how many messages of a kind (Packet.RREQ ...) were transmitted, forwards included
+    public long transmissions(int kind) {
+        return transmissions[kind];
+    }
+
+    // Returns the number of data packets handed to the protocol
+    public long getDataSent() {
+        return dataSent;
+    }
+
+    // Returns the number of data packets that reached their destination
+    public long getDataDelivered() {
+        return dataDelivered;
+    }
+
+    // Returns the number of data packets dropped for lack of a route
+    public long getDataDropped() {
+        return dataDropped;
+    }
+
+    // Returns the number of data packets still waiting for a route
+    public long getDataBuffered() {
+        return dataBuffered;
+    }
+
+    // Returns the number of route discoveries answered by a route
+    public long getDiscoveries() {
+        return discoveries;
+    }
+
+    // Returns the number of route discoveries given up after all retries
+    public long getDiscoveryFailures() {
+        return discoveryFailures;
+    }
+
+    // Returns the number of routes invalidated because a link broke
+    public long getRouteBreaks() {
+        return routeBreaks;
+    }
+
+    // Returns the mean end-to-end delay of delivered packets in seconds
+    public double getMeanLatency() {
+        return dataDelivered == 0 ? 0 : latencyNanos / 1e9 / dataDelivered;
+    }
+
+    // Returns the mean hop count of delivered packets
+    public double getMeanHops() {
+        return dataDelivered == 0 ? 0 : (double) hopSum / dataDelivered;
+    }
+
+    // Returns a one-line summary
+    public String summary() {
+        return String.format("data sent=%d delivered=%d dropped=%d buffered=%d latency=%.2fms hops=%.2f"
+                        + " | RREQ=%d RREP=%d RERR=%d discoveries=%d failed=%d breaks=%d",
+                dataSent, dataDelivered, dataDropped, dataBuffered, getMeanLatency() * 1000, getMeanHops(),
+                transmissions[Packet.RREQ], transmissions[Packet.RREP], transmissions[Packet.RERR],
+                discoveries, discoveryFailures, routeBreaks);
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+}
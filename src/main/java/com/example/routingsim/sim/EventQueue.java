@@ -0,0 +1,189 @@
+package com.example.routingsim.sim;
+
+import java.util.Arrays;
+
+/**
+ * Priority queue of simulation events ordered by (time, key). The key is
+ * chosen by the caller and must be unique; the simulator uses the sending
+ * node and that node's event counter, which makes the order of
+ * simultaneous events independent of which thread scheduled them first.
+ *
+ * Everything is stored in primitive arrays indexed by a slot: the binary
+ * heap only moves int slot ids around, and the event payload (a
+ * {@link Packet}) is copied into parallel field arrays. Freed slots are
+ * recycled, so a steady-state simulation does not allocate per event.
+ */
+public final class EventQueue {
+
+    // Binary heap of slot ids
+    private int[] heap;
+    private int size;
+
+    // Ordering key per slot
+    private double[] time;
+    private long[] key;
+
+    // Event type (driver-defined) and packet fields per slot
+    private int[] type;
+    private int[] kind, sender, receiver, origin, originSeq, destination, destinationSeq, hops, id;
+    private double[] created;
+
+    // Stack of free slots
+    private int[] free;
+    private int freeCount;
+
+    public EventQueue(int initialCapacity) {
+        int cap = Math.max(16, initialCapacity);
+        heap = new int[cap];
+        allocate(cap);
+        free = new int[cap];
+        for (int i = 0; i < cap; i++) free[i] = cap - 1 - i;
+        freeCount = cap;
+    }
+
+    // Returns the number of queued events
+    public int size() {
+        return size;
+    }
+
+    // Returns true if no events are queued
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Returns the time of the earliest event (queue must not be empty)
+    public double peekTime() {
+        return time[heap[0]];
+    }
+
+    // Returns the key of the earliest event (queue must not be empty)
+    public long peekKey() {
+        return key[heap[0]];
+    }
+
+    /**
+     * Schedules an event.
+     * @param at      Simulation time
+     * @param order   Tie-breaker among events at the same time, unique per event
+     * @param event   Event type, interpreted by the driver
+     * @param payload Copied into the queue; may be reused right away
+     */
+    public void push(double at, long order, int event, Packet payload) {
+        if (freeCount == 0) grow();
+        int s = free[--freeCount];
+        time[s] = at;
+        key[s] = order;
+        type[s] = event;
+        kind[s] = payload.kind;
+        sender[s] = payload.sender;
+        receiver[s] = payload.receiver;
+        origin[s] = payload.origin;
+        originSeq[s] = payload.originSeq;
+        destination[s] = payload.destination;
+        destinationSeq[s] = payload.destinationSeq;
+        hops[s] = payload.hops;
+        id[s] = payload.id;
+        created[s] = payload.created;
+        siftUp(size++, s);
+    }
+
+    /**
+     * Removes the earliest event and copies its payload.
+     * @param into Receives the packet fields
+     * @return The event type
+     */
+    public int poll(Packet into) {
+        int s = heap[0];
+        int last = heap[--size];
+        if (size > 0) siftDown(0, last);
+
+        into.kind = kind[s];
+        into.sender = sender[s];
+        into.receiver = receiver[s];
+        into.origin = origin[s];
+        into.originSeq = originSeq[s];
+        into.destination = destination[s];
+        into.destinationSeq = destinationSeq[s];
+        into.hops = hops[s];
+        into.id = id[s];
+        into.created = created[s];
+        free[freeCount++] = s;
+        return type[s];
+    }
+
+    /**
+     * Moves every event of this queue into another one, keeping times and
+     * keys. Used to hand over messages between regions.
+     */
+    public void drainInto(EventQueue target, Packet scratch) {
+        while (size > 0) {
+            double at = time[heap[0]];
+            long order = key[heap[0]];
+            int event = poll(scratch);
+            target.push(at, order, event, scratch);
+        }
+    }
+
+    // Drops all queued events
+    public void clear() {
+        for (int i = 0; i < size; i++) free[freeCount++] = heap[i];
+        size = 0;
+    }
+
+    private boolean before(int a, int b) {
+        return time[a] < time[b] || (time[a] == time[b] && key[a] < key[b]);
+    }
+
+    private void siftUp(int i, int s) {
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            int ps = heap[p];
+            if (!before(s, ps)) break;
+            heap[i] = ps;
+            i = p;
+        }
+        heap[i] = s;
+    }
+
+    private void siftDown(int i, int s) {
+        int half = size >>> 1;
+        while (i < half) {
+            int c = 2 * i + 1;
+            int cs = heap[c];
+            if (c + 1 < size && before(heap[c + 1], cs)) cs = heap[++c];
+            if (!before(cs, s)) break;
+            heap[i] = cs;
+            i = c;
+        }
+        heap[i] = s;
+    }
+
+    private void grow() {
+        int old = heap.length, cap = old << 1;
+        heap = Arrays.copyOf(heap, cap);
+        allocate(cap);
+        free = Arrays.copyOf(free, cap);
+        for (int i = old; i < cap; i++) free[freeCount++] = cap - 1 - (i - old);
+    }
+
+    // Grows the per-slot arrays to cap, keeping their contents
+    private void allocate(int cap) {
+        time = time == null ? new double[cap] : Arrays.copyOf(time, cap);
+        key = key == null ? new long[cap] : Arrays.copyOf(key, cap);
+        created = created == null ? new double[cap] : Arrays.copyOf(created, cap);
+        type = grow(type, cap);
+        kind = grow(kind, cap);
+        sender = grow(sender, cap);
+        receiver = grow(receiver, cap);
+        origin = grow(origin, cap);
+        originSeq = grow(originSeq, cap);
+        destination = grow(destination, cap);
+        destinationSeq = grow(destinationSeq, cap);
+        hops = grow(hops, cap);
+        id = grow(id, cap);
+    }
+
+    private static int[] grow(int[] a, int cap) {
+        return a == null ? new int[cap] : Arrays.copyOf(a, cap);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.routingsim.sim;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.routingsim.model.Edge;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphVersion;
+import com.example.routingsim.model.Node;
+
+/**
+ * Primitive mirror of a Graph's links for the simulator's hot path.
+ * Nodes get dense indices in the order they are first seen and keep them
+ * for the lifetime of the table; a removed node simply loses all its
+ * links, and a node that later reuses its graph handle gets a new index.
+ * Neighbour lists are int arrays with swap-removal, so broadcasting to all
+ * neighbours never touches Node or Edge objects.
+ *
+ * A table copied from a {@link GraphVersion} holds the same indices as
+ * one copied from the graph at that version, and takes node positions
+ * from the version rather than from the (possibly moved) nodes.
+ */
+public final class LinkTable {
+
+    // Index by node handle (-1 = none); checked against nodes since graphs reuse handles
+    private int[] index = new int[0];
+    private Node[] nodes = new Node[16];
+    private int count;
+
+    // neighbors[u][0 .. degree[u]) are the current neighbours of u
+    private int[][] neighbors = new int[16][];
+    private int[] degree = new int[16];
+
+    // Version the table was copied from, or null if it follows a graph
+    private final GraphVersion topology;
+
+    // Copies the nodes and links of a graph
+    public LinkTable(Graph graph) {
+        this.topology = null;
+        for (Node n : graph.getNodes()) add(n);
+        for (Node n : graph.getNodes()) {
+            int u = indexOf(n);
+            for (Edge e : graph.getEdges(n)) {
+                int v = indexOf(e.getTo());
+                if (!linked(u, v)) append(u, v);
+            }
+        }
+    }
+
+    // Copies the nodes and links of a published graph version; safe on any thread
+    public LinkTable(GraphVersion topology) {
+        this.topology = topology;
+        List<Node> all = topology.nodes();
+        for (Node n : all) add(n);
+        for (Node n : all) {
+            int u = indexOf(n);
+            for (int i = 0, d = topology.degree(n); i < d; i++) {
+                int v = indexOf(topology.neighbor(n, i));
+                if (!linked(u, v)) append(u, v);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of a node, assigning the next free one if the node
+     * is new. Existing indices never change.
+     */
+    public int add(Node n) {
+        int i = indexOf(n);
+        if (i >= 0) return i;
+        int h = n.getHandle();
+        if (h < 0) throw new IllegalArgumentException("Node is not part of a graph: " + n.getId());
+        if (h >= index.length) {
+            int old = index.length;
+            index = Arrays.copyOf(index, Math.max(h + 1, old << 1));
+            Arrays.fill(index, old, index.length, -1);
+        }
+        if (count == nodes.length) {
+            int cap = count << 1;
+            nodes = Arrays.copyOf(nodes, cap);
+            neighbors = Arrays.copyOf(neighbors, cap);
+            degree = Arrays.copyOf(degree, cap);
+        }
+        nodes[count] = n;
+        neighbors[count] = new int[4];
+        index[h] = count;
+        return count++;
+    }
+
+    // Returns the index of a node, or -1 if it was never added
+    public int indexOf(Node n) {
+        int h = n == null ? -1 : n.getHandle();
+        int i = h >= 0 && h < index.length ? index[h] : -1;
+        return i >= 0 && nodes[i] == n ? i : -1;
+    }
+
+    // Returns the node at an index
+    public Node nodeAt(int u) {
+        return nodes[u];
+    }
+
+    // Returns the x coordinate of the node at an index
+    public double x(int u) {
+        return topology != null ? topology.x(nodes[u]) : nodes[u].getX();
+    }
+
+    // Returns the y coordinate of the node at an index
+    public double y(int u) {
+        return topology != null ? topology.y(nodes[u]) : nodes[u].getY();
+    }
+
+    // Returns the number of indexed nodes (including removed ones)
+    public int size() {
+        return count;
+    }
+
+    // Returns the current number of neighbours of u
+    public int degree(int u) {
+        return degree[u];
+    }
+
+    // Returns the i-th neighbour of u
+    public int neighbor(int u, int i) {
+        return neighbors[u][i];
+    }
+
+    // Returns true if u and v are linked
+    public boolean linked(int u, int v) {
+        int[] list = neighbors[u];
+        for (int i = 0, d = degree[u]; i < d; i++) {
+            if (list[i] == v) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Links u and v in both directions.
+     * @return False if they were already linked
+     */
+    public boolean link(int u, int v) {
+        if (linked(u, v)) return false;
+        append(u, v);
+        append(v, u);
+        return true;
+    }
+
+    /**
+     * Removes the link between u and v in both directions.
+     * @return False if they were not linked
+     */
+    public boolean unlink(int u, int v) {
+        boolean had = removeArc(u, v);
+        removeArc(v, u);
+        return had;
+    }
+
+    // Removes all links of u
+    public void isolate(int u) {
+        while (degree[u] > 0) unlink(u, neighbors[u][degree[u] - 1]);
+    }
+
+    private void append(int u, int v) {
+        if (degree[u] == neighbors[u].length) neighbors[u] = Arrays.copyOf(neighbors[u], degree[u] << 1);
+        neighbors[u][degree[u]++] = v;
+    }
+
+    private boolean removeArc(int u, int v) {
+        int[] list = neighbors[u];
+        for (int i = 0, d = degree[u]; i < d; i++) {
+            if (list[i] == v) {
+                list[i] = list[--degree[u]];
+                return true;
+            }
+        }
+        return false;
+    }
+}
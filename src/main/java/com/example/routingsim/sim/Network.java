@@ -0,0 +1,36 @@
+package com.example.routingsim.sim;
+
+/**
+ * What a protocol sees of the simulation: the clock, the current links and
+ * a way to send messages and set timers. Protocol code only talks to this
+ * interface, so the same protocol runs under any driver.
+ */
+public interface Network {
+
+    // Returns the current simulation time
+    double now();
+
+    // Returns the number of nodes (indices 0 .. nodeCount() - 1)
+    int nodeCount();
+
+    // Returns the number of current links of node u
+    int degree(int u);
+
+    // Returns the i-th current neighbour of node u
+    int neighbor(int u, int i);
+
+    // Returns true if u and v are currently linked
+    boolean linked(int u, int v);
+
+    /**
+     * Transmits a copy of a packet from one node to a neighbour.
+     * @return False if the link does not exist (a detected link break)
+     */
+    boolean unicast(Packet p, int from, int to);
+
+    // Transmits a copy of a packet to every current neighbour of a node
+    void broadcast(Packet p, int from);
+
+    // Schedules a timer for a node; fired through the protocol's timer handler
+    void timer(int node, double delay, int kind, int arg, int arg2);
+}
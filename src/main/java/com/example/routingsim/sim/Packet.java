@@ -0,0 +1,73 @@
+package com.example.routingsim.sim;
+
+/**
+ * Mutable message record passed between the event queue, the driver and
+ * the protocol. One instance is reused for every event, so a packet is only
+ * valid until the handler returns; queued packets are copied field by field
+ * into the queue's primitive arrays.
+ *
+ * The fields are the union of what the AODV messages need (RFC 3561).
+ * Timer events reuse them: {@link #kind} holds the timer type and
+ * {@link #destination}/{@link #id} its arguments.
+ */
+public final class Packet {
+
+    /** Route request, flooded towards the destination. */
+    public static final int RREQ = 1;
+    /** Route reply, unicast back along the reverse route. */
+    public static final int RREP = 2;
+    /** Route error, broadcast to neighbours when a route breaks. */
+    public static final int RERR = 3;
+    /** Application data forwarded hop by hop along the route tables. */
+    public static final int DATA = 4;
+
+    // Message type (or timer type for timer events)
+    public int kind;
+
+    // Node that transmitted this copy, and the node it is delivered to
+    public int sender;
+    public int receiver;
+
+    // Originator of a RREQ/DATA (for RREP: the node the reply travels to) and its sequence number
+    public int origin;
+    public int originSeq;
+
+    // Destination the message is about, and its sequence number (-1 = unknown)
+    public int destination;
+    public int destinationSeq;
+
+    // Hops travelled so far (RREP: hops from the replying node to the destination)
+    public int hops;
+
+    // RREQ id, or DATA packet number
+    public int id;
+
+    // Simulation time at which the message was first created
+    public double created;
+
+    // Copies all fields of another packet into this one
+    public Packet set(Packet p) {
+        kind = p.kind;
+        sender = p.sender;
+        receiver = p.receiver;
+        origin = p.origin;
+        originSeq = p.originSeq;
+        destination = p.destination;
+        destinationSeq = p.destinationSeq;
+        hops = p.hops;
+        id = p.id;
+        created = p.created;
+        return this;
+    }
+
+    // Returns a short name of a message type, for logs
+    public static String kindName(int kind) {
+        switch (kind) {
+            case RREQ: return "RREQ";
+            case RREP: return "RREP";
+            case RERR: return "RERR";
+            case DATA: return "DATA";
+            default: return "?" + kind;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.routingsim.sim;
+
+import java.util.Arrays;
+
+/**
+ * Pool of data packets held back while their origin looks for a route.
+ * Each waiting packet is a cell with its number and creation time; cells
+ * are chained into one FIFO list per (node, destination), whose head and
+ * tail live in the node's {@link RouteTable} entry. Released cells are
+ * recycled through a free list.
+ */
+final class PacketBuffer {
+
+    private int[] next = new int[64];
+    private int[] id = new int[64];
+    private double[] created = new double[64];
+    private int freeHead = -1;
+    private int used;
+    private int size;
+
+    // Returns the number of packets currently held
+    int size() {
+        return size;
+    }
+
+    /** Appends a packet to the list of a route table entry. */
+    void add(RouteTable table, int e, int packetId, double createdAt) {
+        int c;
+        if (freeHead >= 0) {
+            c = freeHead;
+            freeHead = next[c];
+        } else {
+            if (used == next.length) {
+                int cap = used << 1;
+                next = Arrays.copyOf(next, cap);
+                id = Arrays.copyOf(id, cap);
+                created = Arrays.copyOf(created, cap);
+            }
+            c = used++;
+        }
+        next[c] = -1;
+        id[c] = packetId;
+        created[c] = createdAt;
+        if (table.bufferTail[e] >= 0) next[table.bufferTail[e]] = c;
+        else table.bufferHead[e] = c;
+        table.bufferTail[e] = c;
+        size++;
+    }
+
+    // Returns the first held cell of an entry, or -1
+    int head(RouteTable table, int e) {
+        return table.bufferHead[e];
+    }
+
+    // Returns the packet number of a cell
+    int id(int c) {
+        return id[c];
+    }
+
+    // Returns the creation time of a cell
+    double created(int c) {
+        return created[c];
+    }
+
+    /** Removes the first cell of an entry's list and recycles it. */
+    void pop(RouteTable table, int e) {
+        int c = table.bufferHead[e];
+        table.bufferHead[e] = next[c];
+        if (next[c] < 0) table.bufferTail[e] = -1;
+        next[c] = freeHead;
+        freeHead = c;
+        size--;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.routingsim.sim;
+
+/**
+ * One region of a {@link Simulator}: the event queue and protocol state of
+ * the nodes assigned to it. A partition only ever handles events of its
+ * own nodes. Messages to nodes of other regions are parked in an outbox
+ * per target region and handed over between synchronization windows, so
+ * during a window each partition is touched by one thread only.
+ */
+final class Partition implements Network {
+
+    // Event types stored in the queue
+    static final int DELIVER = 0;
+    static final int TIMER = 1;
+    static final int LINK_BREAK = 2;
+    static final int SEND = 3;
+
+    private final Simulator sim;
+    private final int id;
+
+    final EventQueue queue = new EventQueue(1024);
+
+    // outbox[r] holds messages for region r (unused for r == id)
+    final EventQueue[] outbox;
+
+    final AodvProtocol protocol;
+
+    private double now;
+    long processed;
+
+    // Scratch packets: the event being handled, and one for handovers
+    private final Packet current = new Packet();
+    private final Packet scratch = new Packet();
+
+    Partition(Simulator sim, int id, int regions) {
+        this.sim = sim;
+        this.id = id;
+        this.outbox = new EventQueue[regions];
+        for (int r = 0; r < regions; r++) {
+            if (r != id) outbox[r] = new EventQueue(64);
+        }
+        this.protocol = new AodvProtocol(this);
+    }
+
+    /**
+     * Processes queued events in (time, key) order while their time is
+     * before end and not after until.
+     */
+    void process(double end, double until) {
+        EventQueue q = queue;
+        while (!q.isEmpty()) {
+            double t = q.peekTime();
+            if (t >= end || t > until) break;
+            now = t;
+            dispatch(q.poll(current));
+            processed++;
+        }
+    }
+
+    // Moves the messages other regions sent to this one into the local queue
+    void collect(Partition[] all) {
+        for (Partition p : all) {
+            if (p != this) p.outbox[id].drainInto(queue, scratch);
+        }
+    }
+
+    // Returns the earliest time of anything queued here or in transit to other regions
+    double nextTime() {
+        double next = queue.isEmpty() ? Double.POSITIVE_INFINITY : queue.peekTime();
+        for (EventQueue o : outbox) {
+            if (o != null && !o.isEmpty()) next = Math.min(next, o.peekTime());
+        }
+        return next;
+    }
+
+    // Moves the local clock forward to t (used between runs)
+    void advanceTo(double t) {
+        if (t > now) now = t;
+    }
+
+    /**
+     * Queues an event for a node, locally or in the outbox of the node's
+     * region. The key is taken from the counter of the causing node.
+     */
+    void schedule(double at, int causingNode, int event, int targetNode, Packet p) {
+        long key = sim.nextKey(causingNode);
+        int r = sim.regionOf(targetNode);
+        (r == id ? queue : outbox[r]).push(at, key, event, p);
+    }
+
+    private void dispatch(int event) {
+        Packet p = current;
+        switch (event) {
+            case DELIVER:
+                if (!sim.isRemoved(p.receiver)) protocol.receive(p);
+                break;
+            case TIMER:
+                if (!sim.isRemoved(p.receiver)) protocol.timer(p.receiver, p.kind, p.destination, p.id);
+                break;
+            case LINK_BREAK:
+                if (!sim.isRemoved(p.receiver)) protocol.linkBroken(p.receiver, p.sender);
+                break;
+            case SEND:
+                if (!sim.isRemoved(p.origin) && !sim.isRemoved(p.destination)) {
+                    protocol.send(p.origin, p.destination);
+                }
+                double interval = p.id >= 0 ? sim.nextFlowPacket(p.id) : -1;
+                if (interval >= 0) schedule(now + interval, p.origin, SEND, p.origin, p);
+                break;
+            default:
+                throw new IllegalStateException("Unknown event type " + event);
+        }
+    }
+
+    // ----- Network -----
+
+    @Override
+    public double now() {
+        return now;
+    }
+
+    @Override
+    public int nodeCount() {
+        return sim.links().size();
+    }
+
+    @Override
+    public int degree(int u) {
+        return sim.links().degree(u);
+    }
+
+    @Override
+    public int neighbor(int u, int i) {
+        return sim.links().neighbor(u, i);
+    }
+
+    @Override
+    public boolean linked(int u, int v) {
+        return sim.links().linked(u, v);
+    }
+
+    @Override
+    public boolean unicast(Packet p, int from, int to) {
+        if (!sim.links().linked(from, to)) return false;
+        p.sender = from;
+        p.receiver = to;
+        long key = sim.nextKey(from);
+        int r = sim.regionOf(to);
+        (r == id ? queue : outbox[r]).push(now + sim.hopDelay(key), key, DELIVER, p);
+        return true;
+    }
+
+    @Override
+    public void broadcast(Packet p, int from) {
+        LinkTable links = sim.links();
+        p.sender = from;
+        for (int i = 0, d = links.degree(from); i < d; i++) {
+            int to = links.neighbor(from, i);
+            p.receiver = to;
+            long key = sim.nextKey(from);
+            int r = sim.regionOf(to);
+            (r == id ? queue : outbox[r]).push(now + sim.hopDelay(key), key, DELIVER, p);
+        }
+    }
+
+    @Override
+    public void timer(int node, double delay, int kind, int arg, int arg2) {
+        scratch.kind = kind;
+        scratch.receiver = node;
+        scratch.destination = arg;
+        scratch.id = arg2;
+        schedule(now + delay, node, TIMER, node, scratch);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.routingsim.sim;
+
+import java.util.Arrays;
+
+/**
+ * AODV route table of one node. Each destination the node has heard of
+ * gets an entry, found through a small open-addressing hash of destination
+ * index to entry number. Entries are never deleted, only invalidated,
+ * because AODV must remember the last known sequence number of a broken
+ * route. The table also keeps the per-origin bookkeeping that belongs to
+ * the same destination: the newest RREQ id seen from it (duplicate
+ * suppression), the queue of data packets waiting for a route (a linked
+ * list in the protocol's {@link PacketBuffer}) and the state of an ongoing
+ * route discovery.
+ *
+ * All fields are parallel primitive arrays indexed by entry number.
+ */
+final class RouteTable {
+
+    // Destination -> entry hash, -1 marks an empty bucket
+    private int[] buckets = new int[8];
+
+    // Per-entry fields
+    int[] destination = new int[4];
+    int[] nextHop = new int[4];
+    int[] hops = new int[4];
+    int[] seq = new int[4];
+    double[] expires = new double[4];
+    boolean[] valid = new boolean[4];
+    int[] lastRreqId = new int[4];
+    int[] bufferHead = new int[4];
+    int[] bufferTail = new int[4];
+    int[] discovery = new int[4];
+    int size;
+
+    RouteTable() {
+        Arrays.fill(buckets, -1);
+    }
+
+    // Returns the entry of a destination, or -1 if it has none
+    int find(int dest) {
+        int mask = buckets.length - 1;
+        for (int b = hash(dest) & mask; buckets[b] >= 0; b = (b + 1) & mask) {
+            if (destination[buckets[b]] == dest) return buckets[b];
+        }
+        return -1;
+    }
+
+    // Returns the entry of a destination, creating an invalid one if needed
+    int entry(int dest) {
+        int e = find(dest);
+        if (e >= 0) return e;
+
+        if (size == destination.length) growEntries();
+        e = size++;
+        destination[e] = dest;
+        nextHop[e] = -1;
+        hops[e] = 0;
+        seq[e] = -1;
+        expires[e] = 0;
+        valid[e] = false;
+        lastRreqId[e] = -1;
+        bufferHead[e] = -1;
+        bufferTail[e] = -1;
+        discovery[e] = 0;
+
+        if (size * 2 > buckets.length) rehash(buckets.length << 1);
+        else insert(dest, e);
+        return e;
+    }
+
+    /**
+     * Returns the entry of a usable route to a destination at the given
+     * time, or -1. A valid route past its lifetime is invalidated here,
+     * so expiry needs no timer events.
+     */
+    int active(int dest, double now) {
+        int e = find(dest);
+        if (e < 0 || !valid[e]) return -1;
+        if (expires[e] < now) {
+            valid[e] = false;
+            return -1;
+        }
+        return e;
+    }
+
+    private void insert(int dest, int e) {
+        int mask = buckets.length - 1;
+        int b = hash(dest) & mask;
+        while (buckets[b] >= 0) b = (b + 1) & mask;
+        buckets[b] = e;
+    }
+
+    private void rehash(int capacity) {
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        for (int e = 0; e < size; e++) insert(destination[e], e);
+    }
+
+    private void growEntries() {
+        int cap = destination.length << 1;
+        destination = Arrays.copyOf(destination, cap);
+        nextHop = Arrays.copyOf(nextHop, cap);
+        hops = Arrays.copyOf(hops, cap);
+        seq = Arrays.copyOf(seq, cap);
+        expires = Arrays.copyOf(expires, cap);
+        valid = Arrays.copyOf(valid, cap);
+        lastRreqId = Arrays.copyOf(lastRreqId, cap);
+        bufferHead = Arrays.copyOf(bufferHead, cap);
+        bufferTail = Arrays.copyOf(bufferTail, cap);
+        discovery = Arrays.copyOf(discovery, cap);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+}
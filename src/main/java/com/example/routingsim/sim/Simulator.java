@@ -0,0 +1,381 @@
+package com.example.routingsim.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.example.routingsim.metrics.Counter;
+import com.example.routingsim.metrics.Histogram;
+import com.example.routingsim.metrics.Metrics;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphListener;
+import com.example.routingsim.model.GraphVersion;
+import com.example.routingsim.model.Node;
+
+/**
+ * Discrete-event driver for {@link AodvProtocol} on top of a {@link Graph},
+ * sequential or partitioned across cores.
+ *
+ * Events (packet deliveries, protocol timers, link breaks and application
+ * sends) are processed in (time, key) order. The key is the node that
+ * caused the event plus a per-node counter, and the jitter added to every
+ * hop's link delay is a hash of the seed and that key. Nothing therefore
+ * depends on the order in which threads schedule events, and a run is
+ * reproducible from its seed.
+ *
+ * With more than one region the nodes are split spatially by
+ * {@link SpatialPartitioner} and every region runs on its own worker.
+ * Regions synchronize conservatively: no message crosses a link faster than
+ * the link delay, so all events earlier than (global minimum time + link
+ * delay) can be processed in parallel without waiting for other regions.
+ * After each such window the messages between regions are exchanged. A
+ * partitioned run yields exactly the same events, route tables and
+ * statistics as the sequential run with the same seed, only faster.
+ *
+ * A simulator created on a {@link Graph} follows it as a
+ * {@link GraphListener}: links added or removed between runs change the
+ * topology immediately, and a removed link is reported to both of its
+ * endpoints as a link break at the current simulation time. It must then
+ * be driven by the graph's editing thread. A simulator created on a
+ * {@link GraphVersion} runs on that fixed topology instead and may be
+ * driven by any thread, e.g. to discover routes in the background while
+ * the graph is edited; both give the same results for the same topology
+ * and seed. Call {@link #close()} to detach it and stop the workers.
+ */
+public final class Simulator implements GraphListener, AutoCloseable {
+
+    // Totals over all simulators, recorded only while Metrics is enabled
+    private static final Histogram RUN_LATENCY = Metrics.latency("sim.run.latency");
+    private static final Counter EVENTS = Metrics.counter("sim.events");
+    private static final Counter WINDOWS = Metrics.counter("sim.windows");
+
+    // Graph followed, or null on a fixed topology
+    private final Graph graph;
+    private final LinkTable links;
+    private final long seed;
+
+    // Region of every node, and how many nodes each region has
+    private int[] region;
+    private final int[] regionSize;
+    private final Partition[] partitions;
+    private final ForkJoinPool pool;
+
+    // Per-node event counters (part of the event keys) and removal flags
+    private int[] counter;
+    private boolean[] removed;
+
+    // Constant-bit-rate flows: packets left and interval; written only by the source's region
+    private int[] flowRemaining = new int[4];
+    private double[] flowInterval = new double[4];
+    private int flowCount;
+
+    // Transmission delay per hop and the maximum random jitter added to it
+    private double linkDelay = 0.002;
+    private double jitter = 0.001;
+
+    private double now;
+
+    /**
+     * Creates a sequential simulator at time 0 over the current topology of a graph.
+     * @param seed Seed of the jitter
+     */
+    public Simulator(Graph graph, long seed) {
+        this(graph, seed, 1);
+    }
+
+    /**
+     * Creates a simulator whose nodes are split into spatial regions that
+     * run in parallel.
+     * @param seed    Seed of the jitter
+     * @param regions Number of regions (and worker threads); 1 runs sequentially
+     */
+    public Simulator(Graph graph, long seed, int regions) {
+        this(graph, new LinkTable(graph), seed, regions);
+        graph.addGraphListener(this);
+    }
+
+    /**
+     * Creates a sequential simulator at time 0 over a published topology.
+     * @param seed Seed of the jitter
+     */
+    public Simulator(GraphVersion topology, long seed) {
+        this(topology, seed, 1);
+    }
+
+    /**
+     * Creates a simulator over a published topology whose nodes are split
+     * into spatial regions that run in parallel.
+     * @param seed    Seed of the jitter
+     * @param regions Number of regions (and worker threads); 1 runs sequentially
+     */
+    public Simulator(GraphVersion topology, long seed, int regions) {
+        this(null, new LinkTable(topology), seed, regions);
+    }
+
+    // graph: the graph followed, or null for a fixed topology
+    private Simulator(Graph graph, LinkTable links, long seed, int regions) {
+        this.graph = graph;
+        this.links = links;
+        this.seed = seed;
+        int n = links.size();
+        this.region = SpatialPartitioner.partition(links, regions);
+        this.regionSize = new int[regions];
+        for (int u = 0; u < n; u++) regionSize[region[u]]++;
+        this.counter = new int[Math.max(16, n)];
+        this.removed = new boolean[Math.max(16, n)];
+        this.partitions = new Partition[regions];
+        for (int r = 0; r < regions; r++) partitions[r] = new Partition(this, r, regions);
+        this.pool = regions > 1 ? new ForkJoinPool(regions) : null;
+    }
+
+    // Returns the node <-> index mapping and current links
+    public LinkTable links() {
+        return links;
+    }
+
+    // Returns the number of regions
+    public int regionCount() {
+        return partitions.length;
+    }
+
+    // Returns the region a node runs in
+    public int regionOf(int node) {
+        return region[node];
+    }
+
+    // Returns the protocol instance of every region, e.g. to change its parameters
+    public List<AodvProtocol> protocols() {
+        List<AodvProtocol> list = new ArrayList<>(partitions.length);
+        for (Partition p : partitions) list.add(p.protocol);
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Sets the per-hop transmission delay and its maximum random jitter, in
+     * seconds. The delay is also the lookahead of partitioned runs, so it
+     * must be positive there; larger values mean fewer synchronizations.
+     */
+    public void setLinkDelay(double delay, double maxJitter) {
+        this.linkDelay = delay;
+        this.jitter = maxJitter;
+    }
+
+    // Returns the current simulation time
+    public double now() {
+        return now;
+    }
+
+    // Returns the number of events processed so far
+    public long eventCount() {
+        long sum = 0;
+        for (Partition p : partitions) sum += p.processed;
+        return sum;
+    }
+
+    // Returns the number of events still queued
+    public int pendingEvents() {
+        int sum = 0;
+        for (Partition p : partitions) sum += p.queue.size();
+        return sum;
+    }
+
+    // Returns the protocol statistics summed over all regions
+    public AodvStats stats() {
+        AodvStats total = new AodvStats();
+        for (Partition p : partitions) total.add(p.protocol.stats());
+        return total;
+    }
+
+    /**
+     * Follows the route tables from a node to a destination.
+     * @return Node indices of the route, or null if there is no complete route
+     */
+    public int[] route(int from, int destination) {
+        int[] path = new int[links.size() + 1];
+        int length = 0;
+        path[length++] = from;
+        for (int v = from; v != destination; ) {
+            if (length > links.size()) return null; // loop
+            v = partitions[region[v]].protocol.nextHop(v, destination);
+            if (v < 0) return null;
+            path[length++] = v;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    /** Schedules one data packet from source to destination at a given time. */
+    public void sendData(int source, int destination, double at) {
+        Packet p = new Packet();
+        p.origin = source;
+        p.destination = destination;
+        p.id = -1;
+        partitions[region[source]].schedule(Math.max(at, now), source, Partition.SEND, source, p);
+    }
+
+    /** Schedules one data packet between two nodes of the graph. */
+    public void sendData(Node source, Node destination, double at) {
+        sendData(links.indexOf(source), links.indexOf(destination), at);
+    }
+
+    /**
+     * Adds a constant-bit-rate flow: packets data packets from source to
+     * destination, the first at start and then one every interval seconds.
+     * Only the next packet of a flow is queued at any time.
+     */
+    public void addFlow(int source, int destination, double start, double interval, int packets) {
+        if (packets <= 0) return;
+        if (flowCount == flowRemaining.length) {
+            flowRemaining = Arrays.copyOf(flowRemaining, flowCount << 1);
+            flowInterval = Arrays.copyOf(flowInterval, flowCount << 1);
+        }
+        flowRemaining[flowCount] = packets;
+        flowInterval[flowCount] = interval;
+        Packet p = new Packet();
+        p.origin = source;
+        p.destination = destination;
+        p.id = flowCount++;
+        partitions[region[source]].schedule(Math.max(start, now), source, Partition.SEND, source, p);
+    }
+
+    /**
+     * Processes all events up to and including time until, then advances
+     * the clock to until.
+     * @return The number of events processed by this call
+     */
+    public long run(double until) {
+        long start = Metrics.start();
+        long before = eventCount();
+        if (partitions.length == 1) {
+            partitions[0].process(Double.POSITIVE_INFINITY, until);
+        } else {
+            runPartitioned(until);
+        }
+
+        double reached = now;
+        for (Partition p : partitions) reached = Math.max(reached, p.now());
+        if (until != Double.POSITIVE_INFINITY) reached = Math.max(reached, until);
+        now = reached;
+        for (Partition p : partitions) p.advanceTo(now);
+        long processed = eventCount() - before;
+        if (start != Metrics.OFF) {
+            RUN_LATENCY.recordSince(start);
+            EVENTS.add(processed);
+        }
+        return processed;
+    }
+
+    // Processes events until none are left
+    public long runAll() {
+        return run(Double.POSITIVE_INFINITY);
+    }
+
+    private void runPartitioned(double until) {
+        if (linkDelay <= 0) {
+            throw new IllegalStateException("Partitioned runs need a positive link delay as lookahead");
+        }
+        Partition[] parts = partitions;
+        while (true) {
+            double next = Double.POSITIVE_INFINITY;
+            for (Partition p : parts) next = Math.min(next, p.nextTime());
+            if (next == Double.POSITIVE_INFINITY || next > until) break;
+
+            // Nothing sent during this window can arrive before its end
+            double end = next + linkDelay;
+            if (Metrics.enabled()) WINDOWS.increment();
+            pool.submit(() -> IntStream.range(0, parts.length).parallel()
+                    .forEach(r -> parts[r].process(end, until))).join();
+
+            // Exchange only once every region has stopped writing to its outboxes;
+            // this also leaves nothing in transit when the run ends
+            pool.submit(() -> IntStream.range(0, parts.length).parallel()
+                    .forEach(r -> parts[r].collect(parts))).join();
+        }
+    }
+
+    // ----- Used by the partitions -----
+
+    // Returns a fresh event key: the causing node and its running counter
+    long nextKey(int node) {
+        return ((long) node << 32) | (counter[node]++ & 0xffffffffL);
+    }
+
+    // Delay of the hop with the given event key: link delay plus hashed jitter
+    double hopDelay(long key) {
+        long h = key ^ seed * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return linkDelay + jitter * ((h >>> 11) * 0x1.0p-53);
+    }
+
+    // Returns true if a node was removed from the graph
+    boolean isRemoved(int node) {
+        return removed[node];
+    }
+
+    // Consumes one packet of a flow; returns the interval to the next one, or -1 if it was the last
+    double nextFlowPacket(int flow) {
+        return --flowRemaining[flow] > 0 ? flowInterval[flow] : -1;
+    }
+
+    // ----- GraphListener -----
+
+    @Override
+    public void nodeAdded(Node n) {
+        int u = links.add(n);
+        if (u >= counter.length) {
+            int cap = Math.max(u + 1, counter.length << 1);
+            counter = Arrays.copyOf(counter, cap);
+            removed = Arrays.copyOf(removed, cap);
+        }
+        if (u >= region.length) region = Arrays.copyOf(region, Math.max(u + 1, region.length << 1));
+
+        // New nodes join the smallest region
+        int r = 0;
+        for (int i = 1; i < regionSize.length; i++) {
+            if (regionSize[i] < regionSize[r]) r = i;
+        }
+        region[u] = r;
+        regionSize[r]++;
+        for (Partition p : partitions) p.protocol.ensureNodes(links.size());
+    }
+
+    @Override
+    public void nodeRemoved(Node n) {
+        int u = links.indexOf(n);
+        if (u < 0) return;
+        links.isolate(u);
+        removed[u] = true;
+    }
+
+    @Override
+    public void edgeAdded(Node a, Node b, double weight) {
+        links.link(links.indexOf(a), links.indexOf(b));
+    }
+
+    @Override
+    public void edgeRemoved(Node a, Node b, double weight) {
+        int u = links.indexOf(a), v = links.indexOf(b);
+        if (!links.unlink(u, v)) return;
+        breakLink(u, v);
+        breakLink(v, u);
+    }
+
+    // Tells node u, at the current time, that its link to v is gone
+    private void breakLink(int u, int v) {
+        Packet p = new Packet();
+        p.receiver = u;
+        p.sender = v;
+        partitions[region[u]].schedule(now, u, Partition.LINK_BREAK, u, p);
+    }
+
+    // Detaches from the graph and stops the worker threads
+    @Override
+    public void close() {
+        if (graph != null) graph.removeGraphListener(this);
+        if (pool != null) pool.shutdown();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.routingsim.sim;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Splits nodes into regions of contiguous space by recursive coordinate
+ * bisection: the node set is cut at the median of its longer side, and
+ * each half is cut again until there are as many regions as requested.
+ * Regions end up with (nearly) equal node counts, and because links in an
+ * ad hoc network are short, few of them cross a region boundary.
+ */
+public final class SpatialPartitioner {
+
+    private SpatialPartitioner() {
+    }
+
+    /**
+     * Assigns every node of a link table to one of parts regions.
+     * @return Region index (0 .. parts - 1) per node index
+     */
+    public static int[] partition(LinkTable links, int parts) {
+        if (parts < 1) throw new IllegalArgumentException("parts must be at least 1");
+        int n = links.size();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        int[] region = new int[n];
+        split(links, order, 0, n, 0, parts, region);
+        return region;
+    }
+
+    // Assigns order[from, to) to the regions firstRegion .. firstRegion + parts - 1
+    private static void split(LinkTable links, Integer[] order, int from, int to,
+                              int firstRegion, int parts, int[] region) {
+        if (parts == 1 || to - from <= 1) {
+            for (int i = from; i < to; i++) region[order[i]] = firstRegion;
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            double x = links.x(order[i]), y = links.y(order[i]);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        Comparator<Integer> byAxis = maxX - minX >= maxY - minY
+                ? Comparator.comparingDouble(links::x)
+                : Comparator.comparingDouble(links::y);
+        // Ties broken by index so the result does not depend on the sort's stability
+        Arrays.sort(order, from, to, byAxis.thenComparingInt(u -> u));
+
+        // Uneven part counts get proportionally sized halves
+        int leftParts = parts / 2;
+        int mid = from + (int) ((long) (to - from) * leftParts / parts);
+        split(links, order, from, mid, firstRegion, leftParts, region);
+        split(links, order, mid, to, firstRegion + leftParts, parts - leftParts, region);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.routingsim.trace;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.example.routingsim.routing.Metric;
+
+/**
+ * Binary format of scenario journals, shared by {@link ScenarioRecorder}
+ * and {@link ScenarioReplayer}. A journal is a header
+ * <pre>
+ * int magic "RSCN", int format version, long seed, long start (epoch millis)
+ * </pre>
+ * followed by records until the end of the file, each a tag byte, the
+ * microseconds since the previous record as a varint, and the payload:
+ * <pre>
+ * NODE_ADDED   id (varint length + UTF-8), double x, double y
+ * NODE_REMOVED node
+ * NODE_MOVED   node, double x, double y
+ * EDGE_ADDED   a, b, double weight
+ * EDGE_REMOVED a, b
+ * WEIGHT       from, to, double weight          one direction, as Edge.setWeight
+ * ROUTE        mode, [long seed if AODV], source, destination,
+ *              varlong latency (ns), varint path length + 1 (0 = no route), path nodes
+ * </pre>
+ * Nodes are varint numbers in the order of their NODE_ADDED records and
+ * are never reused. Fixed-width values are big-endian (DataOutputStream).
+ */
+final class ScenarioJournal {
+
+    static final int MAGIC = 0x5253434E; // "RSCN"
+    static final int VERSION = 1;
+
+    // Record tags
+    static final int NODE_ADDED = 1, NODE_REMOVED = 2, NODE_MOVED = 3;
+    static final int EDGE_ADDED = 4, EDGE_REMOVED = 5, WEIGHT = 6, ROUTE = 7;
+
+    // Route mode AODV (a route discovery in the simulator); mode m + 1 is METRICS[m]
+    static final int AODV = 0;
+
+    // Search metrics by mode - 1, fixed here so reordering the enum does not change the format
+    private static final Metric[] METRICS = {
+            Metric.HOP, Metric.WEIGHT, Metric.ASTAR, Metric.BIDIRECTIONAL_HOP, Metric.BIDIRECTIONAL_WEIGHT
+    };
+
+    private ScenarioJournal() {
+    }
+
+    // Returns the route mode of a search metric
+    static int mode(Metric metric) {
+        for (int i = 0; i < METRICS.length; i++) {
+            if (METRICS[i] == metric) return i + 1;
+        }
+        throw new IllegalArgumentException("No journal mode for " + metric);
+    }
+
+    // Returns the search metric of a route mode, or null for AODV
+    static Metric metric(int mode) throws IOException {
+        if (mode == AODV) return null;
+        if (mode < 1 || mode > METRICS.length) throw new IOException("Unknown route mode " + mode);
+        return METRICS[mode - 1];
+    }
+
+    // Returns the name of a route mode as used in reports: "aodv" or the metric in lower case
+    static String modeName(int mode) {
+        return mode == AODV ? "aodv" : METRICS[mode - 1].name().toLowerCase();
+    }
+
+    // Writes a non-negative long in 7-bit groups, low group first
+    static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        long v = readVarLong(in);
+        if (v > Integer.MAX_VALUE) throw new IOException("Varint out of range: " + v);
+        return (int) v;
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length > 1 << 20) throw new IOException("Node ID too long: " + length + " bytes");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
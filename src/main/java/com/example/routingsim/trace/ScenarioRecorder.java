@@ -0,0 +1,282 @@
+package com.example.routingsim.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.example.routingsim.model.Edge;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphListener;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.routing.Metric;
+
+/**
+ * Records a session on a {@link Graph} into a scenario journal (see
+ * {@link ScenarioJournal} for the format) that {@link ScenarioReplayer}
+ * re-executes: every node and edge edit, reported as a
+ * {@link GraphListener}, and every route request with its answer and
+ * latency, reported by the caller.
+ *
+ * The journal starts with the nodes and edges the graph already has, so a
+ * recording can begin at any point of a session. Random choices that
+ * affect routes, such as the jitter seed of an AODV discovery, should be
+ * drawn from {@link #nextSeed()}: the journal holds the session seed and
+ * every seed used, so the replay makes the same choices.
+ *
+ * Writes are buffered and flushed after every route request. An I/O error
+ * stops the recording instead of failing the graph edit that caused it;
+ * {@link #getError()} returns it. Like the Graph it is not thread-safe.
+ */
+public final class ScenarioRecorder implements GraphListener, AutoCloseable {
+
+    private final Graph graph;
+    private final DataOutputStream out;
+    private final long seed;
+    private final SplittableRandom random;
+
+    // Journal number by node handle (-1 = none); checked against numbered since graphs reuse handles
+    private int[] numbers = new int[0];
+    private Node[] numbered = new Node[0];
+    private int nextNumber;
+
+    // System.nanoTime() of the last record
+    private long lastRecord;
+
+    private long records;
+    private IOException error;
+
+    /**
+     * Starts recording a graph into a new journal file, replacing any file
+     * that is there.
+     * @param seed Session seed, from which {@link #nextSeed()} draws
+     */
+    public ScenarioRecorder(Graph graph, Path file, long seed) throws IOException {
+        this.graph = graph;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        try {
+            out.writeInt(ScenarioJournal.MAGIC);
+            out.writeInt(ScenarioJournal.VERSION);
+            out.writeLong(seed);
+            out.writeLong(System.currentTimeMillis());
+            lastRecord = System.nanoTime();
+            writeGraph();
+            out.flush();
+        } catch (IOException ex) {
+            out.close();
+            throw ex;
+        }
+        graph.addGraphListener(this);
+    }
+
+    // Returns the session seed
+    public long getSeed() {
+        return seed;
+    }
+
+    // Returns the next seed for a random choice of the session
+    public long nextSeed() {
+        return random.nextLong();
+    }
+
+    // Returns the number of records written
+    public long getRecords() {
+        return records;
+    }
+
+    // Returns the I/O error that stopped the recording, or null
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Records a route request answered by a graph search.
+     * @param path         The route returned, or null if there was none
+     * @param latencyNanos Time taken to answer, as the caller measured it
+     */
+    public void routeSearched(Node source, Node destination, Metric metric, List<Node> path, long latencyNanos) {
+        route(ScenarioJournal.mode(metric), 0, source, destination, path, latencyNanos);
+    }
+
+    /**
+     * Records a route request answered by an AODV route discovery in the
+     * simulator with the given jitter seed.
+     * @param path         The route returned, or null if there was none
+     * @param latencyNanos Time taken to answer, as the caller measured it
+     */
+    public void routeDiscovered(Node source, Node destination, long seed, List<Node> path, long latencyNanos) {
+        route(ScenarioJournal.AODV, seed, source, destination, path, latencyNanos);
+    }
+
+    // Writes out everything recorded so far
+    public void flush() {
+        if (error != null) return;
+        try {
+            out.flush();
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    // Detaches from the graph and closes the journal
+    @Override
+    public void close() throws IOException {
+        graph.removeGraphListener(this);
+        out.close();
+        if (error != null) throw error;
+    }
+
+    // ----- GraphListener -----
+
+    @Override
+    public void nodeAdded(Node n) {
+        if (!begin(ScenarioJournal.NODE_ADDED)) return;
+        try {
+            ScenarioJournal.writeString(out, n.getId());
+            out.writeDouble(n.getX());
+            out.writeDouble(n.getY());
+            number(n);
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    @Override
+    public void nodeRemoved(Node n) {
+        int u = numberOf(n);
+        if (u < 0 || !begin(ScenarioJournal.NODE_REMOVED)) return;
+        try {
+            ScenarioJournal.writeVarLong(out, u);
+        } catch (IOException ex) {
+            error = ex;
+        }
+        numbered[n.getHandle()] = null;
+    }
+
+    @Override
+    public void nodeMoved(Node n, double oldX, double oldY) {
+        int u = numberOf(n);
+        if (u < 0 || !begin(ScenarioJournal.NODE_MOVED)) return;
+        try {
+            ScenarioJournal.writeVarLong(out, u);
+            out.writeDouble(n.getX());
+            out.writeDouble(n.getY());
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    @Override
+    public void edgeAdded(Node a, Node b, double weight) {
+        edge(ScenarioJournal.EDGE_ADDED, a, b, weight);
+    }
+
+    @Override
+    public void edgeRemoved(Node a, Node b, double weight) {
+        // The edges of a removed node go with its NODE_REMOVED record
+        if (graph.node(a.getHandle()) != a || graph.node(b.getHandle()) != b) return;
+        edge(ScenarioJournal.EDGE_REMOVED, a, b, Double.NaN);
+    }
+
+    @Override
+    public void edgeWeightChanged(Edge e, double oldWeight) {
+        edge(ScenarioJournal.WEIGHT, e.getFrom(), e.getTo(), e.getWeight());
+    }
+
+    // ----- Writing -----
+
+    // Writes the nodes and edges the graph has when the recording starts
+    private void writeGraph() throws IOException {
+        for (Node n : graph.getNodes()) {
+            nodeAdded(n);
+            if (error != null) throw error;
+        }
+        for (Node a : graph.getNodes()) {
+            for (Edge e : graph.getEdges(a)) {
+                Node b = e.getTo();
+                if (b.getHandle() < a.getHandle()) continue;
+                edgeAdded(a, b, e.getWeight());
+                // Weights set on one direction only
+                Edge back = graph.getEdge(b, a);
+                if (back != null && back.getWeight() != e.getWeight()) edgeWeightChanged(back, e.getWeight());
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    private void edge(int tag, Node a, Node b, double weight) {
+        int u = numberOf(a), v = numberOf(b);
+        if (u < 0 || v < 0 || !begin(tag)) return;
+        try {
+            ScenarioJournal.writeVarLong(out, u);
+            ScenarioJournal.writeVarLong(out, v);
+            if (tag != ScenarioJournal.EDGE_REMOVED) out.writeDouble(weight);
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    private void route(int mode, long seed, Node source, Node destination, List<Node> path, long latencyNanos) {
+        int s = numberOf(source), t = numberOf(destination);
+        if (s < 0 || t < 0) throw new IllegalArgumentException("Route endpoints must be nodes of the recorded graph");
+        int[] nodes = new int[path == null ? 0 : path.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = numberOf(path.get(i));
+            if (nodes[i] < 0) throw new IllegalArgumentException("Route leaves the recorded graph");
+        }
+        if (!begin(ScenarioJournal.ROUTE)) return;
+        try {
+            ScenarioJournal.writeVarLong(out, mode);
+            if (mode == ScenarioJournal.AODV) out.writeLong(seed);
+            ScenarioJournal.writeVarLong(out, s);
+            ScenarioJournal.writeVarLong(out, t);
+            ScenarioJournal.writeVarLong(out, Math.max(0, latencyNanos));
+            ScenarioJournal.writeVarLong(out, path == null ? 0 : nodes.length + 1);
+            for (int u : nodes) ScenarioJournal.writeVarLong(out, u);
+            out.flush();
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    // Writes the tag and time of a record; false once the recording has failed
+    private boolean begin(int tag) {
+        if (error != null) return false;
+        long now = System.nanoTime();
+        try {
+            out.writeByte(tag);
+            ScenarioJournal.writeVarLong(out, Math.max(0, (now - lastRecord) / 1000));
+        } catch (IOException ex) {
+            error = ex;
+            return false;
+        }
+        // Keep the remainder, so rounding errors do not add up over a session
+        lastRecord = now - (now - lastRecord) % 1000;
+        records++;
+        return true;
+    }
+
+    // Gives a node the next journal number
+    private void number(Node n) {
+        int h = n.getHandle();
+        if (h >= numbers.length) {
+            int cap = Math.max(h + 1, numbers.length << 1);
+            numbers = Arrays.copyOf(numbers, cap);
+            numbered = Arrays.copyOf(numbered, cap);
+        }
+        numbers[h] = nextNumber++;
+        numbered[h] = n;
+    }
+
+    // Journal number of a node, or -1 if it has none
+    private int numberOf(Node n) {
+        int h = n == null ? -1 : n.getHandle();
+        return h >= 0 && h < numbers.length && numbered[h] == n ? numbers[h] : -1;
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.routingsim.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.routingsim.model.Edge;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.routing.Metric;
+import com.example.routingsim.routing.RouteCache;
+import com.example.routingsim.sim.LinkTable;
+import com.example.routingsim.sim.Simulator;
+
+/**
+ * Re-executes a scenario journal written by {@link ScenarioRecorder}
+ * headlessly and as fast as possible: the graph edits are applied to a
+ * {@link Graph} in journal order, and every route request is answered
+ * again the way it was recorded (the same search metric, or an AODV
+ * discovery with the same seed) and compared with the recorded route:
+ * <ul>
+ *   <li>same: the identical node sequence;</li>
+ *   <li>equivalent: another route of the same cost (hops or weight);</li>
+ *   <li>different: a different cost, or a route where there was none or
+ *       the other way round.</li>
+ * </ul>
+ * Only equivalent and different routes produce an output line
+ * <pre>
+ * offset  source  destination  mode  result  recorded-cost  replayed-cost
+ * </pre>
+ * with the offset in seconds since the recording started and "none" as
+ * the cost of a missing route. The replay times every edit and request:
+ * {@link #summary()} gives the throughput and the session time against
+ * the replay time, and {@link #latencyReport()} the request latencies of
+ * the recording against the replay per mode, so a journal of a real
+ * operator session works as a regression benchmark.
+ *
+ * Requests are searched every time unless {@link #setRouteCache} puts a
+ * route cache in front of them as in the app; recorded latencies of
+ * requests the app answered from its cache are then comparable again.
+ */
+public final class ScenarioReplayer {
+
+    private final Graph graph;
+    private RouteCache cache;
+
+    // Nodes by journal number, null once removed
+    private Node[] nodes = new Node[64];
+    private int nodeCount;
+
+    // Recorded and replayed request latencies by route mode
+    private final Latencies[] recorded = new Latencies[6], replayed = new Latencies[6];
+
+    // Statistics
+    private long records, edits, ignored, routes, same, equivalent, different;
+    private long editNanos, routeNanos, replayNanos, sessionMicros;
+    private long seed = -1;
+    private boolean truncated;
+
+    /**
+     * Creates a replayer that edits a graph.
+     * @param graph Starting topology, normally empty as the journal holds the recorded one
+     */
+    public ScenarioReplayer(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Answers search requests through a route cache of the given capacity,
+     * as the app does, or searches every one (capacity 0, the default).
+     */
+    public void setRouteCache(int capacity) {
+        cache = capacity > 0 ? new RouteCache(graph, capacity) : null;
+    }
+
+    /**
+     * Replays a journal, writing one line per route that is not the same as
+     * the recorded one if out is not null. A journal that ends within a
+     * record (e.g. the session was killed) is replayed up to that record.
+     * @throws IOException If the input is not a scenario journal or is corrupt
+     */
+    public void run(InputStream input, Writer out) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        if (in.readInt() != ScenarioJournal.MAGIC) throw new IOException("Not a scenario journal");
+        int version = in.readInt();
+        if (version != ScenarioJournal.VERSION) throw new IOException("Unsupported journal version " + version);
+        seed = in.readLong();
+        in.readLong(); // start time, informational
+        if (out != null) out.write("# offset\tsource\tdestination\tmode\tresult\trecorded-cost\treplayed-cost\n");
+
+        long start = System.nanoTime();
+        try {
+            int tag;
+            while ((tag = in.read()) >= 0) {
+                sessionMicros += ScenarioJournal.readVarLong(in);
+                if (tag == ScenarioJournal.ROUTE) route(in, out);
+                else edit(tag, in);
+                records++;
+            }
+        } catch (EOFException ex) {
+            truncated = true;
+        } finally {
+            replayNanos += System.nanoTime() - start;
+        }
+    }
+
+    // Returns the session seed of the last journal, or -1 before one was read
+    public long getSeed() {
+        return seed;
+    }
+
+    // Returns the number of route requests replayed
+    public long getRoutes() {
+        return routes;
+    }
+
+    // Returns the number of replayed routes identical to the recorded ones
+    public long getSame() {
+        return same;
+    }
+
+    // Returns the number of replayed routes that differ from the recorded ones but cost the same
+    public long getEquivalent() {
+        return equivalent;
+    }
+
+    // Returns the number of replayed routes whose cost or reachability differs from the recording
+    public long getDifferent() {
+        return different;
+    }
+
+    // Returns true if the journal ended within a record
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    // Returns a one-line summary of the replay so far
+    public String summary() {
+        double replayMs = replayNanos / 1e6;
+        return String.format("records=%d edits=%d ignored=%d routes=%d same=%d equivalent=%d different=%d%s"
+                        + " | session=%.1fs replay=%.1fms speedup=%.0fx edits/s=%.0f routes/s=%.0f",
+                records, edits, ignored, routes, same, equivalent, different, truncated ? " truncated" : "",
+                sessionMicros / 1e6, replayMs, replayNanos == 0 ? 0 : sessionMicros * 1e3 / replayNanos,
+                rate(edits, editNanos), rate(routes, routeNanos));
+    }
+
+    /**
+     * Returns the request latencies per route mode, one line each:
+     * the count, then p50, p90, p99 and the maximum in microseconds as
+     * recorded and as replayed, and the change of the median.
+     */
+    public String latencyReport() {
+        StringBuilder sb = new StringBuilder(String.format("%-21s %8s %29s   %29s   %s%n",
+                "mode", "count", "recorded p50/p90/p99/max us", "replayed p50/p90/p99/max us", "p50 change"));
+        for (int mode = 0; mode < recorded.length; mode++) {
+            if (recorded[mode] == null) continue;
+            Latencies r = recorded[mode], p = replayed[mode];
+            double before = r.percentile(50), after = p.percentile(50);
+            sb.append(String.format("%-21s %8d %29s   %29s   %s%n", ScenarioJournal.modeName(mode), r.count,
+                    r.format(), p.format(), before == 0 ? "-" : String.format("%+.1f%%", 100 * (after - before) / before)));
+        }
+        return sb.toString();
+    }
+
+    private static double rate(long count, long nanos) {
+        return nanos == 0 ? 0 : count * 1e9 / nanos;
+    }
+
+    // ----- Records -----
+
+    private void edit(int tag, DataInputStream in) throws IOException {
+        long start = System.nanoTime();
+        switch (tag) {
+            case ScenarioJournal.NODE_ADDED: {
+                String id = ScenarioJournal.readString(in);
+                double x = in.readDouble(), y = in.readDouble();
+                if (nodeCount == nodes.length) nodes = Arrays.copyOf(nodes, nodeCount << 1);
+                nodes[nodeCount++] = graph.addNode(id, x, y);
+                break;
+            }
+            case ScenarioJournal.NODE_REMOVED: {
+                int u = readNode(in);
+                graph.removeNode(nodes[u]);
+                nodes[u] = null;
+                break;
+            }
+            case ScenarioJournal.NODE_MOVED: {
+                Node n = nodes[readNode(in)];
+                n.setPos(in.readDouble(), in.readDouble());
+                break;
+            }
+            case ScenarioJournal.EDGE_ADDED: {
+                Node a = nodes[readNode(in)], b = nodes[readNode(in)];
+                graph.addEdge(a, b, in.readDouble());
+                break;
+            }
+            case ScenarioJournal.EDGE_REMOVED: {
+                Node a = nodes[readNode(in)], b = nodes[readNode(in)];
+                graph.removeEdge(a, b);
+                break;
+            }
+            case ScenarioJournal.WEIGHT: {
+                Node a = nodes[readNode(in)], b = nodes[readNode(in)];
+                double w = in.readDouble();
+                Edge e = graph.getEdge(a, b);
+                // Weight changes of edges that were removed already changed nothing
+                if (e == null) {
+                    ignored++;
+                    return;
+                }
+                e.setWeight(w);
+                break;
+            }
+            default:
+                throw new IOException("Unknown record tag " + tag + " after " + records + " records");
+        }
+        edits++;
+        editNanos += System.nanoTime() - start;
+    }
+
+    private void route(DataInputStream in, Writer out) throws IOException {
+        int mode = ScenarioJournal.readVarInt(in);
+        Metric metric = ScenarioJournal.metric(mode);
+        long jitterSeed = metric == null ? in.readLong() : 0;
+        Node source = nodes[readNode(in)], destination = nodes[readNode(in)];
+        long latency = ScenarioJournal.readVarLong(in);
+        int length = ScenarioJournal.readVarInt(in);
+        Node[] expected = null;
+        if (length > 0) {
+            expected = new Node[length - 1];
+            for (int i = 0; i < expected.length; i++) expected[i] = nodes[readNode(in)];
+        }
+
+        long start = System.nanoTime();
+        List<Node> path = metric == null ? discover(source, destination, jitterSeed) : search(source, destination, metric);
+        long elapsed = System.nanoTime() - start;
+        routeNanos += elapsed;
+        routes++;
+        latencies(recorded, mode).add(latency);
+        latencies(replayed, mode).add(elapsed);
+
+        if (path == null ? expected == null : expected != null && path.equals(Arrays.asList(expected))) {
+            same++;
+            return;
+        }
+        boolean weighted = metric != null && metric.isWeighted();
+        double before = expected == null ? Double.NaN : cost(Arrays.asList(expected), weighted);
+        double after = path == null ? Double.NaN : cost(path, weighted);
+        boolean tie = before == after || Math.abs(before - after) <= 1e-9 * Math.max(1, Math.abs(before));
+        if (tie) equivalent++;
+        else different++;
+        if (out != null) {
+            out.write(String.format("%.6f\t%s\t%s\t%s\t%s\t%s\t%s%n", sessionMicros / 1e6, source.getId(), destination.getId(),
+                    ScenarioJournal.modeName(mode), tie ? "equivalent" : "different", format(before), format(after)));
+        }
+    }
+
+    private List<Node> search(Node source, Node destination, Metric metric) {
+        return cache != null ? cache.findPath(source, destination, metric) : graph.current().findPath(source, destination, metric);
+    }
+
+    // Same discovery as the app's: one data packet through a fresh simulator
+    private List<Node> discover(Node source, Node destination, long jitterSeed) {
+        try (Simulator sim = new Simulator(graph.current(), jitterSeed)) {
+            LinkTable links = sim.links();
+            sim.sendData(source, destination, 0);
+            sim.runAll();
+            int[] route = sim.route(links.indexOf(source), links.indexOf(destination));
+            if (route == null) return null;
+            List<Node> path = new ArrayList<>(route.length);
+            for (int i : route) path.add(links.nodeAt(i));
+            return path;
+        }
+    }
+
+    // Hops or total weight of a route in the current graph, NaN if it uses a missing edge
+    private double cost(List<Node> path, boolean weighted) {
+        double cost = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            Edge e = graph.getEdge(path.get(i), path.get(i + 1));
+            if (e == null) return Double.NaN;
+            cost += weighted ? e.getWeight() : 1;
+        }
+        return cost;
+    }
+
+    private static String format(double cost) {
+        return Double.isNaN(cost) ? "none" : Double.toString(cost);
+    }
+
+    private int readNode(DataInputStream in) throws IOException {
+        int u = ScenarioJournal.readVarInt(in);
+        if (u >= nodeCount || nodes[u] == null) throw new IOException("Record " + records + " refers to unknown node " + u);
+        return u;
+    }
+
+    private static Latencies latencies(Latencies[] byMode, int mode) {
+        if (byMode[mode] == null) byMode[mode] = new Latencies();
+        return byMode[mode];
+    }
+
+    /** Growable list of latencies in nanoseconds with exact percentiles. */
+    private static final class Latencies {
+        private long[] values = new long[64];
+        private int count;
+        private boolean sorted;
+
+        void add(long nanos) {
+            if (count == values.length) values = Arrays.copyOf(values, count << 1);
+            values[count++] = nanos;
+            sorted = false;
+        }
+
+        // Returns the nearest-rank percentile, or 0 if empty
+        long percentile(double percent) {
+            if (count == 0) return 0;
+            if (!sorted) {
+                Arrays.sort(values, 0, count);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(percent / 100 * count);
+            return values[Math.max(0, Math.min(count, rank) - 1)];
+        }
+
+        String format() {
+            return String.format("%.1f/%.1f/%.1f/%.1f", percentile(50) / 1e3, percentile(90) / 1e3,
+                    percentile(99) / 1e3, percentile(100) / 1e3);
+        }
+    }
+}
@@ -0,0 +1,501 @@
+package com.example.routingsim.trace;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.example.routingsim.io.Tokens;
+import com.example.routingsim.model.Edge;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.Node;
+import com.example.routingsim.routing.Metric;
+
+/**
+ * Replays a recorded, time-ordered trace of topology changes against a
+ * {@link Graph} and answers the route queries embedded in it. Each line is
+ * <pre>
+ * # comment
+ * &lt;time&gt; up     &lt;a&gt; &lt;b&gt; &lt;weight&gt;   link came up (or changed weight); unknown nodes are created at (0, 0)
+ * &lt;time&gt; down   &lt;a&gt; &lt;b&gt;            link went down
+ * &lt;time&gt; weight &lt;a&gt; &lt;b&gt; &lt;weight&gt;   weight of an existing link changed
+ * &lt;time&gt; node   &lt;id&gt; &lt;x&gt; &lt;y&gt;       node joined (or moved)
+ * &lt;time&gt; fail   &lt;id&gt;               node failed, with all its links
+ * &lt;time&gt; query  &lt;a&gt; &lt;b&gt; [metric]     route query, metric as in query files (default hop)
+ * </pre>
+ * and produces, for every query, one tab-separated output line
+ * <pre>
+ * time  source  destination  metric  status  cost  hops  action
+ * </pre>
+ * where action tells how the route relates to the previous answer for the
+ * same query: first, kept (still provably optimal, not searched again),
+ * same, changed, lost (now unreachable) or found (reachable again).
+ *
+ * The trace is streamed, so memory does not depend on its length. Link
+ * events between two queries are collected in a batch keyed by link, in
+ * which later events overwrite earlier ones, and applied only when the
+ * next query (or node event) needs them, as one published graph version.
+ * A link that flaps within a batch thus costs nothing, and events that
+ * leave a link as it was do not change the graph version.
+ *
+ * A route is only searched again if the batches since it was computed may
+ * have made it suboptimal: a link came up or got cheaper anywhere, or a
+ * link on the route went down or got more expensive. Removals and weight
+ * increases elsewhere cannot produce a better route, so the previous one
+ * is kept without a search.
+ */
+public final class TraceReplayer {
+
+    // Link operations in a batch
+    private static final int UP = 0, DOWN = 1, WEIGHT = 2;
+
+    // Link events collected before a batch is applied regardless of queries
+    private static final int MAX_BATCH = 1 << 16;
+
+    // Link change marks kept before they are dropped (see markHorizon)
+    private static final int MAX_MARKS = 1 << 22;
+
+    private final Graph graph;
+
+    // Replay-local number of every node ID seen, used to key links
+    private final Map<String, Integer> numbers = new HashMap<>();
+
+    // Pending link events of the current batch, by link; insertion order is kept
+    private final LinkedHashMap<Long, Pending> batch = new LinkedHashMap<>();
+
+    // Number of the last applied batch
+    private long batchNo;
+
+    // Last batch in which some route could have improved, per metric family
+    private long lastImprovingHop, lastImprovingWeight;
+
+    // Last batch in which a link went down, or got more expensive
+    private final Map<Long, Long> lastDown = new HashMap<>();
+    private final Map<Long, Long> lastIncreased = new HashMap<>();
+
+    // Routes older than this batch are searched again because their marks were dropped
+    private long markHorizon;
+
+    // Last answer per query, least recently used evicted
+    private final Map<RouteKey, Answer> answers;
+
+    // Search every query again instead of keeping provably optimal routes (for comparisons)
+    private boolean alwaysRecompute;
+
+    // Graph version the snapshot was last built for
+    private long snapshotVersion = -1;
+
+    // Statistics
+    private long events, linkEvents, applied, skipped, nodeEvents, batches, errors, outOfOrder;
+    private long queries, first, kept, same, changed, lost, found, searches, snapshots;
+    private long applyNanos, searchNanos;
+    private double lastTime = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates a replayer that edits a graph.
+     * @param graph         Starting topology; it is changed by the replay
+     * @param trackedRoutes Maximum number of distinct queries whose last route is remembered
+     */
+    public TraceReplayer(Graph graph, int trackedRoutes) {
+        if (trackedRoutes <= 0) throw new IllegalArgumentException("trackedRoutes must be > 0");
+        this.graph = graph;
+        this.answers = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RouteKey, Answer> eldest) {
+                return size() > trackedRoutes;
+            }
+        };
+    }
+
+    // Makes every query search again, e.g. to compare against the incremental replay
+    public void setAlwaysRecompute(boolean alwaysRecompute) {
+        this.alwaysRecompute = alwaysRecompute;
+    }
+
+    /**
+     * Streams a trace, writing one result line per query if out is not null.
+     * Malformed lines are counted as errors and skipped.
+     */
+    public void run(BufferedReader in, Writer out) throws IOException {
+        String[] tok = new String[6];
+        StringBuilder line = new StringBuilder(128);
+        if (out != null) out.write("# time\tsource\tdestination\tmetric\tstatus\tcost\thops\taction\n");
+
+        String text;
+        while ((text = in.readLine()) != null) {
+            int count = Tokens.split(text, tok);
+            if (count == 0 || tok[0].startsWith("#")) continue;
+            events++;
+            if (count < 3 || !event(tok, count, line)) {
+                errors++;
+                continue;
+            }
+            if (line.length() > 0 && out != null) out.write(line.toString());
+            line.setLength(0);
+        }
+        flush();
+    }
+
+    // Handles one event; returns false if it is malformed
+    private boolean event(String[] tok, int count, StringBuilder line) {
+        double time;
+        try {
+            time = Double.parseDouble(tok[0]);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        if (time < lastTime) outOfOrder++;
+        lastTime = time;
+
+        try {
+            switch (tok[1]) {
+                case "up":
+                    return count == 5 && link(UP, tok[2], tok[3], Double.parseDouble(tok[4]));
+                case "down":
+                    return count == 4 && link(DOWN, tok[2], tok[3], 0);
+                case "weight":
+                    return count == 5 && link(WEIGHT, tok[2], tok[3], Double.parseDouble(tok[4]));
+                case "node":
+                    if (count != 5) return false;
+                    nodeJoined(tok[2], Double.parseDouble(tok[3]), Double.parseDouble(tok[4]));
+                    return true;
+                case "fail":
+                    if (count != 3) return false;
+                    nodeFailed(tok[2]);
+                    return true;
+                case "query":
+                    if (count != 4 && count != 5) return false;
+                    return query(tok[0], tok[2], tok[3], count == 5 ? tok[4] : "hop", line);
+                default:
+                    return false;
+            }
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    // ----- Link batches -----
+
+    // Adds a link event to the batch, merging it with an earlier one for the same link
+    private boolean link(int op, String a, String b, double weight) {
+        if (a.equals(b)) return false;
+        linkEvents++;
+        long key = linkKey(number(a), number(b));
+        Pending p = batch.get(key);
+        if (p == null) {
+            batch.put(key, new Pending(a, b, op, weight));
+            if (batch.size() >= MAX_BATCH) flush();
+            return true;
+        }
+        skipped++;
+        if (op == WEIGHT) {
+            // Reweighting a link that is going down changes nothing; on one coming up it sets the weight
+            if (p.op != DOWN) p.weight = weight;
+        } else {
+            p.op = op;
+            p.weight = weight;
+        }
+        return true;
+    }
+
+    // Applies the pending batch to the graph
+    private void flush() {
+        if (batch.isEmpty()) return;
+        long start = System.nanoTime();
+        batchNo++;
+        batches++;
+        graph.beginBatch();
+        try {
+            for (Map.Entry<Long, Pending> e : batch.entrySet()) apply(e.getKey(), e.getValue());
+        } finally {
+            graph.endBatch();
+        }
+        batch.clear();
+        applyNanos += System.nanoTime() - start;
+    }
+
+    private void apply(long key, Pending p) {
+        Node a = graph.getNode(p.a), b = graph.getNode(p.b);
+        Edge e = a != null && b != null ? graph.getEdge(a, b) : null;
+        switch (p.op) {
+            case UP:
+                if (a == null) a = graph.addNode(p.a, 0, 0);
+                if (b == null) b = graph.addNode(p.b, 0, 0);
+                if (e == null) {
+                    graph.addEdge(p.a, p.b, p.weight);
+                    lastImprovingHop = lastImprovingWeight = batchNo;
+                    applied++;
+                } else {
+                    reweight(key, e, p);
+                }
+                break;
+            case DOWN:
+                if (e == null) {
+                    skipped++;
+                } else {
+                    graph.removeEdge(a, b);
+                    mark(lastDown, key);
+                    applied++;
+                }
+                break;
+            default:
+                if (e == null) skipped++;
+                else reweight(key, e, p);
+        }
+    }
+
+    private void reweight(long key, Edge e, Pending p) {
+        double old = e.getWeight();
+        if (old == p.weight) {
+            skipped++;
+            return;
+        }
+        graph.addEdge(p.a, p.b, p.weight);
+        if (p.weight < old) lastImprovingWeight = batchNo;
+        else mark(lastIncreased, key);
+        applied++;
+    }
+
+    // ----- Node events (applied right away, after the pending links) -----
+
+    private void nodeJoined(String id, double x, double y) {
+        flush();
+        nodeEvents++;
+        Node n = graph.getNode(id);
+        if (n == null) graph.addNode(id, x, y);
+        else n.setPos(x, y);
+    }
+
+    private void nodeFailed(String id) {
+        flush();
+        nodeEvents++;
+        Node n = graph.getNode(id);
+        if (n == null) return;
+        // Every route through the node used one of its links
+        batchNo++;
+        int u = number(id);
+        for (Edge e : graph.getEdges(n)) mark(lastDown, linkKey(u, number(e.getTo().getId())));
+        graph.removeNode(n);
+    }
+
+    // ----- Queries -----
+
+    private boolean query(String time, String source, String destination, String metricName, StringBuilder line) {
+        Metric metric;
+        try {
+            metric = Metric.parse(metricName);
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        flush();
+        Node s = graph.getNode(source), t = graph.getNode(destination);
+        if (s == null || t == null) return false;
+        queries++;
+
+        RouteKey key = new RouteKey(source, destination, metric);
+        Answer prev = answers.get(key);
+        Answer now;
+        String action;
+        if (prev != null && !alwaysRecompute && stillOptimal(prev, metric)) {
+            kept++;
+            action = "kept";
+            prev.batch = batchNo;
+            now = prev;
+        } else {
+            now = search(s, t, metric);
+            answers.put(key, now);
+            if (prev == null) {
+                first++;
+                action = "first";
+            } else {
+                action = compare(prev.path, now.path);
+            }
+        }
+
+        line.append(time).append('\t').append(source).append('\t').append(destination).append('\t')
+            .append(metric.name().toLowerCase()).append('\t');
+        if (now.path == null) line.append("none\t-\t-\t");
+        else line.append("ok\t").append(now.cost).append('\t').append(now.path.length - 1).append('\t');
+        line.append(action).append('\n');
+        return true;
+    }
+
+    private Answer search(Node s, Node t, Metric metric) {
+        long start = System.nanoTime();
+        searches++;
+        if (graph.getVersion() != snapshotVersion) {
+            snapshots++;
+            snapshotVersion = graph.getVersion();
+        }
+        List<Node> route = graph.snapshot().findPath(s, t, metric);
+        Node[] path = route == null ? null : route.toArray(new Node[0]);
+        double cost = 0;
+        if (path != null) {
+            for (int i = 0; i + 1 < path.length; i++) {
+                cost += metric.isWeighted() ? graph.getEdge(path[i], path[i + 1]).getWeight() : 1;
+            }
+        }
+        searchNanos += System.nanoTime() - start;
+        return new Answer(path, cost, batchNo);
+    }
+
+    /**
+     * Returns true if no batch since the answer was computed could have
+     * made a better route appear or the answer's route worse.
+     */
+    private boolean stillOptimal(Answer a, Metric metric) {
+        if (a.batch < markHorizon) return false;
+        boolean weighted = metric.isWeighted();
+        if ((weighted ? lastImprovingWeight : lastImprovingHop) > a.batch) return false;
+        if (a.path == null) return true;
+        for (int i = 0; i + 1 < a.path.length; i++) {
+            long key = linkKey(number(a.path[i].getId()), number(a.path[i + 1].getId()));
+            if (lastDown.getOrDefault(key, 0L) > a.batch) return false;
+            if (weighted && lastIncreased.getOrDefault(key, 0L) > a.batch) return false;
+        }
+        return true;
+    }
+
+    private String compare(Node[] before, Node[] after) {
+        if (before == null && after == null) {
+            same++;
+            return "same";
+        }
+        if (after == null) {
+            lost++;
+            return "lost";
+        }
+        if (before == null) {
+            found++;
+            return "found";
+        }
+        boolean equal = before.length == after.length;
+        for (int i = 0; equal && i < before.length; i++) equal = before[i].getId().equals(after[i].getId());
+        if (equal) {
+            same++;
+            return "same";
+        }
+        changed++;
+        return "changed";
+    }
+
+    // Records that a link changed for the worse in the current batch
+    private void mark(Map<Long, Long> marks, long key) {
+        if (lastDown.size() + lastIncreased.size() >= MAX_MARKS) {
+            // Bounded memory: forget all marks, and with them every older route's proof
+            lastDown.clear();
+            lastIncreased.clear();
+            markHorizon = batchNo;
+        }
+        marks.put(key, batchNo);
+    }
+
+    private int number(String id) {
+        Integer n = numbers.get(id);
+        if (n == null) {
+            n = numbers.size();
+            numbers.put(id, n);
+        }
+        return n;
+    }
+
+    // Key of the undirected link between two node numbers
+    private static long linkKey(int a, int b) {
+        int lo = Math.min(a, b), hi = Math.max(a, b);
+        return ((long) lo << 32) | (hi & 0xffffffffL);
+    }
+
+    // ----- Statistics -----
+
+    // Returns the number of queries answered
+    public long getQueries() {
+        return queries;
+    }
+
+    // Returns the number of route searches run
+    public long getSearches() {
+        return searches;
+    }
+
+    // Returns the number of answers that reused the previous route without a search
+    public long getKept() {
+        return kept;
+    }
+
+    // Returns the number of answers whose route differed from the previous one
+    public long getChanged() {
+        return changed;
+    }
+
+    // Returns the number of link and node events that changed the graph
+    public long getApplied() {
+        return applied;
+    }
+
+    // Returns a one-line summary of the replay so far
+    public String summary() {
+        long repeated = queries - first;
+        double stability = repeated == 0 ? 100 : 100.0 * (kept + same) / repeated;
+        return String.format("events=%d links=%d applied=%d skipped=%d nodes=%d batches=%d errors=%d outOfOrder=%d"
+                        + " | queries=%d first=%d kept=%d same=%d changed=%d lost=%d found=%d stability=%.1f%%"
+                        + " | searches=%d snapshots=%d apply=%dms search=%dms",
+                events, linkEvents, applied, skipped, nodeEvents, batches, errors, outOfOrder,
+                queries, first, kept, same, changed, lost, found, stability,
+                searches, snapshots, applyNanos / 1_000_000, searchNanos / 1_000_000);
+    }
+
+    // A link event waiting in the batch
+    private static final class Pending {
+        final String a, b;
+        int op;
+        double weight;
+
+        Pending(String a, String b, int op, double weight) {
+            this.a = a;
+            this.b = b;
+            this.op = op;
+            this.weight = weight;
+        }
+    }
+
+    // Last answer to a query and the batch it is known to be optimal at
+    private static final class Answer {
+        final Node[] path;
+        final double cost;
+        long batch;
+
+        Answer(Node[] path, double cost, long batch) {
+            this.path = path;
+            this.cost = cost;
+            this.batch = batch;
+        }
+    }
+
+    /** (source, destination, metric) of a query, by node ID. */
+    private static final class RouteKey {
+        private final String source, destination;
+        private final Metric metric;
+
+        RouteKey(String source, String destination, Metric metric) {
+            this.source = source;
+            this.destination = destination;
+            this.metric = metric;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RouteKey)) return false;
+            RouteKey k = (RouteKey) o;
+            return source.equals(k.source) && destination.equals(k.destination) && metric == k.metric;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, destination, metric);
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package com.example.routingsim.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.routingsim.model.Edge;
+import com.example.routingsim.model.Graph;
+import com.example.routingsim.model.GraphListener;
+import com.example.routingsim.model.GraphVersion;
+import com.example.routingsim.model.Node;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Draws a {@link Graph} onto a single {@link Canvas} instead of keeping a
+ * scene-graph shape per node and edge, so that topologies with 100k nodes
+ * can be panned and zoomed.
+ *
+ * Only what lies in the viewport is drawn: the nodes are looked up in the
+ * graph's spatial index, with a margin of the longest edge so that edges
+ * crossing the viewport are found from either end. Detail follows the
+ * zoom level: node labels and edge weights are dropped when zoomed out, and
+ * further out nodes become single dots and edges shorter than a pixel are
+ * skipped. Graph changes only redraw the screen area they touch, and all
+ * changes of one frame are drawn together on the next animation pulse.
+ *
+ * Every redraw reads the graph's latest published {@link GraphVersion},
+ * so a frame never shows half of a batch of edits; the spatial index only
+ * narrows down which of its nodes are looked at.
+ *
+ * Scroll zooms around the pointer, dragging pans. Hit-testing goes through
+ * the spatial index as well ({@link #nodeAt}, {@link #edgeAt}). Graph
+ * changes must be made on the JavaFX application thread while attached.
+ */
+public final class CanvasRenderer implements GraphListener, AutoCloseable {
+
+    // Node radius in world units, as in the shape view
+    private static final double NODE_RADIUS = 14;
+
+    // Zoom levels below which node labels, edge weights and node discs are left out
+    private static final double LABEL_SCALE = 0.6, WEIGHT_SCALE = 1.0, DOT_SCALE = 0.15;
+
+    // Screen margin around dirty areas for text and strokes
+    private static final double TEXT_MARGIN = 30;
+
+    // Pointer distance in pixels within which an edge counts as hit
+    private static final double EDGE_TOLERANCE = 4;
+
+    // Changes in one frame beyond which the whole canvas is redrawn
+    private static final int MAX_DIRTY_MARKS = 256;
+
+    private static final double MIN_SCALE = 1e-4, MAX_SCALE = 50;
+
+    private static final Color BACKGROUND = Color.web("#1e1e1e");
+    private static final Color NODE_FILL = Color.web("#4fc3f7");
+    private static final Color ROUTE = Color.web("#00e676");
+    private static final Color SELECTION = Color.web("#ffab40");
+    private static final Font LABEL_FONT = Font.font(10);
+
+    private final Graph graph;
+    private final Pane host;
+    private final Canvas canvas = new Canvas();
+    private final GraphicsContext gc = canvas.getGraphicsContext2D();
+    private final AnimationTimer timer;
+
+    // Screen = world * scale + offset
+    private double scale = 1, offsetX, offsetY;
+
+    // Longest edge seen, in world units; the culling margin
+    private double maxEdgeLength;
+
+    // Pending redraw: everything, or the union of the dirty screen rectangles
+    private boolean fullRedraw = true;
+    private double dirtyX0 = Double.POSITIVE_INFINITY, dirtyY0 = Double.POSITIVE_INFINITY;
+    private double dirtyX1 = Double.NEGATIVE_INFINITY, dirtyY1 = Double.NEGATIVE_INFINITY;
+    private int dirtyMarks;
+
+    // Nodes found by the last viewport query, reused between frames, and the version they are drawn from
+    private final List<Node> candidates = new ArrayList<>();
+    private GraphVersion topology;
+
+    // Pointer position of the last press or drag, for panning
+    private double dragX, dragY;
+
+    // Overlays: selection, route and the packet travelling along it
+    private Node selectedNode;
+    private Node selectedA, selectedB;
+    private List<Node> route = List.of();
+    private double[] routeLengths;
+    private long packetStart = -1, packetNanos;
+    private double packetX, packetY;
+    private Runnable onArrived;
+
+    /**
+     * Creates a renderer and attaches it: the canvas is added to host and
+     * follows its size, and the renderer starts listening to the graph.
+     */
+    public CanvasRenderer(Graph graph, Pane host) {
+        this.graph = graph;
+        this.host = host;
+        for (Node n : graph.getNodes()) {
+            for (Edge e : graph.getEdges(n)) maxEdgeLength = Math.max(maxEdgeLength, length(e.getFrom(), e.getTo()));
+        }
+
+        canvas.setOnScroll(this::scrolled);
+        canvas.setOnMousePressed(this::pressed);
+        canvas.setOnMouseDragged(this::dragged);
+        host.getChildren().add(0, canvas);
+        graph.addGraphListener(this);
+
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                frame(now);
+            }
+        };
+        timer.start();
+    }
+
+    // Detaches from the graph and removes the canvas from its host
+    @Override
+    public void close() {
+        timer.stop();
+        graph.removeGraphListener(this);
+        host.getChildren().remove(canvas);
+    }
+
+    // Returns the canvas the graph is drawn on
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    // Returns the zoom factor (screen pixels per world unit)
+    public double getScale() {
+        return scale;
+    }
+
+    // ----- Viewport -----
+
+    // Returns the world x coordinate shown at screen x
+    public double toWorldX(double sx) {
+        return (sx - offsetX) / scale;
+    }
+
+    // Returns the world y coordinate shown at screen y
+    public double toWorldY(double sy) {
+        return (sy - offsetY) / scale;
+    }
+
+    // Moves the view by a distance in screen pixels
+    public void pan(double dx, double dy) {
+        offsetX += dx;
+        offsetY += dy;
+        fullRedraw = true;
+    }
+
+    // Zooms by a factor, keeping the world point under (sx, sy) in place
+    public void zoom(double factor, double sx, double sy) {
+        double s = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        offsetX = sx - (sx - offsetX) * s / scale;
+        offsetY = sy - (sy - offsetY) * s / scale;
+        scale = s;
+        fullRedraw = true;
+    }
+
+    /**
+     * Zooms and pans so that the whole graph is visible, never zooming in
+     * beyond 1:1. Also drops the culling margin back to the longest edge
+     * still in the graph.
+     */
+    public void fit() {
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        maxEdgeLength = 0;
+        for (Node n : graph.getNodes()) {
+            x0 = Math.min(x0, n.getX());
+            y0 = Math.min(y0, n.getY());
+            x1 = Math.max(x1, n.getX());
+            y1 = Math.max(y1, n.getY());
+            for (Edge e : graph.getEdges(n)) maxEdgeLength = Math.max(maxEdgeLength, length(e.getFrom(), e.getTo()));
+        }
+        double w = Math.max(host.getWidth(), 1), h = Math.max(host.getHeight(), 1);
+        if (x0 > x1) {
+            scale = 1;
+            offsetX = offsetY = 0;
+        } else {
+            double pad = 2 * NODE_RADIUS;
+            scale = Math.max(MIN_SCALE, Math.min(1, Math.min(w / (x1 - x0 + 2 * pad), h / (y1 - y0 + 2 * pad))));
+            offsetX = (w - (x1 - x0) * scale) / 2 - x0 * scale;
+            offsetY = (h - (y1 - y0) * scale) / 2 - y0 * scale;
+        }
+        fullRedraw = true;
+    }
+
+    private void scrolled(ScrollEvent e) {
+        if (e.getDeltaY() == 0) return;
+        zoom(Math.pow(1.0015, e.getDeltaY()), e.getX(), e.getY());
+        e.consume();
+    }
+
+    private void pressed(MouseEvent e) {
+        dragX = e.getX();
+        dragY = e.getY();
+    }
+
+    private void dragged(MouseEvent e) {
+        pan(e.getX() - dragX, e.getY() - dragY);
+        dragX = e.getX();
+        dragY = e.getY();
+        e.consume();
+    }
+
+    // ----- Hit-testing -----
+
+    // Returns the node drawn at a screen point, or null
+    public Node nodeAt(double sx, double sy) {
+        double r = Math.max(NODE_RADIUS, EDGE_TOLERANCE / scale);
+        return graph.nodeAt(toWorldX(sx), toWorldY(sy), r);
+    }
+
+    /**
+     * Returns the edge drawn closest to a screen point, within a few pixels,
+     * or null. A segment that close has an end within half its length of
+     * the point, so only nodes that near are looked at.
+     */
+    public Edge edgeAt(double sx, double sy) {
+        double x = toWorldX(sx), y = toWorldY(sy), tol = EDGE_TOLERANCE / scale;
+        Edge best = null;
+        double bestDist = tol;
+        for (Node n : graph.nodesWithin(x, y, maxEdgeLength / 2 + tol)) {
+            for (Edge e : graph.getEdges(n)) {
+                double d = segmentDistance(x, y, n, e.getTo());
+                if (d <= bestDist) {
+                    bestDist = d;
+                    best = e;
+                }
+            }
+        }
+        return best;
+    }
+
+    // ----- Overlays -----
+
+    // Highlights a node, or nothing with null
+    public void selectNode(Node n) {
+        selectedNode = n;
+        selectedA = selectedB = null;
+        fullRedraw = true;
+    }
+
+    // Highlights the edge a <-> b
+    public void selectEdge(Node a, Node b) {
+        selectedNode = null;
+        selectedA = a;
+        selectedB = b;
+        fullRedraw = true;
+    }
+
+    /**
+     * Draws a route and sends a packet along it at constant speed, taking
+     * durationNanos from end to end; onArrived runs on arrival.
+     */
+    public void showRoute(List<Node> path, long durationNanos, Runnable onArrived) {
+        route = List.copyOf(path);
+        routeLengths = new double[route.size()];
+        for (int i = 1; i < route.size(); i++) {
+            routeLengths[i] = routeLengths[i - 1] + length(route.get(i - 1), route.get(i));
+        }
+        packetNanos = Math.max(1, durationNanos);
+        packetStart = 0; // set on the next frame
+        packetX = Double.NaN;
+        this.onArrived = onArrived;
+        fullRedraw = true;
+    }
+
+    // Removes the route and its packet
+    public void clearRoute() {
+        route = List.of();
+        packetStart = -1;
+        onArrived = null;
+        fullRedraw = true;
+    }
+
+    // ----- Graph changes -----
+
+    @Override
+    public void nodeAdded(Node n) {
+        markNode(n.getX(), n.getY());
+    }
+
+    @Override
+    public void nodeRemoved(Node n) {
+        markNode(n.getX(), n.getY());
+        if (n == selectedNode) selectedNode = null;
+    }
+
+    @Override
+    public void nodeMoved(Node n, double oldX, double oldY) {
+        markNode(oldX, oldY);
+        markNode(n.getX(), n.getY());
+        for (Edge e : graph.getEdges(n)) {
+            Node m = e.getTo();
+            maxEdgeLength = Math.max(maxEdgeLength, length(n, m));
+            markSegment(oldX, oldY, m.getX(), m.getY());
+            markSegment(n.getX(), n.getY(), m.getX(), m.getY());
+        }
+    }
+
+    @Override
+    public void edgeAdded(Node a, Node b, double weight) {
+        maxEdgeLength = Math.max(maxEdgeLength, length(a, b));
+        markSegment(a.getX(), a.getY(), b.getX(), b.getY());
+    }
+
+    @Override
+    public void edgeRemoved(Node a, Node b, double weight) {
+        markSegment(a.getX(), a.getY(), b.getX(), b.getY());
+        if ((a == selectedA && b == selectedB) || (a == selectedB && b == selectedA)) selectedA = selectedB = null;
+    }
+
+    @Override
+    public void edgeWeightChanged(Edge e, double oldWeight) {
+        markSegment(e.getFrom().getX(), e.getFrom().getY(), e.getTo().getX(), e.getTo().getY());
+    }
+
+    private void markNode(double x, double y) {
+        markSegment(x, y, x, y);
+    }
+
+    // Adds the screen area of a segment, with its end nodes and labels, to the dirty region
+    private void markSegment(double ax, double ay, double bx, double by) {
+        if (fullRedraw) return;
+        if (++dirtyMarks > MAX_DIRTY_MARKS) {
+            fullRedraw = true;
+            return;
+        }
+        double pad = NODE_RADIUS * scale + TEXT_MARGIN;
+        dirtyX0 = Math.min(dirtyX0, Math.min(ax, bx) * scale + offsetX - pad);
+        dirtyY0 = Math.min(dirtyY0, Math.min(ay, by) * scale + offsetY - pad);
+        dirtyX1 = Math.max(dirtyX1, Math.max(ax, bx) * scale + offsetX + pad);
+        dirtyY1 = Math.max(dirtyY1, Math.max(ay, by) * scale + offsetY + pad);
+    }
+
+    // ----- Drawing -----
+
+    private void frame(long now) {
+        double w = host.getWidth(), h = host.getHeight();
+        if (canvas.getWidth() != w || canvas.getHeight() != h) {
+            canvas.setWidth(w);
+            canvas.setHeight(h);
+            fullRedraw = true;
+        }
+        if (packetStart >= 0) movePacket(now);
+
+        if (fullRedraw) {
+            draw(0, 0, w, h, false);
+        } else if (dirtyX0 < dirtyX1) {
+            double x0 = Math.max(0, dirtyX0), y0 = Math.max(0, dirtyY0);
+            double x1 = Math.min(w, dirtyX1), y1 = Math.min(h, dirtyY1);
+            if (x0 < x1 && y0 < y1) draw(x0, y0, x1, y1, true);
+        }
+        fullRedraw = false;
+        dirtyX0 = Double.POSITIVE_INFINITY;
+        dirtyY0 = Double.POSITIVE_INFINITY;
+        dirtyX1 = dirtyY1 = Double.NEGATIVE_INFINITY;
+        dirtyMarks = 0;
+    }
+
+    // Advances the packet and marks where it was and where it is now
+    private void movePacket(long now) {
+        if (packetStart == 0) packetStart = now;
+        double t = Math.min(1, (double) (now - packetStart) / packetNanos);
+        double oldX = packetX, oldY = packetY;
+        positionPacket(t * routeLengths[routeLengths.length - 1]);
+        if (!Double.isNaN(oldX)) markNode(toWorldX(oldX), toWorldY(oldY));
+        markNode(toWorldX(packetX), toWorldY(packetY));
+        if (t >= 1) {
+            packetStart = -1;
+            Runnable done = onArrived;
+            onArrived = null;
+            if (done != null) done.run();
+        }
+    }
+
+    // Puts the packet at a distance along the route, in screen coordinates
+    private void positionPacket(double at) {
+        int i = 1;
+        while (i < routeLengths.length - 1 && routeLengths[i] < at) i++;
+        Node a = route.get(Math.max(0, i - 1)), b = route.get(Math.min(i, route.size() - 1));
+        double len = routeLengths[Math.min(i, routeLengths.length - 1)] - routeLengths[Math.max(0, i - 1)];
+        double f = len > 0 ? (at - routeLengths[i - 1]) / len : 0;
+        packetX = (a.getX() + (b.getX() - a.getX()) * f) * scale + offsetX;
+        packetY = (a.getY() + (b.getY() - a.getY()) * f) * scale + offsetY;
+    }
+
+    /**
+     * Redraws the screen rectangle (x0, y0)-(x1, y1): background, the edges
+     * and nodes that can reach into it, then the overlays.
+     */
+    private void draw(double x0, double y0, double x1, double y1, boolean clip) {
+        gc.save();
+        if (clip) {
+            gc.beginPath();
+            gc.rect(x0, y0, x1 - x0, y1 - y0);
+            gc.clip();
+        }
+        gc.setFill(BACKGROUND);
+        gc.fillRect(x0, y0, x1 - x0, y1 - y0);
+
+        // World rectangle with room for node discs and labels
+        double pad = (NODE_RADIUS * scale + TEXT_MARGIN) / scale;
+        double wx0 = toWorldX(x0) - pad, wy0 = toWorldY(y0) - pad;
+        double wx1 = toWorldX(x1) + pad, wy1 = toWorldY(y1) + pad;
+        double cx = (wx0 + wx1) / 2, cy = (wy0 + wy1) / 2;
+        double reach = Math.hypot(wx1 - wx0, wy1 - wy0) / 2 + maxEdgeLength;
+        candidates.clear();
+        topology = graph.current();
+        graph.spatialIndex().forEachWithinRange(cx, cy, reach, n -> {
+            if (topology.contains(n)) candidates.add(n);
+        });
+
+        drawEdges(wx0, wy0, wx1, wy1);
+        drawNodes(wx0, wy0, wx1, wy1);
+        drawOverlays();
+        gc.restore();
+    }
+
+    private void drawEdges(double wx0, double wy0, double wx1, double wy1) {
+        boolean weights = scale >= WEIGHT_SCALE;
+        double minLength = 1 / scale;
+
+        // All plain edges go into one path, which is far cheaper than a stroke per line
+        gc.setStroke(Color.WHITE);
+        gc.setLineWidth(Math.max(0.5, Math.min(2, 2 * scale)));
+        gc.beginPath();
+        for (Node a : candidates) {
+            double ax = topology.x(a), ay = topology.y(a);
+            for (int i = 0, d = topology.degree(a); i < d; i++) {
+                Node b = topology.neighbor(a, i);
+                if (!drawnFrom(a, b)) continue;
+                double bx = topology.x(b), by = topology.y(b);
+                if (!crosses(ax, ay, bx, by, wx0, wy0, wx1, wy1)) continue;
+                if (Math.abs(ax - bx) < minLength && Math.abs(ay - by) < minLength) continue;
+                gc.moveTo(ax * scale + offsetX, ay * scale + offsetY);
+                gc.lineTo(bx * scale + offsetX, by * scale + offsetY);
+            }
+        }
+        gc.stroke();
+
+        if (!weights) return;
+        gc.setFill(Color.YELLOW);
+        gc.setFont(LABEL_FONT);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.TOP);
+        for (Node a : candidates) {
+            for (int i = 0, d = topology.degree(a); i < d; i++) {
+                Node b = topology.neighbor(a, i);
+                double mx = (topology.x(a) + topology.x(b)) / 2, my = (topology.y(a) + topology.y(b)) / 2;
+                if (!drawnFrom(a, b) || mx < wx0 || mx > wx1 || my < wy0 || my > wy1) continue;
+                gc.fillText(String.valueOf(topology.weight(a, i)), mx * scale + offsetX, my * scale + offsetY);
+            }
+        }
+    }
+
+    private void drawNodes(double wx0, double wy0, double wx1, double wy1) {
+        double r = NODE_RADIUS * scale;
+        if (scale < DOT_SCALE) {
+            gc.setFill(NODE_FILL);
+            for (Node n : candidates) {
+                double x = topology.x(n), y = topology.y(n);
+                if (!inside(x, y, wx0, wy0, wx1, wy1)) continue;
+                gc.fillRect(x * scale + offsetX - 1, y * scale + offsetY - 1, 2, 2);
+            }
+            return;
+        }
+
+        gc.setStroke(Color.WHITE);
+        gc.setLineWidth(1);
+        for (Node n : candidates) {
+            double x = topology.x(n), y = topology.y(n);
+            if (!inside(x, y, wx0, wy0, wx1, wy1)) continue;
+            double sx = x * scale + offsetX, sy = y * scale + offsetY;
+            gc.setFill(NODE_FILL);
+            gc.fillOval(sx - r, sy - r, 2 * r, 2 * r);
+            gc.strokeOval(sx - r, sy - r, 2 * r, 2 * r);
+        }
+        if (scale < LABEL_SCALE) return;
+
+        gc.setFill(Color.WHITE);
+        gc.setFont(LABEL_FONT);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        for (Node n : candidates) {
+            double x = topology.x(n), y = topology.y(n);
+            if (!inside(x, y, wx0, wy0, wx1, wy1)) continue;
+            gc.fillText(n.getId(), x * scale + offsetX, y * scale + offsetY);
+        }
+    }
+
+    private void drawOverlays() {
+        double r = Math.max(3, NODE_RADIUS * scale);
+        gc.setStroke(SELECTION);
+        gc.setLineWidth(3);
+        if (selectedNode != null) {
+            double sx = selectedNode.getX() * scale + offsetX, sy = selectedNode.getY() * scale + offsetY;
+            gc.strokeOval(sx - r - 2, sy - r - 2, 2 * r + 4, 2 * r + 4);
+        }
+        if (selectedA != null) {
+            gc.strokeLine(selectedA.getX() * scale + offsetX, selectedA.getY() * scale + offsetY,
+                    selectedB.getX() * scale + offsetX, selectedB.getY() * scale + offsetY);
+        }
+
+        if (route.size() > 1) {
+            gc.setStroke(ROUTE);
+            gc.setLineDashes(6, 4);
+            gc.beginPath();
+            Node first = route.get(0);
+            gc.moveTo(first.getX() * scale + offsetX, first.getY() * scale + offsetY);
+            for (int i = 1; i < route.size(); i++) {
+                gc.lineTo(route.get(i).getX() * scale + offsetX, route.get(i).getY() * scale + offsetY);
+            }
+            gc.stroke();
+            gc.setLineDashes();
+        }
+        if (packetStart >= 0 && !Double.isNaN(packetX)) {
+            gc.setFill(Color.RED);
+            gc.fillOval(packetX - 6, packetY - 6, 12, 12);
+        }
+    }
+
+    // ----- Geometry -----
+
+    // True for one of the two directions of each undirected edge; the nodes of a graph have distinct handles
+    private static boolean drawnFrom(Node a, Node b) {
+        return a.getHandle() < b.getHandle();
+    }
+
+    private static boolean inside(double x, double y, double x0, double y0, double x1, double y1) {
+        return x >= x0 && x <= x1 && y >= y0 && y <= y1;
+    }
+
+    // Bounding-box test of segment a-b against a rectangle; conservative, which is all culling needs
+    private static boolean crosses(double ax, double ay, double bx, double by,
+                                   double x0, double y0, double x1, double y1) {
+        return Math.max(ax, bx) >= x0 && Math.min(ax, bx) <= x1
+                && Math.max(ay, by) >= y0 && Math.min(ay, by) <= y1;
+    }
+
+    private static double length(Node a, Node b) {
+        return Math.hypot(a.getX() - b.getX(), a.getY() - b.getY());
+    }
+
+    private static double segmentDistance(double x, double y, Node a, Node b) {
+        double dx = b.getX() - a.getX(), dy = b.getY() - a.getY();
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((x - a.getX()) * dx + (y - a.getY()) * dy) / len2));
+        return Math.hypot(x - (a.getX() + t * dx), y - (a.getY() + t * dy));
+    }
+}